@@ -0,0 +1,55 @@
+#!/usr/bin/env bash
+#
+# Time-to-first-answer of the CLI: runs each available variant N times and prints wall-clock statistics.
+#
+#   jar      java -jar target/calculator-<version>.jar            (mvn -DskipTests package)
+#   jar+cds  same, with the AppCDS archive target/calculator.jsa  (mvn -Pcds -DskipTests package)
+#   native   target/calculator                                    (mvn -Pnative -DskipTests package)
+#
+# usage: scripts/startup-benchmark.sh [runs] [expression]
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+runs=${1:-20}
+expression=${2:-"3 * -2 + 4 / 2 ^ 2"}
+java=${JAVA_HOME:+$JAVA_HOME/bin/}java
+jar=$(ls target/calculator-*.jar 2>/dev/null | grep -v original | head -n 1 || true)
+
+# prints: runs mean min p50 p90 max (milliseconds)
+measure() {
+  local times=()
+  "$@" > /dev/null  # warm the page cache
+  for ((i = 0; i < runs; i++)); do
+    local start end
+    start=$(date +%s%N)
+    "$@" > /dev/null
+    end=$(date +%s%N)
+    times+=($(((end - start) / 1000)))
+  done
+  printf '%s\n' "${times[@]}" | sort -n | awk -v n="$runs" '
+    { t[NR] = $1; sum += $1 }
+    END {
+      p50 = int((n + 1) / 2); p90 = int(n * 0.9); if (p90 < 1) p90 = 1
+      printf "%5d %9.1f %9.1f %9.1f %9.1f %9.1f\n", n, sum / n / 1000, t[1] / 1000, t[p50] / 1000, t[p90] / 1000,
+        t[n] / 1000
+    }'
+}
+
+printf '%-8s %5s %9s %9s %9s %9s %9s\n' variant runs mean_ms min_ms p50_ms p90_ms max_ms
+
+if [[ -n "$jar" ]]; then
+  printf '%-8s ' jar
+  measure "$java" -jar "$jar" "$expression"
+  if [[ -f target/calculator.jsa ]]; then
+    printf '%-8s ' jar+cds
+    measure "$java" -XX:SharedArchiveFile=target/calculator.jsa -jar "$jar" "$expression"
+  fi
+else
+  echo "no shaded jar in target/, run: mvn -DskipTests package" >&2
+fi
+
+if [[ -x target/calculator ]]; then
+  printf '%-8s ' native
+  measure target/calculator "$expression"
+fi
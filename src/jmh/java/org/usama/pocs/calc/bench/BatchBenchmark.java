@@ -0,0 +1,81 @@
+package org.usama.pocs.calc.bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.usama.pocs.calc.api.Calculator;
+import org.usama.pocs.calc.api.CompiledExpression;
+
+/**
+ * Scoring one formula over many rows: compile once and evaluate columns, versus substituting each row's values into
+ * the expression text and calling {@link Calculator#calculate(String)}. Scores are per row.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BatchBenchmark {
+
+    static final int ROWS = 1 << 20;
+    static final int CHUNK_SIZE = 1 << 14;
+    /** string substitution is slow; a slice keeps invocations short. */
+    static final int SUBSTITUTED_ROWS = 10_000;
+    static final String FORMULA = "a * 3 + b / 7 - a * b";
+
+    private Calculator calculator;
+    private CompiledExpression compiled;
+    private long[][] columns;
+    private long[] out;
+
+    @Setup
+    public void setUp() {
+        calculator = new Calculator(0);
+        compiled = calculator.compile(FORMULA);
+        var random = new SplittableRandom(42);
+        columns = new long[2][ROWS];
+        for (long[] column : columns) {
+            for (int r = 0; r < ROWS; r++) {
+                column[r] = random.nextInt(1, 10_000);
+            }
+        }
+        out = new long[ROWS];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long[] evaluateBatch() {
+        compiled.evaluateBatch(columns, out);
+        return out;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long[] evaluateBatchParallel() {
+        compiled.evaluateBatchParallel(columns, out, CHUNK_SIZE);
+        return out;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SUBSTITUTED_ROWS)
+    public void calculatePerRow(Blackhole bh) {
+        for (int r = 0; r < SUBSTITUTED_ROWS; r++) {
+            var expression = FORMULA
+                .replace("a", Long.toString(columns[0][r]))
+                .replace("b", Long.toString(columns[1][r]));
+            bh.consume(calculator.calculate(expression));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.usama.pocs.calc.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.usama.pocs.calc.api.Calculator;
+import org.usama.pocs.calc.metrics.MetricsRecorder;
+
+/**
+ * End-to-end {@link Calculator#calculate(String)}, with and without the compiled-expression cache, and with a
+ * {@link MetricsRecorder} attached to measure the cost of instrumentation against the no-op default.
+ * <p>Run with {@code -Dcalc.level=OFF} (passed through {@code -jvmArgsAppend}) to keep file logging out of the
+ * measurement.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CalculatorBenchmark {
+
+    @Param({"3", "32", "512"})
+    int operands;
+
+    @Param({"ADDITIVE", "MULTIPLICATIVE", "MIXED"})
+    Expressions.Mix mix;
+
+    private String expression;
+    private Calculator cached;
+    private Calculator uncached;
+    private Calculator instrumented;
+
+    @Setup
+    public void setUp() {
+        expression = Expressions.generate(operands, mix, 42);
+        cached = new Calculator();
+        uncached = new Calculator(0);
+        instrumented = Calculator.builder().instrumentation(new MetricsRecorder()).build();
+    }
+
+    @Benchmark
+    public long calculateCached() {
+        return cached.calculate(expression);
+    }
+
+    @Benchmark
+    public long calculateUncached() {
+        return uncached.calculate(expression);
+    }
+
+    @Benchmark
+    public long calculateInstrumented() {
+        return instrumented.calculate(expression);
+    }
+}
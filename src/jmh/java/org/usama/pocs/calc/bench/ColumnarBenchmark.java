@@ -0,0 +1,84 @@
+package org.usama.pocs.calc.bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.usama.pocs.calc.api.Calculator;
+import org.usama.pocs.calc.api.CompiledExpression;
+import org.usama.pocs.calc.eval.ColumnarEvaluator;
+
+/**
+ * Scoring one formula over many rows, row by row versus an instruction at a time over chunks of rows.
+ * <ul>
+ *     <li>{@code evaluateBatch} - the row-wise batch path, on the JIT tier once the formula is hot;</li>
+ *     <li>{@code evaluateColumnar} - {@link ColumnarEvaluator} on {@code LongVector} lanes;</li>
+ *     <li>{@code columnarScalar} - {@link ColumnarEvaluator#scalar()}, the fallback without the incubator
+ *     module.</li>
+ * </ul>
+ * <p>The fork adds {@code jdk.incubator.vector}. Formulas cover the vectorized operators, division, which runs one
+ * lane at a time, and the functions. Operands are between 1 and 10,000, so no row overflows. Scores are per
+ * row.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Thread)
+public class ColumnarBenchmark {
+
+    static final int ROWS = 1 << 20;
+
+    @Param({"a * b + c * 3 - a", "a * 3 + b / 7 - a * b", "max(a, b) - abs(c - a) + min(b, 7)"})
+    String formula;
+
+    private CompiledExpression compiled;
+    private final ColumnarEvaluator scalar = ColumnarEvaluator.scalar();
+    private long[][] columns;
+    private long[] out;
+
+    @Setup
+    public void setUp() {
+        compiled = new Calculator(0).compile(formula);
+        var random = new SplittableRandom(42);
+        columns = new long[compiled.variables().size()][ROWS];
+        for (long[] column : columns) {
+            for (int r = 0; r < ROWS; r++) {
+                column[r] = random.nextInt(1, 10_000);
+            }
+        }
+        out = new long[ROWS];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long[] evaluateBatch() {
+        compiled.evaluateBatch(columns, out);
+        return out;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long[] evaluateColumnar() {
+        compiled.evaluateColumnar(columns, out);
+        return out;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long[] columnarScalar() {
+        scalar.execute(compiled.program(), columns, out);
+        return out;
+    }
+}
@@ -0,0 +1,80 @@
+package org.usama.pocs.calc.bench;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.usama.pocs.calc.api.Calculator;
+import org.usama.pocs.calc.api.Diagnostics;
+import org.usama.pocs.calc.api.StreamingEvaluator;
+import org.usama.pocs.calc.eval.TieredProgram;
+
+/**
+ * Throughput of one {@link Calculator} shared by all benchmark threads against allocating per call.
+ * <ul>
+ *     <li>{@code shared} - one calculator for every thread, looking the expression up in its cache;</li>
+ *     <li>{@code perCall} - a new calculator for every call, as a web tier that does not trust sharing would do. It
+ *     has no warm cache, so every call lexes and parses;</li>
+ *     <li>{@code streamingShared} - {@link Calculator#calculate(Reader)}, which borrows a pooled
+ *     {@link StreamingEvaluator} and its read buffer;</li>
+ *     <li>{@code streamingPerCall} - a new {@link StreamingEvaluator} for every call.</li>
+ * </ul>
+ * <p>Expressions are not compiled to bytecode ({@link TieredProgram#NEVER}), so every evaluation is interpreted.
+ * JMH takes the thread count on the command line; run with {@code -t 1}, {@code -t 4}, {@code -t 16} and
+ * {@code -t 64} to see how the variants scale.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConcurrencyBenchmark {
+
+    @Param({"8", "64"})
+    int operands;
+
+    private String expression;
+    private Calculator shared;
+
+    @Setup
+    public void setUp() {
+        expression = Expressions.generate(operands, Expressions.Mix.MIXED, 42);
+        shared = calculator();
+    }
+
+    @Benchmark
+    public long shared() {
+        return shared.calculate(expression);
+    }
+
+    @Benchmark
+    public long perCall() {
+        return calculator().calculate(expression);
+    }
+
+    @Benchmark
+    public long streamingShared() throws IOException {
+        return shared.calculate(new StringReader(expression));
+    }
+
+    @Benchmark
+    public long streamingPerCall() throws IOException {
+        return new StreamingEvaluator().evaluate(new StringReader(expression));
+    }
+
+    private static Calculator calculator() {
+        return Calculator.builder().jitThreshold(TieredProgram.NEVER).diagnostics(Diagnostics.off()).build();
+    }
+}
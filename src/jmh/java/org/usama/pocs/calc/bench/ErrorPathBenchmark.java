@@ -0,0 +1,80 @@
+package org.usama.pocs.calc.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.usama.pocs.calc.api.CalcResult;
+import org.usama.pocs.calc.api.Calculator;
+import org.usama.pocs.calc.api.Diagnostics;
+import org.usama.pocs.calc.exception.CalcException;
+
+/**
+ * Cost of rejecting invalid input against accepting valid input.
+ * <ul>
+ *     <li>{@code calculateValid} / {@code tryCalculateValid} - a valid expression, served from the cache;</li>
+ *     <li>{@code calculateInvalid} - the same expression with an unbalanced {@code )} at the end, rejected by
+ *     throwing, which is caught here;</li>
+ *     <li>{@code tryCalculateInvalid} - the invalid expression through
+ *     {@link Calculator#tryCalculate(String, CalcResult)}, which creates no exception.</li>
+ * </ul>
+ * <p>The defect is at the end, so every invalid call scans the whole input. Diagnostics are off to keep logging out
+ * of the measurement.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ErrorPathBenchmark {
+
+    @Param({"8", "64"})
+    int operands;
+
+    private String valid;
+    private String invalid;
+    private Calculator calculator;
+    private final CalcResult result = new CalcResult();
+
+    @Setup
+    public void setUp() {
+        valid = Expressions.generate(operands, Expressions.Mix.MIXED, 42);
+        invalid = valid + " )";
+        calculator = Calculator.builder().diagnostics(Diagnostics.off()).build();
+    }
+
+    @Benchmark
+    public long calculateValid() {
+        return calculator.calculate(valid);
+    }
+
+    @Benchmark
+    public long calculateInvalid() {
+        try {
+            return calculator.calculate(invalid);
+        } catch (CalcException e) {
+            return e.getMessage().length();
+        }
+    }
+
+    @Benchmark
+    public long tryCalculateValid() {
+        calculator.tryCalculate(valid, result);
+        return result.value();
+    }
+
+    @Benchmark
+    public int tryCalculateInvalid() {
+        calculator.tryCalculate(invalid, result);
+        return result.offset();
+    }
+}
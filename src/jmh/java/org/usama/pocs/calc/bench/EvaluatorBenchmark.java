@@ -0,0 +1,98 @@
+package org.usama.pocs.calc.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.usama.pocs.calc.eval.DecimalProgram;
+import org.usama.pocs.calc.eval.DoubleEvaluator;
+import org.usama.pocs.calc.eval.RpnCompiler;
+import org.usama.pocs.calc.eval.RpnEvaluator;
+import org.usama.pocs.calc.eval.RpnProgram;
+import org.usama.pocs.calc.eval.TieredDoubleProgram;
+import org.usama.pocs.calc.eval.TieredProgram;
+import org.usama.pocs.calc.lex.Lexer;
+import org.usama.pocs.calc.lex.Token;
+import org.usama.pocs.calc.parse.ShuntingYardParser;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EvaluatorBenchmark {
+
+    @Param({"3", "32", "512"})
+    int operands;
+
+    @Param({"ADDITIVE", "MULTIPLICATIVE", "MIXED"})
+    Expressions.Mix mix;
+
+    private List<Token> rpnTokens;
+    private RpnProgram program;
+    private TieredProgram compiled;
+    private long[] stack;
+    private RpnEvaluator evaluator;
+    private DecimalProgram decimalProgram;
+    private TieredDoubleProgram compiledDouble;
+    private double[] doubleStack;
+    private double[] noVariables;
+    private DoubleEvaluator doubleEvaluator;
+
+    @Setup
+    public void setUp() {
+        evaluator = new RpnEvaluator();
+        rpnTokens = new ShuntingYardParser().parse(new Lexer().tokenize(Expressions.generate(operands, mix, 42)));
+        program = new RpnCompiler().compile(rpnTokens);
+        stack = new long[program.maxStackDepth()];
+        compiled = new TieredProgram(program, 0);
+        compiled.execute();
+
+        doubleEvaluator = new DoubleEvaluator();
+        decimalProgram = new RpnCompiler().compileDecimal(rpnTokens);
+        doubleStack = new double[decimalProgram.maxStackDepth()];
+        noVariables = new double[0];
+        compiledDouble = new TieredDoubleProgram(decimalProgram, 0);
+        compiledDouble.execute();
+    }
+
+    /** compile + execute from the token list. */
+    @Benchmark
+    public long evaluateTokens() {
+        return evaluator.evaluate(rpnTokens);
+    }
+
+    /** interpreter loop only, on a reused stack. */
+    @Benchmark
+    public long executeProgram() {
+        return evaluator.execute(program, stack);
+    }
+
+    /** generated bytecode tier. */
+    @Benchmark
+    public long executeCompiled() {
+        return compiled.execute();
+    }
+
+    /** double interpreter loop, on a reused stack; compare with executeProgram. */
+    @Benchmark
+    public double executeDoubleProgram() {
+        return doubleEvaluator.execute(decimalProgram, noVariables, doubleStack);
+    }
+
+    /** generated double bytecode tier; compare with executeCompiled. */
+    @Benchmark
+    public double executeDoubleCompiled() {
+        return compiledDouble.execute();
+    }
+}
@@ -0,0 +1,56 @@
+package org.usama.pocs.calc.bench;
+
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic expression generator for benchmarks.
+ * <p>Generated expressions never overflow or divide by zero, so every benchmark measures the successful path.</p>
+ */
+public final class Expressions {
+
+    /**
+     * Operator mixes available to benchmarks as {@code @Param} values.
+     */
+    public enum Mix {
+        /** only {@code +} and {@code -}: no precedence changes, shallow operator stack. */
+        ADDITIVE,
+        /** pairs of {@code * d / d}: every operator has the same precedence. */
+        MULTIPLICATIVE,
+        /** sums of products: alternating precedence levels. */
+        MIXED
+    }
+
+    private Expressions() {
+    }
+
+    /**
+     * Generates an expression with {@code operands} numbers.
+     *
+     * @param operands number of operands, at least 1
+     * @param mix      operator mix
+     * @param seed     random seed
+     * @return a whitespace-separated infix expression
+     */
+    public static String generate(int operands, Mix mix, long seed) {
+        var random = new SplittableRandom(seed);
+        var sb = new StringBuilder(operands * 6);
+        sb.append(1 + random.nextInt(9));
+
+        for (int i = 1; i < operands; i++) {
+            int digit = 1 + random.nextInt(9);
+            switch (mix) {
+                case ADDITIVE -> sb.append(random.nextBoolean() ? " + " : " - ").append(digit);
+                case MULTIPLICATIVE -> {
+                    if (i % 2 == 1) {
+                        sb.append(" * ").append(digit);
+                    } else {
+                        // divide by the previous factor to keep the value bounded
+                        sb.append(" / ").append(sb.charAt(sb.length() - 1));
+                    }
+                }
+                case MIXED -> sb.append(i % 2 == 1 ? (random.nextBoolean() ? " + " : " - ") : " * ").append(digit);
+            }
+        }
+        return sb.toString();
+    }
+}
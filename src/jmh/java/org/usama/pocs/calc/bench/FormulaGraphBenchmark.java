@@ -0,0 +1,123 @@
+package org.usama.pocs.calc.bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.usama.pocs.calc.api.Calculator;
+import org.usama.pocs.calc.api.CompiledExpression;
+import org.usama.pocs.calc.api.Diagnostics;
+import org.usama.pocs.calc.eval.TieredProgram;
+import org.usama.pocs.calc.graph.FormulaGraph;
+
+/**
+ * Cost of bringing a model of interdependent formulas up to date after one input changed.
+ * <ul>
+ *     <li>{@code recomputeAll} - every formula is evaluated again in dependency order, from compiled
+ *     expressions;</li>
+ *     <li>{@code incremental} - a {@link FormulaGraph} evaluates only the formulas the change reaches;</li>
+ *     <li>{@code incrementalParallel} - the same, splitting wide levels across the common pool.</li>
+ * </ul>
+ * <p>The model has {@code formulas} formulas over 1000 inputs in eight layers. Each formula halves a formula of the
+ * layer below, or an input in the first layer, and adds the difference of two inputs, so an
+ * input change reaches a few dozen formulas. Each invocation sets a different input to a new value. Formulas stay
+ * interpreted: {@code recomputeAll} would otherwise cross the JIT threshold of all of them at once mid-measurement,
+ * while the incremental benchmarks evaluate too few formulas to cross it at all.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FormulaGraphBenchmark {
+
+    private static final int INPUTS = 1000;
+    private static final int LAYERS = 8;
+
+    @Param({"10000"})
+    int formulas;
+
+    private FormulaGraph graph;
+    private CompiledExpression[] compiled;
+    /** Per formula, the index in {@code values} of each of its variables; inputs come first, then formulas. */
+    private int[][] slots;
+    private long[] values;
+    private final long[] arguments = new long[3];
+    private long tick;
+
+    @Setup
+    public void setUp() {
+        var calculator = Calculator.builder()
+            .diagnostics(Diagnostics.off())
+            .jitThreshold(TieredProgram.NEVER)
+            .build();
+        graph = new FormulaGraph(calculator);
+        compiled = new CompiledExpression[formulas];
+        slots = new int[formulas][];
+        values = new long[INPUTS + formulas];
+        var random = new SplittableRandom(7);
+        int layerSize = formulas / LAYERS;
+        for (int i = 0; i < formulas; i++) {
+            int layer = i / layerSize;
+            int below = layer == 0 ? random.nextInt(INPUTS) : INPUTS + (layer - 1) * layerSize + random.nextInt(layerSize);
+            var formula = name(below) + " / 2 + " + name(random.nextInt(INPUTS)) + " - " + name(random.nextInt(INPUTS));
+            graph.define(name(INPUTS + i), formula);
+            compiled[i] = calculator.compile(formula);
+            slots[i] = compiled[i].variables().stream().mapToInt(FormulaGraphBenchmark::index).toArray();
+        }
+        for (int i = 0; i < INPUTS; i++) {
+            graph.set(name(i), i);
+            values[i] = i;
+        }
+        graph.recalculate();
+    }
+
+    @Benchmark
+    public long recomputeAll() {
+        values[next()] = tick;
+        for (int i = 0; i < formulas; i++) {
+            int[] variables = slots[i];
+            for (int v = 0; v < variables.length; v++) {
+                arguments[v] = values[variables[v]];
+            }
+            values[INPUTS + i] = compiled[i].evaluate(arguments);
+        }
+        return values[values.length - 1];
+    }
+
+    @Benchmark
+    public int incremental() {
+        graph.set(name(next()), tick);
+        return graph.recalculate();
+    }
+
+    @Benchmark
+    public int incrementalParallel() {
+        graph.set(name(next()), tick);
+        return graph.recalculateParallel();
+    }
+
+    private int next() {
+        tick++;
+        return (int) (tick % INPUTS);
+    }
+
+    private static String name(int index) {
+        return index < INPUTS ? "in" + index : "f" + (index - INPUTS);
+    }
+
+    private static int index(String name) {
+        int number = Integer.parseInt(name.substring(name.startsWith("in") ? 2 : 1));
+        return name.startsWith("in") ? number : INPUTS + number;
+    }
+}
@@ -0,0 +1,54 @@
+package org.usama.pocs.calc.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.usama.pocs.calc.lex.Lexer;
+import org.usama.pocs.calc.lex.Token;
+import org.usama.pocs.calc.lex.TokenBuffer;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LexerBenchmark {
+
+    @Param({"3", "32", "512"})
+    int operands;
+
+    @Param({"ADDITIVE", "MULTIPLICATIVE", "MIXED"})
+    Expressions.Mix mix;
+
+    private String expression;
+    private Lexer lexer;
+    private TokenBuffer buffer;
+
+    @Setup
+    public void setUp() {
+        expression = Expressions.generate(operands, mix, 42);
+        lexer = new Lexer();
+        buffer = new TokenBuffer();
+    }
+
+    @Benchmark
+    public List<Token> tokenize() {
+        return lexer.tokenize(expression);
+    }
+
+    @Benchmark
+    public int scan() {
+        return lexer.scan(expression, buffer);
+    }
+}
@@ -0,0 +1,59 @@
+package org.usama.pocs.calc.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.usama.pocs.calc.eval.RpnCompiler;
+import org.usama.pocs.calc.eval.RpnProgram;
+import org.usama.pocs.calc.lex.Lexer;
+import org.usama.pocs.calc.lex.Token;
+import org.usama.pocs.calc.parse.ExpressionParser;
+import org.usama.pocs.calc.parse.ShuntingYardParser;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParserBenchmark {
+
+    @Param({"3", "32", "512"})
+    int operands;
+
+    @Param({"ADDITIVE", "MULTIPLICATIVE", "MIXED"})
+    Expressions.Mix mix;
+
+    private List<Token> tokens;
+    private List<Token> rpnTokens;
+    private ExpressionParser parser;
+    private RpnCompiler compiler;
+
+    @Setup
+    public void setUp() {
+        parser = new ShuntingYardParser();
+        compiler = new RpnCompiler();
+        tokens = new Lexer().tokenize(Expressions.generate(operands, mix, 42));
+        rpnTokens = parser.parse(tokens);
+    }
+
+    @Benchmark
+    public List<Token> parse() {
+        return parser.parse(tokens);
+    }
+
+    @Benchmark
+    public RpnProgram compile() {
+        return compiler.compile(rpnTokens);
+    }
+}
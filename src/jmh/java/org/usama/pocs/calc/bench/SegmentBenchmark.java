@@ -0,0 +1,111 @@
+package org.usama.pocs.calc.bench;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.usama.pocs.calc.api.Calculator;
+import org.usama.pocs.calc.api.CompiledExpression;
+import org.usama.pocs.calc.eval.SegmentEvaluator;
+
+/**
+ * Scoring a formula over memory-mapped column files.
+ * <ul>
+ *     <li>{@code heapCopy} - each column is copied into a {@code long[]}, evaluated with
+ *     {@link CompiledExpression#evaluateColumnar(long[][], long[])}, and the results copied to the output file;</li>
+ *     <li>{@code segments} - {@link SegmentEvaluator} evaluates the mapped columns in place.</li>
+ * </ul>
+ * <p>Three columns of {@value #ROWS} rows, 32 MiB each, in native byte order. The fork enables preview features
+ * for {@code java.lang.foreign} on Java 21 and adds {@code jdk.incubator.vector}. Scores are per row; compare the
+ * bytes allocated per row as well.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class SegmentBenchmark {
+
+    static final int ROWS = 1 << 22;
+    static final String FORMULA = "a * b + c * 3 - a";
+
+    private final SegmentEvaluator evaluator = new SegmentEvaluator();
+    private CompiledExpression compiled;
+    private Path directory;
+    private Arena arena;
+    private MemorySegment[] columns;
+    private MemorySegment out;
+
+    @Setup
+    public void setUp() throws IOException {
+        compiled = new Calculator(0).compile(FORMULA);
+        directory = Files.createTempDirectory("columns");
+        arena = Arena.ofShared();
+        var random = new SplittableRandom(42);
+        columns = new MemorySegment[compiled.variables().size()];
+        for (int v = 0; v < columns.length; v++) {
+            columns[v] = map(directory.resolve(v + ".col"));
+            for (long r = 0; r < ROWS; r++) {
+                columns[v].setAtIndex(ValueLayout.JAVA_LONG, r, random.nextInt(1, 10_000));
+            }
+        }
+        out = map(directory.resolve("out.col"));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        arena.close();
+        try (var files = Files.list(directory)) {
+            for (var file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public MemorySegment heapCopy() {
+        long[][] heap = new long[columns.length][];
+        for (int v = 0; v < heap.length; v++) {
+            heap[v] = columns[v].toArray(ValueLayout.JAVA_LONG);
+        }
+        long[] results = new long[ROWS];
+        compiled.evaluateColumnar(heap, results);
+        MemorySegment.copy(results, 0, out, ValueLayout.JAVA_LONG, 0, ROWS);
+        return out;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public MemorySegment segments() {
+        evaluator.execute(compiled.program(), columns, out);
+        return out;
+    }
+
+    private MemorySegment map(Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) ROWS * Long.BYTES, arena);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package org.usama.pocs.calc.bench;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.usama.pocs.calc.metrics.LatencyRecorder;
+import org.usama.pocs.calc.server.CalcClient;
+
+/**
+ * Closed-loop load generator for the {@code --serve} mode.
+ * <p>Each connection repeatedly sends a window of {@code --pipeline} expressions, flushes, and reads the responses.
+ * Latency is measured per request from the flush of its window to the arrival of its response, so it includes the
+ * time spent queued behind earlier requests of the same window. Reports throughput and latency percentiles after a
+ * warm-up period.</p>
+ * <pre>
+ * java -jar target/calculator-1.0.0.jar --serve &amp;
+ * java -cp target/benchmarks.jar org.usama.pocs.calc.bench.ServerLoadGenerator \
+ *     --connections 8 --pipeline 16 --seconds 10
+ * </pre>
+ */
+public final class ServerLoadGenerator {
+
+    private ServerLoadGenerator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        SocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), 7070);
+        int connections = 4;
+        int pipeline = 16;
+        int operands = 8;
+        int warmupSeconds = 3;
+        int seconds = 10;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--port" -> address = new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                    Integer.parseInt(value));
+                case "--socket" -> address = UnixDomainSocketAddress.of(Path.of(value));
+                case "--connections" -> connections = Integer.parseInt(value);
+                case "--pipeline" -> pipeline = Integer.parseInt(value);
+                case "--operands" -> operands = Integer.parseInt(value);
+                case "--warmup" -> warmupSeconds = Integer.parseInt(value);
+                case "--seconds" -> seconds = Integer.parseInt(value);
+                default -> throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+
+        String[] expressions = new String[256];
+        for (int i = 0; i < expressions.length; i++) {
+            expressions[i] = Expressions.generate(operands, Expressions.Mix.MIXED, i);
+        }
+
+        var latency = new LatencyRecorder();
+        var completed = new LongAdder();
+        var errors = new LongAdder();
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long stopAt = measureFrom + TimeUnit.SECONDS.toNanos(seconds);
+
+        List<Thread> workers = new ArrayList<>();
+        for (int c = 0; c < connections; c++) {
+            var client = CalcClient.connect(address);
+            int window = pipeline;
+            int offset = c;
+            workers.add(Thread.ofPlatform().name("load-" + c).start(() -> {
+                try (client) {
+                    int next = offset;
+                    while (true) {
+                        for (int i = 0; i < window; i++) {
+                            client.send(expressions[next++ & (expressions.length - 1)]);
+                        }
+                        long sent = System.nanoTime();
+                        client.flush();
+                        for (int i = 0; i < window; i++) {
+                            var response = client.receive();
+                            long now = System.nanoTime();
+                            if (now >= measureFrom) {
+                                latency.record(now - sent);
+                                completed.increment();
+                                if (!response.isOk()) {
+                                    errors.increment();
+                                }
+                            }
+                        }
+                        if (System.nanoTime() >= stopAt) {
+                            return;
+                        }
+                    }
+                } catch (IOException e) {
+                    System.err.println(Thread.currentThread().getName() + " failed: " + e);
+                }
+            }));
+        }
+        for (var worker : workers) {
+            worker.join();
+        }
+
+        double elapsed = (System.nanoTime() - measureFrom) / 1e9;
+        var snapshot = latency.snapshot();
+        System.out.printf("connections=%d pipeline=%d operands=%d%n", connections, pipeline, operands);
+        System.out.printf("requests=%d errors=%d throughput=%.0f req/s%n",
+            completed.sum(), errors.sum(), completed.sum() / elapsed);
+        System.out.printf("latency us: mean=%.1f p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f%n",
+            snapshot.mean() / 1e3, snapshot.p50() / 1e3, snapshot.p90() / 1e3, snapshot.p99() / 1e3,
+            snapshot.p999() / 1e3, snapshot.max() / 1e3);
+    }
+}
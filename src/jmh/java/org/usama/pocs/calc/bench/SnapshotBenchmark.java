@@ -0,0 +1,85 @@
+package org.usama.pocs.calc.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.usama.pocs.calc.api.Calculator;
+import org.usama.pocs.calc.api.Diagnostics;
+
+/**
+ * Time to get a catalog of formulas compiled after a restart.
+ * <ul>
+ *     <li>{@code coldParse} - a new calculator compiles every formula, lexing and parsing each;</li>
+ *     <li>{@code snapshotLoad} - a new calculator loads the snapshot a previous one saved.</li>
+ * </ul>
+ * <p>Each iteration is one cold start of the whole catalog ({@link Mode#SingleShotTime}). Formulas are sums of
+ * products of 3 to 24 operands, about one in four scaled by one of 64 variables. Give the fork enough heap for the
+ * cache, e.g. {@code -jvmArgsAppend -Xmx4g} for the default million formulas.</p>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SnapshotBenchmark {
+
+    @Param({"1000000"})
+    int formulas;
+
+    private String[] catalog;
+    private Path snapshot;
+
+    @Setup
+    public void setUp() throws IOException {
+        catalog = new String[formulas];
+        for (int i = 0; i < formulas; i++) {
+            var formula = Expressions.generate(3 + i % 22, Expressions.Mix.MIXED, i);
+            catalog[i] = i % 4 == 0 ? "v" + (i % 64) + " * (" + formula + ")" : formula;
+        }
+        var warm = calculator();
+        for (var formula : catalog) {
+            warm.compile(formula);
+        }
+        snapshot = Files.createTempFile("calculator", ".snapshot");
+        warm.saveSnapshot(snapshot);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(snapshot);
+    }
+
+    @Benchmark
+    public Calculator coldParse() {
+        var calculator = calculator();
+        for (var formula : catalog) {
+            calculator.compile(formula);
+        }
+        return calculator;
+    }
+
+    @Benchmark
+    public Calculator snapshotLoad() throws IOException {
+        var calculator = calculator();
+        calculator.loadSnapshot(snapshot);
+        return calculator;
+    }
+
+    private Calculator calculator() {
+        return Calculator.builder().cacheCapacity(formulas).diagnostics(Diagnostics.off()).build();
+    }
+}
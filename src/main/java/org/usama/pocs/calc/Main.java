@@ -1,27 +1,54 @@
 package org.usama.pocs.calc;
 
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.usama.pocs.calc.api.Calculator;
+import org.usama.pocs.calc.api.FileBatchEvaluator;
+import org.usama.pocs.calc.server.CalcServer;
 
 public class Main {
 
-    private static final Logger LOG = LogManager.getLogger(Main.class);
+    private static final int DEFAULT_PORT = 7070;
+
+    private static boolean verbose;
 
     /**
      * Print CLI usage examples to stderr.
      */
     private static void usage() {
-        System.err.println("usage: java -jar calculator.jar <expression>");
+        System.err.println("usage: java -jar calculator.jar [--verbose] <expression>");
+        System.err.println("       java -jar calculator.jar [--verbose] --file <input> [--output <path>] [--threads <n>]");
+        System.err.println("       java -jar calculator.jar [--verbose] --serve [--port <n> | --socket <path>]");
         System.err.println("example: java -jar calculator.jar \"3 * -2 + 4\"");
+        System.err.println("example: java -jar calculator.jar --file exprs.txt --output results.txt --threads 8");
         System.err.println("note: quote expressions to avoid shell globbing of '*'.");
+        System.err.println("note: --file evaluates one expression per line and writes one result per line;");
+        System.err.println("      failed lines are written as 'error: <message>'.");
+        System.err.println("note: --serve listens on localhost (default port " + DEFAULT_PORT + ") for one expression per");
+        System.err.println("      line and answers 'ok <result>' or 'err <code> <message>' per line.");
+        System.err.println("note: --verbose logs at DEBUG to logs/calculator.log; without it logging is not initialized.");
     }
 
     public static void main(String[] args) {
+        args = parseVerbose(args);
         if (args.length == 0 || isHelp(args[0])) {
             usage();
             System.exit(args.length == 0 ? 1 : 0);
         }
+        if ("--file".equals(args[0])) {
+            System.exit(runFile(args));
+        }
+        if ("--serve".equals(args[0])) {
+            System.exit(runServer(args));
+        }
 
         final String expr = args[0].trim();
         if (expr.isEmpty()) {
@@ -33,16 +60,147 @@ public class Main {
 
         try {
             var result = calculator.calculate(expr);
-            LOG.debug("calculate('{}') -> {}", expr, result);
+            debug("calculate('{}') -> {}", expr, result);
             System.out.println("answer: " + result);
             System.exit(0);
         } catch (Exception e) {
-            LOG.error("calculate('{}') failed: {}", expr, e.getMessage());
+            error("calculate('{}') failed: {}", expr, e.getMessage());
             System.err.println("calculate error: " + e.getMessage());
             System.exit(2);
         }
     }
 
+    /**
+     * Evaluate a file of newline-delimited expressions.
+     *
+     * @param args {@code --file <input> [--output <path>] [--threads <n>]}
+     * @return the process exit code: {@code 0} if every line succeeded, {@code 2} otherwise
+     */
+    private static int runFile(String[] args) {
+        Path input = null;
+        Path output = null;
+        int threads = 1;
+        try {
+            for (int i = 0; i < args.length; i += 2) {
+                if (i + 1 == args.length) {
+                    throw new IllegalArgumentException("missing value for " + args[i]);
+                }
+                switch (args[i]) {
+                    case "--file" -> input = Path.of(args[i + 1]);
+                    case "--output" -> output = Path.of(args[i + 1]);
+                    case "--threads" -> threads = Integer.parseInt(args[i + 1]);
+                    default -> throw new IllegalArgumentException("unknown option " + args[i]);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("error: " + e.getMessage());
+            usage();
+            return 1;
+        }
+
+        try (WritableByteChannel out = output == null
+            ? new FileOutputStream(FileDescriptor.out).getChannel()
+            : FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            var result = new FileBatchEvaluator(threads).evaluate(input, out);
+            debug("evaluated {} lines from {}, {} failed", result.lines(), input, result.failures());
+            if (result.failures() != 0) {
+                System.err.println(result.failures() + " of " + result.lines() + " expressions failed");
+                return 2;
+            }
+            return 0;
+        } catch (IOException | IllegalArgumentException e) {
+            error("evaluating {} failed: {}", input, e.getMessage());
+            System.err.println("file error: " + e);
+            return 2;
+        }
+    }
+
+    /**
+     * Run the calculator server until the process is stopped.
+     *
+     * @param args {@code --serve [--port <n> | --socket <path>]}
+     * @return the process exit code, only returned on failure
+     */
+    private static int runServer(String[] args) {
+        int port = DEFAULT_PORT;
+        Path socket = null;
+        try {
+            for (int i = 1; i < args.length; i += 2) {
+                if (i + 1 == args.length) {
+                    throw new IllegalArgumentException("missing value for " + args[i]);
+                }
+                switch (args[i]) {
+                    case "--port" -> port = Integer.parseInt(args[i + 1]);
+                    case "--socket" -> socket = Path.of(args[i + 1]);
+                    default -> throw new IllegalArgumentException("unknown option " + args[i]);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("error: " + e.getMessage());
+            usage();
+            return 1;
+        }
+
+        try {
+            var calculator = new Calculator();
+            var server = socket == null ? CalcServer.tcp(port, calculator) : CalcServer.unix(socket, calculator);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    server.close();
+                } catch (IOException e) {
+                    error("closing server failed: {}", e.getMessage());
+                }
+            }));
+            System.err.println("listening on " + server.address());
+            server.awaitTermination();
+            return 0;
+        } catch (IOException e) {
+            error("server failed: {}", e.getMessage());
+            System.err.println("server error: " + e);
+            return 2;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 2;
+        }
+    }
+
+    /**
+     * Removes {@code --verbose}/{@code -v} from the arguments and enables logging if it was present. Without it,
+     * log4j is never initialized, which keeps it off the startup path of a plain CLI call.
+     *
+     * @param args command line arguments
+     * @return the remaining arguments
+     */
+    private static String[] parseVerbose(String[] args) {
+        var remaining = Arrays.stream(args).filter(arg -> !"--verbose".equals(arg) && !"-v".equals(arg))
+            .toArray(String[]::new);
+        if (remaining.length != args.length) {
+            verbose = true;
+            System.getProperties().putIfAbsent("calc.level", "DEBUG");
+        }
+        return remaining;
+    }
+
+    private static void debug(String message, Object... params) {
+        if (verbose) {
+            Log.LOG.debug(message, params);
+        }
+    }
+
+    private static void error(String message, Object... params) {
+        if (verbose) {
+            Log.LOG.error(message, params);
+        }
+    }
+
+    /**
+     * Holder, so that log4j is only loaded and configured on first use.
+     */
+    private static final class Log {
+        static final Logger LOG = LogManager.getLogger(Main.class);
+    }
+
     /**
      * Returns whether the given CLI argument requests help output.
      *
@@ -0,0 +1,84 @@
+package org.usama.pocs.calc.api;
+
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+import org.usama.pocs.calc.exception.BatchEvaluationException;
+
+/**
+ * Fork/join task evaluating a row range of a batch.
+ * <p>Ranges are split in halves until they are at most {@code chunkSize} rows. Leaves evaluate on the scratch
+ * buffers of the worker thread they run on, so stacks are reused across chunks rather than allocated per chunk.
+ * The failure with the lowest row index wins, which makes the reported row the same as a sequential run would
+ * report; leaves starting after a recorded failure are skipped.</p>
+ */
+final class BatchTask extends RecursiveAction {
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final CompiledExpression expression;
+    private final long[][] columns;
+    private final long[] out;
+    private final int from;
+    private final int to;
+    private final int chunkSize;
+    private final AtomicReference<BatchEvaluationException> failure;
+
+    BatchTask(CompiledExpression expression, long[][] columns, long[] out, int from, int to, int chunkSize,
+        AtomicReference<BatchEvaluationException> failure) {
+        this.expression = expression;
+        this.columns = columns;
+        this.out = out;
+        this.from = from;
+        this.to = to;
+        this.chunkSize = chunkSize;
+        this.failure = failure;
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from > chunkSize) {
+            int mid = (from + to) >>> 1;
+            invokeAll(
+                new BatchTask(expression, columns, out, from, mid, chunkSize, failure),
+                new BatchTask(expression, columns, out, mid, to, chunkSize, failure));
+            return;
+        }
+
+        var recorded = failure.get();
+        if (recorded != null && recorded.row() < from) {
+            return;
+        }
+
+        var scratch = SCRATCH.get();
+        try {
+            expression.evaluateRange(columns, out, from, to,
+                scratch.stack(expression.program().maxStackDepth()),
+                scratch.row(expression.program().variableCount()));
+        } catch (BatchEvaluationException e) {
+            failure.accumulateAndGet(e, (a, b) -> a == null || b.row() < a.row() ? b : a);
+        }
+    }
+
+    /**
+     * Per-thread evaluation buffers, grown on demand.
+     */
+    private static final class Scratch {
+
+        private long[] stack = new long[16];
+        private long[] row = new long[8];
+
+        long[] stack(int size) {
+            if (stack.length < size) {
+                stack = new long[size];
+            }
+            return stack;
+        }
+
+        long[] row(int size) {
+            if (row.length < size) {
+                row = new long[size];
+            }
+            return row;
+        }
+    }
+}
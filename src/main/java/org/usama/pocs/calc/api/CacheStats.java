@@ -0,0 +1,28 @@
+package org.usama.pocs.calc.api;
+
+/**
+ * Snapshot of the compiled-expression cache counters of a {@link Calculator}.
+ *
+ * @param hits      lookups served from the cache
+ * @param misses    lookups that had to lex and parse the expression
+ * @param evictions entries dropped to stay within {@code capacity}
+ * @param size      number of entries currently cached
+ * @param capacity  maximum number of entries
+ */
+public record CacheStats(long hits, long misses, long evictions, int size, int capacity) {
+
+    /**
+     * A snapshot describing a calculator with caching disabled.
+     */
+    public static final CacheStats DISABLED = new CacheStats(0, 0, 0, 0, 0);
+
+    /**
+     * Returns the fraction of lookups served from the cache.
+     *
+     * @return hit ratio in {@code [0, 1]}, or {@code 0} if no lookups happened yet
+     */
+    public double hitRatio() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+}
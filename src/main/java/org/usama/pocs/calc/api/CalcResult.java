@@ -0,0 +1,71 @@
+package org.usama.pocs.calc.api;
+
+import org.usama.pocs.calc.exception.ErrorCode;
+
+/**
+ * Outcome of {@link Calculator#tryCalculate(String, CalcResult)}: either a {@code long} value, or the
+ * {@link ErrorCode} of the failure and the offset in the expression where the input was rejected.
+ * <p>A result is a mutable holder meant to be reused for many calls, so that neither accepting nor rejecting input
+ * allocates. It is not thread-safe; keep one per thread. A new result holds the value {@code 0}.</p>
+ */
+public final class CalcResult {
+
+    /**
+     * Offset of failures that have no position in the expression, such as arithmetic faults.
+     */
+    public static final int NO_OFFSET = -1;
+
+    private long value;
+    private ErrorCode error;
+    private int offset = NO_OFFSET;
+
+    /**
+     * @return whether the last calculation succeeded
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * @return the result of the last calculation
+     * @throws IllegalStateException if it failed
+     */
+    public long value() {
+        if (error != null) {
+            throw new IllegalStateException("Calculation failed: " + this);
+        }
+        return value;
+    }
+
+    /**
+     * @return why the last calculation failed, or {@code null} if it succeeded
+     */
+    public ErrorCode error() {
+        return error;
+    }
+
+    /**
+     * @return offset of the first offending character of a lexical or syntax error, the expression length if it
+     *         ended too early, otherwise {@link #NO_OFFSET}
+     */
+    public int offset() {
+        return offset;
+    }
+
+    void succeed(long value) {
+        this.value = value;
+        this.error = null;
+        this.offset = NO_OFFSET;
+    }
+
+    void fail(ErrorCode error, int offset) {
+        this.value = 0;
+        this.error = error;
+        this.offset = offset;
+    }
+
+    @Override
+    public String toString() {
+        return error == null ? Long.toString(value) : error + (offset == NO_OFFSET ? "" : " at offset " + offset);
+    }
+}
@@ -1,13 +1,33 @@
 package org.usama.pocs.calc.api;
 
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.MathContext;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import org.usama.pocs.calc.eval.BigDecimalEvaluator;
+import org.usama.pocs.calc.eval.BigIntegerEvaluator;
+import org.usama.pocs.calc.eval.ProgramSnapshot;
+import org.usama.pocs.calc.eval.RpnCompiler;
 import org.usama.pocs.calc.eval.RpnEvaluator;
+import org.usama.pocs.calc.eval.RpnOptimizer;
+import org.usama.pocs.calc.eval.RpnProgram;
+import org.usama.pocs.calc.eval.TieredDoubleProgram;
+import org.usama.pocs.calc.eval.TieredProgram;
 import org.usama.pocs.calc.exception.CalcException;
+import org.usama.pocs.calc.exception.ErrorCode;
 import org.usama.pocs.calc.exception.EvaluationException;
+import org.usama.pocs.calc.metrics.Instrumentation;
 import org.usama.pocs.calc.parse.ExpressionParser;
 import org.usama.pocs.calc.parse.ShuntingYardParser;
 import org.usama.pocs.calc.lex.Lexer;
+import org.usama.pocs.calc.lex.Token;
+import org.usama.pocs.calc.lex.TokenBuffer;
+import org.usama.pocs.calc.lex.TokenType;
 
 /**
  * High-level facade for evaluating arithmetic expressions
@@ -15,8 +35,30 @@ import org.usama.pocs.calc.lex.Lexer;
  * <ol>
  *     <li><b>Lexing</b> - {@link Lexer} tokenizes the input string into numbers and operators.</li>
  *     <li><b>Parsing</b> - {@link ExpressionParser} converts infix tokens to Reverse Polish Notation (RPN).</li>
- *     <li><b>Evaluation</b>- {@link RpnEvaluator} executes the RPN stack to produce a {@code long} result.</li>
+ *     <li><b>Evaluation</b>- {@link RpnCompiler} turns the RPN into an {@link RpnProgram} of int opcodes, which
+ *     {@link RpnOptimizer} folds and simplifies, and {@link RpnEvaluator} executes on a {@code long} stack to
+ *     produce the result.</li>
  * </ol>
+ * <p>The program produced by the first steps is cached per expression text, so repeated expressions skip lexing
+ * and parsing completely. The cache is bounded and evicts least-recently-used entries. A cached expression that
+ * has been evaluated {@link Builder#jitThreshold(int) often enough} is compiled to bytecode; see
+ * {@link TieredProgram}. {@link #saveSnapshot(Path)} and {@link #loadSnapshot(Path)} carry the cache across
+ * restarts.</p>
+ * <p>Results are {@code long}s. {@link #calculate(String, NumericMode)} evaluates in another {@link NumericMode}:
+ * exact big integers from the same cached programs, or {@code double} and {@code BigDecimal} from programs compiled
+ * for decimal literals, which are cached separately. {@link #compileDouble(String)} and
+ * {@link #compileDecimal(String)} compile for those modes.</p>
+ * <p>{@link #tryCalculate(String, CalcResult)} reports invalid input as an {@link ErrorCode} and offset instead of
+ * an exception, for callers where rejecting input is as common as accepting it.</p>
+ * <p>An optional {@link Instrumentation} receives per-stage timings, call, error and cache counts for
+ * {@link #calculate(String)} and {@link #compile(String)}. With the default {@link Instrumentation#NOOP} the clock
+ * is never read.</p>
+ * <p>Instances are thread-safe and meant to be shared, e.g. one per application rather than one per request, on
+ * platform and virtual threads alike. The pipeline stages are stateless, the cache is synchronized and cached
+ * programs are immutable. Working memory is confined to the calling thread: an interpreted evaluation allocates
+ * an operand stack of a few dozen bytes, which is cheaper than handing a pooled one between threads, while the
+ * read buffers of {@link #calculate(Reader)} are borrowed from a pool sized by CPU count. A calculator per request
+ * only adds the cost of an empty cache, so every call lexes and parses again.</p>
  *
  * @see Lexer
  * @see ExpressionParser
@@ -25,43 +67,526 @@ import org.usama.pocs.calc.lex.Lexer;
  */
 public class Calculator {
 
-    private final Lexer lexer;
-    private final ExpressionParser parser;
-    private final RpnEvaluator rpnEvaluator;
+    /**
+     * Number of compiled expressions kept by {@link #Calculator()}.
+     */
+    public static final int DEFAULT_CACHE_CAPACITY = 4096;
+
+    /**
+     * Number of evaluations after which an expression is compiled to bytecode, unless configured otherwise.
+     */
+    public static final int DEFAULT_JIT_THRESHOLD = 10_000;
+
+    private static final long[] NO_VARIABLES = new long[0];
+    private static final BigIntegerEvaluator BIG_INTEGER = new BigIntegerEvaluator();
 
-    private static final Logger LOG = LogManager.getLogger(Calculator.class);
+    private final Lexer lexer;
+    private final ShuntingYardParser parser;
+    private final RpnCompiler compiler;
+    private final RpnOptimizer optimizer;
+    private final ExpressionCache<TieredProgram> cache;
+    private final ExpressionCache<TieredDoubleProgram> decimalCache;
+    private final BigDecimalEvaluator decimalEvaluator;
+    private final Diagnostics diagnostics;
+    private final Instrumentation instrumentation;
+    private final boolean instrumented;
+    private final int jitThreshold;
 
     /**
-     * Creates a calculator with the default pipeline
+     * Creates a calculator with the default pipeline, a cache of {@value #DEFAULT_CACHE_CAPACITY} expressions and
+     * {@link Diagnostics#fromSystemProperties() diagnostics configured from system properties}.
      */
     public Calculator() {
+        this(DEFAULT_CACHE_CAPACITY);
+    }
+
+    /**
+     * Creates a calculator with the default pipeline and
+     * {@link Diagnostics#fromSystemProperties() diagnostics configured from system properties}.
+     *
+     * @param cacheCapacity maximum number of compiled expressions to cache; {@code 0} disables caching
+     * @throws IllegalArgumentException if {@code cacheCapacity} is negative
+     */
+    public Calculator(int cacheCapacity) {
+        this(cacheCapacity, Diagnostics.fromSystemProperties());
+    }
+
+    /**
+     * Creates a calculator with the default pipeline.
+     *
+     * @param cacheCapacity maximum number of compiled expressions to cache; {@code 0} disables caching
+     * @param diagnostics   what to log about individual calculations
+     * @throws IllegalArgumentException if {@code cacheCapacity} is negative
+     */
+    public Calculator(int cacheCapacity, Diagnostics diagnostics) {
+        this(builder().cacheCapacity(cacheCapacity).diagnostics(diagnostics));
+    }
+
+    private Calculator(Builder builder) {
         this.lexer = new Lexer();
         this.parser = new ShuntingYardParser();
-        this.rpnEvaluator = new RpnEvaluator();
+        this.compiler = new RpnCompiler();
+        this.optimizer = builder.optimize ? new RpnOptimizer() : null;
+        this.cache = builder.cacheCapacity == 0 ? null : new ExpressionCache<>(builder.cacheCapacity);
+        this.decimalCache = builder.cacheCapacity == 0 ? null : new ExpressionCache<>(builder.cacheCapacity);
+        this.decimalEvaluator = new BigDecimalEvaluator(builder.mathContext);
+        this.diagnostics = builder.diagnostics;
+        this.instrumentation = builder.instrumentation;
+        this.instrumented = builder.instrumentation.isEnabled();
+        this.jitThreshold = builder.jitThreshold;
+    }
+
+    /**
+     * @return a builder starting from the defaults of {@link #Calculator()}
+     */
+    public static Builder builder() {
+        return new Builder();
     }
 
     /**
      *
      * @param expression arithmetic expression to evaluate in infix notation (e.g., {@code "3 * -2 + 1"})
      * @return the computed result as a {@code long}
-     * @throws CalcException if tokenization, parsing, or evaluation fails
+     * @throws CalcException if tokenization, parsing, or evaluation fails, including when the expression references
+     *                       variables; use {@link #compile(String)} to bind them
      */
     public long calculate(String expression) throws CalcException {
         try {
-            var tokens = lexer.tokenize(expression);
-            var rpnTokens = parser.parse(tokens);
-            var result = rpnEvaluator.evaluate(rpnTokens);
+            long result;
+            if (instrumented) {
+                instrumentation.onCall();
+                var program = program(expression);
+                long start = System.nanoTime();
+                result = program.execute();
+                instrumentation.recordEvaluate(System.nanoTime() - start);
+            } else {
+                result = program(expression).execute();
+            }
+
+            diagnostics.onSuccess(expression, result);
+            return result;
+
+        } catch (CalcException e) {
+            if (instrumented) {
+                instrumentation.onError(e);
+            }
+            diagnostics.onFailure(expression, e);
+            throw e;
+
+        } catch (RuntimeException e) {
+            diagnostics.onUnexpected(expression, e);
+            var wrapped = new EvaluationException("Unexpected error during evaluation", e);
+            if (instrumented) {
+                instrumentation.onError(wrapped);
+            }
+            throw wrapped;
+        }
+    }
+
+    /**
+     * Evaluate an expression like {@link #calculate(String)}, reporting failures in {@code result} instead of
+     * throwing.
+     * <p>Meant for untrusted input with a high share of invalid expressions. An expression that is not cached is
+     * first checked by a pass that records the first lexical, syntax or literal error in place of throwing, so
+     * rejecting it costs about as much as accepting it: no exception, stack trace or message is created, and only
+     * valid expressions are compiled and cached. Arithmetic faults of well-formed expressions, such as division by
+     * zero, are still raised by the evaluator and caught here.</p>
+     * <p>Error codes are those {@link ErrorCode#of(Throwable)} gives for the exception {@link #calculate(String)}
+     * would throw.</p>
+     *
+     * @param expression arithmetic expression to evaluate in infix notation
+     * @param result     receives the value, or the error code and offset; may be reused across calls
+     * @return {@link CalcResult#isSuccess()}
+     */
+    public boolean tryCalculate(String expression, CalcResult result) {
+        Objects.requireNonNull(result, "result");
+        try {
+            if (instrumented) {
+                instrumentation.onCall();
+            }
+            var program = cache == null || expression == null ? null : cache.getIfPresent(expression);
+            if (instrumented && cache != null) {
+                instrumentation.onCacheLookup(program != null);
+            }
+            if (program == null) {
+                // sized so that a well-spaced expression never grows the buffer
+                var tokens = new TokenBuffer(expression == null ? 1 : expression.length() / 2 + 1);
+                if (!validate(expression, tokens)) {
+                    return reject(expression, result, tokens.error(), tokens.errorStart());
+                }
+                var compiled = compileProgram(expression);
+                program = cache == null ? compiled : cache.putIfAbsent(expression, compiled);
+            }
+            if (program.program().variableCount() > 0) {
+                return reject(expression, result, ErrorCode.EVALUATION_ERROR, CalcResult.NO_OFFSET);
+            }
+
+            long value;
+            if (instrumented) {
+                long start = System.nanoTime();
+                value = program.execute();
+                instrumentation.recordEvaluate(System.nanoTime() - start);
+            } else {
+                value = program.execute();
+            }
+            result.succeed(value);
+            diagnostics.onSuccess(expression, value);
+            return true;
+
+        } catch (CalcException e) {
+            if (instrumented) {
+                instrumentation.onError(e);
+            }
+            diagnostics.onFailure(expression, e);
+            result.fail(ErrorCode.of(e), CalcResult.NO_OFFSET);
+            return false;
+
+        } catch (RuntimeException e) {
+            diagnostics.onUnexpected(expression, e);
+            if (instrumented) {
+                instrumentation.onRejected(ErrorCode.INTERNAL_ERROR);
+            }
+            result.fail(ErrorCode.INTERNAL_ERROR, CalcResult.NO_OFFSET);
+            return false;
+        }
+    }
 
-            LOG.info("calculate('{}') -> {})", expression, result);
+    /**
+     * Evaluate an expression in the given numeric mode.
+     *
+     * @param expression arithmetic expression to evaluate in infix notation
+     * @param mode       the number representation to evaluate in
+     * @return the computed result, of the type documented by {@code mode}
+     * @throws CalcException if tokenization, parsing, or evaluation fails, including when the expression references
+     *                       variables or an integer mode meets a decimal literal
+     */
+    public Number calculate(String expression, NumericMode mode) throws CalcException {
+        if (Objects.requireNonNull(mode, "mode") == NumericMode.LONG) {
+            return calculate(expression);
+        }
+        try {
+            if (instrumented) {
+                instrumentation.onCall();
+            }
+            long start;
+            Number result;
+            if (mode == NumericMode.BIG_INTEGER) {
+                var program = program(expression).program();
+                start = instrumented ? System.nanoTime() : 0;
+                result = BIG_INTEGER.execute(program, NO_VARIABLES);
+            } else {
+                var program = decimalProgram(expression);
+                start = instrumented ? System.nanoTime() : 0;
+                result = mode == NumericMode.DOUBLE
+                    ? Double.valueOf(program.execute()) : decimalEvaluator.execute(program.program());
+            }
+            if (instrumented) {
+                instrumentation.recordEvaluate(System.nanoTime() - start);
+            }
+
+            diagnostics.onSuccess(expression, result);
             return result;
 
         } catch (CalcException e) {
-            LOG.error("calculate('{}') failed", expression, e);
+            if (instrumented) {
+                instrumentation.onError(e);
+            }
+            diagnostics.onFailure(expression, e);
             throw e;
 
         } catch (RuntimeException e) {
-            LOG.error("calculate('{}') unexpected error", expression, e);
-            throw new EvaluationException("Unexpected error during evaluation", e);
+            diagnostics.onUnexpected(expression, e);
+            var wrapped = new EvaluationException("Unexpected error during evaluation", e);
+            if (instrumented) {
+                instrumentation.onError(wrapped);
+            }
+            throw wrapped;
+        }
+    }
+
+    /**
+     * Evaluate an expression read from {@code input} without holding it in memory. Meant for generated expressions
+     * too large to be kept as a {@code String}; the result is not cached and diagnostics and instrumentation are not
+     * applied.
+     *
+     * @param input the expression source; not closed
+     * @return the computed result as a {@code long}
+     * @throws IOException   if reading fails
+     * @throws CalcException if tokenization or evaluation fails
+     * @see StreamingEvaluator
+     */
+    public long calculate(Reader input) throws IOException, CalcException {
+        var evaluator = StreamingEvaluatorPool.acquire();
+        try {
+            return evaluator.evaluate(input);
+        } finally {
+            StreamingEvaluatorPool.release(evaluator);
+        }
+    }
+
+    /**
+     * Compile an expression once for repeated evaluation, typically with variables bound per call or per row.
+     *
+     * @param expression arithmetic expression in infix notation, may reference variables (e.g., {@code "x * 2 + y"})
+     * @return the compiled expression
+     * @throws CalcException if tokenization or parsing fails
+     */
+    public CompiledExpression compile(String expression) throws CalcException {
+        return new CompiledExpression(expression, program(expression));
+    }
+
+    /**
+     * Compile an expression for repeated evaluation in {@link NumericMode#DOUBLE}.
+     *
+     * @param expression arithmetic expression in infix notation, may contain decimal literals and reference variables
+     *                   (e.g., {@code "price * 1.2 - discount"})
+     * @return the compiled expression
+     * @throws CalcException if tokenization or parsing fails
+     */
+    public DoubleExpression compileDouble(String expression) throws CalcException {
+        return new DoubleExpression(expression, decimalProgram(expression));
+    }
+
+    /**
+     * Compile an expression for repeated evaluation in {@link NumericMode#DECIMAL}.
+     *
+     * @param expression arithmetic expression in infix notation, may contain decimal literals and reference variables
+     * @return the compiled expression
+     * @throws CalcException if tokenization or parsing fails
+     */
+    public DecimalExpression compileDecimal(String expression) throws CalcException {
+        return new DecimalExpression(expression, decimalProgram(expression).program(), decimalEvaluator);
+    }
+
+    /**
+     * Writes the programs cached for the integer modes to a {@link ProgramSnapshot}, for a later process to
+     * {@link #loadSnapshot(Path) load}. The file is replaced atomically.
+     *
+     * @param file the snapshot file
+     * @return the number of programs written
+     * @throws IOException           if writing fails
+     * @throws IllegalStateException if caching is disabled
+     */
+    public int saveSnapshot(Path file) throws IOException {
+        Map<String, RpnProgram> programs = new LinkedHashMap<>();
+        requireCache().entries().forEach((expression, program) -> programs.put(expression, program.program()));
+        return ProgramSnapshot.write(file, programs);
+    }
+
+    /**
+     * Fills the cache with the programs of a snapshot written by {@link #saveSnapshot(Path)}, so that their
+     * expressions are evaluated without being lexed or parsed first. The file is memory-mapped and checked against
+     * its checksum before anything is cached.
+     * <p>Expressions already cached are kept. Loaded programs start interpreted, and count toward the
+     * {@link Builder#jitThreshold(int) JIT threshold} from zero. The capacity of the cache still applies, so size it
+     * for the snapshot; entries are loaded from least to most recently used, so the most recent ones stay.</p>
+     *
+     * @param file the snapshot file
+     * @return the number of programs in the snapshot
+     * @throws IOException           if reading fails, or the file is not a snapshot of the current
+     *                               {@link ProgramSnapshot#VERSION version} or is corrupt
+     * @throws IllegalStateException if caching is disabled
+     */
+    public int loadSnapshot(Path file) throws IOException {
+        var programs = requireCache();
+        return ProgramSnapshot.read(file,
+            (expression, program) -> programs.putIfAbsent(expression, new TieredProgram(program, jitThreshold)));
+    }
+
+    /**
+     * Returns the counters of the cache used by the integer modes.
+     *
+     * @return a snapshot of the cache statistics, or {@link CacheStats#DISABLED} if caching is off
+     */
+    public CacheStats cacheStats() {
+        return cache == null ? CacheStats.DISABLED : cache.stats();
+    }
+
+    private ExpressionCache<TieredProgram> requireCache() {
+        if (cache == null) {
+            throw new IllegalStateException("Caching is disabled");
+        }
+        return cache;
+    }
+
+    private TieredProgram program(String expression) {
+        return cached(cache, expression, this::compileProgram);
+    }
+
+    private TieredDoubleProgram decimalProgram(String expression) {
+        return cached(decimalCache, expression, this::compileDecimalProgram);
+    }
+
+    private <P> P cached(ExpressionCache<P> cache, String expression, Function<String, P> compile) {
+        if (cache == null) {
+            return compile.apply(expression);
+        }
+        if (!instrumented) {
+            return cache.get(expression, compile);
+        }
+
+        var cached = cache.getIfPresent(expression);
+        instrumentation.onCacheLookup(cached != null);
+        return cached != null ? cached : cache.putIfAbsent(expression, compile.apply(expression));
+    }
+
+    /**
+     * Lex, parse, compile and optimize an expression into an {@link RpnProgram}.
+     *
+     * @param expression the infix expression
+     * @return the compiled program
+     */
+    private TieredProgram compileProgram(String expression) {
+        return translate(expression,
+            rpn -> new TieredProgram(optimize(compiler.compile(rpn)), jitThreshold));
+    }
+
+    /**
+     * Lex, parse and compile an expression for the fractional modes.
+     *
+     * @param expression the infix expression
+     * @return the compiled program
+     */
+    private TieredDoubleProgram compileDecimalProgram(String expression) {
+        return translate(expression, rpn -> new TieredDoubleProgram(compiler.compileDecimal(rpn), jitThreshold));
+    }
+
+    private <P> P translate(String expression, Function<List<Token>, P> codegen) {
+        if (!instrumented) {
+            var tokens = lexer.tokenize(expression);
+            return codegen.apply(parser.parse(tokens));
+        }
+
+        long start = System.nanoTime();
+        var tokens = lexer.tokenize(expression);
+        long lexed = System.nanoTime();
+        var program = codegen.apply(parser.parse(tokens));
+        long parsed = System.nanoTime();
+
+        instrumentation.recordLex(lexed - start);
+        instrumentation.recordParse(parsed - lexed);
+        return program;
+    }
+
+    /**
+     * Checks an expression for every error {@link #compileProgram(String)} would throw, in the same order, without
+     * throwing.
+     *
+     * @param expression the infix expression
+     * @param tokens     receives the failure
+     * @return whether the expression compiles
+     */
+    private boolean validate(String expression, TokenBuffer tokens) {
+        if (lexer.tryScan(expression, tokens) < 0 || !parser.check(expression, tokens)) {
+            return false;
+        }
+        for (int i = 0; i < tokens.size(); i++) {
+            if (tokens.type(i) == TokenType.NUMBER
+                && !RpnCompiler.isLongLiteral(expression, tokens.start(i), tokens.end(i))) {
+                tokens.fail(ErrorCode.EVALUATION_ERROR, tokens.start(i), tokens.end(i));
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean reject(String expression, CalcResult result, ErrorCode error, int offset) {
+        if (instrumented) {
+            instrumentation.onRejected(error);
+        }
+        diagnostics.onRejected(expression, error, offset);
+        result.fail(error, offset);
+        return false;
+    }
+
+    private RpnProgram optimize(RpnProgram program) {
+        return optimizer == null ? program : optimizer.optimize(program);
+    }
+
+    /**
+     * Configures a {@link Calculator}.
+     */
+    public static final class Builder {
+
+        private int cacheCapacity = DEFAULT_CACHE_CAPACITY;
+        private Diagnostics diagnostics = Diagnostics.fromSystemProperties();
+        private Instrumentation instrumentation = Instrumentation.NOOP;
+        private boolean optimize = true;
+        private int jitThreshold = DEFAULT_JIT_THRESHOLD;
+        private MathContext mathContext = MathContext.DECIMAL128;
+
+        private Builder() {
+        }
+
+        /**
+         * @param cacheCapacity maximum number of compiled expressions to cache; {@code 0} disables caching
+         * @return this builder
+         * @throws IllegalArgumentException if {@code cacheCapacity} is negative
+         */
+        public Builder cacheCapacity(int cacheCapacity) {
+            if (cacheCapacity < 0) {
+                throw new IllegalArgumentException("Cache capacity cannot be negative: " + cacheCapacity);
+            }
+            this.cacheCapacity = cacheCapacity;
+            return this;
+        }
+
+        /**
+         * @param diagnostics what to log about individual calculations
+         * @return this builder
+         */
+        public Builder diagnostics(Diagnostics diagnostics) {
+            this.diagnostics = Objects.requireNonNull(diagnostics, "diagnostics");
+            return this;
+        }
+
+        /**
+         * @param instrumentation receiver of stage timings and counters
+         * @return this builder
+         */
+        public Builder instrumentation(Instrumentation instrumentation) {
+            this.instrumentation = Objects.requireNonNull(instrumentation, "instrumentation");
+            return this;
+        }
+
+        /**
+         * @param optimize whether compiled programs are passed through {@link RpnOptimizer}; on by default
+         * @return this builder
+         */
+        public Builder optimize(boolean optimize) {
+            this.optimize = optimize;
+            return this;
+        }
+
+        /**
+         * @param jitThreshold number of evaluations after which an expression is compiled to bytecode; {@code 0}
+         *                     compiles on first use, {@link TieredProgram#NEVER} keeps every expression interpreted
+         * @return this builder
+         * @throws IllegalArgumentException if {@code jitThreshold} is negative
+         */
+        public Builder jitThreshold(int jitThreshold) {
+            if (jitThreshold < 0) {
+                throw new IllegalArgumentException("JIT threshold cannot be negative: " + jitThreshold);
+            }
+            this.jitThreshold = jitThreshold;
+            return this;
+        }
+
+        /**
+         * @param mathContext precision and rounding of {@code /} and {@code ^} in {@link NumericMode#DECIMAL};
+         *                    {@link MathContext#DECIMAL128} by default
+         * @return this builder
+         */
+        public Builder mathContext(MathContext mathContext) {
+            this.mathContext = Objects.requireNonNull(mathContext, "mathContext");
+            return this;
+        }
+
+        /**
+         * @return a new calculator
+         */
+        public Calculator build() {
+            return new Calculator(this);
         }
     }
 }
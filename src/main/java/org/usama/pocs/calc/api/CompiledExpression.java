@@ -0,0 +1,222 @@
+package org.usama.pocs.calc.api;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import org.usama.pocs.calc.eval.BigIntegerEvaluator;
+import org.usama.pocs.calc.eval.ColumnarEvaluator;
+import org.usama.pocs.calc.eval.RpnProgram;
+import org.usama.pocs.calc.eval.TieredProgram;
+import org.usama.pocs.calc.exception.BatchEvaluationException;
+import org.usama.pocs.calc.exception.EvaluationException;
+
+/**
+ * An expression compiled once by {@link Calculator#compile(String)} and evaluated many times.
+ * <p>Values are bound to {@link #variables()} by position. The batch methods evaluate columnar inputs: column
+ * {@code i} holds the values of variable {@code i} for every row, and one result per row is written to the output
+ * array. A batch reuses a single operand stack and never allocates per row. Large batches can be split across a
+ * {@link ForkJoinPool} with {@link #evaluateBatchParallel(long[][], long[], int)}.
+ * {@link #evaluateColumnar(long[][], long[])} evaluates the same inputs an instruction at a time over chunks of rows
+ * instead; see {@link ColumnarEvaluator}.</p>
+ * <p>Evaluations, including batch rows, count towards the JIT threshold of the {@link Calculator} that compiled the
+ * expression; see {@link TieredProgram}.</p>
+ * <p>Instances are immutable and may be shared between threads.</p>
+ */
+public final class CompiledExpression {
+
+    private static final BigIntegerEvaluator BIG_INTEGER = new BigIntegerEvaluator();
+    private static final ColumnarEvaluator COLUMNAR = new ColumnarEvaluator();
+
+    private final String expression;
+    private final TieredProgram tiered;
+    private final RpnProgram program;
+
+    CompiledExpression(String expression, TieredProgram tiered) {
+        this.expression = expression;
+        this.tiered = tiered;
+        this.program = tiered.program();
+    }
+
+    /**
+     * @return the source text this expression was compiled from
+     */
+    public String expression() {
+        return expression;
+    }
+
+    /**
+     * @return the variable names in the order values are bound
+     */
+    public List<String> variables() {
+        return program.variables();
+    }
+
+    /**
+     * @return the compiled program
+     */
+    public RpnProgram program() {
+        return program;
+    }
+
+    /**
+     * Evaluate the expression for one set of variable values.
+     *
+     * @param values one value per variable, in {@link #variables()} order
+     * @return the result
+     * @throws EvaluationException if a variable has no value, or an arithmetic fault occurs
+     */
+    public long evaluate(long... values) {
+        return tiered.execute(values, null);
+    }
+
+    /**
+     * Evaluate the expression for one set of variable values in the given numeric mode.
+     *
+     * @param mode   the number representation to evaluate in, {@link NumericMode#LONG} or
+     *               {@link NumericMode#BIG_INTEGER}
+     * @param values one value per variable, in {@link #variables()} order
+     * @return the result, of the type documented by {@code mode}
+     * @throws EvaluationException      if a variable has no value, or an arithmetic fault occurs
+     * @throws IllegalArgumentException if {@code mode} is a fractional mode
+     */
+    public Number evaluate(NumericMode mode, long... values) {
+        return switch (mode) {
+            case LONG -> evaluate(values);
+            case BIG_INTEGER -> BIG_INTEGER.execute(program, values);
+            case DOUBLE, DECIMAL -> throw new IllegalArgumentException(
+                mode + " expressions are compiled with Calculator.compileDouble or Calculator.compileDecimal");
+        };
+    }
+
+    /**
+     * Evaluate the expression for every row of columnar inputs.
+     *
+     * @param columns one column per variable, in {@link #variables()} order, each at least {@code out.length} long
+     * @param out     receives one result per row
+     * @throws IllegalArgumentException  if a column is missing or shorter than {@code out}
+     * @throws BatchEvaluationException if an arithmetic fault occurs; {@link BatchEvaluationException#row()} is the
+     *                                  first failing row
+     */
+    public void evaluateBatch(long[][] columns, long[] out) {
+        checkColumns(columns, out.length);
+        evaluateRange(columns, out, 0, out.length,
+            new long[program.maxStackDepth()], new long[program.variableCount()]);
+    }
+
+    /**
+     * Evaluate the expression for every row of columnar inputs with {@link ColumnarEvaluator}, applying each
+     * instruction to a chunk of rows at once, on {@code LongVector} lanes if the {@code jdk.incubator.vector} module
+     * is enabled. Results and failures are the same as {@link #evaluateBatch(long[][], long[])}'s. These evaluations
+     * do not count towards the JIT threshold.
+     *
+     * @param columns one column per variable, in {@link #variables()} order, each at least {@code out.length} long
+     * @param out     receives one result per row
+     * @throws IllegalArgumentException  if a column is missing or shorter than {@code out}
+     * @throws BatchEvaluationException if an arithmetic fault occurs; {@link BatchEvaluationException#row()} is the
+     *                                  first failing row
+     */
+    public void evaluateColumnar(long[][] columns, long[] out) {
+        checkColumns(columns, out.length);
+        COLUMNAR.execute(program, columns, out);
+    }
+
+    /**
+     * Evaluate the expression for every row of columnar inputs on the common fork/join pool.
+     *
+     * @param columns   one column per variable, in {@link #variables()} order, each at least {@code out.length} long
+     * @param out       receives one result per row
+     * @param chunkSize number of rows evaluated by one task
+     * @throws IllegalArgumentException  if a column is missing or shorter than {@code out}, or {@code chunkSize} is
+     *                                  not positive
+     * @throws BatchEvaluationException if an arithmetic fault occurs; {@link BatchEvaluationException#row()} is the
+     *                                  first failing row, as in {@link #evaluateBatch(long[][], long[])}
+     */
+    public void evaluateBatchParallel(long[][] columns, long[] out, int chunkSize) {
+        evaluateBatchParallel(columns, out, chunkSize, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Evaluate the expression for every row of columnar inputs on the given fork/join pool.
+     * <p>Rows are split into chunks of at most {@code chunkSize}; each worker thread reuses its own stack across the
+     * chunks it runs. Results in {@code out} are unspecified for rows at or after a reported failure.</p>
+     *
+     * @param columns   one column per variable, in {@link #variables()} order, each at least {@code out.length} long
+     * @param out       receives one result per row
+     * @param chunkSize number of rows evaluated by one task
+     * @param pool      the pool to run on
+     * @throws IllegalArgumentException  if a column is missing or shorter than {@code out}, or {@code chunkSize} is
+     *                                  not positive
+     * @throws BatchEvaluationException if an arithmetic fault occurs; {@link BatchEvaluationException#row()} is the
+     *                                  first failing row, as in {@link #evaluateBatch(long[][], long[])}
+     */
+    public void evaluateBatchParallel(long[][] columns, long[] out, int chunkSize, ForkJoinPool pool) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        checkColumns(columns, out.length);
+
+        var failure = new AtomicReference<BatchEvaluationException>();
+        pool.invoke(new BatchTask(this, columns, out, 0, out.length, chunkSize, failure));
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    /**
+     * Evaluate rows {@code [from, to)} on the given scratch buffers.
+     *
+     * @throws BatchEvaluationException on the first failing row
+     */
+    void evaluateRange(long[][] columns, long[] out, int from, int to, long[] stack, long[] row) {
+        int variableCount = program.variableCount();
+        for (int r = from; r < to; r++) {
+            for (int v = 0; v < variableCount; v++) {
+                row[v] = columns[v][r];
+            }
+            try {
+                out[r] = tiered.execute(row, stack);
+            } catch (EvaluationException e) {
+                throw new BatchEvaluationException(r, e);
+            }
+        }
+    }
+
+    /**
+     * Evaluate the expression for every row of columnar inputs looked up by variable name.
+     *
+     * @param columns columns keyed by variable name, each at least {@code out.length} long
+     * @param out     receives one result per row
+     * @throws IllegalArgumentException  if a column is missing or shorter than {@code out}
+     * @throws BatchEvaluationException if an arithmetic fault occurs
+     */
+    public void evaluateBatch(Map<String, long[]> columns, long[] out) {
+        var names = variables();
+        long[][] ordered = new long[names.size()][];
+        for (int i = 0; i < ordered.length; i++) {
+            ordered[i] = columns.get(names.get(i));
+            if (ordered[i] == null) {
+                throw new IllegalArgumentException("No column for variable: " + names.get(i));
+            }
+        }
+        evaluateBatch(ordered, out);
+    }
+
+    private void checkColumns(long[][] columns, int rows) {
+        if (columns.length < program.variableCount()) {
+            throw new IllegalArgumentException(
+                "Expected " + program.variableCount() + " columns " + variables() + " but got " + columns.length);
+        }
+        for (int i = 0; i < program.variableCount(); i++) {
+            if (columns[i].length < rows) {
+                throw new IllegalArgumentException(
+                    "Column " + variables().get(i) + " has " + columns[i].length + " rows, expected " + rows);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
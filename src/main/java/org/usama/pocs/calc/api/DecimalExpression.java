@@ -0,0 +1,64 @@
+package org.usama.pocs.calc.api;
+
+import java.math.BigDecimal;
+import java.util.List;
+import org.usama.pocs.calc.eval.BigDecimalEvaluator;
+import org.usama.pocs.calc.eval.DecimalProgram;
+import org.usama.pocs.calc.exception.EvaluationException;
+
+/**
+ * An expression compiled once by {@link Calculator#compileDecimal(String)} and evaluated many times in
+ * {@link NumericMode#DECIMAL}.
+ * <p>Values are bound to {@link #variables()} by position. Instances are immutable and may be shared between
+ * threads.</p>
+ */
+public final class DecimalExpression {
+
+    private final String expression;
+    private final DecimalProgram program;
+    private final BigDecimalEvaluator evaluator;
+
+    DecimalExpression(String expression, DecimalProgram program, BigDecimalEvaluator evaluator) {
+        this.expression = expression;
+        this.program = program;
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * @return the source text this expression was compiled from
+     */
+    public String expression() {
+        return expression;
+    }
+
+    /**
+     * @return the variable names in the order values are bound
+     */
+    public List<String> variables() {
+        return program.variables();
+    }
+
+    /**
+     * @return the compiled program
+     */
+    public DecimalProgram program() {
+        return program;
+    }
+
+    /**
+     * Evaluate the expression for one set of variable values.
+     *
+     * @param values one value per variable, in {@link #variables()} order
+     * @return the result
+     * @throws EvaluationException if a variable has no value, on division by zero, or if an exponent is not an
+     *                             integer
+     */
+    public BigDecimal evaluate(BigDecimal... values) {
+        return evaluator.execute(program, values);
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
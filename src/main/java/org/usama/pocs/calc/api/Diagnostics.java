@@ -0,0 +1,171 @@
+package org.usama.pocs.calc.api;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.usama.pocs.calc.exception.CalcException;
+import org.usama.pocs.calc.exception.ErrorCode;
+
+/**
+ * Controls what a {@link Calculator} logs about individual calculations.
+ * <p>Logging is off by default: the hot path then costs two field reads. When enabled:</p>
+ * <ul>
+ *     <li>successful calls are logged at INFO for roughly one in {@code successSampleRate} calls, picked with a
+ *     thread-local random so sampling needs no shared counter;</li>
+ *     <li>failures are logged at WARN with the exception message only, no stack trace, and at most
+ *     {@code errorsPerSecond} per second; the number of suppressed failures is reported with the next logged one.</li>
+ * </ul>
+ * <p>Every log call is guarded by a level check and uses parameterized messages, so a disabled logger costs no
+ * message formatting or allocation. The logger is only looked up once something is to be logged, so with logging
+ * off log4j is never loaded and need not be on the classpath.</p>
+ * <p>The default instance is configured with the system properties {@code calc.diagnostics.sampleRate} and
+ * {@code calc.diagnostics.errorsPerSecond}; both default to {@code 0} (off).</p>
+ */
+public final class Diagnostics {
+
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final Diagnostics OFF = new Diagnostics(0, 0);
+
+    private final int successSampleRate;
+    private final int errorsPerSecond;
+
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+    private final AtomicInteger errorsInWindow = new AtomicInteger();
+    private final AtomicInteger suppressed = new AtomicInteger();
+
+    /**
+     * Creates a diagnostics configuration.
+     *
+     * @param successSampleRate log one in this many successful calls; {@code 0} disables success logging
+     * @param errorsPerSecond   maximum failures logged per second; {@code 0} disables failure logging
+     * @throws IllegalArgumentException if an argument is negative
+     */
+    public Diagnostics(int successSampleRate, int errorsPerSecond) {
+        if (successSampleRate < 0 || errorsPerSecond < 0) {
+            throw new IllegalArgumentException(
+                "Diagnostics rates cannot be negative: " + successSampleRate + ", " + errorsPerSecond);
+        }
+        this.successSampleRate = successSampleRate;
+        this.errorsPerSecond = errorsPerSecond;
+    }
+
+    /**
+     * @return diagnostics that log nothing
+     */
+    public static Diagnostics off() {
+        return OFF;
+    }
+
+    /**
+     * @return diagnostics configured from the {@code calc.diagnostics.*} system properties
+     */
+    public static Diagnostics fromSystemProperties() {
+        int sampleRate = Integer.getInteger("calc.diagnostics.sampleRate", 0);
+        int errorsPerSecond = Integer.getInteger("calc.diagnostics.errorsPerSecond", 0);
+        return sampleRate == 0 && errorsPerSecond == 0 ? OFF : new Diagnostics(sampleRate, errorsPerSecond);
+    }
+
+    /**
+     * Record a successful calculation.
+     *
+     * @param expression the expression
+     * @param result     its result
+     */
+    void onSuccess(String expression, long result) {
+        if (successSampleRate != 0 && sampled() && Log.LOG.isInfoEnabled()) {
+            Log.LOG.info("calculate('{}') -> {}", expression, result);
+        }
+    }
+
+    /**
+     * Record a successful calculation in a {@link NumericMode} other than {@code long}.
+     *
+     * @param expression the expression
+     * @param result     its result
+     */
+    void onSuccess(String expression, Number result) {
+        if (successSampleRate != 0 && sampled() && Log.LOG.isInfoEnabled()) {
+            Log.LOG.info("calculate('{}') -> {}", expression, result);
+        }
+    }
+
+    /**
+     * Record a failed calculation.
+     *
+     * @param expression the expression
+     * @param e          the failure
+     */
+    void onFailure(String expression, CalcException e) {
+        if (errorsPerSecond != 0 && Log.LOG.isWarnEnabled()) {
+            if (tryAcquireErrorPermit(System.nanoTime())) {
+                int dropped = suppressed.getAndSet(0);
+                Log.LOG.warn("calculate('{}') failed: {} ({} similar failures suppressed)",
+                    expression, e.getMessage(), dropped);
+            } else {
+                suppressed.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Record input rejected without an exception. Rate-limited and logged like
+     * {@link #onFailure(String, CalcException)}, with the error code and offset in place of the message.
+     *
+     * @param expression the expression
+     * @param error      why it was rejected
+     * @param offset     where in the expression, or {@link CalcResult#NO_OFFSET}
+     */
+    void onRejected(String expression, ErrorCode error, int offset) {
+        if (errorsPerSecond != 0 && Log.LOG.isWarnEnabled()) {
+            if (tryAcquireErrorPermit(System.nanoTime())) {
+                int dropped = suppressed.getAndSet(0);
+                Log.LOG.warn("calculate('{}') failed: {} at offset {} ({} similar failures suppressed)",
+                    expression, error, offset, dropped);
+            } else {
+                suppressed.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Record an unexpected failure, which indicates a bug rather than bad input. Rate-limited like
+     * {@link #onFailure(String, CalcException)}, but logged at ERROR with the stack trace.
+     *
+     * @param expression the expression
+     * @param e          the failure
+     */
+    void onUnexpected(String expression, RuntimeException e) {
+        if (errorsPerSecond != 0 && Log.LOG.isErrorEnabled() && tryAcquireErrorPermit(System.nanoTime())) {
+            Log.LOG.error("calculate('{}') unexpected error", expression, e);
+        }
+    }
+
+    boolean sampled() {
+        return successSampleRate == 1 || ThreadLocalRandom.current().nextInt(successSampleRate) == 0;
+    }
+
+    /**
+     * Fixed one-second window limiter.
+     *
+     * @param now current {@link System#nanoTime()}
+     * @return whether a failure may be logged now
+     */
+    boolean tryAcquireErrorPermit(long now) {
+        long start = windowStart.get();
+        if (now - start >= WINDOW_NANOS && windowStart.compareAndSet(start, now)) {
+            errorsInWindow.set(0);
+        }
+        return errorsInWindow.incrementAndGet() <= errorsPerSecond;
+    }
+
+    /**
+     * Holder, so that log4j is only loaded once something is to be logged.
+     */
+    private static final class Log {
+        static final Logger LOG = LogManager.getLogger(Calculator.class);
+    }
+}
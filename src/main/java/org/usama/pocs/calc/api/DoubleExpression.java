@@ -0,0 +1,94 @@
+package org.usama.pocs.calc.api;
+
+import java.util.List;
+import org.usama.pocs.calc.eval.DecimalProgram;
+import org.usama.pocs.calc.eval.TieredDoubleProgram;
+import org.usama.pocs.calc.exception.EvaluationException;
+
+/**
+ * An expression compiled once by {@link Calculator#compileDouble(String)} and evaluated many times in
+ * {@link NumericMode#DOUBLE}.
+ * <p>Values are bound to {@link #variables()} by position. Evaluation runs on a primitive {@code double[]} stack and
+ * never boxes; a batch reuses one stack for every row. Like integer expressions, a hot expression is compiled to
+ * bytecode after the {@link Calculator.Builder#jitThreshold(int) JIT threshold}.</p>
+ * <p>Instances are immutable and may be shared between threads.</p>
+ */
+public final class DoubleExpression {
+
+    private final String expression;
+    private final TieredDoubleProgram tiered;
+    private final DecimalProgram program;
+
+    DoubleExpression(String expression, TieredDoubleProgram tiered) {
+        this.expression = expression;
+        this.tiered = tiered;
+        this.program = tiered.program();
+    }
+
+    /**
+     * @return the source text this expression was compiled from
+     */
+    public String expression() {
+        return expression;
+    }
+
+    /**
+     * @return the variable names in the order values are bound
+     */
+    public List<String> variables() {
+        return program.variables();
+    }
+
+    /**
+     * @return the compiled program
+     */
+    public DecimalProgram program() {
+        return program;
+    }
+
+    /**
+     * Evaluate the expression for one set of variable values.
+     *
+     * @param values one value per variable, in {@link #variables()} order
+     * @return the result
+     * @throws EvaluationException if a variable has no value
+     */
+    public double evaluate(double... values) {
+        return tiered.execute(values, null);
+    }
+
+    /**
+     * Evaluate the expression for every row of columnar inputs.
+     *
+     * @param columns one column per variable, in {@link #variables()} order, each at least {@code out.length} long
+     * @param out     receives one result per row
+     * @throws IllegalArgumentException if a column is missing or shorter than {@code out}
+     */
+    public void evaluateBatch(double[][] columns, double[] out) {
+        int variableCount = program.variableCount();
+        if (columns.length < variableCount) {
+            throw new IllegalArgumentException(
+                "Expected " + variableCount + " columns " + variables() + " but got " + columns.length);
+        }
+        for (int i = 0; i < variableCount; i++) {
+            if (columns[i].length < out.length) {
+                throw new IllegalArgumentException(
+                    "Column " + variables().get(i) + " has " + columns[i].length + " rows, expected " + out.length);
+            }
+        }
+
+        double[] stack = new double[program.maxStackDepth()];
+        double[] row = new double[variableCount];
+        for (int r = 0; r < out.length; r++) {
+            for (int v = 0; v < variableCount; v++) {
+                row[v] = columns[v][r];
+            }
+            out[r] = tiered.execute(row, stack);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
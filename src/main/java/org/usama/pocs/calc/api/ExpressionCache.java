@@ -0,0 +1,112 @@
+package org.usama.pocs.calc.api;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Bounded, thread-safe LRU cache of compiled expressions keyed by the expression text.
+ * <p>Entries are evicted in least-recently-used order once {@code capacity} is exceeded. Hit, miss and eviction
+ * counters are maintained for every lookup and can be read through {@link #stats()}.</p>
+ *
+ * @param <V> the compiled form stored for each expression
+ */
+final class ExpressionCache<V> {
+
+    private final int capacity;
+    private final LinkedHashMap<String, V> entries;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Creates a cache holding at most {@code capacity} expressions.
+     *
+     * @param capacity maximum number of entries, must be positive
+     * @throws IllegalArgumentException if {@code capacity} is not positive
+     */
+    ExpressionCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Cache capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                if (size() > ExpressionCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached value for {@code expression}, compiling and caching it on a miss.
+     * <p>The compiler runs outside the lock, so concurrent misses on the same key may compile twice; the first
+     * value stored wins. Exceptions thrown by the compiler propagate and nothing is cached.</p>
+     *
+     * @param expression the expression text
+     * @param compiler   function producing the compiled form on a miss
+     * @return the cached or freshly compiled value
+     */
+    V get(String expression, Function<String, V> compiler) {
+        V cached = getIfPresent(expression);
+        return cached != null ? cached : putIfAbsent(expression, compiler.apply(expression));
+    }
+
+    /**
+     * Returns the cached value for {@code expression}, counting a hit or a miss.
+     *
+     * @param expression the expression text
+     * @return the cached value, or {@code null} on a miss
+     */
+    synchronized V getIfPresent(String expression) {
+        V cached = entries.get(expression);
+        if (cached != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return cached;
+    }
+
+    /**
+     * Caches {@code compiled} unless a value is already present.
+     *
+     * @param expression the expression text
+     * @param compiled   the compiled form
+     * @return the value now cached for {@code expression}
+     */
+    synchronized V putIfAbsent(String expression, V compiled) {
+        V existing = entries.putIfAbsent(expression, compiled);
+        return existing != null ? existing : compiled;
+    }
+
+    /**
+     * Copies the entries without counting lookups or changing their recency.
+     *
+     * @return the entries from least to most recently used
+     */
+    synchronized Map<String, V> entries() {
+        return new LinkedHashMap<>(entries);
+    }
+
+    /**
+     * Returns a point-in-time snapshot of the cache counters.
+     *
+     * @return current cache statistics
+     */
+    synchronized CacheStats stats() {
+        return new CacheStats(hits, misses, evictions, entries.size(), capacity);
+    }
+
+    /**
+     * Removes all entries. Counters are left untouched.
+     */
+    synchronized void clear() {
+        entries.clear();
+    }
+}
@@ -0,0 +1,312 @@
+package org.usama.pocs.calc.api;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.usama.pocs.calc.exception.CalcException;
+import org.usama.pocs.calc.lex.AsciiSequence;
+
+/**
+ * Evaluates a file of newline-delimited expressions, writing one output line per input line.
+ * <p>The input is memory-mapped with {@link FileChannel#map} in chunks that end on line boundaries, and each line
+ * is lexed in place through an {@link AsciiSequence} and reduced by a {@link StreamingEvaluator}; no line is decoded
+ * to a {@code String}. Results are encoded straight into a reusable {@link ByteBuffer} that is drained to the output
+ * channel whenever it fills.</p>
+ * <p>An output line holds either the decimal result or {@code error: } followed by the failure message. A trailing
+ * {@code \r} is ignored, so CRLF files work unchanged.</p>
+ * <p>With more than one thread, chunks are evaluated concurrently. Each chunk's output goes to its own temporary
+ * file, and those files are appended to the output in input order as they complete, so the output is identical to
+ * a sequential run.</p>
+ */
+public final class FileBatchEvaluator {
+
+    /**
+     * Default number of input bytes mapped and evaluated as one unit of work.
+     */
+    public static final int DEFAULT_CHUNK_BYTES = 64 << 20;
+
+    private static final int OUTPUT_BUFFER_BYTES = 64 << 10;
+    private static final int MAX_NUMBER_BYTES = 20;
+    private static final byte[] ERROR_PREFIX = "error: ".getBytes(StandardCharsets.US_ASCII);
+
+    private final int threads;
+    private final int chunkBytes;
+
+    /**
+     * Creates a sequential evaluator.
+     */
+    public FileBatchEvaluator() {
+        this(1);
+    }
+
+    /**
+     * Creates an evaluator using {@code threads} threads.
+     *
+     * @param threads number of chunks evaluated concurrently; {@code 1} evaluates on the calling thread
+     * @throws IllegalArgumentException if {@code threads} is not positive
+     */
+    public FileBatchEvaluator(int threads) {
+        this(threads, DEFAULT_CHUNK_BYTES);
+    }
+
+    /**
+     * Creates an evaluator.
+     *
+     * @param threads    number of chunks evaluated concurrently; {@code 1} evaluates on the calling thread
+     * @param chunkBytes target size of a chunk; a chunk is extended to the end of the line it would split
+     * @throws IllegalArgumentException if an argument is not positive
+     */
+    public FileBatchEvaluator(int threads, int chunkBytes) {
+        if (threads <= 0 || chunkBytes <= 0) {
+            throw new IllegalArgumentException(
+                "Threads and chunk size must be positive: " + threads + ", " + chunkBytes);
+        }
+        this.threads = threads;
+        this.chunkBytes = chunkBytes;
+    }
+
+    /**
+     * Evaluate every line of {@code input}.
+     *
+     * @param input  file of newline-delimited expressions
+     * @param output receives one line per input line; not closed
+     * @return the number of lines evaluated and failed
+     * @throws IOException if reading, writing or a temporary file fails, or a line exceeds 2 GiB
+     */
+    public FileBatchResult evaluate(Path input, WritableByteChannel output) throws IOException {
+        try (var channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            var chunks = split(channel);
+            return threads == 1 || chunks.size() == 1
+                ? evaluateSequential(channel, chunks, output)
+                : evaluateParallel(channel, chunks, output);
+        }
+    }
+
+    private FileBatchResult evaluateSequential(FileChannel channel, List<long[]> chunks, WritableByteChannel output)
+        throws IOException {
+        var evaluator = new StreamingEvaluator();
+        var out = ByteBuffer.allocate(OUTPUT_BUFFER_BYTES);
+        var result = new FileBatchResult(0, 0);
+        for (long[] chunk : chunks) {
+            result = result.plus(evaluateChunk(channel, chunk[0], chunk[1], evaluator, out, output));
+        }
+        drain(out, output);
+        return result;
+    }
+
+    private FileBatchResult evaluateParallel(FileChannel channel, List<long[]> chunks, WritableByteChannel output)
+        throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Path>> parts = new ArrayList<>(chunks.size());
+        long[] lines = new long[chunks.size()];
+        long[] failures = new long[chunks.size()];
+        try {
+            for (int i = 0; i < chunks.size(); i++) {
+                int index = i;
+                long[] chunk = chunks.get(i);
+                parts.add(executor.submit(() -> {
+                    Path part = Files.createTempFile("calc-batch-", ".part");
+                    try (var partChannel = FileChannel.open(part, StandardOpenOption.WRITE)) {
+                        var out = ByteBuffer.allocate(OUTPUT_BUFFER_BYTES);
+                        var result = evaluateChunk(channel, chunk[0], chunk[1], new StreamingEvaluator(), out,
+                            partChannel);
+                        drain(out, partChannel);
+                        lines[index] = result.lines();
+                        failures[index] = result.failures();
+                        return part;
+                    } catch (IOException | RuntimeException e) {
+                        Files.deleteIfExists(part);
+                        throw e;
+                    }
+                }));
+            }
+
+            var result = new FileBatchResult(0, 0);
+            for (int i = 0; i < parts.size(); i++) {
+                Path part = await(parts.get(i));
+                try (var partChannel = FileChannel.open(part, StandardOpenOption.READ)) {
+                    long size = partChannel.size();
+                    for (long done = 0; done < size; ) {
+                        done += partChannel.transferTo(done, size - done, output);
+                    }
+                } finally {
+                    Files.deleteIfExists(part);
+                }
+                // Future.get() orders these reads after the worker's writes
+                result = result.plus(new FileBatchResult(lines[i], failures[i]));
+            }
+            return result;
+        } finally {
+            executor.shutdownNow();
+            for (var part : parts) {
+                deleteQuietly(part);
+            }
+        }
+    }
+
+    /**
+     * Splits the file into chunks of about {@link #chunkBytes} that end right after a newline, or at end of file.
+     *
+     * @return {@code [start, end)} byte ranges in file order
+     */
+    private List<long[]> split(FileChannel channel) throws IOException {
+        long size = channel.size();
+        List<long[]> chunks = new ArrayList<>();
+        var probe = ByteBuffer.allocate(8192);
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(size, start + chunkBytes);
+            if (end < size) {
+                end = lineEnd(channel, end - 1, size, probe);
+            }
+            if (end - start > Integer.MAX_VALUE) {
+                throw new IOException("Line too long to map near byte " + start);
+            }
+            chunks.add(new long[]{start, end});
+            start = end;
+        }
+        return chunks;
+    }
+
+    /**
+     * @return the position just after the first newline at or after {@code from}, or {@code size} if none
+     */
+    private static long lineEnd(FileChannel channel, long from, long size, ByteBuffer probe) throws IOException {
+        long pos = from;
+        while (pos < size) {
+            probe.clear();
+            int read = channel.read(probe, pos);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += read;
+        }
+        return size;
+    }
+
+    private static FileBatchResult evaluateChunk(FileChannel channel, long start, long end,
+        StreamingEvaluator evaluator, ByteBuffer out, WritableByteChannel output) throws IOException {
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        var line = new AsciiSequence(mapped);
+        int limit = mapped.limit();
+        long lines = 0;
+        long failures = 0;
+
+        int lineStart = 0;
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && mapped.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+
+            lines++;
+            try {
+                long value = evaluator.evaluate(line.reset(lineStart, lineEnd - lineStart));
+                ensureRemaining(out, output, MAX_NUMBER_BYTES + 1);
+                putLong(out, value);
+            } catch (CalcException e) {
+                failures++;
+                byte[] message = String.valueOf(e.getMessage()).getBytes(StandardCharsets.UTF_8);
+                ensureRemaining(out, output, ERROR_PREFIX.length + message.length + 1);
+                if (out.remaining() < ERROR_PREFIX.length + message.length + 1) {
+                    // longer than the whole buffer: write it through
+                    writeFully(ByteBuffer.wrap(ERROR_PREFIX), output);
+                    writeFully(ByteBuffer.wrap(message), output);
+                } else {
+                    out.put(ERROR_PREFIX).put(message);
+                }
+            }
+            out.put((byte) '\n');
+
+            lineStart = lineEnd + 1;
+        }
+        return new FileBatchResult(lines, failures);
+    }
+
+    /**
+     * Writes the decimal digits of {@code value} without creating a {@code String}.
+     */
+    static void putLong(ByteBuffer out, long value) {
+        if (value == Long.MIN_VALUE) {
+            out.put("-9223372036854775808".getBytes(StandardCharsets.US_ASCII));
+            return;
+        }
+        if (value < 0) {
+            out.put((byte) '-');
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        int end = out.position() + digits;
+        for (int i = end - 1; i >= out.position(); i--) {
+            out.put(i, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        out.position(end);
+    }
+
+    private static void ensureRemaining(ByteBuffer out, WritableByteChannel output, int bytes) throws IOException {
+        if (out.remaining() < bytes) {
+            drain(out, output);
+        }
+    }
+
+    private static void drain(ByteBuffer out, WritableByteChannel output) throws IOException {
+        out.flip();
+        writeFully(out, output);
+        out.clear();
+    }
+
+    private static void writeFully(ByteBuffer bytes, WritableByteChannel output) throws IOException {
+        while (bytes.hasRemaining()) {
+            output.write(bytes);
+        }
+    }
+
+    private static Path await(Future<Path> part) throws IOException {
+        try {
+            return part.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while evaluating " + part, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static void deleteQuietly(Future<Path> part) {
+        if (part.state() != Future.State.SUCCESS) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(part.resultNow());
+        } catch (IOException e) {
+            // already failing or done; a leftover temporary file must not mask the outcome
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package org.usama.pocs.calc.api;
+
+/**
+ * Outcome of {@link FileBatchEvaluator#evaluate(java.nio.file.Path, java.nio.channels.WritableByteChannel)}.
+ *
+ * @param lines    number of expressions (lines) evaluated
+ * @param failures number of lines that produced an error instead of a result
+ */
+public record FileBatchResult(long lines, long failures) {
+
+    FileBatchResult plus(FileBatchResult other) {
+        return new FileBatchResult(lines + other.lines, failures + other.failures);
+    }
+}
@@ -0,0 +1,42 @@
+package org.usama.pocs.calc.api;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import org.usama.pocs.calc.eval.BigDecimalEvaluator;
+import org.usama.pocs.calc.eval.BigIntegerEvaluator;
+import org.usama.pocs.calc.eval.DoubleEvaluator;
+import org.usama.pocs.calc.eval.RpnEvaluator;
+
+/**
+ * Number representation an expression is evaluated in, see {@link Calculator#calculate(String, NumericMode)}.
+ * <p>The integer modes share one compiled program and accept only integer literals; {@link CompiledExpression}
+ * evaluates in either. The fractional modes accept decimal literals such as {@code 19.99} and are chosen when an
+ * expression is compiled, with {@link Calculator#compileDouble(String)} or {@link Calculator#compileDecimal(String)}.
+ * </p>
+ */
+public enum NumericMode {
+
+    /**
+     * Primitive {@code long}, the mode of {@link Calculator#calculate(String)}. A result that does not fit is an
+     * error; see {@link RpnEvaluator}. Results are {@link Long}s.
+     */
+    LONG,
+
+    /**
+     * Exact integers: {@code long} while values fit, {@link BigInteger} only for the operations that overflow; see
+     * {@link BigIntegerEvaluator}. Results are {@link BigInteger}s.
+     */
+    BIG_INTEGER,
+
+    /**
+     * IEEE 754 {@code double} on a primitive stack; see {@link DoubleEvaluator}. Results are {@link Double}s.
+     */
+    DOUBLE,
+
+    /**
+     * Exact decimals, with {@code /} and {@code ^} rounded to the calculator's
+     * {@link Calculator.Builder#mathContext(java.math.MathContext) math context}; see {@link BigDecimalEvaluator}.
+     * Results are {@link BigDecimal}s.
+     */
+    DECIMAL
+}
@@ -0,0 +1,167 @@
+package org.usama.pocs.calc.api;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import org.usama.pocs.calc.eval.Opcode;
+import org.usama.pocs.calc.eval.RpnEvaluator;
+import org.usama.pocs.calc.exception.CalcException;
+import org.usama.pocs.calc.exception.EvaluationException;
+import org.usama.pocs.calc.exception.UnrecognizedTokenException;
+import org.usama.pocs.calc.lex.Lexer;
+import org.usama.pocs.calc.lex.StreamingLexer;
+import org.usama.pocs.calc.lex.TokenBuffer;
+import org.usama.pocs.calc.lex.TokenType;
+import org.usama.pocs.calc.parse.OperatorStack;
+
+/**
+ * Evaluates expressions of any length without materializing tokens or RPN.
+ * <p>{@link StreamingLexer} reads the input in chunks and passes every token straight on: numbers are pushed onto
+ * the value stack, operators onto an {@link OperatorStack}, and every operator the stack emits is applied to the
+ * value stack immediately. Memory use is therefore bounded by the operator nesting depth, not the input length;
+ * a chain of left-associative operators needs a constant amount of memory.</p>
+ * <p>Short expressions already in memory, e.g. a line of a mapped file, are scanned with
+ * {@link #evaluate(CharSequence)} into a reusable {@link TokenBuffer} and reduced the same way, without creating a
+ * {@code String} per token.</p>
+ * <p>Results and exceptions are the same as {@link Calculator#calculate(String)}. Instances are not thread-safe but
+ * can be reused for any number of expressions.</p>
+ */
+public final class StreamingEvaluator {
+
+    private final StreamingLexer lexer = new StreamingLexer();
+    private final Lexer scanner = new Lexer();
+    private final TokenBuffer tokens = new TokenBuffer();
+    private final OperatorStack operators = new OperatorStack(this::apply);
+    private long[] values = new long[8];
+    private int top;
+    /** Whether an operand may start at the next token, so that {@code -} is unary minus. */
+    private boolean operand;
+    /** Opcode of a function whose {@code (} is the next token, or {@code -1}. */
+    private int function;
+
+    /**
+     * Evaluate the expression read from {@code input}.
+     *
+     * @param input the expression source; not closed
+     * @return the computed result
+     * @throws IOException   if reading fails
+     * @throws CalcException if tokenization or evaluation fails, including when the expression references variables
+     */
+    public long evaluate(Reader input) throws IOException {
+        reset();
+
+        lexer.tokenize(input, (type, text) -> accept(type, text, 0, text.length()));
+        if (!operators.flush()) {
+            throw operators.error();
+        }
+        return values[0];
+    }
+
+    /**
+     * Evaluate the expression held in {@code input}.
+     *
+     * @param input the expression
+     * @return the computed result
+     * @throws CalcException if tokenization or evaluation fails, including when the expression references variables
+     */
+    public long evaluate(CharSequence input) {
+        reset();
+
+        int count = scanner.scan(input, tokens);
+        for (int i = 0; i < count; i++) {
+            accept(tokens.type(i), input, tokens.start(i), tokens.end(i));
+        }
+        if (!operators.flush()) {
+            throw operators.error();
+        }
+        return values[0];
+    }
+
+    /**
+     * @return the current capacity of the value stack, which only grows with operator nesting depth
+     */
+    int valueStackCapacity() {
+        return values.length;
+    }
+
+    private void reset() {
+        // a previous evaluation may have failed half-way
+        top = 0;
+        operand = true;
+        function = -1;
+        operators.clear();
+    }
+
+    private void accept(TokenType type, CharSequence text, int start, int end) {
+        switch (type) {
+            case NUMBER -> {
+                push(parseLongOrFail(text, start, end));
+                operand = false;
+            }
+            case OPERATOR -> {
+                if (operand) {
+                    // the lexer only lets '-' through where an operand is expected
+                    operators.pushPrefix(Opcode.NEG);
+                } else {
+                    operators.push(Opcode.forOperator(text.charAt(start)));
+                    operand = true;
+                }
+            }
+            case FUNCTION -> {
+                function = Opcode.forFunction(text, start, end);
+                if (function < 0 || function == Opcode.NEG) {
+                    throw new UnrecognizedTokenException(text.subSequence(start, end).toString(), type);
+                }
+            }
+            case LEFT_PAREN -> {
+                if (function < 0) {
+                    operators.openGroup();
+                } else {
+                    operators.openCall(function);
+                    function = -1;
+                }
+            }
+            case COMMA -> {
+                if (!operators.separate()) {
+                    throw operators.error();
+                }
+                operand = true;
+            }
+            case RIGHT_PAREN -> {
+                if (!operators.closeGroup()) {
+                    throw operators.error();
+                }
+                operand = false;
+            }
+            default -> throw new EvaluationException("Unbound variables: [" + text.subSequence(start, end) + "]");
+        }
+    }
+
+    private void push(long value) {
+        if (top == values.length) {
+            values = Arrays.copyOf(values, top << 1);
+        }
+        values[top++] = value;
+    }
+
+    private void apply(int opcode) {
+        try {
+            if (Opcode.isBinary(opcode)) {
+                long right = values[--top];
+                values[top - 1] = RpnEvaluator.apply(opcode, values[top - 1], right);
+            } else {
+                values[top - 1] = RpnEvaluator.apply(opcode, values[top - 1]);
+            }
+        } catch (ArithmeticException e) {
+            throw RpnEvaluator.arithmeticError(e);
+        }
+    }
+
+    private static long parseLongOrFail(CharSequence text, int start, int end) {
+        try {
+            return Long.parseLong(text, start, end, 10);
+        } catch (NumberFormatException ex) {
+            throw new EvaluationException("Invalid number literal: " + text.subSequence(start, end), ex);
+        }
+    }
+}
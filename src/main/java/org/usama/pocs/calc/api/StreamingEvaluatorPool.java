@@ -0,0 +1,44 @@
+package org.usama.pocs.calc.api;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lends {@link StreamingEvaluator}s, whose read buffer is too large to allocate per call, to concurrent callers.
+ * <p>Evaluators are kept in a small striped pool instead of a {@link ThreadLocal}. A thread-local would pin an
+ * evaluator to every thread that ever calculated, which with virtual threads means one per task. The pool holds a
+ * few per CPU however many threads there are. A thread swaps the evaluator out of the slot picked by its id and puts
+ * it back when done. If the slot is empty, because another thread holds its evaluator, the thread creates a fresh
+ * one. Neither step blocks, so a virtual thread is never pinned to its carrier.</p>
+ */
+final class StreamingEvaluatorPool {
+
+    private static final AtomicReferenceArray<StreamingEvaluator> SLOTS =
+        new AtomicReferenceArray<>(Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1));
+
+    private StreamingEvaluatorPool() {
+    }
+
+    /**
+     * Takes the calling thread's evaluator from the pool, or creates one. Must be followed by
+     * {@link #release(StreamingEvaluator)} on the same thread.
+     *
+     * @return an evaluator owned by the caller until released
+     */
+    static StreamingEvaluator acquire() {
+        var evaluator = SLOTS.getAndSet(slot(), null);
+        return evaluator != null ? evaluator : new StreamingEvaluator();
+    }
+
+    /**
+     * Returns an evaluator to the pool. One that finds its slot refilled by another thread is dropped.
+     *
+     * @param evaluator an evaluator obtained from {@link #acquire()}
+     */
+    static void release(StreamingEvaluator evaluator) {
+        SLOTS.compareAndSet(slot(), null, evaluator);
+    }
+
+    private static int slot() {
+        return (int) Thread.currentThread().threadId() & (SLOTS.length() - 1);
+    }
+}
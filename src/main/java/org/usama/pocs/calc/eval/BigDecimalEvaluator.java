@@ -0,0 +1,126 @@
+package org.usama.pocs.calc.eval;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Objects;
+import org.usama.pocs.calc.exception.EvaluationException;
+
+/**
+ * Executes a {@link DecimalProgram} in exact decimal arithmetic.
+ * <p>{@code + - *}, unary minus, {@code abs}, {@code min} and {@code max} are exact. {@code /} and {@code ^} round to
+ * the evaluator's {@link MathContext}, since their results generally have no finite decimal expansion. The exponent of
+ * {@code ^} must be an integer.</p>
+ * <p>Instances are immutable and may be shared between threads.</p>
+ */
+public final class BigDecimalEvaluator {
+
+    private static final BigDecimal[] NO_VARIABLES = new BigDecimal[0];
+
+    private final MathContext mathContext;
+
+    /**
+     * @param mathContext precision and rounding of {@code /} and {@code ^}
+     */
+    public BigDecimalEvaluator(MathContext mathContext) {
+        this.mathContext = Objects.requireNonNull(mathContext, "mathContext");
+    }
+
+    /**
+     * Execute a compiled program without variables.
+     *
+     * @param program the program to run
+     * @return the result
+     * @throws EvaluationException if the program has variables, or an arithmetic fault occurs
+     */
+    public BigDecimal execute(DecimalProgram program) {
+        return execute(program, NO_VARIABLES);
+    }
+
+    /**
+     * Execute a compiled program with variable values.
+     *
+     * @param program   the program to run
+     * @param variables variable values indexed by slot, at least {@link DecimalProgram#variableCount()} of them
+     * @return the result
+     * @throws EvaluationException if a variable has no value, on division by zero, or if an exponent is not an
+     *                             integer
+     */
+    public BigDecimal execute(DecimalProgram program, BigDecimal[] variables) {
+        program.checkVariables(variables.length);
+
+        final int[] code = program.codeArray();
+        final BigDecimal[] constants = program.decimalArray();
+        final BigDecimal[] stack = new BigDecimal[program.maxStackDepth()];
+        int top = program.tempCount();
+        int pc = 0;
+
+        try {
+            while (pc < code.length) {
+                int op = code[pc];
+                switch (op) {
+                    case Opcode.PUSH -> stack[top++] = constants[code[++pc]];
+                    case Opcode.LOAD -> {
+                        int slot = code[++pc];
+                        if (variables[slot] == null) {
+                            throw new EvaluationException("Unbound variables: [" + program.variables().get(slot) + "]");
+                        }
+                        stack[top++] = variables[slot];
+                    }
+                    case Opcode.TEE -> stack[code[++pc]] = stack[top - 1];
+                    case Opcode.TEMP -> stack[top++] = stack[code[++pc]];
+                    case Opcode.NEG -> stack[top - 1] = stack[top - 1].negate();
+                    case Opcode.ABS -> stack[top - 1] = stack[top - 1].abs();
+                    default -> {
+                        top--;
+                        stack[top - 1] = apply(op, stack[top - 1], stack[top]);
+                    }
+                }
+                pc++;
+            }
+        } catch (ArithmeticException e) {
+            throw RpnEvaluator.arithmeticError(e);
+        }
+        return stack[top - 1];
+    }
+
+    /**
+     * Apply a binary operator opcode to two operands.
+     *
+     * @param opcode an opcode for which {@link Opcode#isBinary(int)} holds
+     * @param left   left operand
+     * @param right  right operand
+     * @return the result
+     * @throws ArithmeticException      on division by zero, or if the exponent is not an integer
+     * @throws IllegalArgumentException if the opcode is not a binary operator
+     */
+    public BigDecimal apply(int opcode, BigDecimal left, BigDecimal right) {
+        return switch (opcode) {
+            case Opcode.ADD -> left.add(right);
+            case Opcode.SUB -> left.subtract(right);
+            case Opcode.MUL -> left.multiply(right);
+            case Opcode.DIV -> {
+                if (right.signum() == 0) {
+                    throw new ArithmeticException("/ by zero");
+                }
+                yield left.divide(right, mathContext);
+            }
+            case Opcode.POW -> pow(left, right);
+            case Opcode.MIN -> left.min(right);
+            case Opcode.MAX -> left.max(right);
+            default -> throw new IllegalArgumentException("Not a binary operator: " + Opcode.symbol(opcode));
+        };
+    }
+
+    private BigDecimal pow(BigDecimal base, BigDecimal exponent) {
+        int n;
+        try {
+            n = exponent.intValueExact();
+        } catch (ArithmeticException e) {
+            throw new ArithmeticException("Exponent must be an integer: " + exponent);
+        }
+        if (n < 0 && base.signum() == 0) {
+            throw new ArithmeticException("/ by zero");
+        }
+        return base.pow(n, mathContext);
+    }
+}
@@ -0,0 +1,184 @@
+package org.usama.pocs.calc.eval;
+
+import java.math.BigInteger;
+import org.usama.pocs.calc.exception.EvaluationException;
+
+/**
+ * Executes an {@link RpnProgram} with arbitrary precision, promoting to {@link BigInteger} only where {@code long}
+ * overflows.
+ * <p>Operands live on a primitive {@code long[]} stack exactly as in {@link RpnEvaluator}. When an operation
+ * overflows, that one result is recomputed with {@code BigInteger} and parked in a parallel {@code BigInteger[]}
+ * stack, which is allocated on the first promotion. A later result that fits a {@code long} again drops back to the
+ * primitive stack, so an expression whose intermediate values never overflow allocates nothing but its result.</p>
+ * <p>Division truncates toward zero and {@code ^} follows {@link RpnEvaluator}: a negative exponent yields
+ * {@code 0} unless the base is {@code 1} or {@code -1}. Division by zero is still an {@link EvaluationException}, as
+ * is a power that could exceed {@link #MAX_POWER_BITS}, which is rejected before any of it is computed.</p>
+ * <p>Instances are stateless and may be shared between threads.</p>
+ */
+public final class BigIntegerEvaluator {
+
+    /**
+     * Largest result of {@code ^}, in bits, that is computed: about 1.2 million decimal digits. A power is rejected
+     * up front when {@code bitLength(base) * exponent} exceeds it, so a huge exponent fails at once instead of
+     * spending minutes and hundreds of megabytes on a result.
+     */
+    public static final int MAX_POWER_BITS = 1 << 22;
+
+    /**
+     * Execute a compiled program.
+     *
+     * @param program   the program to run
+     * @param variables variable values indexed by slot, at least {@link RpnProgram#variableCount()} of them
+     * @return the exact result
+     * @throws EvaluationException if a variable has no value, on division by zero, or if a power could exceed
+     *                             {@link #MAX_POWER_BITS}
+     */
+    public BigInteger execute(RpnProgram program, long[] variables) {
+        RpnEvaluator.checkVariables(program, variables);
+
+        final int[] code = program.codeArray();
+        final long[] constants = program.constantArray();
+        final long[] stack = new long[program.maxStackDepth()];
+        BigInteger[] big = null;
+        int top = program.tempCount();
+        int pc = 0;
+
+        try {
+            while (pc < code.length) {
+                int op = code[pc];
+                switch (op) {
+                    case Opcode.PUSH -> stack[top++] = constants[code[++pc]];
+                    case Opcode.LOAD -> stack[top++] = variables[code[++pc]];
+                    case Opcode.TEE -> {
+                        int temp = code[++pc];
+                        stack[temp] = stack[top - 1];
+                        if (big != null) {
+                            big[temp] = big[top - 1];
+                        }
+                    }
+                    case Opcode.TEMP -> {
+                        int temp = code[++pc];
+                        stack[top] = stack[temp];
+                        if (big != null) {
+                            big[top] = big[temp];
+                        }
+                        top++;
+                    }
+                    case Opcode.NEG, Opcode.ABS -> {
+                        int slot = top - 1;
+                        if (big == null || big[slot] == null) {
+                            try {
+                                stack[slot] = RpnEvaluator.apply(op, stack[slot]);
+                                break;
+                            } catch (ArithmeticException overflow) {
+                                if (big == null) {
+                                    big = new BigInteger[stack.length];
+                                }
+                            }
+                        }
+                        BigInteger result = apply(op, value(stack, big, slot));
+                        if (result.bitLength() < Long.SIZE) {
+                            stack[slot] = result.longValue();
+                            big[slot] = null;
+                        } else {
+                            big[slot] = result;
+                        }
+                    }
+                    default -> {
+                        top--;
+                        int left = top - 1;
+                        if (big == null || big[left] == null && big[top] == null) {
+                            try {
+                                stack[left] = RpnEvaluator.apply(op, stack[left], stack[top]);
+                                if (big != null) {
+                                    big[top] = null;
+                                }
+                                break;
+                            } catch (ArithmeticException overflow) {
+                                if (big == null) {
+                                    big = new BigInteger[stack.length];
+                                }
+                            }
+                        }
+                        BigInteger result = apply(op, value(stack, big, left), value(stack, big, top));
+                        big[top] = null;
+                        if (result.bitLength() < Long.SIZE) {
+                            stack[left] = result.longValue();
+                            big[left] = null;
+                        } else {
+                            big[left] = result;
+                        }
+                    }
+                }
+                pc++;
+            }
+        } catch (ArithmeticException e) {
+            throw RpnEvaluator.arithmeticError(e);
+        }
+        return value(stack, big, top - 1);
+    }
+
+    private static BigInteger value(long[] stack, BigInteger[] big, int slot) {
+        return big != null && big[slot] != null ? big[slot] : BigInteger.valueOf(stack[slot]);
+    }
+
+    /**
+     * Apply a binary operator opcode to two operands with the semantics of {@link RpnEvaluator#apply}, minus the
+     * overflow.
+     *
+     * @param opcode an opcode for which {@link Opcode#isBinary(int)} holds
+     * @param left   left operand
+     * @param right  right operand
+     * @return the result
+     * @throws ArithmeticException      on division by zero, or if a power could exceed {@link #MAX_POWER_BITS}
+     * @throws IllegalArgumentException if the opcode is not a binary operator
+     */
+    public static BigInteger apply(int opcode, BigInteger left, BigInteger right) {
+        return switch (opcode) {
+            case Opcode.ADD -> left.add(right);
+            case Opcode.SUB -> left.subtract(right);
+            case Opcode.MUL -> left.multiply(right);
+            case Opcode.DIV -> {
+                if (right.signum() == 0) {
+                    throw new ArithmeticException("/ by zero");
+                }
+                yield left.divide(right);
+            }
+            case Opcode.POW -> pow(left, right);
+            case Opcode.MIN -> left.min(right);
+            case Opcode.MAX -> left.max(right);
+            default -> throw new IllegalArgumentException("Not a binary operator: " + Opcode.symbol(opcode));
+        };
+    }
+
+    /**
+     * Apply a unary opcode to its operand with the semantics of {@link RpnEvaluator#apply(int, long)}, minus the
+     * overflow.
+     *
+     * @param opcode {@link Opcode#NEG} or {@link Opcode#ABS}
+     * @param value  the operand
+     * @return the result
+     * @throws IllegalArgumentException if the opcode is not a unary operator
+     */
+    public static BigInteger apply(int opcode, BigInteger value) {
+        return switch (opcode) {
+            case Opcode.NEG -> value.negate();
+            case Opcode.ABS -> value.abs();
+            default -> throw new IllegalArgumentException("Not a unary operator: " + Opcode.symbol(opcode));
+        };
+    }
+
+    private static BigInteger pow(BigInteger base, BigInteger exponent) {
+        if (base.abs().compareTo(BigInteger.ONE) <= 0 || exponent.signum() < 0) {
+            // the result is -1, 0 or 1, decided by the base, the exponent's sign and its parity
+            long smallBase = base.bitLength() < Long.SIZE ? base.longValue() : base.signum() * 2L;
+            long smallExponent = exponent.signum() * (exponent.testBit(0) ? 1L : 2L);
+            return BigInteger.valueOf(RpnEvaluator.smallPow(smallBase, smallExponent));
+        }
+        // |base| < 2^bitLength, so the result has at most bitLength * exponent bits
+        if (exponent.bitLength() >= Integer.SIZE || (long) base.bitLength() * exponent.intValue() > MAX_POWER_BITS) {
+            throw new ArithmeticException("Exponent too large: " + exponent);
+        }
+        return base.pow(exponent.intValue());
+    }
+}
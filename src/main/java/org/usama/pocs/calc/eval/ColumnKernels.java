@@ -0,0 +1,24 @@
+package org.usama.pocs.calc.eval;
+
+/**
+ * Operator loops of {@link ColumnarEvaluator}: each applies one opcode to {@code n} consecutive rows of its operand
+ * columns and writes the results to the start of {@code dst}.
+ * <p>Operands are read from {@code a[aOff..aOff + n)} and {@code b[bOff..bOff + n)}; {@code dst} may be the same
+ * array as {@code a} with {@code aOff == 0}, but never overlaps {@code b} otherwise. Instead of throwing, a kernel
+ * returns {@code false} if any row faults under {@link RpnEvaluator}'s exact semantics; the contents of {@code dst}
+ * are unspecified then, and the caller finds the failing row by interpreting the rows.</p>
+ */
+interface ColumnKernels {
+
+    /**
+     * @param opcode an opcode for which {@link Opcode#isBinary(int)} holds
+     * @return whether every row was computed without an arithmetic fault
+     */
+    boolean binary(int opcode, long[] a, int aOff, long[] b, int bOff, long[] dst, int n);
+
+    /**
+     * @param opcode {@link Opcode#NEG} or {@link Opcode#ABS}
+     * @return whether every row was computed without an arithmetic fault
+     */
+    boolean unary(int opcode, long[] a, int aOff, long[] dst, int n);
+}
@@ -0,0 +1,219 @@
+package org.usama.pocs.calc.eval;
+
+import java.util.Arrays;
+import org.usama.pocs.calc.exception.BatchEvaluationException;
+import org.usama.pocs.calc.exception.EvaluationException;
+
+/**
+ * Executes an {@link RpnProgram} over columns of variable values, one instruction at a time for a whole chunk of
+ * rows.
+ * <p>Where {@link RpnEvaluator} runs the full program once per row, this evaluator keeps a column of
+ * {@link #CHUNK_SIZE} values per stack slot and applies each opcode to all rows of a chunk in one tight loop, which
+ * the CPU's vector units can execute several lanes at a time. When the {@code jdk.incubator.vector} module is
+ * enabled ({@code --add-modules jdk.incubator.vector}), {@code + - * min max}, unary minus and {@code abs} use explicit
+ * {@code LongVector} lanes; otherwise, and in native images, plain loops are used and left to the JIT's
+ * auto-vectorization. {@link #isVectorized()} tells which.</p>
+ * <p>Results and failures are the same as {@link RpnEvaluator}'s for every row. Overflow is detected per lane;
+ * when any row of a chunk faults, the chunk is interpreted again row by row, so the reported row is the first
+ * failing one and its cause carries the interpreter's message. {@link Opcode#LOAD} reads the input columns in place,
+ * and constants are broadcast into their slot.</p>
+ * <p>Instances are stateless and may be shared between threads, as long as each thread passes its own stack.</p>
+ */
+public final class ColumnarEvaluator {
+
+    /**
+     * Rows per chunk of the stacks allocated by {@link #allocateStack(RpnProgram)}; a stack slot of this many
+     * {@code long}s fits in the L1 cache.
+     */
+    public static final int CHUNK_SIZE = 1024;
+
+    private static final RpnEvaluator INTERPRETER = new RpnEvaluator();
+    private static final ColumnKernels SCALAR = new ScalarColumnKernels();
+    private static final ColumnKernels VECTOR = vectorKernels();
+
+    private final ColumnKernels kernels;
+
+    /**
+     * Creates an evaluator on {@code LongVector} lanes if the {@code jdk.incubator.vector} module is enabled, or on
+     * scalar loops otherwise.
+     */
+    public ColumnarEvaluator() {
+        this(VECTOR != null ? VECTOR : SCALAR);
+    }
+
+    private ColumnarEvaluator(ColumnKernels kernels) {
+        this.kernels = kernels;
+    }
+
+    /**
+     * Creates an evaluator on scalar loops even if vectors are available, e.g. to compare the two.
+     *
+     * @return the evaluator
+     */
+    public static ColumnarEvaluator scalar() {
+        return new ColumnarEvaluator(SCALAR);
+    }
+
+    /**
+     * @return whether this evaluator uses {@code LongVector} lanes
+     */
+    public boolean isVectorized() {
+        return kernels == VECTOR;
+    }
+
+    /**
+     * Allocates a stack for {@link #execute(RpnProgram, long[][], long[], int, int, long[][])}.
+     *
+     * @param program the program to run on it
+     * @return {@link RpnProgram#maxStackDepth()} columns of {@link #CHUNK_SIZE} slots
+     */
+    public static long[][] allocateStack(RpnProgram program) {
+        return new long[program.maxStackDepth()][CHUNK_SIZE];
+    }
+
+    /**
+     * Execute a program for every row of columnar inputs.
+     *
+     * @param program the program to run
+     * @param columns one column per variable, indexed by slot, each at least {@code out.length} long
+     * @param out     receives one result per row
+     * @throws EvaluationException      if a variable has no column
+     * @throws BatchEvaluationException if an arithmetic fault occurs; {@link BatchEvaluationException#row()} is the
+     *                                  first failing row
+     * @throws IllegalArgumentException if a column is shorter than {@code out}
+     */
+    public void execute(RpnProgram program, long[][] columns, long[] out) {
+        execute(program, columns, out, 0, out.length, allocateStack(program));
+    }
+
+    /**
+     * Execute a program for rows {@code [from, to)} of columnar inputs on a caller-provided stack. Reusing the stack
+     * makes evaluation allocation-free apart from two small arrays per call.
+     *
+     * @param program the program to run
+     * @param columns one column per variable, indexed by slot, each at least {@code to} long
+     * @param out     receives the result of row {@code r} at {@code out[r]}
+     * @param from    first row
+     * @param to      one past the last row
+     * @param stack   at least {@link RpnProgram#maxStackDepth()} columns of equal length, the chunk size
+     * @throws EvaluationException      if a variable has no column
+     * @throws BatchEvaluationException if an arithmetic fault occurs; {@link BatchEvaluationException#row()} is the
+     *                                  first failing row, and results in {@code out} are unspecified from there on
+     * @throws IllegalArgumentException if a column is shorter than {@code to}, or the stack is too small
+     */
+    public void execute(RpnProgram program, long[][] columns, long[] out, int from, int to, long[][] stack) {
+        if (stack.length < program.maxStackDepth()) {
+            throw new IllegalArgumentException(
+                "Stack of " + stack.length + " slots is smaller than " + program.maxStackDepth());
+        }
+        if (columns.length < program.variableCount()) {
+            throw new EvaluationException("Unbound variables: "
+                + program.variables().subList(columns.length, program.variableCount()));
+        }
+        for (int v = 0; v < program.variableCount(); v++) {
+            if (columns[v].length < to) {
+                throw new IllegalArgumentException(
+                    "Column " + program.variables().get(v) + " has " + columns[v].length + " rows, expected " + to);
+            }
+        }
+
+        int chunk = stack[0].length;
+        int result = program.tempCount();
+        // each slot reads from a column in place or from its own stack column, at an offset
+        var arrays = new long[program.maxStackDepth()][];
+        var offsets = new int[program.maxStackDepth()];
+        for (int start = from; start < to; start += chunk) {
+            int n = Math.min(chunk, to - start);
+            if (executeChunk(program, columns, start, n, stack, arrays, offsets)) {
+                System.arraycopy(arrays[result], offsets[result], out, start, n);
+            } else {
+                interpret(program, columns, out, start, start + n);
+            }
+        }
+    }
+
+    /**
+     * Runs the program over rows {@code [start, start + n)}, leaving the result in the bottom operand slot.
+     *
+     * @return whether no row faulted
+     */
+    private boolean executeChunk(RpnProgram program, long[][] columns, int start, int n, long[][] stack,
+        long[][] arrays, int[] offsets) {
+        final int[] code = program.codeArray();
+        final long[] constants = program.constantArray();
+        int top = program.tempCount();
+
+        for (int pc = 0; pc < code.length; pc++) {
+            int op = code[pc];
+            switch (op) {
+                case Opcode.PUSH -> {
+                    Arrays.fill(stack[top], 0, n, constants[code[++pc]]);
+                    arrays[top] = stack[top];
+                    offsets[top++] = 0;
+                }
+                case Opcode.LOAD -> {
+                    arrays[top] = columns[code[++pc]];
+                    offsets[top++] = start;
+                }
+                case Opcode.TEE -> {
+                    int temp = code[++pc];
+                    System.arraycopy(arrays[top - 1], offsets[top - 1], stack[temp], 0, n);
+                    arrays[temp] = stack[temp];
+                    offsets[temp] = 0;
+                }
+                case Opcode.TEMP -> {
+                    System.arraycopy(stack[code[++pc]], 0, stack[top], 0, n);
+                    arrays[top] = stack[top];
+                    offsets[top++] = 0;
+                }
+                case Opcode.NEG, Opcode.ABS -> {
+                    if (!kernels.unary(op, arrays[top - 1], offsets[top - 1], stack[top - 1], n)) {
+                        return false;
+                    }
+                    arrays[top - 1] = stack[top - 1];
+                    offsets[top - 1] = 0;
+                }
+                default -> {
+                    top--;
+                    if (!kernels.binary(op, arrays[top - 1], offsets[top - 1], arrays[top], offsets[top],
+                        stack[top - 1], n)) {
+                        return false;
+                    }
+                    arrays[top - 1] = stack[top - 1];
+                    offsets[top - 1] = 0;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Runs rows {@code [from, to)} one at a time on the interpreter, to find the first failing row of a chunk.
+     */
+    private static void interpret(RpnProgram program, long[][] columns, long[] out, int from, int to) {
+        var row = new long[program.variableCount()];
+        var stack = new long[program.maxStackDepth()];
+        for (int r = from; r < to; r++) {
+            for (int v = 0; v < row.length; v++) {
+                row[v] = columns[v][r];
+            }
+            try {
+                out[r] = INTERPRETER.execute(program, row, stack);
+            } catch (EvaluationException e) {
+                throw new BatchEvaluationException(r, e);
+            }
+        }
+    }
+
+    private static ColumnKernels vectorKernels() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            return new VectorColumnKernels();
+        } catch (LinkageError | UnsupportedOperationException e) {
+            // e.g. a native image without vector support
+            return null;
+        }
+    }
+}
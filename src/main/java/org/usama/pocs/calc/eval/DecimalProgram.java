@@ -0,0 +1,125 @@
+package org.usama.pocs.calc.eval;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import org.usama.pocs.calc.exception.EvaluationException;
+
+/**
+ * Compiled form of an RPN expression for the fractional modes: the same {@link Opcode}s as an {@link RpnProgram},
+ * with every number literal parsed once into a {@code double[]} pool for {@link DoubleEvaluator} and a
+ * {@code BigDecimal[]} pool for {@link BigDecimalEvaluator}.
+ * <p>Literals keep their exact decimal value in the {@code BigDecimal} pool; {@code 0.1} is one tenth there and the
+ * nearest {@code double} in the other pool. Programs are immutable and verified on construction like
+ * {@link RpnProgram}s.</p>
+ *
+ * @see RpnCompiler#compileDecimal(List)
+ */
+public final class DecimalProgram {
+
+    private final int[] code;
+    private final double[] doubles;
+    private final BigDecimal[] decimals;
+    private final String[] variables;
+    private final int tempCount;
+    private final int maxStackDepth;
+
+    private DecimalProgram(int[] code, BigDecimal[] decimals, String[] variables, int[] shape) {
+        this.code = code;
+        this.decimals = decimals;
+        this.doubles = new double[decimals.length];
+        for (int i = 0; i < decimals.length; i++) {
+            doubles[i] = decimals[i].doubleValue();
+        }
+        this.variables = variables;
+        this.tempCount = shape[0];
+        this.maxStackDepth = shape[1];
+    }
+
+    /**
+     * Verifies the given code, parses its literals and wraps both in a program. The arrays are not copied.
+     *
+     * @param code      opcodes and their operands
+     * @param literals  number literals referenced by {@link Opcode#PUSH}, e.g. {@code "-2.75"}
+     * @param variables variable names referenced by {@link Opcode#LOAD}, indexed by slot
+     * @return the verified program
+     * @throws EvaluationException if a literal is not a decimal number, or the code is invalid as described for
+     *                             {@link RpnProgram}
+     */
+    static DecimalProgram of(int[] code, String[] literals, String[] variables) {
+        int[] shape = RpnProgram.verify(code, literals.length, variables.length);
+        var decimals = new BigDecimal[literals.length];
+        for (int i = 0; i < literals.length; i++) {
+            try {
+                decimals[i] = new BigDecimal(literals[i]);
+            } catch (NumberFormatException ex) {
+                throw new EvaluationException("Invalid number literal: " + literals[i], ex);
+            }
+        }
+        return new DecimalProgram(code, decimals, variables, shape);
+    }
+
+    /**
+     * @return the number of stack slots evaluation needs
+     */
+    public int maxStackDepth() {
+        return maxStackDepth;
+    }
+
+    /**
+     * @return the number of temporaries; they occupy the lowest slots of the evaluation stack
+     */
+    public int tempCount() {
+        return tempCount;
+    }
+
+    /**
+     * @return the number of variable slots; evaluation needs one value per slot
+     */
+    public int variableCount() {
+        return variables.length;
+    }
+
+    /**
+     * @return the variable names, indexed by slot
+     */
+    public List<String> variables() {
+        return List.of(variables);
+    }
+
+    int[] codeArray() {
+        return code;
+    }
+
+    double[] doubleArray() {
+        return doubles;
+    }
+
+    BigDecimal[] decimalArray() {
+        return decimals;
+    }
+
+    void checkVariables(int supplied) {
+        if (supplied < variables.length) {
+            throw new EvaluationException("Unbound variables: " + variables().subList(supplied, variables.length));
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof DecimalProgram other
+            && Arrays.equals(code, other.code)
+            && Arrays.equals(decimals, other.decimals)
+            && Arrays.equals(variables, other.variables);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * Arrays.hashCode(code) + Arrays.hashCode(decimals)) + Arrays.hashCode(variables);
+    }
+
+    @Override
+    public String toString() {
+        return RpnProgram.format(code, i -> decimals[i].toString(), variables);
+    }
+}
@@ -0,0 +1,93 @@
+package org.usama.pocs.calc.eval;
+
+import org.usama.pocs.calc.exception.EvaluationException;
+
+/**
+ * Executes a {@link DecimalProgram} in IEEE 754 {@code double} arithmetic.
+ * <p>This is a separate interpreter loop over a primitive {@code double[]} stack, not a generic one shared with
+ * {@link RpnEvaluator}: neither path boxes, converts or branches on the number type.</p>
+ * <p>Arithmetic follows Java's {@code double} operators: {@code /} does not truncate, {@code ^} is
+ * {@link Math#pow(double, double)}, {@code min} and {@code max} propagate {@code NaN}, and overflow or division by
+ * zero produce infinities or {@code NaN} rather than exceptions.</p>
+ * <p>Instances are stateless and may be shared between threads.</p>
+ */
+public final class DoubleEvaluator {
+
+    private static final double[] NO_VARIABLES = new double[0];
+
+    /**
+     * Execute a compiled program without variables.
+     *
+     * @param program the program to run
+     * @return the result
+     * @throws EvaluationException if the program has variables
+     */
+    public double execute(DecimalProgram program) {
+        return execute(program, NO_VARIABLES, new double[program.maxStackDepth()]);
+    }
+
+    /**
+     * Execute a compiled program with variable values on a caller-provided stack. Reusing the stack makes evaluation
+     * allocation-free.
+     *
+     * @param program   the program to run
+     * @param variables variable values indexed by slot, at least {@link DecimalProgram#variableCount()} of them
+     * @param stack     scratch stack of at least {@link DecimalProgram#maxStackDepth()} slots
+     * @return the result
+     * @throws EvaluationException if a variable has no value
+     */
+    public double execute(DecimalProgram program, double[] variables, double[] stack) {
+        if (stack.length < program.maxStackDepth()) {
+            throw new IllegalArgumentException(
+                "Stack of " + stack.length + " slots is smaller than " + program.maxStackDepth());
+        }
+        program.checkVariables(variables.length);
+
+        final int[] code = program.codeArray();
+        final double[] constants = program.doubleArray();
+        int top = program.tempCount();
+        int pc = 0;
+
+        while (pc < code.length) {
+            switch (code[pc]) {
+                case Opcode.PUSH -> stack[top++] = constants[code[++pc]];
+                case Opcode.LOAD -> stack[top++] = variables[code[++pc]];
+                case Opcode.TEE -> stack[code[++pc]] = stack[top - 1];
+                case Opcode.TEMP -> stack[top++] = stack[code[++pc]];
+                case Opcode.ADD -> {
+                    top--;
+                    stack[top - 1] = stack[top - 1] + stack[top];
+                }
+                case Opcode.SUB -> {
+                    top--;
+                    stack[top - 1] = stack[top - 1] - stack[top];
+                }
+                case Opcode.MUL -> {
+                    top--;
+                    stack[top - 1] = stack[top - 1] * stack[top];
+                }
+                case Opcode.DIV -> {
+                    top--;
+                    stack[top - 1] = stack[top - 1] / stack[top];
+                }
+                case Opcode.POW -> {
+                    top--;
+                    stack[top - 1] = Math.pow(stack[top - 1], stack[top]);
+                }
+                case Opcode.NEG -> stack[top - 1] = -stack[top - 1];
+                case Opcode.ABS -> stack[top - 1] = Math.abs(stack[top - 1]);
+                case Opcode.MIN -> {
+                    top--;
+                    stack[top - 1] = Math.min(stack[top - 1], stack[top]);
+                }
+                case Opcode.MAX -> {
+                    top--;
+                    stack[top - 1] = Math.max(stack[top - 1], stack[top]);
+                }
+                default -> throw new EvaluationException("Unknown opcode " + code[pc] + " at " + pc);
+            }
+            pc++;
+        }
+        return stack[top - 1];
+    }
+}
@@ -0,0 +1,13 @@
+package org.usama.pocs.calc.eval;
+
+/**
+ * A {@link DecimalProgram} compiled to {@code double} bytecode by {@link JitCompiler}.
+ */
+interface DoubleFunction {
+
+    /**
+     * @param variables variable values indexed by slot, at least as many as the program has
+     * @return the result
+     */
+    double eval(double[] variables);
+}
@@ -0,0 +1,420 @@
+package org.usama.pocs.calc.eval;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Translates an {@link RpnProgram} into a hidden class whose {@link RpnFunction#eval(long[])} is the program as
+ * straight-line bytecode, and a {@link DecimalProgram} into one whose {@link DoubleFunction#eval(double[])} is.
+ * <p>Every stack operation maps to one JVM instruction: constants become {@code ldc2_w}, variables
+ * {@code aload_1; ldc; laload}, temporaries long locals, {@code + - * /} calls to {@code Math.*Exact} and {@code ^}
+ * a call to the interpreter's own power function, unary minus {@code Math.negateExact}, and the functions
+ * {@code abs}, {@code min} and {@code max} calls to {@code Math.absExact}, {@code Math.min} and {@code Math.max}.
+ * The {@code double} variant uses {@code dadd}, {@code dsub}, {@code dmul}, {@code ddiv}, {@code dneg} and the
+ * {@code double} overloads of {@code Math}. Faults therefore surface as the same {@link ArithmeticException}s the
+ * interpreter sees. The method has no branches, so no stack map frames are
+ * required, and it is small enough for C2 to inline into its caller.</p>
+ * <p>The class file is written by hand: the instruction subset is tiny and this keeps the project free of bytecode
+ * libraries. Hidden classes are not reachable by name and are unloaded with their last instance.</p>
+ * <p>A GraalVM native image cannot define classes at run time; there every program stays interpreted.</p>
+ */
+final class JitCompiler {
+
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final int JAVA_21 = 65;
+    private static final int MAX_CODE_BYTES = 65535;
+    private static final boolean SUPPORTED = System.getProperty("org.graalvm.nativeimage.imagecode") == null;
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final int LCONST_0 = 0x09;
+    private static final int DCONST_0 = 0x0e;
+    private static final int ICONST_0 = 0x03;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC_W = 0x13;
+    private static final int LDC2_W = 0x14;
+    private static final int LLOAD = 0x16;
+    private static final int DLOAD = 0x18;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int LALOAD = 0x2f;
+    private static final int DALOAD = 0x31;
+    private static final int LSTORE = 0x37;
+    private static final int DSTORE = 0x39;
+    private static final int DUP2 = 0x5c;
+    private static final int DADD = 0x63;
+    private static final int DSUB = 0x67;
+    private static final int DMUL = 0x6b;
+    private static final int DDIV = 0x6f;
+    private static final int DNEG = 0x77;
+    private static final int LRETURN = 0xad;
+    private static final int DRETURN = 0xaf;
+    private static final int RETURN = 0xb1;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+    private static final int WIDE = 0xc4;
+
+    private static final String CLASS_NAME = JitCompiler.class.getPackageName().replace('.', '/') + "/JitFunction";
+    private static final String EVALUATOR = RpnEvaluator.class.getName().replace('.', '/');
+
+    private JitCompiler() {
+    }
+
+    /**
+     * Compile a program to bytecode.
+     *
+     * @param program the program
+     * @return the compiled function, or {@code null} if the program is too large for a single JVM method or classes
+     *         cannot be defined at run time
+     */
+    static RpnFunction compile(RpnProgram program) {
+        return (RpnFunction) define(SUPPORTED ? classFile(program) : null, program);
+    }
+
+    /**
+     * Compile a fractional program to {@code double} bytecode.
+     *
+     * @param program the program
+     * @return the compiled function, or {@code null} if the program is too large for a single JVM method or classes
+     *         cannot be defined at run time
+     */
+    static DoubleFunction compile(DecimalProgram program) {
+        return (DoubleFunction) define(SUPPORTED ? classFile(program) : null, program);
+    }
+
+    private static Object define(byte[] bytes, Object program) {
+        if (bytes == null) {
+            return null;
+        }
+        try {
+            var lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            return lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class)).invoke();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Generated invalid bytecode for " + program, e);
+        }
+    }
+
+    /**
+     * @return the class file bytes, or {@code null} if the program does not fit the JVM's method limits
+     */
+    static byte[] classFile(RpnProgram program) {
+        return classFile(Kind.LONG, program.codeArray(), program.constantArray(), null, program.tempCount(),
+            program.maxStackDepth());
+    }
+
+    /**
+     * @return the class file bytes, or {@code null} if the program does not fit the JVM's method limits
+     */
+    static byte[] classFile(DecimalProgram program) {
+        return classFile(Kind.DOUBLE, program.codeArray(), null, program.doubleArray(), program.tempCount(),
+            program.maxStackDepth());
+    }
+
+    private static byte[] classFile(Kind kind, int[] code, long[] longs, double[] doubles, int tempCount,
+        int maxStackDepth) {
+        var pool = new ConstantPool();
+        int thisClass = pool.classRef(CLASS_NAME);
+        int superClass = pool.classRef("java/lang/Object");
+        int function = pool.classRef(kind.function);
+        int objectInit = pool.methodRef("java/lang/Object", "<init>", "()V");
+
+        byte[] evalCode = evalCode(kind, code, longs, doubles, pool);
+        if (evalCode == null || pool.size() > 0xFFF0) {
+            return null;
+        }
+
+        try {
+            var bytes = new ByteArrayOutputStream(256 + evalCode.length);
+            var out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeShort(0);
+            out.writeShort(JAVA_21);
+
+            int init = pool.utf8("<init>");
+            int initType = pool.utf8("()V");
+            int eval = pool.utf8("eval");
+            int evalType = pool.utf8(kind.descriptor);
+            int codeAttribute = pool.utf8("Code");
+            pool.writeTo(out);
+
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(1);
+            out.writeShort(function);
+            out.writeShort(0);
+
+            out.writeShort(2);
+            writeMethod(out, ACC_PUBLIC, init, initType, codeAttribute, 1, 1,
+                new byte[]{(byte) ALOAD_0, (byte) INVOKESPECIAL, (byte) (objectInit >> 8), (byte) objectInit,
+                    (byte) RETURN});
+            writeMethod(out, ACC_PUBLIC | ACC_FINAL, eval, evalType, codeAttribute,
+                2 * (maxStackDepth - tempCount) + 2, 2 + 2 * tempCount, evalCode);
+            out.writeShort(0);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] evalCode(Kind kind, int[] code, long[] longs, double[] doubles, ConstantPool pool) {
+        var out = new ByteArrayOutputStream(code.length * 3 + 1);
+
+        for (int pc = 0; pc < code.length; pc++) {
+            switch (code[pc]) {
+                case Opcode.PUSH -> {
+                    if (kind == Kind.LONG) {
+                        long value = longs[code[++pc]];
+                        if (value == 0 || value == 1) {
+                            out.write(LCONST_0 + (int) value);
+                        } else {
+                            writeU2(out, LDC2_W, pool.longConstant(value));
+                        }
+                    } else {
+                        double value = doubles[code[++pc]];
+                        if (Double.doubleToRawLongBits(value) == 0 || value == 1.0) {
+                            out.write(DCONST_0 + (int) value);
+                        } else {
+                            writeU2(out, LDC2_W, pool.doubleConstant(value));
+                        }
+                    }
+                }
+                case Opcode.LOAD -> {
+                    out.write(ALOAD_1);
+                    pushInt(out, pool, code[++pc]);
+                    out.write(kind.arrayLoad);
+                }
+                case Opcode.TEE -> {
+                    out.write(DUP2);
+                    local(out, kind.store, 2 + 2 * code[++pc]);
+                }
+                case Opcode.TEMP -> local(out, kind.load, 2 + 2 * code[++pc]);
+                case Opcode.ADD -> kind.arithmetic(out, pool, DADD, "addExact");
+                case Opcode.SUB -> kind.arithmetic(out, pool, DSUB, "subtractExact");
+                case Opcode.MUL -> kind.arithmetic(out, pool, DMUL, "multiplyExact");
+                case Opcode.DIV -> kind.arithmetic(out, pool, DDIV, "divideExact");
+                case Opcode.POW -> writeU2(out, INVOKESTATIC, kind == Kind.LONG
+                    ? pool.methodRef(EVALUATOR, "pow", "(JJ)J")
+                    : pool.methodRef("java/lang/Math", "pow", "(DD)D"));
+                case Opcode.NEG -> {
+                    if (kind == Kind.DOUBLE) {
+                        out.write(DNEG);
+                    } else {
+                        kind.math(out, pool, "negateExact", 1);
+                    }
+                }
+                case Opcode.ABS -> kind.math(out, pool, kind == Kind.LONG ? "absExact" : "abs", 1);
+                case Opcode.MIN -> kind.math(out, pool, "min", 2);
+                case Opcode.MAX -> kind.math(out, pool, "max", 2);
+                default -> throw new IllegalArgumentException("Unknown opcode " + code[pc] + " at " + pc);
+            }
+            if (out.size() >= MAX_CODE_BYTES) {
+                return null;
+            }
+        }
+        out.write(kind.returns);
+        return out.toByteArray();
+    }
+
+    private static void pushInt(ByteArrayOutputStream out, ConstantPool pool, int value) {
+        if (value <= 5) {
+            out.write(ICONST_0 + value);
+        } else if (value <= Byte.MAX_VALUE) {
+            out.write(BIPUSH);
+            out.write(value);
+        } else if (value <= Short.MAX_VALUE) {
+            writeU2(out, SIPUSH, value);
+        } else {
+            writeU2(out, LDC_W, pool.intConstant(value));
+        }
+    }
+
+    private static void local(ByteArrayOutputStream out, int opcode, int index) {
+        if (index <= 0xFF) {
+            out.write(opcode);
+            out.write(index);
+        } else {
+            out.write(WIDE);
+            writeU2(out, opcode, index);
+        }
+    }
+
+    private static void writeU2(ByteArrayOutputStream out, int opcode, int operand) {
+        out.write(opcode);
+        out.write(operand >> 8);
+        out.write(operand);
+    }
+
+    private static void writeMethod(DataOutputStream out, int access, int name, int descriptor, int codeAttribute,
+        int maxStack, int maxLocals, byte[] code) throws IOException {
+        out.writeShort(access);
+        out.writeShort(name);
+        out.writeShort(descriptor);
+        out.writeShort(1);
+        out.writeShort(codeAttribute);
+        out.writeInt(12 + code.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code);
+        out.writeShort(0);
+        out.writeShort(0);
+    }
+
+    /**
+     * Value type of the generated {@code eval} method and the instructions that differ with it.
+     */
+    private enum Kind {
+        LONG(RpnFunction.class, "([J)J", LALOAD, LLOAD, LSTORE, LRETURN),
+        DOUBLE(DoubleFunction.class, "([D)D", DALOAD, DLOAD, DSTORE, DRETURN);
+
+        final String function;
+        final String descriptor;
+        final int arrayLoad;
+        final int load;
+        final int store;
+        final int returns;
+
+        final char type;
+
+        Kind(Class<?> function, String descriptor, int arrayLoad, int load, int store, int returns) {
+            this.function = function.getName().replace('.', '/');
+            this.descriptor = descriptor;
+            this.type = descriptor.charAt(descriptor.length() - 1);
+            this.arrayLoad = arrayLoad;
+            this.load = load;
+            this.store = store;
+            this.returns = returns;
+        }
+
+        /**
+         * Emits a {@code double} instruction, or a call to the {@code long} {@code Math} method that checks for
+         * overflow.
+         */
+        void arithmetic(ByteArrayOutputStream out, ConstantPool pool, int doubleOpcode, String exactMethod) {
+            if (this == DOUBLE) {
+                out.write(doubleOpcode);
+            } else {
+                math(out, pool, exactMethod, 2);
+            }
+        }
+
+        /**
+         * Emits a call to a {@code Math} method taking {@code arity} values of this kind and returning one.
+         */
+        void math(ByteArrayOutputStream out, ConstantPool pool, String method, int arity) {
+            String descriptor = "(" + String.valueOf(type).repeat(arity) + ")" + type;
+            writeU2(out, INVOKESTATIC, pool.methodRef("java/lang/Math", method, descriptor));
+        }
+    }
+
+    /**
+     * Deduplicating class file constant pool.
+     */
+    private static final class ConstantPool {
+
+        private static final int UTF8 = 1;
+        private static final int INTEGER = 3;
+        private static final int LONG = 5;
+        private static final int DOUBLE = 6;
+        private static final int CLASS = 7;
+        private static final int METHOD_REF = 10;
+        private static final int NAME_AND_TYPE = 12;
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<Object, Integer> indices = new HashMap<>();
+        private int next = 1;
+
+        int size() {
+            return next;
+        }
+
+        int utf8(String value) {
+            return entry(value, 1, () -> {
+                out.writeByte(UTF8);
+                out.writeUTF(value);
+            });
+        }
+
+        int intConstant(int value) {
+            return entry(value, 1, () -> {
+                out.writeByte(INTEGER);
+                out.writeInt(value);
+            });
+        }
+
+        int longConstant(long value) {
+            return entry(value, 2, () -> {
+                out.writeByte(LONG);
+                out.writeLong(value);
+            });
+        }
+
+        int doubleConstant(double value) {
+            return entry(value, 2, () -> {
+                out.writeByte(DOUBLE);
+                out.writeDouble(value);
+            });
+        }
+
+        int classRef(String internalName) {
+            int name = utf8(internalName);
+            return entry("class " + internalName, 1, () -> {
+                out.writeByte(CLASS);
+                out.writeShort(name);
+            });
+        }
+
+        int methodRef(String owner, String name, String descriptor) {
+            int ownerClass = classRef(owner);
+            int nameIndex = utf8(name);
+            int descriptorIndex = utf8(descriptor);
+            int nameAndType = entry("nat " + name + descriptor, 1, () -> {
+                out.writeByte(NAME_AND_TYPE);
+                out.writeShort(nameIndex);
+                out.writeShort(descriptorIndex);
+            });
+            return entry("method " + owner + "." + name + descriptor, 1, () -> {
+                out.writeByte(METHOD_REF);
+                out.writeShort(ownerClass);
+                out.writeShort(nameAndType);
+            });
+        }
+
+        void writeTo(DataOutputStream target) throws IOException {
+            target.writeShort(next);
+            bytes.writeTo(target);
+        }
+
+        private int entry(Object key, int slots, Writer writer) {
+            Integer existing = indices.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            try {
+                writer.write();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            int index = next;
+            next += slots;
+            indices.put(key, index);
+            return index;
+        }
+
+        @FunctionalInterface
+        private interface Writer {
+            void write() throws IOException;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package org.usama.pocs.calc.eval;
+
+import java.util.Arrays;
+
+/**
+ * Instruction set of a compiled {@link RpnProgram}.
+ * <p>Opcodes are plain {@code int}s so the interpreter loop can dispatch with a table switch. {@link #PUSH} is
+ * followed by one operand, the index of the value in the program's constant pool, {@link #LOAD} by the slot of
+ * a variable and {@link #TEE}/{@link #TEMP} by the index of a temporary; all other opcodes take no operand and work
+ * on the operand stack.</p>
+ * <p>Temporaries hold values of common subexpressions computed once by the program and reused later; see
+ * {@link RpnOptimizer}. They live in the lowest slots of the evaluation stack, below the operands.</p>
+ * <p>The properties the parser needs - precedence, associativity, arity - are kept in arrays indexed by opcode and
+ * operator characters are mapped through an array indexed by {@code char}, so no lookup compares strings or walks a
+ * switch.</p>
+ */
+public final class Opcode {
+
+    /** Push {@code constants[operand]}. */
+    public static final int PUSH = 0;
+    /** Pop two values, push their sum. */
+    public static final int ADD = 1;
+    /** Pop two values, push left minus right. */
+    public static final int SUB = 2;
+    /** Pop two values, push their product. */
+    public static final int MUL = 3;
+    /** Pop two values, push left divided by right, truncated toward zero. */
+    public static final int DIV = 4;
+    /** Pop two values, push left raised to the power of right. */
+    public static final int POW = 5;
+    /** Push {@code variables[operand]}. */
+    public static final int LOAD = 6;
+    /** Copy the top of the stack into {@code temps[operand]} without popping it. */
+    public static final int TEE = 7;
+    /** Push {@code temps[operand]}. */
+    public static final int TEMP = 8;
+    /** Pop one value, push its negation (unary minus). */
+    public static final int NEG = 9;
+    /** Pop one value, push its absolute value ({@code abs(x)}). */
+    public static final int ABS = 10;
+    /** Pop two values, push the smaller ({@code min(a, b, ...)}). */
+    public static final int MIN = 11;
+    /** Pop two values, push the larger ({@code max(a, b, ...)}). */
+    public static final int MAX = 12;
+
+    private static final int COUNT = 13;
+
+    private static final String[] SYMBOLS = {
+        "push", "+", "-", "*", "/", "^", "load", "tee", "temp", "neg", "abs", "min", "max"};
+    /** Values popped by each operator opcode; {@code 0} for the others. */
+    private static final byte[] ARITY = {0, 2, 2, 2, 2, 2, 0, 0, 0, 1, 1, 2, 2};
+    /** Binding strength in infix notation; {@code 0} for opcodes that are not infix or prefix operators. */
+    private static final byte[] PRECEDENCE = {0, 1, 1, 2, 2, 4, 0, 0, 0, 3, 0, 0, 0};
+    private static final boolean[] RIGHT_ASSOCIATIVE = new boolean[COUNT];
+    /** Functions that accept any positive number of arguments, folded pairwise. */
+    private static final boolean[] VARIADIC = new boolean[COUNT];
+    private static final int[] BY_CHAR = new int[128];
+
+    static {
+        RIGHT_ASSOCIATIVE[POW] = true;
+        VARIADIC[MIN] = true;
+        VARIADIC[MAX] = true;
+
+        Arrays.fill(BY_CHAR, -1);
+        BY_CHAR['+'] = ADD;
+        BY_CHAR['-'] = SUB;
+        BY_CHAR['*'] = MUL;
+        BY_CHAR['/'] = DIV;
+        BY_CHAR['^'] = POW;
+    }
+
+    private Opcode() {
+    }
+
+    /**
+     * Maps a binary operator symbol to its opcode.
+     *
+     * @param operator operator symbol such as {@code "+"}
+     * @return the opcode, or {@code -1} if the operator is unknown
+     */
+    public static int forOperator(String operator) {
+        return operator.length() == 1 ? forOperator(operator.charAt(0)) : -1;
+    }
+
+    /**
+     * Maps a binary operator character to its opcode.
+     *
+     * @param operator operator character such as {@code '+'}
+     * @return the opcode, or {@code -1} if the operator is unknown
+     */
+    public static int forOperator(char operator) {
+        return operator < BY_CHAR.length ? BY_CHAR[operator] : -1;
+    }
+
+    /**
+     * Maps a function name to its opcode. Unary minus is named {@code neg} in RPN token lists.
+     *
+     * @param name function name such as {@code "max"}
+     * @return the opcode, or {@code -1} if the function is unknown
+     */
+    public static int forFunction(CharSequence name) {
+        return forFunction(name, 0, name.length());
+    }
+
+    /**
+     * Maps a function name inside a larger text to its opcode, without extracting it.
+     *
+     * @param text  text containing the name
+     * @param start offset of the name's first character
+     * @param end   offset one past its last character
+     * @return the opcode, or {@code -1} if the function is unknown
+     */
+    public static int forFunction(CharSequence text, int start, int end) {
+        if (end - start != 3) {
+            return -1;
+        }
+        for (int op = NEG; op <= MAX; op++) {
+            String symbol = SYMBOLS[op];
+            if (symbol.charAt(0) == text.charAt(start) && symbol.charAt(1) == text.charAt(start + 1)
+                && symbol.charAt(2) == text.charAt(start + 2)) {
+                return op;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the binding strength of an infix or prefix operator opcode.
+     *
+     * @param opcode the opcode
+     * @return precedence level (higher means higher precedence), or {@code 0} for other opcodes
+     */
+    public static int precedence(int opcode) {
+        return PRECEDENCE[opcode];
+    }
+
+    /**
+     * @param opcode the opcode
+     * @return whether the operator groups right to left, like {@code ^}
+     */
+    public static boolean isRightAssociative(int opcode) {
+        return RIGHT_ASSOCIATIVE[opcode];
+    }
+
+    /**
+     * @param opcode the opcode
+     * @return the number of values the opcode pops before pushing its result, or {@code 0} if it is not an
+     *         operator or function
+     */
+    public static int arity(int opcode) {
+        return opcode >= 0 && opcode < COUNT ? ARITY[opcode] : 0;
+    }
+
+    /**
+     * @param opcode the opcode
+     * @return whether the opcode pops two values and pushes one
+     */
+    public static boolean isBinary(int opcode) {
+        return arity(opcode) == 2;
+    }
+
+    /**
+     * @param opcode a function opcode
+     * @return whether the function takes any positive number of arguments, applying the binary opcode pairwise
+     */
+    public static boolean isVariadic(int opcode) {
+        return VARIADIC[opcode];
+    }
+
+    /**
+     * Returns the number of operands that follow the opcode in the code array.
+     *
+     * @param opcode the opcode
+     * @return operand count
+     */
+    public static int operandCount(int opcode) {
+        return opcode == PUSH || opcode == LOAD || opcode == TEE || opcode == TEMP ? 1 : 0;
+    }
+
+    /**
+     * Returns a printable symbol for the opcode.
+     *
+     * @param opcode the opcode
+     * @return the operator symbol or function name, or the mnemonic for other opcodes
+     */
+    public static String symbol(int opcode) {
+        return opcode >= 0 && opcode < SYMBOLS.length ? SYMBOLS[opcode] : "op#" + opcode;
+    }
+}
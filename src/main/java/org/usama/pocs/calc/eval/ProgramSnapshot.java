@@ -0,0 +1,282 @@
+package org.usama.pocs.calc.eval;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+import org.usama.pocs.calc.exception.EvaluationException;
+
+/**
+ * Versioned, checksummed binary file of compiled programs keyed by expression text, so that a process can restart
+ * with its expressions compiled instead of lexing and parsing them again.
+ * <p>Layout, big-endian. {@code varint} is an unsigned LEB128 number of up to 32 bits, {@code zigzag} a signed
+ * LEB128 {@code long}, and a string a {@code varint} byte count followed by UTF-8.</p>
+ * <pre>
+ * header    int magic {@code "RPNS"}, int version, int program count, int name count
+ * names     one string per variable name, each stored once for the whole file
+ * programs  per program: string expression,
+ *           varint code length, one varint per opcode or operand,
+ *           varint constant count, one zigzag per constant,
+ *           varint variable count, one varint index into the names per variable
+ * trailer   int CRC32C of everything before it
+ * </pre>
+ * <p>{@link #VERSION} changes whenever the layout or the {@link Opcode} numbering does; other versions are refused
+ * rather than misread. {@link #write(Path, Map)} writes to a temporary file, forces it to disk and then moves it into
+ * place, so a crash or power loss never leaves a partial snapshot behind. {@link #read(Path, BiConsumer)} memory-maps
+ * the file, verifies the checksum over the mapping and decodes programs straight from it. The checksum only catches
+ * accidental damage, so every count is checked against the bytes left before anything is allocated for it, and every
+ * program is verified again as it is rebuilt, like {@link RpnProgram#readFrom(java.io.DataInput)} does. Files are
+ * limited to 2 GiB, one mapping.</p>
+ */
+public final class ProgramSnapshot {
+
+    /**
+     * Current format version.
+     */
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x52504E53;
+    private static final int HEADER_BYTES = 16;
+    private static final int TRAILER_BYTES = 4;
+
+    private ProgramSnapshot() {
+    }
+
+    /**
+     * Writes programs to {@code file}, replacing it atomically.
+     *
+     * @param file     the snapshot file
+     * @param programs programs by expression text, written in iteration order
+     * @return the number of programs written
+     * @throws IOException if writing fails
+     */
+    public static int write(Path file, Map<String, RpnProgram> programs) throws IOException {
+        Map<String, Integer> names = new HashMap<>();
+        for (var program : programs.values()) {
+            for (var name : program.variableArray()) {
+                names.putIfAbsent(name, names.size());
+            }
+        }
+        var nameTable = new String[names.size()];
+        names.forEach((name, index) -> nameTable[index] = name);
+
+        var directory = file.toAbsolutePath().getParent();
+        var temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            var crc = new CRC32C();
+            try (var channel = FileChannel.open(temporary, StandardOpenOption.WRITE);
+                 var out = new DataOutputStream(new BufferedOutputStream(
+                     new CheckedOutputStream(Channels.newOutputStream(channel), crc), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(programs.size());
+                out.writeInt(nameTable.length);
+                for (var name : nameTable) {
+                    writeString(out, name);
+                }
+                for (var entry : programs.entrySet()) {
+                    writeString(out, entry.getKey());
+                    writeProgram(out, entry.getValue(), names);
+                }
+                out.flush();
+                // not part of the checksum: CheckedOutputStream has already seen everything written before
+                out.writeInt((int) crc.getValue());
+                out.flush();
+                // the data must be on disk before the rename is, or a power loss could leave a renamed empty file
+                channel.force(true);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        return programs.size();
+    }
+
+    /**
+     * Reads a snapshot written by {@link #write(Path, Map)}, handing each program to {@code sink} in file order.
+     *
+     * @param file the snapshot file
+     * @param sink receives each expression and its program
+     * @return the number of programs read
+     * @throws IOException if reading fails, or the file is not a snapshot of this version or is corrupt; nothing has
+     *                     been passed to {@code sink} then
+     */
+    public static int read(Path file, BiConsumer<String, RpnProgram> sink) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + TRAILER_BYTES) {
+                throw new IOException("Not a program snapshot, only " + size + " bytes: " + file);
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large to map: " + file);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return decode(mapped, file, sink);
+        }
+    }
+
+    private static int decode(ByteBuffer in, Path file, BiConsumer<String, RpnProgram> sink) throws IOException {
+        if (in.getInt(0) != MAGIC) {
+            throw new IOException("Not a program snapshot: " + file);
+        }
+        int version = in.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version + ", expected " + VERSION + ": " + file);
+        }
+        int bodyEnd = in.limit() - TRAILER_BYTES;
+        var crc = new CRC32C();
+        crc.update(in.slice(0, bodyEnd));
+        if ((int) crc.getValue() != in.getInt(bodyEnd)) {
+            throw new IOException("Snapshot checksum mismatch: " + file);
+        }
+
+        try {
+            in.position(8);
+            int count = checkLength(in, in.getInt());
+            var names = new String[checkLength(in, in.getInt())];
+            var strings = new StringDecoder();
+            for (int i = 0; i < names.length; i++) {
+                names[i] = strings.read(in);
+            }
+            // decode everything before handing anything out, so a corrupt file has no partial effect
+            var expressions = new String[count];
+            var programs = new RpnProgram[count];
+            for (int i = 0; i < count; i++) {
+                expressions[i] = strings.read(in);
+                programs[i] = readProgram(in, names);
+            }
+            if (in.position() != bodyEnd) {
+                throw new IOException("Snapshot has " + (bodyEnd - in.position()) + " trailing bytes: " + file);
+            }
+            for (int i = 0; i < count; i++) {
+                sink.accept(expressions[i], programs[i]);
+            }
+            return count;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException
+                 | EvaluationException e) {
+            throw new IOException("Corrupt snapshot: " + file, e);
+        }
+    }
+
+    private static void writeProgram(DataOutputStream out, RpnProgram program, Map<String, Integer> names)
+        throws IOException {
+        int[] code = program.codeArray();
+        writeVarint(out, code.length);
+        for (int c : code) {
+            writeVarint(out, c);
+        }
+        long[] constants = program.constantArray();
+        writeVarint(out, constants.length);
+        for (long c : constants) {
+            writeVarlong(out, (c << 1) ^ (c >> 63));
+        }
+        String[] variables = program.variableArray();
+        writeVarint(out, variables.length);
+        for (String v : variables) {
+            writeVarint(out, names.get(v));
+        }
+    }
+
+    private static RpnProgram readProgram(ByteBuffer in, String[] names) {
+        var code = new int[readLength(in)];
+        for (int i = 0; i < code.length; i++) {
+            code[i] = readVarint(in);
+        }
+        var constants = new long[readLength(in)];
+        for (int i = 0; i < constants.length; i++) {
+            long zigzag = readVarlong(in);
+            constants[i] = (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+        var variables = new String[readLength(in)];
+        for (int i = 0; i < variables.length; i++) {
+            variables[i] = names[readVarint(in)];
+        }
+        return RpnProgram.of(code, constants, variables);
+    }
+
+    private static void writeString(OutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads strings through one growing byte array, since a mapped buffer has no array to decode from.
+     */
+    private static final class StringDecoder {
+
+        private byte[] bytes = new byte[256];
+
+        String read(ByteBuffer in) {
+            int length = readLength(in);
+            if (length > bytes.length) {
+                bytes = new byte[Math.max(length, bytes.length << 1)];
+            }
+            in.get(bytes, 0, length);
+            return new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void writeVarint(OutputStream out, int value) throws IOException {
+        writeVarlong(out, Integer.toUnsignedLong(value));
+    }
+
+    private static void writeVarlong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * Reads the element count of an array or string. Every element takes at least one byte, so a count beyond the
+     * remaining bytes is corrupt; rejecting it before allocating keeps a crafted file from exhausting the heap.
+     */
+    private static int readLength(ByteBuffer in) {
+        return checkLength(in, readVarint(in));
+    }
+
+    private static int checkLength(ByteBuffer in, int length) {
+        if (length < 0 || length > in.remaining()) {
+            throw new IndexOutOfBoundsException("Length " + Integer.toUnsignedString(length) + " exceeds the remaining "
+                + in.remaining() + " bytes");
+        }
+        return length;
+    }
+
+    private static int readVarint(ByteBuffer in) {
+        long value = readVarlong(in);
+        if (value >>> 32 != 0) {
+            throw new IndexOutOfBoundsException("Varint out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    private static long readVarlong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IndexOutOfBoundsException("Varint longer than 10 bytes");
+    }
+}
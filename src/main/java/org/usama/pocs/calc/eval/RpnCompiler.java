@@ -0,0 +1,165 @@
+package org.usama.pocs.calc.eval;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.usama.pocs.calc.exception.EvaluationException;
+import org.usama.pocs.calc.exception.InvalidTokenException;
+import org.usama.pocs.calc.lex.Token;
+
+/**
+ * Compiles an RPN token list into an {@link RpnProgram}.
+ * <p>Number literals are parsed here, once, into the program's constant pool, variables are assigned slots in
+ * order of first appearance and operators are mapped to {@link Opcode}s, so evaluation never touches strings.
+ * {@link #compile(List)} produces integer programs; {@link #compileDecimal(List)} produces programs for the
+ * fractional modes, which accept literals such as {@code 2.75}.</p>
+ * <p>Instances are stateless and may be shared between threads.</p>
+ */
+public final class RpnCompiler {
+
+    private static final String LONG_MAX = Long.toString(Long.MAX_VALUE);
+
+    /**
+     * Compile RPN tokens into a program.
+     *
+     * @param rpnTokens tokens in postfix order (numbers, variables and operators)
+     * @return the verified program
+     * @throws EvaluationException   if the sequence is empty, malformed (too few/many operands) or a number is
+     *                               invalid, including fractional numbers
+     * @throws InvalidTokenException if an unknown operator or token type is encountered
+     */
+    public RpnProgram compile(List<Token> rpnTokens) {
+        var assembly = assemble(rpnTokens);
+        long[] constants = new long[assembly.literals().length];
+        for (int i = 0; i < constants.length; i++) {
+            constants[i] = parseLongOrFail(assembly.literals()[i]);
+        }
+        return RpnProgram.of(assembly.code(), constants, assembly.variables());
+    }
+
+    /**
+     * Compile RPN tokens into a program for the fractional evaluators, {@link DoubleEvaluator} and
+     * {@link BigDecimalEvaluator}.
+     *
+     * @param rpnTokens tokens in postfix order (numbers, variables and operators)
+     * @return the verified program
+     * @throws EvaluationException   if the sequence is empty, malformed (too few/many operands) or a number is
+     *                               invalid
+     * @throws InvalidTokenException if an unknown operator or token type is encountered
+     */
+    public DecimalProgram compileDecimal(List<Token> rpnTokens) {
+        var assembly = assemble(rpnTokens);
+        return DecimalProgram.of(assembly.code(), assembly.literals(), assembly.variables());
+    }
+
+    /**
+     * Maps tokens to opcodes, collecting number literals and variable names in order of first use.
+     */
+    private static Assembly assemble(List<Token> rpnTokens) {
+        if (rpnTokens == null || rpnTokens.isEmpty()) {
+            throw new EvaluationException("Empty RPN sequence.");
+        }
+
+        int[] code = new int[rpnTokens.size() * 2];
+        String[] literals = new String[rpnTokens.size()];
+        List<String> variables = new ArrayList<>();
+        int pc = 0;
+        int literalCount = 0;
+
+        for (Token token : rpnTokens) {
+            switch (token.type()) {
+                case NUMBER -> {
+                    literals[literalCount] = token.value();
+                    code[pc++] = Opcode.PUSH;
+                    code[pc++] = literalCount++;
+                }
+                case VARIABLE -> {
+                    int slot = variables.indexOf(token.value());
+                    if (slot < 0) {
+                        slot = variables.size();
+                        variables.add(token.value());
+                    }
+                    code[pc++] = Opcode.LOAD;
+                    code[pc++] = slot;
+                }
+                case OPERATOR -> {
+                    int op = Opcode.forOperator(token.value());
+                    if (op < 0) {
+                        throw new InvalidTokenException(token.value(), token.type());
+                    }
+                    code[pc++] = op;
+                }
+                case FUNCTION -> {
+                    int op = Opcode.forFunction(token.value());
+                    if (op < 0) {
+                        throw new InvalidTokenException(token.value(), token.type());
+                    }
+                    code[pc++] = op;
+                }
+                default -> throw new InvalidTokenException(token.value(), token.type());
+            }
+        }
+
+        return new Assembly(
+            Arrays.copyOf(code, pc),
+            Arrays.copyOf(literals, literalCount),
+            variables.toArray(String[]::new));
+    }
+
+    /**
+     * Parse a token as long or throw an exception if parsing fails.
+     *
+     * @param value the value to parse
+     * @return the parsed long value
+     * @throws EvaluationException if parsing fails
+     */
+    private static long parseLongOrFail(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException ex) {
+            throw new EvaluationException("Invalid number literal: " + value, ex, false);
+        }
+    }
+
+    /**
+     * Checks a number token the way {@link #compile(List)} would parse it, without parsing it or failing: the text
+     * must be an optionally signed integer within the range of {@code long}.
+     *
+     * @param input the scanned input
+     * @param start offset of the literal's first character
+     * @param end   offset one past its last character
+     * @return whether {@link #compile(List)} accepts the literal
+     */
+    public static boolean isLongLiteral(CharSequence input, int start, int end) {
+        int pos = start;
+        char sign = input.charAt(pos);
+        if (sign == '+' || sign == '-') {
+            pos++;
+        }
+        while (pos < end - 1 && input.charAt(pos) == '0') {
+            pos++;
+        }
+        for (int i = pos; i < end; i++) {
+            char c = input.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        int digits = end - pos;
+        if (digits != LONG_MAX.length()) {
+            return digits > 0 && digits < LONG_MAX.length();
+        }
+        // same length as the limit: compare digit by digit, the negative limit ends in 8 rather than 7
+        for (int i = 0; i < digits; i++) {
+            char limit = i == digits - 1 && sign == '-' ? '8' : LONG_MAX.charAt(i);
+            char c = input.charAt(pos + i);
+            if (c != limit) {
+                return c < limit;
+            }
+        }
+        return true;
+    }
+
+    private record Assembly(int[] code, String[] literals, String[] variables) {
+    }
+}
@@ -1,22 +1,27 @@
 package org.usama.pocs.calc.eval;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
 import java.util.List;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
 import org.usama.pocs.calc.exception.EvaluationException;
 import org.usama.pocs.calc.exception.InvalidTokenException;
 import org.usama.pocs.calc.lex.Token;
-import org.usama.pocs.calc.lex.TokenType;
 
 /**
  * Evaluates expressions in Reverse Polish Notation (postfix).
- * <p>Supports {@code + - * /} on {@code long}.</p>
+ * <p>Supports {@code + - * / ^}, unary minus, {@code abs}, {@code min} and {@code max} on {@code long}. Token
+ * lists are first compiled by {@link RpnCompiler} into an {@link RpnProgram}; the interpreter loop then dispatches on
+ * {@code int} opcodes and keeps operands on a primitive {@code long[]} stack, so evaluation neither boxes values nor
+ * compares strings.</p>
+ * <p>Arithmetic is exact: every operator, including {@code Long.MIN_VALUE / -1} and {@code ^}, raises an
+ * {@link EvaluationException} instead of wrapping or rounding when the result does not fit a {@code long}. Use
+ * {@link BigIntegerEvaluator} to promote such results instead.</p>
+ * <p>Variables are bound by slot: {@code variables[i]} is the value of {@code program.variables().get(i)}.</p>
+ * <p>Instances are stateless and may be shared between threads, as long as each thread passes its own stack.</p>
  */
 public class RpnEvaluator {
 
-    private static final Logger LOG = LogManager.getLogger(RpnEvaluator.class);
+    private static final long[] NO_VARIABLES = new long[0];
+
+    private final RpnCompiler compiler = new RpnCompiler();
 
     public RpnEvaluator() {
         // no-op
@@ -32,82 +37,205 @@ public class RpnEvaluator {
      * @throws InvalidTokenException if an unknown operator is encountered
      */
     public long evaluate(List<Token> rpnTokens) {
-        if (rpnTokens == null || rpnTokens.isEmpty()) {
-            throw new EvaluationException("Empty RPN sequence.");
+        return execute(compiler.compile(rpnTokens));
+    }
+
+    /**
+     * Execute a compiled program.
+     *
+     * @param program the program to run
+     * @return result as {@code long}
+     * @throws EvaluationException if the program has variables, or an arithmetic fault occurs
+     */
+    public long execute(RpnProgram program) {
+        return execute(program, NO_VARIABLES, new long[program.maxStackDepth()]);
+    }
+
+    /**
+     * Execute a compiled program on a caller-provided stack. Reusing the stack makes evaluation allocation-free.
+     *
+     * @param program the program to run
+     * @param stack   scratch stack of at least {@link RpnProgram#maxStackDepth()} slots
+     * @return result as {@code long}
+     * @throws EvaluationException if the program has variables, or an arithmetic fault occurs
+     */
+    public long execute(RpnProgram program, long[] stack) {
+        return execute(program, NO_VARIABLES, stack);
+    }
+
+    /**
+     * Execute a compiled program with variable values on a caller-provided stack.
+     *
+     * @param program   the program to run
+     * @param variables variable values indexed by slot, at least {@link RpnProgram#variableCount()} of them
+     * @param stack     scratch stack of at least {@link RpnProgram#maxStackDepth()} slots
+     * @return result as {@code long}
+     * @throws EvaluationException if a variable has no value, or an arithmetic fault occurs
+     */
+    public long execute(RpnProgram program, long[] variables, long[] stack) {
+        if (stack.length < program.maxStackDepth()) {
+            throw new IllegalArgumentException(
+                "Stack of " + stack.length + " slots is smaller than " + program.maxStackDepth());
         }
+        checkVariables(program, variables);
 
-        Deque<Long> numberStack = new ArrayDeque<>();
-
-        for (Token token : rpnTokens) {
-            switch (token.type()) {
-                case NUMBER -> numberStack.push(parseLongOrFail(token.value()));
-                case OPERATOR -> {
-                    var rightNumber = popOrFail(numberStack, token.value());
-                    var leftNumber = popOrFail(numberStack, token.value());
-                    try {
-                        long res = applyOperator(leftNumber, rightNumber, token.value());
-                        numberStack.push(res);
-
-                    } catch (ArithmeticException e) {
-                        LOG.error("Arithmetic error at op '{}' with left={} right={}",
-                            token.value(), leftNumber, rightNumber, e);
-                        throw new EvaluationException("Arithmetic error: " + e.getMessage(), e);
+        final int[] code = program.codeArray();
+        final long[] constants = program.constantArray();
+        int top = program.tempCount();
+        int pc = 0;
+
+        try {
+            while (pc < code.length) {
+                switch (code[pc]) {
+                    case Opcode.PUSH -> stack[top++] = constants[code[++pc]];
+                    case Opcode.LOAD -> stack[top++] = variables[code[++pc]];
+                    case Opcode.TEE -> stack[code[++pc]] = stack[top - 1];
+                    case Opcode.TEMP -> stack[top++] = stack[code[++pc]];
+                    case Opcode.ADD -> {
+                        top--;
+                        stack[top - 1] = Math.addExact(stack[top - 1], stack[top]);
+                    }
+                    case Opcode.SUB -> {
+                        top--;
+                        stack[top - 1] = Math.subtractExact(stack[top - 1], stack[top]);
+                    }
+                    case Opcode.MUL -> {
+                        top--;
+                        stack[top - 1] = Math.multiplyExact(stack[top - 1], stack[top]);
+                    }
+                    case Opcode.DIV -> {
+                        top--;
+                        stack[top - 1] = Math.divideExact(stack[top - 1], stack[top]);
+                    }
+                    case Opcode.POW -> {
+                        top--;
+                        stack[top - 1] = pow(stack[top - 1], stack[top]);
                     }
+                    case Opcode.NEG -> stack[top - 1] = Math.negateExact(stack[top - 1]);
+                    case Opcode.ABS -> stack[top - 1] = Math.absExact(stack[top - 1]);
+                    case Opcode.MIN -> {
+                        top--;
+                        stack[top - 1] = Math.min(stack[top - 1], stack[top]);
+                    }
+                    case Opcode.MAX -> {
+                        top--;
+                        stack[top - 1] = Math.max(stack[top - 1], stack[top]);
+                    }
+                    default -> throw new EvaluationException("Unknown opcode " + code[pc] + " at " + pc);
                 }
-                default -> throw new InvalidTokenException(token.value(), token.type());
+                pc++;
             }
+        } catch (ArithmeticException e) {
+            throw arithmeticError(e);
+        }
+        return stack[top - 1];
+    }
+
+    static void checkVariables(RpnProgram program, long[] variables) {
+        if (variables.length < program.variableCount()) {
+            throw new EvaluationException("Unbound variables: "
+                + program.variables().subList(variables.length, program.variableCount()));
         }
-        return numberStack.pop();
     }
 
     /**
-     * Apply the operator on the two operands.
+     * Wrap an arithmetic fault raised by an operator. The wrapper records no stack trace of its own; the fault is
+     * caused by the operands, and {@code e} already tells where it was raised.
      *
-     * @param left     left operand
-     * @param right    right operand
-     * @param operator the operator as string
-     * @return the result of the operation as {@code long}
-     * @throws InvalidTokenException if the operator is unknown
+     * @param e the fault
+     * @return the exception to throw
      */
-    private static long applyOperator(long left, long right, String operator) {
-        return (long) switch (operator) {
-            case "+" -> Math.addExact(left, right);
-            case "-" -> Math.subtractExact(left, right);
-            case "*" -> Math.multiplyExact(left, right);
-            case "/" -> left / right;
-            case "^" -> Math.pow(left, right);
-            default -> throw new InvalidTokenException(operator, TokenType.OPERATOR);
+    public static EvaluationException arithmeticError(ArithmeticException e) {
+        // hot implicit division faults may be the JVM's preallocated exception, which has no message
+        String message = e.getMessage() != null ? e.getMessage() : "/ by zero";
+        return new EvaluationException("Arithmetic error: " + message, e, false);
+    }
+
+    /**
+     * Apply a binary operator opcode to two operands with the same semantics as the interpreter loop.
+     *
+     * @param opcode an opcode for which {@link Opcode#isBinary(int)} holds
+     * @param left   left operand
+     * @param right  right operand
+     * @return the result
+     * @throws ArithmeticException      on overflow or division by zero
+     * @throws IllegalArgumentException if the opcode is not a binary operator
+     */
+    public static long apply(int opcode, long left, long right) {
+        return switch (opcode) {
+            case Opcode.ADD -> Math.addExact(left, right);
+            case Opcode.SUB -> Math.subtractExact(left, right);
+            case Opcode.MUL -> Math.multiplyExact(left, right);
+            case Opcode.DIV -> Math.divideExact(left, right);
+            case Opcode.POW -> pow(left, right);
+            case Opcode.MIN -> Math.min(left, right);
+            case Opcode.MAX -> Math.max(left, right);
+            default -> throw new IllegalArgumentException("Not a binary operator: " + Opcode.symbol(opcode));
         };
     }
 
     /**
-     * Pop a value from the stack or throw an exception if the stack is empty.
+     * Apply a unary opcode to its operand with the same semantics as the interpreter loop.
      *
-     * @param stack   the stack to pop from
-     * @param context context information for error messages
-     * @return the popped value
-     * @throws EvaluationException if the stack is empty
+     * @param opcode {@link Opcode#NEG} or {@link Opcode#ABS}
+     * @param value  the operand
+     * @return the result
+     * @throws ArithmeticException      on overflow, i.e. for {@code Long.MIN_VALUE}
+     * @throws IllegalArgumentException if the opcode is not a unary operator
      */
-    private static long popOrFail(Deque<Long> stack, String context) {
-        Long v = stack.pollFirst();
-        if (v == null) {
-            throw new EvaluationException("Not enough operands for operator: " + context);
-        }
-        return v;
+    public static long apply(int opcode, long value) {
+        return switch (opcode) {
+            case Opcode.NEG -> Math.negateExact(value);
+            case Opcode.ABS -> Math.absExact(value);
+            default -> throw new IllegalArgumentException("Not a unary operator: " + Opcode.symbol(opcode));
+        };
     }
 
     /**
-     * Parse a token as long or throw an exception if parsing fails.
+     * Exact integer power by repeated squaring.
+     * <p>A negative exponent truncates toward zero like {@code /}: it yields {@code 0} unless {@code |base|} is
+     * {@code 1}, and divides by zero for a zero base. {@code 0 ^ 0} is {@code 1}.</p>
      *
-     * @param value the value to parse
-     * @return the parsed long value
-     * @throws EvaluationException if parsing fails
+     * @throws ArithmeticException on overflow, as soon as a square or partial product no longer fits, or for a zero
+     *                             base with a negative exponent
      */
-    private static long parseLongOrFail(String value) {
-        try {
-            return Long.parseLong(value);
-        } catch (NumberFormatException ex) {
-            throw new EvaluationException("Invalid number literal: " + value, ex);
+    static long pow(long base, long exponent) {
+        if (base >= -1 && base <= 1 || exponent < 0) {
+            return smallPow(base, exponent);
+        }
+        if (exponent >= Long.SIZE) {
+            throw new ArithmeticException("long overflow");
+        }
+        long result = 1;
+        while (true) {
+            if ((exponent & 1) != 0) {
+                result = Math.multiplyExact(result, base);
+            }
+            exponent >>= 1;
+            if (exponent == 0) {
+                return result;
+            }
+            base = Math.multiplyExact(base, base);
+        }
+    }
+
+    /**
+     * Powers whose result is one of {@code -1, 0, 1}: a base of {@code -1}, {@code 0} or {@code 1}, or a negative
+     * exponent.
+     */
+    static long smallPow(long base, long exponent) {
+        if (exponent == 0) {
+            return 1;
+        }
+        if (base == 0) {
+            if (exponent < 0) {
+                throw new ArithmeticException("/ by zero");
+            }
+            return 0;
+        }
+        if (base == 1 || base == -1) {
+            return (exponent & 1) == 0 ? 1 : base;
         }
+        return 0;
     }
 }
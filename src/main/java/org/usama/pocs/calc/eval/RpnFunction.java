@@ -0,0 +1,14 @@
+package org.usama.pocs.calc.eval;
+
+/**
+ * A program compiled to bytecode by {@link JitCompiler}.
+ */
+interface RpnFunction {
+
+    /**
+     * @param variables variable values indexed by slot, at least as many as the program has
+     * @return the result
+     * @throws ArithmeticException on overflow or division by zero, as thrown by the operation itself
+     */
+    long eval(long[] variables);
+}
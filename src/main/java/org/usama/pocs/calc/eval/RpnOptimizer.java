@@ -0,0 +1,279 @@
+package org.usama.pocs.calc.eval;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Rewrites an {@link RpnProgram} into an equivalent, cheaper one.
+ * <p>The program is rebuilt as an expression DAG in one pass over its code, applying on the way:</p>
+ * <ul>
+ *     <li><b>constant folding</b> - an operator whose operands are all constants is evaluated once, at compile
+ *     time;</li>
+ *     <li><b>identities</b> - {@code x + 0}, {@code 0 + x}, {@code x - 0}, {@code x * 1}, {@code 1 * x},
+ *     {@code x / 1}, {@code x ^ 1}, {@code min(x, x)} and {@code max(x, x)} become {@code x};</li>
+ *     <li><b>common subexpression elimination</b> - structurally identical subexpressions share one node. A shared
+ *     operator node is computed once, kept in a temporary with {@link Opcode#TEE} and re-read with
+ *     {@link Opcode#TEMP}.</li>
+ * </ul>
+ * <p>Results and failures are exactly those of the original program. A fold that would overflow or divide by zero
+ * is not applied, so the fault is still raised by evaluation with the same message. Identities only drop operations
+ * that can never fail, and a common subexpression is computed at its first occurrence, so the first fault is the
+ * same as before. Variable slots are left unchanged.</p>
+ * <p>Instances are stateless and may be shared between threads.</p>
+ */
+public final class RpnOptimizer {
+
+    /**
+     * Optimize a program.
+     *
+     * @param program the program to rewrite
+     * @return an equivalent program, or {@code program} itself if nothing could be improved
+     */
+    public RpnProgram optimize(RpnProgram program) {
+        Node root = buildDag(program);
+        countReferences(root);
+
+        var emitter = new Emitter(program.codeArray().length);
+        emitter.emit(root);
+        var optimized = RpnProgram.of(emitter.code(), emitter.constants(), program.variables().toArray(String[]::new));
+
+        return optimized.codeArray().length < program.codeArray().length ? optimized : program;
+    }
+
+    /**
+     * Rebuilds the program's expression as a DAG of interned nodes, folding and simplifying bottom-up.
+     */
+    private static Node buildDag(RpnProgram program) {
+        final int[] code = program.codeArray();
+        final long[] constants = program.constantArray();
+        Map<Node, Node> interned = new HashMap<>();
+        Node[] temps = new Node[program.tempCount()];
+        Node[] stack = new Node[Math.max(1, program.maxStackDepth())];
+        int top = 0;
+
+        for (int pc = 0; pc < code.length; pc++) {
+            int op = code[pc];
+            Node node;
+            switch (op) {
+                case Opcode.PUSH -> node = Node.constant(constants[code[++pc]]);
+                case Opcode.LOAD -> node = new Node(Opcode.LOAD, code[++pc], null, null);
+                case Opcode.TEE -> {
+                    temps[code[++pc]] = stack[top - 1];
+                    continue;
+                }
+                case Opcode.TEMP -> {
+                    stack[top++] = temps[code[++pc]];
+                    continue;
+                }
+                default -> {
+                    if (Opcode.isBinary(op)) {
+                        Node right = stack[--top];
+                        Node left = stack[--top];
+                        node = simplify(op, left, right);
+                    } else {
+                        node = simplify(op, stack[--top]);
+                    }
+                }
+            }
+            stack[top++] = interned.computeIfAbsent(node, n -> n);
+        }
+        return stack[0];
+    }
+
+    private static Node simplify(int op, Node left, Node right) {
+        if (left.isConstant() && right.isConstant()) {
+            try {
+                return Node.constant(RpnEvaluator.apply(op, left.value, right.value));
+            } catch (ArithmeticException e) {
+                // leave the fault to evaluation
+            }
+        }
+        switch (op) {
+            case Opcode.ADD -> {
+                if (right.isConstant(0)) {
+                    return left;
+                }
+                if (left.isConstant(0)) {
+                    return right;
+                }
+            }
+            case Opcode.SUB -> {
+                if (right.isConstant(0)) {
+                    return left;
+                }
+            }
+            case Opcode.MUL -> {
+                if (right.isConstant(1)) {
+                    return left;
+                }
+                if (left.isConstant(1)) {
+                    return right;
+                }
+            }
+            case Opcode.DIV, Opcode.POW -> {
+                if (right.isConstant(1)) {
+                    return left;
+                }
+            }
+            case Opcode.MIN, Opcode.MAX -> {
+                if (left == right) {
+                    return left;
+                }
+            }
+            default -> {
+            }
+        }
+        return new Node(op, 0, left, right);
+    }
+
+    private static Node simplify(int op, Node operand) {
+        if (operand.isConstant()) {
+            try {
+                return Node.constant(RpnEvaluator.apply(op, operand.value));
+            } catch (ArithmeticException e) {
+                // leave the fault to evaluation
+            }
+        }
+        return new Node(op, 0, operand, null);
+    }
+
+    /**
+     * Counts, for every node, the edges from distinct parents. A shared parent is emitted once, so this is also the
+     * number of times the node's value is needed.
+     */
+    private static void countReferences(Node root) {
+        var pending = new ArrayDeque<Node>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            if (++node.references == 1 && node.isOperator()) {
+                pending.push(node.left);
+                if (node.right != null) {
+                    pending.push(node.right);
+                }
+            }
+        }
+    }
+
+    /**
+     * Emits code for a DAG in post-order, computing every shared operator node once.
+     */
+    private static final class Emitter {
+
+        private int[] code;
+        private int pc;
+        private final Map<Long, Integer> constants = new LinkedHashMap<>();
+        private int temps;
+
+        Emitter(int capacity) {
+            this.code = new int[Math.max(2, capacity)];
+        }
+
+        void emit(Node root) {
+            var pending = new ArrayDeque<Node>();
+            pending.push(root);
+            while (!pending.isEmpty()) {
+                Node node = pending.peek();
+                if (node.temp >= 0) {
+                    pending.pop();
+                    add(Opcode.TEMP, node.temp);
+                } else if (node.isOperator() && !node.expanded) {
+                    node.expanded = true;
+                    if (node.right != null) {
+                        pending.push(node.right);
+                    }
+                    pending.push(node.left);
+                } else {
+                    pending.pop();
+                    switch (node.op) {
+                        case Opcode.PUSH -> add(Opcode.PUSH, constants.computeIfAbsent(node.value,
+                            v -> constants.size()));
+                        case Opcode.LOAD -> add(Opcode.LOAD, (int) node.value);
+                        default -> add(node.op);
+                    }
+                    if (node.isOperator() && node.references > 1) {
+                        node.temp = temps++;
+                        add(Opcode.TEE, node.temp);
+                    }
+                }
+            }
+        }
+
+        int[] code() {
+            return Arrays.copyOf(code, pc);
+        }
+
+        long[] constants() {
+            return constants.keySet().stream().mapToLong(Long::longValue).toArray();
+        }
+
+        private void add(int op, int operand) {
+            add(op);
+            add(operand);
+        }
+
+        private void add(int value) {
+            if (pc == code.length) {
+                code = Arrays.copyOf(code, pc << 1);
+            }
+            code[pc++] = value;
+        }
+    }
+
+    /**
+     * A constant ({@link Opcode#PUSH}, with its value), a variable ({@link Opcode#LOAD}, with its slot) or an
+     * operator with its operands; a unary operator has no right operand. Operands are interned, so equality compares
+     * them by identity.
+     */
+    private static final class Node {
+
+        final int op;
+        final long value;
+        final Node left;
+        final Node right;
+        private final int hash;
+
+        int references;
+        boolean expanded;
+        int temp = -1;
+
+        Node(int op, long value, Node left, Node right) {
+            this.op = op;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.hash = 31 * (31 * (31 * op + Long.hashCode(value)) + System.identityHashCode(left))
+                + System.identityHashCode(right);
+        }
+
+        static Node constant(long value) {
+            return new Node(Opcode.PUSH, value, null, null);
+        }
+
+        boolean isConstant() {
+            return op == Opcode.PUSH;
+        }
+
+        boolean isConstant(long expected) {
+            return op == Opcode.PUSH && value == expected;
+        }
+
+        boolean isOperator() {
+            return left != null;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Node other
+                && op == other.op && value == other.value && left == other.left && right == other.right;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
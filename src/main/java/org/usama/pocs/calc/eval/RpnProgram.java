@@ -0,0 +1,292 @@
+package org.usama.pocs.calc.eval;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+import org.usama.pocs.calc.exception.EvaluationException;
+
+/**
+ * Compiled form of an RPN expression: an {@code int[]} of {@link Opcode}s, a {@code long[]} constant pool and the
+ * names of the variables the code loads, indexed by slot.
+ * <p>Programs are immutable and verified on construction, so the interpreter in {@link RpnEvaluator} does not
+ * re-check operand counts. {@link #maxStackDepth()} is the exact stack size evaluation needs, including the
+ * {@link #tempCount()} slots at the bottom of the stack that hold temporaries.</p>
+ *
+ * @see RpnCompiler
+ */
+public final class RpnProgram {
+
+    /** Initial capacity of the arrays {@link #readFrom(DataInput)} fills; they grow by doubling from there. */
+    private static final int READ_CHUNK = 1024;
+
+    private final int[] code;
+    private final long[] constants;
+    private final String[] variables;
+    private final int tempCount;
+    private final int maxStackDepth;
+
+    private RpnProgram(int[] code, long[] constants, String[] variables, int tempCount, int maxStackDepth) {
+        this.code = code;
+        this.constants = constants;
+        this.variables = variables;
+        this.tempCount = tempCount;
+        this.maxStackDepth = maxStackDepth;
+    }
+
+    /**
+     * Verifies the given code and wraps it in a program. The arrays are not copied.
+     *
+     * @param code      opcodes and their operands
+     * @param constants constant pool referenced by {@link Opcode#PUSH}
+     * @param variables variable names referenced by {@link Opcode#LOAD}, indexed by slot
+     * @return the verified program
+     * @throws EvaluationException if the code is empty, references an unknown opcode, constant or variable, reads a
+     *                             temporary before writing it, pops more values than it pushed, or leaves anything but
+     *                             a single result on the stack
+     */
+    static RpnProgram of(int[] code, long[] constants, String[] variables) {
+        int[] shape = verify(code, constants.length, variables.length);
+        return new RpnProgram(code, constants, variables, shape[0], shape[1]);
+    }
+
+    /**
+     * Verifies code against a constant pool and variable table of the given sizes.
+     *
+     * @return the number of temporaries and the stack depth the code needs, in that order
+     * @throws EvaluationException as {@link #of(int[], long[], String[])}
+     */
+    static int[] verify(int[] code, int constantCount, int variableCount) {
+        if (code.length == 0) {
+            throw new EvaluationException("Empty RPN sequence.");
+        }
+
+        int depth = 0;
+        int maxDepth = 0;
+        int temps = 0;
+        for (int pc = 0; pc < code.length; pc++) {
+            int op = code[pc];
+            switch (op) {
+                case Opcode.PUSH -> {
+                    if (pc + 1 >= code.length || code[pc + 1] < 0 || code[pc + 1] >= constantCount) {
+                        throw new EvaluationException("Invalid constant reference at " + pc);
+                    }
+                    pc++;
+                    maxDepth = Math.max(maxDepth, ++depth);
+                }
+                case Opcode.LOAD -> {
+                    if (pc + 1 >= code.length || code[pc + 1] < 0 || code[pc + 1] >= variableCount) {
+                        throw new EvaluationException("Invalid variable reference at " + pc);
+                    }
+                    pc++;
+                    maxDepth = Math.max(maxDepth, ++depth);
+                }
+                case Opcode.TEE -> {
+                    if (pc + 1 >= code.length || code[pc + 1] < 0 || code[pc + 1] > temps || depth < 1) {
+                        throw new EvaluationException("Invalid temporary write at " + pc);
+                    }
+                    temps = Math.max(temps, code[++pc] + 1);
+                }
+                case Opcode.TEMP -> {
+                    if (pc + 1 >= code.length || code[pc + 1] < 0 || code[pc + 1] >= temps) {
+                        throw new EvaluationException("Invalid temporary reference at " + pc);
+                    }
+                    pc++;
+                    maxDepth = Math.max(maxDepth, ++depth);
+                }
+                default -> {
+                    int arity = Opcode.arity(op);
+                    if (arity == 0) {
+                        throw new EvaluationException("Unknown opcode " + op + " at " + pc);
+                    }
+                    if (depth < arity) {
+                        throw new EvaluationException("Not enough operands for operator: " + Opcode.symbol(op));
+                    }
+                    depth -= arity - 1;
+                }
+            }
+        }
+        if (depth != 1) {
+            throw new EvaluationException("Too many operands: " + depth + " values left on the stack");
+        }
+        return new int[]{temps, temps + maxDepth};
+    }
+
+    /**
+     * @return the number of stack slots evaluation needs
+     */
+    public int maxStackDepth() {
+        return maxStackDepth;
+    }
+
+    /**
+     * @return the number of temporaries; they occupy the lowest slots of the evaluation stack
+     */
+    public int tempCount() {
+        return tempCount;
+    }
+
+    /**
+     * @return the number of variable slots; evaluation needs one value per slot
+     */
+    public int variableCount() {
+        return variables.length;
+    }
+
+    /**
+     * @return the variable names, indexed by slot
+     */
+    public List<String> variables() {
+        return List.of(variables);
+    }
+
+    /**
+     * @return a copy of the opcodes and their operands
+     */
+    public int[] code() {
+        return code.clone();
+    }
+
+    /**
+     * @return a copy of the constant pool
+     */
+    public long[] constants() {
+        return constants.clone();
+    }
+
+    int[] codeArray() {
+        return code;
+    }
+
+    long[] constantArray() {
+        return constants;
+    }
+
+    String[] variableArray() {
+        return variables;
+    }
+
+    /**
+     * Writes the program in a compact binary form readable by {@link #readFrom(DataInput)}.
+     *
+     * @param out the output to write to
+     * @throws IOException if writing fails
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(code.length);
+        for (int c : code) {
+            out.writeInt(c);
+        }
+        out.writeInt(constants.length);
+        for (long c : constants) {
+            out.writeLong(c);
+        }
+        out.writeInt(variables.length);
+        for (String v : variables) {
+            out.writeUTF(v);
+        }
+    }
+
+    /**
+     * Reads and verifies a program written by {@link #writeTo(DataOutput)}.
+     * <p>Arrays grow as their elements arrive rather than being sized from the declared lengths, so a corrupt or
+     * hostile length costs no more memory than the data actually present.</p>
+     *
+     * @param in the input to read from
+     * @return the program
+     * @throws IOException         if reading fails
+     * @throws EvaluationException if the data does not describe a valid program, including when it ends before the
+     *                             lengths it declares
+     */
+    public static RpnProgram readFrom(DataInput in) throws IOException {
+        try {
+            int length = readLength(in);
+            int[] code = new int[Math.min(length, READ_CHUNK)];
+            for (int i = 0; i < length; i++) {
+                if (i == code.length) {
+                    code = Arrays.copyOf(code, grow(i, length));
+                }
+                code[i] = in.readInt();
+            }
+            length = readLength(in);
+            long[] constants = new long[Math.min(length, READ_CHUNK)];
+            for (int i = 0; i < length; i++) {
+                if (i == constants.length) {
+                    constants = Arrays.copyOf(constants, grow(i, length));
+                }
+                constants[i] = in.readLong();
+            }
+            length = readLength(in);
+            String[] variables = new String[Math.min(length, READ_CHUNK)];
+            for (int i = 0; i < length; i++) {
+                if (i == variables.length) {
+                    variables = Arrays.copyOf(variables, grow(i, length));
+                }
+                variables[i] = in.readUTF();
+            }
+            return of(code, constants, variables);
+        } catch (EOFException e) {
+            throw new EvaluationException("Truncated program data", e);
+        }
+    }
+
+    private static int readLength(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new EvaluationException("Invalid program length: " + length);
+        }
+        return length;
+    }
+
+    /**
+     * @return the next capacity of an array of {@code size} elements that should end up holding {@code length}
+     */
+    private static int grow(int size, int length) {
+        return (int) Math.min(length, 2L * size);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof RpnProgram other
+            && Arrays.equals(code, other.code)
+            && Arrays.equals(constants, other.constants)
+            && Arrays.equals(variables, other.variables);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * Arrays.hashCode(code) + Arrays.hashCode(constants)) + Arrays.hashCode(variables);
+    }
+
+    @Override
+    public String toString() {
+        return format(code, i -> Long.toString(constants[i]), variables);
+    }
+
+    /**
+     * Renders code in postfix notation, temporaries as {@code =t0} (write) and {@code t0} (read).
+     */
+    static String format(int[] code, IntFunction<String> constant, String[] variables) {
+        var sb = new StringBuilder();
+        for (int pc = 0; pc < code.length; pc++) {
+            if (pc > 0) {
+                sb.append(' ');
+            }
+            if (code[pc] == Opcode.PUSH) {
+                sb.append(constant.apply(code[++pc]));
+            } else if (code[pc] == Opcode.LOAD) {
+                sb.append(variables[code[++pc]]);
+            } else if (code[pc] == Opcode.TEE) {
+                sb.append("=t").append(code[++pc]);
+            } else if (code[pc] == Opcode.TEMP) {
+                sb.append('t').append(code[++pc]);
+            } else {
+                sb.append(Opcode.symbol(code[pc]));
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,116 @@
+package org.usama.pocs.calc.eval;
+
+/**
+ * Portable {@link ColumnKernels}, one row per iteration.
+ * <p>Addition, subtraction, negation and {@code abs} detect overflow without branching, by OR-ing the sign bit of
+ * each row's overflow condition into an accumulator that is tested once after the loop, so C2 can still vectorize
+ * them. Multiplication compares the high half of the 128-bit product with the sign of the low half. The range
+ * methods are shared with {@link VectorColumnKernels}, which uses them for rows that do not fill a vector.</p>
+ */
+final class ScalarColumnKernels implements ColumnKernels {
+
+    @Override
+    public boolean binary(int opcode, long[] a, int aOff, long[] b, int bOff, long[] dst, int n) {
+        return binary(opcode, a, aOff, b, bOff, dst, 0, n);
+    }
+
+    @Override
+    public boolean unary(int opcode, long[] a, int aOff, long[] dst, int n) {
+        return unary(opcode, a, aOff, dst, 0, n);
+    }
+
+    /**
+     * Applies a binary opcode to rows {@code [from, to)}: {@code dst[i] = a[aOff + i] op b[bOff + i]}.
+     */
+    static boolean binary(int opcode, long[] a, int aOff, long[] b, int bOff, long[] dst, int from, int to) {
+        long overflow = 0;
+        switch (opcode) {
+            case Opcode.ADD -> {
+                for (int i = from; i < to; i++) {
+                    long x = a[aOff + i];
+                    long y = b[bOff + i];
+                    long r = x + y;
+                    overflow |= (x ^ r) & (y ^ r);
+                    dst[i] = r;
+                }
+            }
+            case Opcode.SUB -> {
+                for (int i = from; i < to; i++) {
+                    long x = a[aOff + i];
+                    long y = b[bOff + i];
+                    long r = x - y;
+                    overflow |= (x ^ y) & (x ^ r);
+                    dst[i] = r;
+                }
+            }
+            case Opcode.MUL -> {
+                for (int i = from; i < to; i++) {
+                    long x = a[aOff + i];
+                    long y = b[bOff + i];
+                    long r = x * y;
+                    overflow |= Math.multiplyHigh(x, y) ^ (r >> 63);
+                    dst[i] = r;
+                }
+                return overflow == 0;
+            }
+            case Opcode.DIV -> {
+                for (int i = from; i < to; i++) {
+                    long x = a[aOff + i];
+                    long y = b[bOff + i];
+                    if (y == 0 || x == Long.MIN_VALUE && y == -1) {
+                        return false;
+                    }
+                    dst[i] = x / y;
+                }
+            }
+            case Opcode.POW -> {
+                try {
+                    for (int i = from; i < to; i++) {
+                        dst[i] = RpnEvaluator.pow(a[aOff + i], b[bOff + i]);
+                    }
+                } catch (ArithmeticException e) {
+                    return false;
+                }
+            }
+            case Opcode.MIN -> {
+                for (int i = from; i < to; i++) {
+                    dst[i] = Math.min(a[aOff + i], b[bOff + i]);
+                }
+            }
+            case Opcode.MAX -> {
+                for (int i = from; i < to; i++) {
+                    dst[i] = Math.max(a[aOff + i], b[bOff + i]);
+                }
+            }
+            default -> throw new IllegalArgumentException("Not a binary operator: " + Opcode.symbol(opcode));
+        }
+        return overflow >= 0;
+    }
+
+    /**
+     * Applies a unary opcode to rows {@code [from, to)}: {@code dst[i] = op a[aOff + i]}.
+     */
+    static boolean unary(int opcode, long[] a, int aOff, long[] dst, int from, int to) {
+        long overflow = 0;
+        switch (opcode) {
+            case Opcode.NEG -> {
+                for (int i = from; i < to; i++) {
+                    long x = a[aOff + i];
+                    long r = -x;
+                    // only Long.MIN_VALUE is negative both before and after negation
+                    overflow |= x & r;
+                    dst[i] = r;
+                }
+            }
+            case Opcode.ABS -> {
+                for (int i = from; i < to; i++) {
+                    long r = Math.abs(a[aOff + i]);
+                    overflow |= r;
+                    dst[i] = r;
+                }
+            }
+            default -> throw new IllegalArgumentException("Not a unary operator: " + Opcode.symbol(opcode));
+        }
+        return overflow >= 0;
+    }
+}
@@ -0,0 +1,100 @@
+package org.usama.pocs.calc.eval;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import org.usama.pocs.calc.exception.BatchEvaluationException;
+import org.usama.pocs.calc.exception.EvaluationException;
+import org.usama.pocs.calc.exception.SegmentEvaluationException;
+
+/**
+ * Executes an {@link RpnProgram} over off-heap columns held in {@link MemorySegment}s, such as memory-mapped column
+ * files or segments allocated from an {@link Arena}, writing results into another segment.
+ * <p>A column is a sequence of 64-bit values, one per row, in the byte order given at construction; segments need
+ * no particular alignment. Rows are staged through buffers of {@link ColumnarEvaluator#CHUNK_SIZE} values that stay
+ * in the CPU cache, evaluated by a {@link ColumnarEvaluator} and copied out, so the heap never holds more than one
+ * chunk per column however many rows there are. Row counts are {@code long}s and may exceed what an array can
+ * hold.</p>
+ * <p>{@code java.lang.foreign} is a preview API in Java 21, so this class needs {@code --enable-preview} at run time
+ * there; the rest of the library does not load it and runs without. From Java 22 on the API is final.</p>
+ * <p>Instances are stateless and may be shared between threads.</p>
+ */
+public final class SegmentEvaluator {
+
+    private final ColumnarEvaluator columnar;
+    private final ValueLayout.OfLong layout;
+
+    /**
+     * Creates an evaluator for columns in the platform's native byte order.
+     */
+    public SegmentEvaluator() {
+        this(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Creates an evaluator for columns in the given byte order, e.g. {@link ByteOrder#BIG_ENDIAN} for files
+     * written by {@link java.io.DataOutputStream}.
+     *
+     * @param order byte order of the column and output values
+     */
+    public SegmentEvaluator(ByteOrder order) {
+        this.columnar = new ColumnarEvaluator();
+        this.layout = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(order);
+    }
+
+    /**
+     * @return whether evaluation uses {@code LongVector} lanes; see {@link ColumnarEvaluator#isVectorized()}
+     */
+    public boolean isVectorized() {
+        return columnar.isVectorized();
+    }
+
+    /**
+     * Execute a program for every row of off-heap columns.
+     *
+     * @param program the program to run
+     * @param columns one column per variable, indexed by slot, each at least as large as {@code out}
+     * @param out     receives one 8-byte result per row; its size sets the number of rows
+     * @throws EvaluationException           if a variable has no column
+     * @throws SegmentEvaluationException    if an arithmetic fault occurs; {@link SegmentEvaluationException#row()}
+     *                                       is the first failing row, and results in {@code out} are unspecified from
+     *                                       the start of its chunk on
+     * @throws IllegalArgumentException      if {@code out} is not a whole number of values, or a column is smaller
+     *                                       than {@code out}
+     * @throws UnsupportedOperationException if {@code out} is read-only
+     */
+    public void execute(RpnProgram program, MemorySegment[] columns, MemorySegment out) {
+        if (out.byteSize() % Long.BYTES != 0) {
+            throw new IllegalArgumentException("Output of " + out.byteSize() + " bytes is not a whole number of values");
+        }
+        if (columns.length < program.variableCount()) {
+            throw new EvaluationException("Unbound variables: "
+                + program.variables().subList(columns.length, program.variableCount()));
+        }
+        for (int v = 0; v < program.variableCount(); v++) {
+            if (columns[v].byteSize() < out.byteSize()) {
+                throw new IllegalArgumentException("Column " + program.variables().get(v) + " has "
+                    + columns[v].byteSize() + " bytes, expected " + out.byteSize());
+            }
+        }
+
+        long rows = out.byteSize() / Long.BYTES;
+        int chunk = ColumnarEvaluator.CHUNK_SIZE;
+        var stack = ColumnarEvaluator.allocateStack(program);
+        var staged = new long[program.variableCount()][chunk];
+        var results = new long[chunk];
+        for (long start = 0; start < rows; start += chunk) {
+            int n = (int) Math.min(chunk, rows - start);
+            for (int v = 0; v < staged.length; v++) {
+                MemorySegment.copy(columns[v], layout, start * Long.BYTES, staged[v], 0, n);
+            }
+            try {
+                columnar.execute(program, staged, results, 0, n, stack);
+            } catch (BatchEvaluationException e) {
+                throw new SegmentEvaluationException(start + e.row(), (EvaluationException) e.getCause());
+            }
+            MemorySegment.copy(results, 0, out, layout, start * Long.BYTES, n);
+        }
+    }
+}
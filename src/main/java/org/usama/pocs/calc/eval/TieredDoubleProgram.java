@@ -0,0 +1,103 @@
+package org.usama.pocs.calc.eval;
+
+import java.util.Objects;
+import org.usama.pocs.calc.exception.EvaluationException;
+
+/**
+ * A {@link DecimalProgram} evaluated in {@code double} that starts out interpreted and is compiled to bytecode once
+ * it is hot, like {@link TieredProgram}.
+ * <p>The first {@code threshold} executions run on {@link DoubleEvaluator}; later ones call a straight-line
+ * {@code double eval(double[])} method generated by {@link JitCompiler}. Results are the same in both tiers.
+ * Instances are thread-safe with the same relaxed invocation count as {@link TieredProgram}.</p>
+ */
+public final class TieredDoubleProgram {
+
+    private static final DoubleEvaluator INTERPRETER = new DoubleEvaluator();
+    private static final double[] NO_VARIABLES = new double[0];
+
+    private final DecimalProgram program;
+    /** Cleared for good when compilation fails, so a program too large for one method is not retried. */
+    private boolean promotable;
+    private int remaining;
+    private volatile DoubleFunction function;
+
+    /**
+     * @param program   the program
+     * @param threshold number of interpreted executions before compiling; {@code 0} compiles on first use,
+     *                  {@link TieredProgram#NEVER} never compiles
+     * @throws IllegalArgumentException if {@code threshold} is negative
+     */
+    public TieredDoubleProgram(DecimalProgram program, int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("JIT threshold cannot be negative: " + threshold);
+        }
+        this.program = Objects.requireNonNull(program, "program");
+        this.promotable = threshold != TieredProgram.NEVER;
+        this.remaining = threshold + 1;
+    }
+
+    /**
+     * @return the program
+     */
+    public DecimalProgram program() {
+        return program;
+    }
+
+    /**
+     * @return whether the program has been compiled to bytecode
+     */
+    public boolean isCompiled() {
+        return function != null;
+    }
+
+    /**
+     * Execute a program without variables.
+     *
+     * @return the result
+     * @throws EvaluationException if the program has variables
+     */
+    public double execute() {
+        return execute(NO_VARIABLES, null);
+    }
+
+    /**
+     * Execute the program with variable values.
+     *
+     * @param variables variable values indexed by slot, at least {@link DecimalProgram#variableCount()} of them
+     * @param stack     scratch stack of at least {@link DecimalProgram#maxStackDepth()} slots for the interpreter,
+     *                  or {@code null} to allocate one when needed
+     * @return the result
+     * @throws EvaluationException if a variable has no value
+     */
+    public double execute(double[] variables, double[] stack) {
+        var compiled = function;
+        if (compiled == null && (!promotable || --remaining != 0 || (compiled = promote()) == null)) {
+            return INTERPRETER.execute(program, variables,
+                stack != null ? stack : new double[program.maxStackDepth()]);
+        }
+
+        program.checkVariables(variables.length);
+        return compiled.eval(variables);
+    }
+
+    private synchronized DoubleFunction promote() {
+        if (function == null && promotable) {
+            function = JitCompiler.compile(program);
+            promotable = function != null;
+        }
+        return function;
+    }
+
+    /**
+     * @return whether the program may still be compiled: not yet compiled, and neither {@link TieredProgram#NEVER}
+     *         nor too large for one method
+     */
+    boolean isPromotable() {
+        return promotable && function == null;
+    }
+
+    @Override
+    public String toString() {
+        return program + (isCompiled() ? " [compiled]" : "");
+    }
+}
@@ -0,0 +1,115 @@
+package org.usama.pocs.calc.eval;
+
+import java.util.Objects;
+import org.usama.pocs.calc.exception.EvaluationException;
+
+/**
+ * An {@link RpnProgram} that starts out interpreted and is compiled to bytecode once it is hot.
+ * <p>The first {@code threshold} executions run on {@link RpnEvaluator}. The execution that reaches the threshold
+ * compiles the program into a hidden class with a straight-line {@code long eval(long[])} method, and every later
+ * execution calls that method directly; C2 can then inline the whole expression into the caller. Cold expressions
+ * never pay for code generation. Programs too large for one JVM method stay interpreted.</p>
+ * <p>Results and exceptions are the same in both tiers. Instances are thread-safe; the invocation count is not
+ * synchronized, so under contention promotion may happen a few executions late, but compilation happens at most
+ * once.</p>
+ */
+public final class TieredProgram {
+
+    /**
+     * Threshold value that keeps a program interpreted forever.
+     */
+    public static final int NEVER = Integer.MAX_VALUE;
+
+    private static final RpnEvaluator INTERPRETER = new RpnEvaluator();
+    private static final long[] NO_VARIABLES = new long[0];
+
+    private final RpnProgram program;
+    /** Cleared for good when compilation fails, so a program too large for one method is not retried. */
+    private boolean promotable;
+    private int remaining;
+    private volatile RpnFunction function;
+
+    /**
+     * @param program   the program
+     * @param threshold number of interpreted executions before compiling; {@code 0} compiles on first use,
+     *                  {@link #NEVER} never compiles
+     * @throws IllegalArgumentException if {@code threshold} is negative
+     */
+    public TieredProgram(RpnProgram program, int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("JIT threshold cannot be negative: " + threshold);
+        }
+        this.program = Objects.requireNonNull(program, "program");
+        this.promotable = threshold != NEVER;
+        this.remaining = threshold + 1;
+    }
+
+    /**
+     * @return the program
+     */
+    public RpnProgram program() {
+        return program;
+    }
+
+    /**
+     * @return whether the program has been compiled to bytecode
+     */
+    public boolean isCompiled() {
+        return function != null;
+    }
+
+    /**
+     * Execute a program without variables.
+     *
+     * @return result as {@code long}
+     * @throws EvaluationException if the program has variables, or an arithmetic fault occurs
+     */
+    public long execute() {
+        return execute(NO_VARIABLES, null);
+    }
+
+    /**
+     * Execute the program with variable values.
+     *
+     * @param variables variable values indexed by slot, at least {@link RpnProgram#variableCount()} of them
+     * @param stack     scratch stack of at least {@link RpnProgram#maxStackDepth()} slots for the interpreter, or
+     *                  {@code null} to allocate one when needed
+     * @return result as {@code long}
+     * @throws EvaluationException if a variable has no value, or an arithmetic fault occurs
+     */
+    public long execute(long[] variables, long[] stack) {
+        var compiled = function;
+        if (compiled == null && (!promotable || --remaining != 0 || (compiled = promote()) == null)) {
+            return INTERPRETER.execute(program, variables,
+                stack != null ? stack : new long[program.maxStackDepth()]);
+        }
+
+        RpnEvaluator.checkVariables(program, variables);
+        try {
+            return compiled.eval(variables);
+        } catch (ArithmeticException e) {
+            throw RpnEvaluator.arithmeticError(e);
+        }
+    }
+
+    private synchronized RpnFunction promote() {
+        if (function == null && promotable) {
+            function = JitCompiler.compile(program);
+            promotable = function != null;
+        }
+        return function;
+    }
+
+    /**
+     * @return whether the program may still be compiled: not yet compiled, and neither {@link TieredProgram#NEVER}
+     *         nor too large for one method
+     */
+    boolean isPromotable() {
+        return promotable && function == null;
+    }
+
+    @Override
+    public String toString() {
+        return program + (isCompiled() ? " [compiled]" : "");
+    }
+}
@@ -0,0 +1,121 @@
+package org.usama.pocs.calc.eval;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link ColumnKernels} on {@link LongVector}s of the platform's preferred width, e.g. eight lanes with AVX-512.
+ * <p>Overflow is detected per lane with the same sign-bit conditions as {@link ScalarColumnKernels}, accumulated
+ * into a vector that is tested once per call. Multiplication has no wide-product lane operation, so lanes whose
+ * operands do not both fit in 31 bits, the only ones that can overflow, are checked with
+ * {@link Math#multiplyHigh(long, long)} under a mask. Division and {@code ^} have no vector instruction for
+ * {@code long} and run one lane at a time. Rows that do not fill a vector go through the scalar kernels.</p>
+ * <p>Only loaded when the {@code jdk.incubator.vector} module is present; see {@link ColumnarEvaluator}.</p>
+ */
+final class VectorColumnKernels implements ColumnKernels {
+
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+
+    @Override
+    public boolean binary(int opcode, long[] a, int aOff, long[] b, int bOff, long[] dst, int n) {
+        int bound = SPECIES.loopBound(n);
+        var overflow = LongVector.zero(SPECIES);
+        switch (opcode) {
+            case Opcode.ADD -> {
+                for (int i = 0; i < bound; i += LANES) {
+                    var x = LongVector.fromArray(SPECIES, a, aOff + i);
+                    var y = LongVector.fromArray(SPECIES, b, bOff + i);
+                    var r = x.add(y);
+                    overflow = overflow.or(x.lanewise(VectorOperators.XOR, r).and(y.lanewise(VectorOperators.XOR, r)));
+                    r.intoArray(dst, i);
+                }
+            }
+            case Opcode.SUB -> {
+                for (int i = 0; i < bound; i += LANES) {
+                    var x = LongVector.fromArray(SPECIES, a, aOff + i);
+                    var y = LongVector.fromArray(SPECIES, b, bOff + i);
+                    var r = x.sub(y);
+                    overflow = overflow.or(x.lanewise(VectorOperators.XOR, y).and(x.lanewise(VectorOperators.XOR, r)));
+                    r.intoArray(dst, i);
+                }
+            }
+            case Opcode.MUL -> {
+                for (int i = 0; i < bound; i += LANES) {
+                    var x = LongVector.fromArray(SPECIES, a, aOff + i);
+                    var y = LongVector.fromArray(SPECIES, b, bOff + i);
+                    var r = x.mul(y);
+                    // |x| and |y| below 2^31 cannot overflow; abs(Long.MIN_VALUE) stays negative and is caught too
+                    VectorMask<Long> wide = x.abs().or(y.abs()).compare(VectorOperators.UNSIGNED_GT, Integer.MAX_VALUE);
+                    if (wide.anyTrue() && !multiplyExact(x, y, r, wide)) {
+                        return false;
+                    }
+                    r.intoArray(dst, i);
+                }
+            }
+            case Opcode.MIN -> {
+                for (int i = 0; i < bound; i += LANES) {
+                    var x = LongVector.fromArray(SPECIES, a, aOff + i);
+                    x.min(LongVector.fromArray(SPECIES, b, bOff + i)).intoArray(dst, i);
+                }
+            }
+            case Opcode.MAX -> {
+                for (int i = 0; i < bound; i += LANES) {
+                    var x = LongVector.fromArray(SPECIES, a, aOff + i);
+                    x.max(LongVector.fromArray(SPECIES, b, bOff + i)).intoArray(dst, i);
+                }
+            }
+            // no vector instruction; every row goes through the scalar kernel
+            case Opcode.DIV, Opcode.POW -> bound = 0;
+            default -> throw new IllegalArgumentException("Not a binary operator: " + Opcode.symbol(opcode));
+        }
+        if (overflow.compare(VectorOperators.LT, 0).anyTrue()) {
+            return false;
+        }
+        return ScalarColumnKernels.binary(opcode, a, aOff, b, bOff, dst, bound, n);
+    }
+
+    @Override
+    public boolean unary(int opcode, long[] a, int aOff, long[] dst, int n) {
+        int bound = SPECIES.loopBound(n);
+        var overflow = LongVector.zero(SPECIES);
+        switch (opcode) {
+            case Opcode.NEG -> {
+                for (int i = 0; i < bound; i += LANES) {
+                    var x = LongVector.fromArray(SPECIES, a, aOff + i);
+                    var r = x.neg();
+                    overflow = overflow.or(x.and(r));
+                    r.intoArray(dst, i);
+                }
+            }
+            case Opcode.ABS -> {
+                for (int i = 0; i < bound; i += LANES) {
+                    var r = LongVector.fromArray(SPECIES, a, aOff + i).abs();
+                    overflow = overflow.or(r);
+                    r.intoArray(dst, i);
+                }
+            }
+            default -> throw new IllegalArgumentException("Not a unary operator: " + Opcode.symbol(opcode));
+        }
+        if (overflow.compare(VectorOperators.LT, 0).anyTrue()) {
+            return false;
+        }
+        return ScalarColumnKernels.unary(opcode, a, aOff, dst, bound, n);
+    }
+
+    /**
+     * Checks the lanes set in {@code wide} of the product {@code r = x * y} exactly.
+     *
+     * @return whether none of them overflowed
+     */
+    private static boolean multiplyExact(LongVector x, LongVector y, LongVector r, VectorMask<Long> wide) {
+        for (int lane = wide.firstTrue(); lane < LANES; lane++) {
+            if (wide.laneIsSet(lane) && Math.multiplyHigh(x.lane(lane), y.lane(lane)) != r.lane(lane) >> 63) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,18 @@
+package org.usama.pocs.calc.exception;
+
+public class BatchEvaluationException extends EvaluationException {
+
+    private final int row;
+
+    public BatchEvaluationException(int row, EvaluationException cause) {
+        super("Row " + row + ": " + cause.getMessage(), cause);
+        this.row = row;
+    }
+
+    /**
+     * @return index of the row whose evaluation failed
+     */
+    public int row() {
+        return row;
+    }
+}
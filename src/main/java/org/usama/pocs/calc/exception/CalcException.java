@@ -9,4 +9,15 @@ public class CalcException extends RuntimeException {
     public CalcException (String message, Throwable cause) {
         super(message, cause);
     }
+
+    /**
+     * @param message            the detail message
+     * @param cause              the cause, may be {@code null}
+     * @param writableStackTrace whether to capture the stack trace. Failures caused by bad input pass {@code false}:
+     *                           their trace only ever points into the pipeline, and capturing it costs more than
+     *                           lexing and parsing the input did
+     */
+    protected CalcException(String message, Throwable cause, boolean writableStackTrace) {
+        super(message, cause, true, writableStackTrace);
+    }
 }
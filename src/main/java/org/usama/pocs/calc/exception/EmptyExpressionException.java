@@ -3,6 +3,6 @@ package org.usama.pocs.calc.exception;
 public class EmptyExpressionException extends SyntaxException{
 
     public EmptyExpressionException() {
-        super("Expression cannot be null or empty");
+        super("Expression cannot be null or empty", false);
     }
 }
@@ -0,0 +1,57 @@
+package org.usama.pocs.calc.exception;
+
+/**
+ * Stable, machine-readable identifiers for failures, one per branch of the {@link CalcException} hierarchy.
+ * <p>Meant for protocols and callers that should not depend on exception class names or messages. The most specific
+ * code wins; a subclass added later maps to its nearest known ancestor.</p>
+ */
+public enum ErrorCode {
+
+    /** {@link EmptyExpressionException}: the input was null, empty or blank. */
+    EMPTY_EXPRESSION(EmptyExpressionException.class),
+    /** {@link UnrecognizedTokenException}: a fragment is not a number, variable or operator. */
+    UNRECOGNIZED_TOKEN(UnrecognizedTokenException.class),
+    /** {@link InvalidTokenException}: a token of a type not allowed where it appears. */
+    INVALID_TOKEN(InvalidTokenException.class),
+    /** Any other {@link LexicalException}. */
+    LEXICAL_ERROR(LexicalException.class),
+    /** {@link UnexpectedTokenException}: tokens in an invalid order, e.g. two operators in a row. */
+    UNEXPECTED_TOKEN(UnexpectedTokenException.class),
+    /** Any other {@link SyntaxException}. */
+    SYNTAX_ERROR(SyntaxException.class),
+    /** {@link EvaluationException}: arithmetic faults, unbound variables and out-of-range literals. */
+    EVALUATION_ERROR(EvaluationException.class),
+    /** A failure outside the {@link CalcException} hierarchy, i.e. a bug. */
+    INTERNAL_ERROR(EvaluationException.class);
+
+    private final Class<? extends CalcException> exceptionType;
+
+    ErrorCode(Class<? extends CalcException> exceptionType) {
+        this.exceptionType = exceptionType;
+    }
+
+    /**
+     * @return the exception class that reports this failure; internal errors are wrapped in an
+     *         {@link EvaluationException}
+     */
+    public Class<? extends CalcException> exceptionType() {
+        return exceptionType;
+    }
+
+    /**
+     * @param failure the failure to classify
+     * @return the most specific code for {@code failure}
+     */
+    public static ErrorCode of(Throwable failure) {
+        return switch (failure) {
+            case EmptyExpressionException e -> EMPTY_EXPRESSION;
+            case UnrecognizedTokenException e -> UNRECOGNIZED_TOKEN;
+            case InvalidTokenException e -> INVALID_TOKEN;
+            case LexicalException e -> LEXICAL_ERROR;
+            case UnexpectedTokenException e -> UNEXPECTED_TOKEN;
+            case SyntaxException e -> SYNTAX_ERROR;
+            case EvaluationException e -> EVALUATION_ERROR;
+            default -> INTERNAL_ERROR;
+        };
+    }
+}
@@ -10,4 +10,14 @@ public class EvaluationException extends CalcException{
         super(message, cause);
     }
 
+    /**
+     * @param message            the detail message
+     * @param cause              the cause, may be {@code null}
+     * @param writableStackTrace whether to capture the stack trace; see
+     *                           {@link CalcException#CalcException(String, Throwable, boolean)}
+     */
+    public EvaluationException (String message, Throwable cause, boolean writableStackTrace) {
+        super(message, cause, writableStackTrace);
+    }
+
 }
@@ -5,12 +5,6 @@ import org.usama.pocs.calc.lex.TokenType;
 public class InvalidTokenException extends LexicalException{
 
     public InvalidTokenException(String token, TokenType tokenType) {
-        super(
-            String.format(
-                "Invalid token: %s of type: %s",
-                token,
-                tokenType
-            )
-        );
+        super("Invalid token: " + token + " of type: " + tokenType, false);
     }
 }
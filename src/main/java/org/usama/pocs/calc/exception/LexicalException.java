@@ -5,4 +5,8 @@ public class LexicalException extends CalcException {
     public LexicalException(String message) {
         super(message);
     }
+
+    protected LexicalException(String message, boolean writableStackTrace) {
+        super(message, null, writableStackTrace);
+    }
 }
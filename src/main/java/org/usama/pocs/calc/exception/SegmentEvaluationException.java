@@ -0,0 +1,22 @@
+package org.usama.pocs.calc.exception;
+
+/**
+ * {@link BatchEvaluationException} counterpart for off-heap columns, whose row count may exceed what an array can
+ * hold.
+ */
+public class SegmentEvaluationException extends EvaluationException {
+
+    private final long row;
+
+    public SegmentEvaluationException(long row, EvaluationException cause) {
+        super("Row " + row + ": " + cause.getMessage(), cause);
+        this.row = row;
+    }
+
+    /**
+     * @return index of the row whose evaluation failed
+     */
+    public long row() {
+        return row;
+    }
+}
@@ -5,4 +5,8 @@ public class SyntaxException extends CalcException{
     public SyntaxException(String message) {
         super(message);
     }
+
+    protected SyntaxException(String message, boolean writableStackTrace) {
+        super(message, null, writableStackTrace);
+    }
 }
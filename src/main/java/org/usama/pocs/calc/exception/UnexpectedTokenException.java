@@ -5,16 +5,10 @@ import org.usama.pocs.calc.lex.TokenType;
 public class UnexpectedTokenException extends SyntaxException {
 
     public UnexpectedTokenException(String message) {
-        super(message);
+        super(message, false);
     }
 
     public UnexpectedTokenException(String token, TokenType expectedType) {
-        super(
-            String.format(
-                "Unexpected: %s for type: %s",
-                token,
-                expectedType
-            )
-        );
+        super("Unexpected: " + token + " for type: " + expectedType, false);
     }
 }
@@ -0,0 +1,426 @@
+package org.usama.pocs.calc.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import org.usama.pocs.calc.api.Calculator;
+import org.usama.pocs.calc.api.CompiledExpression;
+import org.usama.pocs.calc.exception.CalcException;
+import org.usama.pocs.calc.exception.EvaluationException;
+
+/**
+ * Named formulas that reference each other's results, recomputed incrementally when inputs change.
+ * <p>A formula is an expression compiled by a {@link Calculator}; each of its variables names either another
+ * formula or an input. Inputs are set with {@link #set(String, long)}, and referencing an unknown name creates an
+ * input without a value. Formulas may be defined in any order and redefined later. A definition that would make a
+ * formula depend on itself is rejected, so the graph is always acyclic.</p>
+ * <p>The graph keeps its nodes in topological order, grouped into levels: inputs are level 0, and a formula is one
+ * level above its highest reference. Setting an input marks the formulas that read it stale, and
+ * {@link #recalculate()} evaluates stale formulas in order. A formula whose result did not change does not make its
+ * dependents stale, so a change only travels as far as it has an effect. Formulas on one level never depend on
+ * each other, which lets {@link #recalculateParallel(ForkJoinPool)} evaluate a level's stale formulas
+ * concurrently.</p>
+ * <p>A failing formula, e.g. one dividing by zero, holds its {@link EvaluationException} in place of a value, and
+ * formulas referencing it fail with the same exception until the cause is fixed.</p>
+ * <p>Instances are not thread-safe; confine a graph to one thread or guard it externally. Parallel recalculation
+ * happens entirely within the call.</p>
+ */
+public final class FormulaGraph {
+
+    /**
+     * Minimum number of stale formulas on one level for {@link #recalculateParallel(ForkJoinPool)} to split it
+     * across the pool; smaller levels are cheaper to evaluate on the calling thread.
+     */
+    public static final int PARALLEL_THRESHOLD = 256;
+
+    private final Calculator calculator;
+    private final Map<String, Node> nodes = new HashMap<>();
+    private final List<Node> nodeList = new ArrayList<>();
+
+    /** Nodes by rank: topological order, sorted by level. Valid unless {@link #reorder} is set. */
+    private Node[] order = new Node[0];
+    /** Rank of the first node of every level, plus the node count. */
+    private int[] levelStarts = {0};
+    private boolean reorder;
+    /** Ranks of stale formulas. Valid unless {@link #reorder} is set; {@link Node#stale} always is. */
+    private final BitSet stale = new BitSet();
+    private long[] scratch = new long[8];
+
+    /**
+     * Creates a graph compiling its formulas with {@code calculator}, whose cache and JIT threshold then apply to
+     * them.
+     *
+     * @param calculator the calculator to compile formulas with
+     */
+    public FormulaGraph(Calculator calculator) {
+        this.calculator = Objects.requireNonNull(calculator, "calculator");
+    }
+
+    /**
+     * Defines or redefines a formula. Names it references that are neither formulas nor inputs yet become inputs
+     * without a value.
+     *
+     * @param name    the formula's name, by which other formulas reference it
+     * @param formula arithmetic expression whose variables name formulas or inputs, e.g. {@code "price * qty"}
+     * @throws CalcException            if the formula cannot be compiled
+     * @throws IllegalArgumentException if the formula would reference itself, directly or through other formulas;
+     *                                  the graph is left unchanged
+     */
+    public void define(String name, String formula) {
+        Objects.requireNonNull(name, "name");
+        CompiledExpression compiled = calculator.compile(formula);
+        List<String> variables = compiled.variables();
+
+        if (variables.contains(name)) {
+            throw new IllegalArgumentException("Cyclic reference: " + name + " -> " + name);
+        }
+        Node node = nodes.get(name);
+        if (node != null && node.dependentCount > 0) {
+            for (String variable : variables) {
+                var path = path(nodes.get(variable), node);
+                if (path != null) {
+                    throw new IllegalArgumentException("Cyclic reference: " + name + " -> " + String.join(" -> ", path));
+                }
+            }
+        }
+        if (node == null) {
+            node = add(name);
+        }
+
+        for (Node reference : node.references) {
+            reference.removeDependent(node);
+        }
+        var references = new Node[variables.size()];
+        for (int i = 0; i < references.length; i++) {
+            references[i] = nodes.containsKey(variables.get(i)) ? nodes.get(variables.get(i)) : add(variables.get(i));
+            references[i].addDependent(node);
+        }
+        node.formula = compiled;
+        node.references = references;
+        if (scratch.length < references.length) {
+            scratch = new long[Math.max(references.length, scratch.length << 1)];
+        }
+        reorder = true;
+        markStale(node);
+    }
+
+    /**
+     * Sets the value of an input, creating it if needed. Formulas reading it become stale if the value changed.
+     *
+     * @param name  the input's name
+     * @param value its value
+     * @throws IllegalArgumentException if {@code name} is a formula
+     */
+    public void set(String name, long value) {
+        Node node = nodes.get(Objects.requireNonNull(name, "name"));
+        if (node == null) {
+            node = add(name);
+        } else if (node.formula != null) {
+            throw new IllegalArgumentException(name + " is a formula, not an input");
+        }
+        if (node.error == null && node.value == value) {
+            return;
+        }
+        node.value = value;
+        node.error = null;
+        markDependentsStale(node);
+    }
+
+    /**
+     * Returns the current value of a formula or input, recalculating stale formulas first.
+     *
+     * @param name the formula or input
+     * @return its value
+     * @throws EvaluationException      if the formula failed, or it or an input it depends on has no value
+     * @throws IllegalArgumentException if {@code name} is unknown
+     */
+    public long value(String name) {
+        Node node = nodes.get(name);
+        if (node == null) {
+            throw new IllegalArgumentException("Unknown formula or input: " + name);
+        }
+        if (reorder || !stale.isEmpty()) {
+            recalculate();
+        }
+        if (node.error != null) {
+            throw node.error;
+        }
+        return node.value;
+    }
+
+    /**
+     * @param name a name
+     * @return whether {@code name} is a formula rather than an input or unknown
+     */
+    public boolean isFormula(String name) {
+        Node node = nodes.get(name);
+        return node != null && node.formula != null;
+    }
+
+    /**
+     * @return the number of formulas and inputs
+     */
+    public int size() {
+        return nodeList.size();
+    }
+
+    /**
+     * Evaluates stale formulas on the calling thread, in topological order.
+     *
+     * @return the number of formulas evaluated
+     */
+    public int recalculate() {
+        ensureOrder();
+        int evaluated = 0;
+        for (int rank = stale.nextSetBit(0); rank >= 0; rank = stale.nextSetBit(rank + 1)) {
+            Node node = order[rank];
+            evaluate(node, scratch);
+            finish(node);
+            evaluated++;
+        }
+        stale.clear();
+        return evaluated;
+    }
+
+    /**
+     * Evaluates stale formulas in the common {@link ForkJoinPool}; see {@link #recalculateParallel(ForkJoinPool)}.
+     *
+     * @return the number of formulas evaluated
+     */
+    public int recalculateParallel() {
+        return recalculateParallel(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Evaluates stale formulas level by level, splitting levels with at least {@value #PARALLEL_THRESHOLD} stale
+     * formulas across {@code pool}. Results are the same as {@link #recalculate()}'s.
+     *
+     * @param pool the pool to evaluate in
+     * @return the number of formulas evaluated
+     */
+    public int recalculateParallel(ForkJoinPool pool) {
+        ensureOrder();
+        int evaluated = 0;
+        var batch = new Node[16];
+        for (int level = 0; level < levelStarts.length - 1; level++) {
+            int end = levelStarts[level + 1];
+            int count = 0;
+            for (int rank = stale.nextSetBit(levelStarts[level]); rank >= 0 && rank < end;
+                 rank = stale.nextSetBit(rank + 1)) {
+                if (count == batch.length) {
+                    batch = Arrays.copyOf(batch, count << 1);
+                }
+                batch[count++] = order[rank];
+            }
+            if (count >= PARALLEL_THRESHOLD) {
+                pool.invoke(new LevelTask(batch, 0, count, scratch.length));
+            } else {
+                for (int i = 0; i < count; i++) {
+                    evaluate(batch[i], scratch);
+                }
+            }
+            // dependents are on higher levels, so marking them after the level is done is safe
+            for (int i = 0; i < count; i++) {
+                finish(batch[i]);
+            }
+            evaluated += count;
+        }
+        stale.clear();
+        return evaluated;
+    }
+
+    /**
+     * Evaluates a formula from the current values of its references, recording whether its result changed. Only
+     * writes to {@code node}, so formulas of one level can be evaluated concurrently.
+     *
+     * @param values scratch array of at least as many slots as the formula has references
+     */
+    static void evaluate(Node node, long[] values) {
+        EvaluationException error = null;
+        for (int i = 0; i < node.references.length && error == null; i++) {
+            error = node.references[i].error;
+            values[i] = node.references[i].value;
+        }
+        long value = 0;
+        if (error == null) {
+            try {
+                value = node.formula.evaluate(values);
+            } catch (EvaluationException e) {
+                error = e;
+            }
+        }
+        node.changed = node.error != error || error == null && node.value != value;
+        node.value = value;
+        node.error = error;
+    }
+
+    private void finish(Node node) {
+        node.stale = false;
+        if (node.changed) {
+            markDependentsStale(node);
+        }
+    }
+
+    private Node add(String name) {
+        var node = new Node(name, nodeList.size());
+        nodes.put(name, node);
+        nodeList.add(node);
+        reorder = true;
+        return node;
+    }
+
+    private void markStale(Node node) {
+        if (!node.stale) {
+            node.stale = true;
+            if (!reorder) {
+                stale.set(node.rank);
+            }
+        }
+    }
+
+    private void markDependentsStale(Node node) {
+        for (int i = 0; i < node.dependentCount; i++) {
+            markStale(node.dependents[i]);
+        }
+    }
+
+    /**
+     * Finds the chain of references from {@code from} to {@code to}, if there is one.
+     *
+     * @return the names along the chain, starting at {@code from} and ending at {@code to}, or {@code null}
+     */
+    private static List<String> path(Node from, Node to) {
+        if (from == null) {
+            return null;
+        }
+        // iterative depth-first search; parents lead back from the target to {@code from}
+        var parents = new HashMap<Node, Node>();
+        var pending = new ArrayList<Node>();
+        parents.put(from, from);
+        pending.add(from);
+        while (!pending.isEmpty()) {
+            Node current = pending.removeLast();
+            for (Node reference : current.references) {
+                if (parents.putIfAbsent(reference, current) != null) {
+                    continue;
+                }
+                if (reference == to) {
+                    var path = new ArrayList<String>();
+                    for (Node n = to; n != from; n = parents.get(n)) {
+                        path.add(n.name);
+                    }
+                    path.add(from.name);
+                    return path.reversed();
+                }
+                pending.add(reference);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Ranks nodes by level with Kahn's algorithm after the structure changed, and re-marks stale formulas by their
+     * new rank. Inputs and formulas without references are level 0.
+     */
+    private void ensureOrder() {
+        if (!reorder) {
+            return;
+        }
+        int size = nodeList.size();
+        int[] pendingReferences = new int[size];
+        int[] levels = new int[size];
+        int[] queue = new int[size];
+        int head = 0;
+        int tail = 0;
+        for (Node node : nodeList) {
+            pendingReferences[node.id] = node.references.length;
+            if (node.references.length == 0) {
+                queue[tail++] = node.id;
+            }
+        }
+        int maxLevel = 0;
+        while (head < tail) {
+            Node node = nodeList.get(queue[head++]);
+            for (int i = 0; i < node.dependentCount; i++) {
+                Node dependent = node.dependents[i];
+                levels[dependent.id] = Math.max(levels[dependent.id], levels[node.id] + 1);
+                maxLevel = Math.max(maxLevel, levels[dependent.id]);
+                if (--pendingReferences[dependent.id] == 0) {
+                    queue[tail++] = dependent.id;
+                }
+            }
+        }
+        if (tail != size) {
+            throw new IllegalStateException("Cyclic references among " + (size - tail) + " formulas");
+        }
+
+        // counting sort by level
+        levelStarts = new int[maxLevel + 2];
+        for (int id = 0; id < size; id++) {
+            levelStarts[levels[id] + 1]++;
+        }
+        for (int level = 0; level <= maxLevel; level++) {
+            levelStarts[level + 1] += levelStarts[level];
+        }
+        int[] next = Arrays.copyOf(levelStarts, maxLevel + 1);
+        order = new Node[size];
+        stale.clear();
+        for (int i = 0; i < size; i++) {
+            Node node = nodeList.get(queue[i]);
+            node.rank = next[levels[node.id]]++;
+            order[node.rank] = node;
+            if (node.stale) {
+                stale.set(node.rank);
+            }
+        }
+        reorder = false;
+    }
+
+    /**
+     * A formula or an input.
+     */
+    static final class Node {
+
+        private static final Node[] NONE = new Node[0];
+
+        final String name;
+        final int id;
+        int rank = -1;
+        CompiledExpression formula;
+        Node[] references = NONE;
+        Node[] dependents = NONE;
+        int dependentCount;
+        long value;
+        EvaluationException error;
+        boolean stale;
+        boolean changed;
+
+        Node(String name, int id) {
+            this.name = name;
+            this.id = id;
+            this.error = new EvaluationException("No value for input: " + name, null, false);
+        }
+
+        void addDependent(Node dependent) {
+            if (dependentCount == dependents.length) {
+                dependents = Arrays.copyOf(dependents, Math.max(4, dependentCount << 1));
+            }
+            dependents[dependentCount++] = dependent;
+        }
+
+        void removeDependent(Node dependent) {
+            for (int i = 0; i < dependentCount; i++) {
+                if (dependents[i] == dependent) {
+                    dependents[i] = dependents[--dependentCount];
+                    dependents[dependentCount] = null;
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.usama.pocs.calc.graph;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork/join task evaluating a range of stale formulas from one level of a {@link FormulaGraph}.
+ * <p>Ranges are split in halves until they are at most {@link #CHUNK_SIZE} formulas. Formulas on one level only
+ * read nodes of lower levels, which are final by then, and each evaluation only writes its own node, so leaves need
+ * no coordination; joining the task publishes their writes to the calling thread.</p>
+ */
+final class LevelTask extends RecursiveAction {
+
+    static final int CHUNK_SIZE = 64;
+
+    private final FormulaGraph.Node[] nodes;
+    private final int from;
+    private final int to;
+    private final int width;
+
+    /**
+     * @param width the largest number of references of any formula, the size of each leaf's value buffer
+     */
+    LevelTask(FormulaGraph.Node[] nodes, int from, int to, int width) {
+        this.nodes = nodes;
+        this.from = from;
+        this.to = to;
+        this.width = width;
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from > CHUNK_SIZE) {
+            int mid = (from + to) >>> 1;
+            invokeAll(new LevelTask(nodes, from, mid, width), new LevelTask(nodes, mid, to, width));
+            return;
+        }
+        var values = new long[width];
+        for (int i = from; i < to; i++) {
+            FormulaGraph.evaluate(nodes[i], values);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.usama.pocs.calc.lex;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * A {@link CharSequence} view over a window of a {@link ByteBuffer}, one byte per character.
+ * <p>Lets the {@link Lexer} scan ASCII input, such as a memory-mapped file, in place: no bytes are copied and no
+ * {@code String} is decoded. Bytes outside the ASCII range read as their ISO-8859-1 character, which the lexer
+ * rejects as unrecognized. The window can be moved with {@link #reset(int, int)}, so one view serves every line of a
+ * file. Instances are not thread-safe.</p>
+ */
+public final class AsciiSequence implements CharSequence {
+
+    private final ByteBuffer bytes;
+    private int offset;
+    private int length;
+
+    /**
+     * Creates an empty view over {@code bytes}. The buffer's position and limit are ignored; windows are absolute.
+     *
+     * @param bytes the backing buffer
+     */
+    public AsciiSequence(ByteBuffer bytes) {
+        this.bytes = Objects.requireNonNull(bytes, "bytes");
+    }
+
+    /**
+     * Moves the window to {@code [offset, offset + length)} of the backing buffer.
+     *
+     * @param offset absolute index of the first byte
+     * @param length number of bytes
+     * @return this view
+     * @throws IndexOutOfBoundsException if the window is outside the buffer's capacity
+     */
+    public AsciiSequence reset(int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, bytes.capacity());
+        this.offset = offset;
+        this.length = length;
+        return this;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (bytes.get(offset + Objects.checkIndex(index, length)) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        Objects.checkFromToIndex(start, end, length);
+        return new AsciiSequence(bytes).reset(offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        byte[] copy = new byte[length];
+        bytes.get(offset, copy);
+        return new String(copy, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -1,24 +1,44 @@
 package org.usama.pocs.calc.lex;
 
+import static org.usama.pocs.calc.lex.TokenType.COMMA;
+import static org.usama.pocs.calc.lex.TokenType.FUNCTION;
+import static org.usama.pocs.calc.lex.TokenType.LEFT_PAREN;
 import static org.usama.pocs.calc.lex.TokenType.NUMBER;
 import static org.usama.pocs.calc.lex.TokenType.OPERATOR;
+import static org.usama.pocs.calc.lex.TokenType.RIGHT_PAREN;
+import static org.usama.pocs.calc.lex.TokenType.VARIABLE;
 
 import java.util.ArrayList;
 import java.util.List;
+import org.usama.pocs.calc.exception.CalcException;
 import org.usama.pocs.calc.exception.EmptyExpressionException;
+import org.usama.pocs.calc.exception.ErrorCode;
 import org.usama.pocs.calc.exception.UnexpectedTokenException;
 import org.usama.pocs.calc.exception.UnrecognizedTokenException;
 
 /**
- * Splits a whitespace-separated infix expression into {@link Token}s.
- * <p>Supported: signed integer literals (e.g., {@code -2}, {@code +7}) and
- * binary operators {@code + - * /}. The lexer enforces the alternating pattern NUMBER → OPERATOR → NUMBER … and treats
- * leading {@code +}/{@code -} as part of a number token.</p>
+ * Splits an infix expression into {@link Token}s.
+ * <p>Supported: signed integer and decimal literals (e.g., {@code -2}, {@code +7}, {@code 19.99}), variable names
+ * (a letter or {@code _} followed by letters, digits or {@code _}, e.g., {@code price}, {@code x_1}), binary
+ * operators {@code + - * / ^}, parentheses, and function calls such as {@code max(a, b)}. Operators, parentheses and
+ * commas end the token before them, so whitespace is optional: {@code 2*(3-1)} and {@code 2 * (3 - 1)} are the same.
+ * A name directly followed by {@code (} is a FUNCTION. Where an operand is expected, a {@code +}/{@code -} directly
+ * followed by a digit is the sign of a number token and a lone {@code -} is unary minus; after an operand they are
+ * binary operators, so {@code 2-3} and {@code 2 -3} are subtractions. Only {@code -} may directly follow another
+ * operator, as in {@code 2*-3}; {@code -+3} is an unrecognized token.</p>
+ * <p>The lexer enforces the token order rule of {@link #next(TokenType, TokenType, char)}, e.g. no two operands or
+ * binary operators in a row. A decimal literal needs digits on both sides of the point; whether it is accepted is
+ * up to the numeric mode it is compiled for.</p>
+ * <p>The input is read once by a hand-written character scanner; no regular expressions or intermediate strings are
+ * involved. {@link #scan(CharSequence, TokenBuffer)} writes token types and offsets into a reusable
+ * {@link TokenBuffer}, while {@link #tokenize(String)} materializes {@link Token}s from it.
+ * {@link #tryScan(CharSequence, TokenBuffer)} records invalid input in the buffer instead of throwing.</p>
+ * <p>Instances are stateless and may be shared between threads; a {@link TokenBuffer} may not.</p>
  */
 public final class Lexer {
 
     /**
-     * Tokenizes the given input string into NUMBER and OPERATOR tokens.
+     * Tokenizes the given input string into number, variable, operator, function and punctuation tokens.
      *
      * @param input expression like {@code "1 + 2 - 3 * 4 / 5"}
      * @return tokens in left-to-right order
@@ -27,61 +47,284 @@ public final class Lexer {
      * @throws UnexpectedTokenException   if the token sequence is invalid (e.g., two consecutive operators)
      */
     public List<Token> tokenize(String input) {
-        if (input == null || input.trim().isEmpty()) {
-            throw new EmptyExpressionException();
+        var buffer = new TokenBuffer();
+        scan(input, buffer);
+
+        List<Token> tokens = new ArrayList<>(buffer.size());
+        for (int i = 0; i < buffer.size(); i++) {
+            tokens.add(buffer.token(input, i));
         }
+        return tokens;
+    }
 
-        var parts = input.trim().split("\\s+");
-        List<Token> tokens = new ArrayList<>();
+    /**
+     * Scans the input in a single pass, replacing the contents of {@code out} with the recognized tokens.
+     *
+     * @param input expression like {@code "1 + 2 - 3 * 4 / 5"}
+     * @param out   buffer receiving token types and offsets; cleared first
+     * @return the number of tokens scanned
+     * @throws EmptyExpressionException   if the input is null or empty
+     * @throws UnrecognizedTokenException if an unrecognized token is encountered
+     * @throws UnexpectedTokenException   if the token sequence is invalid (e.g., two consecutive operators)
+     */
+    public int scan(CharSequence input, TokenBuffer out) {
+        int count = tryScan(input, out);
+        if (count < 0) {
+            throw error(input, out);
+        }
+        return count;
+    }
 
-        var expectedTokenType = TokenType.NUMBER;
+    /**
+     * Scans like {@link #scan(CharSequence, TokenBuffer)}, but reports invalid input through
+     * {@link TokenBuffer#error()} instead of throwing, so rejecting input allocates nothing.
+     *
+     * @param input expression like {@code "1 + 2 - 3 * 4 / 5"}
+     * @param out   buffer receiving token types and offsets, or the failure; cleared first
+     * @return the number of tokens scanned, or {@code -1} if the input was rejected
+     */
+    public int tryScan(CharSequence input, TokenBuffer out) {
+        out.clear();
+        if (input == null) {
+            out.fail(ErrorCode.EMPTY_EXPRESSION, 0, 0);
+            return -1;
+        }
 
-        for (String part : parts) {
-            if (isSignedInteger(part)) {
-                if (expectedTokenType != TokenType.NUMBER) {
-                    throw new UnexpectedTokenException(part, expectedTokenType);
-                }
-                tokens.add(new Token(TokenType.NUMBER, part));
-                expectedTokenType = OPERATOR;
+        // same bounds as String.trim()
+        int pos = 0;
+        int limit = input.length();
+        while (pos < limit && input.charAt(pos) <= ' ') {
+            pos++;
+        }
+        while (limit > pos && input.charAt(limit - 1) <= ' ') {
+            limit--;
+        }
+        if (pos == limit) {
+            out.fail(ErrorCode.EMPTY_EXPRESSION, 0, 0);
+            return -1;
+        }
 
-            } else if (isOperator(part)) {
-                if (expectedTokenType != OPERATOR) {
-                    throw new UnexpectedTokenException(part, expectedTokenType);
+        var expectedTokenType = NUMBER;
+        // end of the last operator token, to tell "2*-3" from "2 -+3"
+        int operatorEnd = -1;
+
+        while (pos < limit) {
+            int start = pos;
+            char c = input.charAt(pos++);
+            if (isOperator(c)) {
+                if (start == operatorEnd && c != '-') {
+                    out.fail(ErrorCode.UNRECOGNIZED_TOKEN, start - 1, pos);
+                    return -1;
+                }
+                if (expectedTokenType == NUMBER && (c == '+' || c == '-')
+                    && pos < limit && isDigit(input.charAt(pos))) {
+                    // the sign of a number
+                    pos = operandEnd(input, pos, limit);
+                } else {
+                    operatorEnd = pos;
                 }
-                tokens.add(new Token(OPERATOR, part));
-                expectedTokenType = TokenType.NUMBER;
+            } else if (!isPunctuation(c)) {
+                pos = operandEnd(input, pos, limit);
+            }
+            int end = pos;
 
-            } else {
-                throw new UnrecognizedTokenException(part, expectedTokenType);
+            var type = classify(input, start, end);
+            if (type == null) {
+                out.fail(ErrorCode.UNRECOGNIZED_TOKEN, start, end);
+                return -1;
+            }
+            if (type == VARIABLE && end < limit && input.charAt(end) == '(') {
+                type = FUNCTION;
+            }
+            var next = next(expectedTokenType, type, input.charAt(start));
+            if (next == null) {
+                out.fail(ErrorCode.UNEXPECTED_TOKEN, start, end);
+                return -1;
+            }
+            out.add(type, start, end);
+            expectedTokenType = next;
+
+            while (pos < limit && isWhitespace(input.charAt(pos))) {
+                pos++;
             }
         }
 
-        // Expression cannot end with an operator
-        if (expectedTokenType == NUMBER && !tokens.isEmpty()) {
-            throw new UnexpectedTokenException("Expression cannot end with an operator");
+        // Expression cannot end with an operator; reported at the end of the input, like the parser's early ends
+        if (expectedTokenType == NUMBER) {
+            out.fail(ErrorCode.UNEXPECTED_TOKEN, input.length(), input.length());
+            return -1;
         }
 
-        return tokens;
+        return out.size();
+    }
+
+    /**
+     * Creates the exception {@link #scan(CharSequence, TokenBuffer)} throws for a failure recorded by
+     * {@link #tryScan(CharSequence, TokenBuffer)}.
+     */
+    private static CalcException error(CharSequence input, TokenBuffer out) {
+        int start = out.errorStart();
+        int end = out.errorEnd();
+        return switch (out.error()) {
+            case EMPTY_EXPRESSION -> new EmptyExpressionException();
+            case UNRECOGNIZED_TOKEN -> new UnrecognizedTokenException(text(input, start, end), expected(out));
+            default -> start == end
+                ? new UnexpectedTokenException("Expression cannot end with an operator")
+                : new UnexpectedTokenException(text(input, start, end), expected(out));
+        };
+    }
+
+    /**
+     * The token type the order rule expected after the tokens in {@code out}: all of them were accepted, so only
+     * the last one matters.
+     */
+    private static TokenType expected(TokenBuffer out) {
+        if (out.size() == 0) {
+            return NUMBER;
+        }
+        return switch (out.type(out.size() - 1)) {
+            case NUMBER, VARIABLE, RIGHT_PAREN -> OPERATOR;
+            default -> NUMBER;
+        };
+    }
+
+    /**
+     * The token order rule: which token types may follow each other.
+     * <p>{@code expected} is {@code NUMBER} where an operand may start and {@code OPERATOR} after a complete operand.
+     * An operand is a number, a variable, a parenthesized group or a function call; {@code -} where an operand may
+     * start is unary minus. Nesting of parentheses is checked by the parser.</p>
+     *
+     * @param expected what the previous token allows, {@code NUMBER} or {@code OPERATOR}
+     * @param type     the type of the next token
+     * @param first    its first character
+     * @return what the token allows next, or {@code null} if it may not appear here
+     */
+    static TokenType next(TokenType expected, TokenType type, char first) {
+        if (expected == OPERATOR) {
+            return switch (type) {
+                case OPERATOR, COMMA -> NUMBER;
+                case RIGHT_PAREN -> OPERATOR;
+                default -> null;
+            };
+        }
+        return switch (type) {
+            case NUMBER, VARIABLE -> OPERATOR;
+            case FUNCTION, LEFT_PAREN -> NUMBER;
+            case OPERATOR -> first == '-' ? NUMBER : null;
+            default -> null;
+        };
     }
 
     /**
-     * Checks if the part is one of the supported operators.
+     * Classifies the fragment {@code [start, end)} as a signed number (e.g., {@code -2}, {@code +7}, {@code 42},
+     * {@code 0.25}), a variable name, one of the supported operators or a parenthesis or comma. Function names are
+     * classified as variables; the caller knows whether a {@code (} follows.
      *
-     * @param part the string to check
-     * @return true if the part is an operator, false otherwise
+     * @return the token type, or {@code null} if the fragment is none of them
+     */
+    static TokenType classify(CharSequence input, int start, int end) {
+        char first = input.charAt(start);
+        if (end - start == 1) {
+            switch (first) {
+                case '(' -> {
+                    return LEFT_PAREN;
+                }
+                case ')' -> {
+                    return RIGHT_PAREN;
+                }
+                case ',' -> {
+                    return COMMA;
+                }
+                default -> {
+                    if (isOperator(first)) {
+                        return OPERATOR;
+                    }
+                }
+            }
+        }
+        if (isIdentifierStart(first)) {
+            for (int i = start + 1; i < end; i++) {
+                if (!isIdentifierPart(input.charAt(i))) {
+                    return null;
+                }
+            }
+            return VARIABLE;
+        }
+
+        int pos = (first == '+' || first == '-') ? start + 1 : start;
+        int digits = pos;
+        while (pos < end && isDigit(input.charAt(pos))) {
+            pos++;
+        }
+        if (pos == digits) {
+            return null;
+        }
+        if (pos < end && input.charAt(pos) == '.') {
+            int fraction = ++pos;
+            while (pos < end && isDigit(input.charAt(pos))) {
+                pos++;
+            }
+            if (pos == fraction) {
+                return null;
+            }
+        }
+        return pos == end ? NUMBER : null;
+    }
+
+    /**
+     * @return the end of the number or name continuing at {@code pos}: the next whitespace, punctuation or operator
      */
-    private boolean isOperator(String part) {
-        return part.length() == 1
-            && "+-*/^".contains(part);
+    static int operandEnd(CharSequence input, int pos, int limit) {
+        while (pos < limit && !isDelimiter(input.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Whitespace, punctuation and operators end a number or name.
+     */
+    static boolean isDelimiter(char c) {
+        return isWhitespace(c) || isPunctuation(c) || isOperator(c);
     }
 
     /**
-     * Checks if the part is a signed integer (e.g., {@code -2}, {@code +7}, {@code 42}).
+     * Checks if the character is one of the supported operators.
      *
-     * @param part the string to check
-     * @return true if the part is a signed integer, false otherwise
+     * @param c the character to check
+     * @return true if the character is an operator, false otherwise
      */
-    private boolean isSignedInteger(String part) {
-        return part.matches("[+-]?\\d+");
+    static boolean isOperator(char c) {
+        return c == '+' || c == '-' || c == '*' || c == '/' || c == '^';
+    }
+
+    /**
+     * Parentheses and commas are tokens of their own and also end the token before them.
+     */
+    static boolean isPunctuation(char c) {
+        return c == '(' || c == ')' || c == ',';
+    }
+
+    static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    static boolean isIdentifierStart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    static boolean isIdentifierPart(char c) {
+        return isIdentifierStart(c) || isDigit(c);
+    }
+
+    /**
+     * Matches the regex {@code \s} class: space, tab, newline, vertical tab, form feed and carriage return.
+     */
+    static boolean isWhitespace(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+
+    private static String text(CharSequence input, int start, int end) {
+        return input.subSequence(start, end).toString();
     }
 }
@@ -0,0 +1,136 @@
+package org.usama.pocs.calc.lex;
+
+import static org.usama.pocs.calc.lex.TokenType.FUNCTION;
+import static org.usama.pocs.calc.lex.TokenType.NUMBER;
+import static org.usama.pocs.calc.lex.TokenType.VARIABLE;
+
+import java.io.IOException;
+import java.io.Reader;
+import org.usama.pocs.calc.exception.EmptyExpressionException;
+import org.usama.pocs.calc.exception.UnexpectedTokenException;
+import org.usama.pocs.calc.exception.UnrecognizedTokenException;
+
+/**
+ * Incremental counterpart of {@link Lexer} that reads a {@link Reader} in fixed-size chunks and hands each token to a
+ * {@link TokenSink} as soon as it is complete.
+ * <p>Only the current token is buffered, so memory use does not grow with the input. Token rules, validation and
+ * exceptions are the same as {@link Lexer#tokenize(String)}. Instances are not thread-safe but can be reused.</p>
+ */
+public final class StreamingLexer {
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private final char[] chunk = new char[CHUNK_SIZE];
+    private final StringBuilder fragment = new StringBuilder();
+
+    /**
+     * Tokenizes everything the reader provides.
+     *
+     * @param input the expression source; not closed
+     * @param sink  receives tokens in left-to-right order
+     * @throws IOException                if reading fails
+     * @throws EmptyExpressionException   if the input is empty or blank
+     * @throws UnrecognizedTokenException if an unrecognized token is encountered
+     * @throws UnexpectedTokenException   if the token sequence is invalid (e.g., two consecutive operators)
+     */
+    public void tokenize(Reader input, TokenSink sink) throws IOException {
+        fragment.setLength(0);
+        var expected = NUMBER;
+        boolean started = false;
+        boolean inFragment = false;
+        // the fragment is a lone + or - where an operand is expected; a digit next makes it a sign
+        boolean sign = false;
+        // the previous character was an operator token, to tell "2*-3" from "2 -+3"
+        char operator = 0;
+
+        int n;
+        while ((n = input.read(chunk, 0, CHUNK_SIZE)) != -1) {
+            for (int i = 0; i < n; i++) {
+                char c = chunk[i];
+                if (!started) {
+                    // leading characters trimmed like String.trim()
+                    if (c <= ' ') {
+                        continue;
+                    }
+                    started = true;
+                }
+                if (sign) {
+                    sign = false;
+                    if (Lexer.isDigit(c)) {
+                        fragment.append(c);
+                        continue;
+                    }
+                    expected = emit(expected, 1, false, sink);
+                    operator = fragment.charAt(0);
+                    fragment.setLength(0);
+                    inFragment = false;
+                }
+                if (Lexer.isDelimiter(c) && inFragment) {
+                    expected = emit(expected, fragment.length(), c == '(', sink);
+                    fragment.setLength(0);
+                    inFragment = false;
+                }
+                if (Lexer.isOperator(c)) {
+                    if (operator != 0 && c != '-') {
+                        throw new UnrecognizedTokenException(String.valueOf(operator) + c, expected);
+                    }
+                    fragment.append(c);
+                    if (expected == NUMBER && (c == '+' || c == '-')) {
+                        sign = true;
+                        inFragment = true;
+                        continue;
+                    }
+                    expected = emit(expected, 1, false, sink);
+                    fragment.setLength(0);
+                    operator = c;
+                    continue;
+                }
+                operator = 0;
+                if (Lexer.isPunctuation(c)) {
+                    fragment.append(c);
+                    expected = emit(expected, 1, false, sink);
+                    fragment.setLength(0);
+                } else if (!Lexer.isWhitespace(c)) {
+                    fragment.append(c);
+                    inFragment = true;
+                }
+            }
+        }
+
+        // trailing characters trimmed like String.trim()
+        int end = fragment.length();
+        while (end > 0 && fragment.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (end > 0) {
+            expected = emit(expected, end, false, sink);
+        } else if (!started) {
+            throw new EmptyExpressionException();
+        }
+        fragment.setLength(0);
+
+        // Expression cannot end with an operator
+        if (expected == NUMBER) {
+            throw new UnexpectedTokenException("Expression cannot end with an operator");
+        }
+    }
+
+    /**
+     * @param call whether the fragment is directly followed by {@code (}, which makes a name a function
+     */
+    private TokenType emit(TokenType expected, int end, boolean call, TokenSink sink) {
+        var type = Lexer.classify(fragment, 0, end);
+        if (type == null) {
+            throw new UnrecognizedTokenException(fragment.substring(0, end), expected);
+        }
+        if (type == VARIABLE && call) {
+            type = FUNCTION;
+        }
+        var next = Lexer.next(expected, type, fragment.charAt(0));
+        if (next == null) {
+            throw new UnexpectedTokenException(fragment.substring(0, end), expected);
+        }
+        sink.accept(type, end == fragment.length() ? fragment : fragment.subSequence(0, end));
+        return next;
+    }
+}
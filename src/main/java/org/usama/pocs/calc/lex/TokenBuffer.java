@@ -0,0 +1,161 @@
+package org.usama.pocs.calc.lex;
+
+import java.util.Arrays;
+import java.util.Objects;
+import org.usama.pocs.calc.exception.ErrorCode;
+
+/**
+ * Reusable, growable storage for scanned tokens.
+ * <p>Each token is kept as its {@link TokenType} and the {@code [start, end)} character offsets into the scanned
+ * input, in primitive arrays, so scanning does not allocate once the buffer has grown to fit the input. A buffer is
+ * not thread-safe; keep one per thread and pass it to {@link Lexer#scan(CharSequence, TokenBuffer)} repeatedly.</p>
+ * <p>A buffer also records why its input was rejected by {@link Lexer#tryScan(CharSequence, TokenBuffer)} or a
+ * later check, as an {@link ErrorCode} and the offending character range, so that invalid input can be reported
+ * without creating an exception. The tokens before the failure stay in the buffer.</p>
+ */
+public final class TokenBuffer {
+
+    private static final TokenType[] TYPES = TokenType.values();
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private byte[] types;
+    private int[] starts;
+    private int[] ends;
+    private int size;
+    private ErrorCode error;
+    private int errorStart;
+    private int errorEnd;
+
+    /**
+     * Creates an empty buffer with a default initial capacity.
+     */
+    public TokenBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty buffer.
+     *
+     * @param initialCapacity number of tokens the buffer holds before growing
+     */
+    public TokenBuffer(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        this.types = new byte[capacity];
+        this.starts = new int[capacity];
+        this.ends = new int[capacity];
+    }
+
+    /**
+     * Removes all tokens and the recorded failure, keeping the allocated arrays.
+     */
+    public void clear() {
+        size = 0;
+        error = null;
+    }
+
+    /**
+     * Records why the scanned input is invalid. Only the first failure is kept.
+     *
+     * @param error what is wrong
+     * @param start offset of the first offending character; the input length if the input ended too early
+     * @param end   offset one past the last offending character
+     */
+    public void fail(ErrorCode error, int start, int end) {
+        if (this.error == null) {
+            this.error = Objects.requireNonNull(error, "error");
+            this.errorStart = start;
+            this.errorEnd = end;
+        }
+    }
+
+    /**
+     * @return why the input was rejected, or {@code null} if it was not
+     */
+    public ErrorCode error() {
+        return error;
+    }
+
+    /**
+     * @return offset of the first offending character of a rejected input
+     */
+    public int errorStart() {
+        return errorStart;
+    }
+
+    /**
+     * @return offset one past the last offending character of a rejected input
+     */
+    public int errorEnd() {
+        return errorEnd;
+    }
+
+    /**
+     * @return the number of tokens in the buffer
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index token index
+     * @return the type of the token at {@code index}
+     */
+    public TokenType type(int index) {
+        return TYPES[types[checkIndex(index)]];
+    }
+
+    /**
+     * @param index token index
+     * @return offset of the first character of the token at {@code index}
+     */
+    public int start(int index) {
+        return starts[checkIndex(index)];
+    }
+
+    /**
+     * @param index token index
+     * @return offset one past the last character of the token at {@code index}
+     */
+    public int end(int index) {
+        return ends[checkIndex(index)];
+    }
+
+    /**
+     * Materializes the text of a token.
+     *
+     * @param input the input the buffer was filled from
+     * @param index token index
+     * @return the token text
+     */
+    public String text(CharSequence input, int index) {
+        return input.subSequence(start(index), end(index)).toString();
+    }
+
+    /**
+     * Materializes a token as a {@link Token}.
+     *
+     * @param input the input the buffer was filled from
+     * @param index token index
+     * @return the token
+     */
+    public Token token(CharSequence input, int index) {
+        return new Token(type(index), text(input, index));
+    }
+
+    void add(TokenType type, int start, int end) {
+        if (size == types.length) {
+            int capacity = size << 1;
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+        }
+        types[size] = (byte) type.ordinal();
+        starts[size] = start;
+        ends[size] = end;
+        size++;
+    }
+
+    private int checkIndex(int index) {
+        return Objects.checkIndex(index, size);
+    }
+}
@@ -0,0 +1,16 @@
+package org.usama.pocs.calc.lex;
+
+/**
+ * Receives tokens from {@link StreamingLexer} as they are recognized.
+ */
+@FunctionalInterface
+public interface TokenSink {
+
+    /**
+     * Accept one token.
+     *
+     * @param type the token type
+     * @param text the token text; only valid for the duration of the call, as the lexer reuses the buffer
+     */
+    void accept(TokenType type, CharSequence text);
+}
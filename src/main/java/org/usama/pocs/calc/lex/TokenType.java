@@ -5,5 +5,11 @@ package org.usama.pocs.calc.lex;
  */
 public enum TokenType {
     NUMBER,
-    OPERATOR
+    VARIABLE,
+    OPERATOR,
+    /** A function name immediately followed by {@code (}, e.g. {@code max} in {@code max(a, b)}. */
+    FUNCTION,
+    LEFT_PAREN,
+    RIGHT_PAREN,
+    COMMA
 }
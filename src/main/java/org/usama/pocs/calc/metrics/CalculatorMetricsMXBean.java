@@ -0,0 +1,38 @@
+package org.usama.pocs.calc.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of a {@link MetricsRecorder}. Latencies are in nanoseconds.
+ */
+public interface CalculatorMetricsMXBean {
+
+    long getCalls();
+
+    long getErrorCount();
+
+    Map<String, Long> getErrors();
+
+    long getCacheHits();
+
+    long getCacheMisses();
+
+    long getLexP50Nanos();
+
+    long getLexP99Nanos();
+
+    long getParseP50Nanos();
+
+    long getParseP99Nanos();
+
+    long getEvaluateP50Nanos();
+
+    long getEvaluateP99Nanos();
+
+    long getEvaluateMaxNanos();
+
+    /**
+     * Clears all counters and histograms.
+     */
+    void reset();
+}
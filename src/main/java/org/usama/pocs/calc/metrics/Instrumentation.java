@@ -0,0 +1,76 @@
+package org.usama.pocs.calc.metrics;
+
+import org.usama.pocs.calc.exception.CalcException;
+import org.usama.pocs.calc.exception.ErrorCode;
+
+/**
+ * Callbacks a {@link org.usama.pocs.calc.api.Calculator} makes while it runs the calculation pipeline.
+ * <p>Implementations must be thread-safe and cheap: they are called on every calculation. Stage durations are only
+ * measured when {@link #isEnabled()} returns {@code true}, so {@link #NOOP} does not even read the clock.</p>
+ *
+ * @see MetricsRecorder
+ */
+public interface Instrumentation {
+
+    /**
+     * Instrumentation that records nothing.
+     */
+    Instrumentation NOOP = new Instrumentation() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+    };
+
+    /**
+     * @return whether the calculator should measure stage durations and report events
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * Called once per calculation, before any stage runs.
+     */
+    default void onCall() {
+    }
+
+    /**
+     * @param nanos time spent lexing the expression
+     */
+    default void recordLex(long nanos) {
+    }
+
+    /**
+     * @param nanos time spent parsing, compiling and optimizing the tokens
+     */
+    default void recordParse(long nanos) {
+    }
+
+    /**
+     * @param nanos time spent evaluating the compiled program
+     */
+    default void recordEvaluate(long nanos) {
+    }
+
+    /**
+     * @param hit whether the compiled program was found in the cache
+     */
+    default void onCacheLookup(boolean hit) {
+    }
+
+    /**
+     * @param e the exception the calculation failed with
+     */
+    default void onError(CalcException e) {
+    }
+
+    /**
+     * Called instead of {@link #onError(CalcException)} when input is rejected without creating an exception, see
+     * {@link org.usama.pocs.calc.api.Calculator#tryCalculate(String, org.usama.pocs.calc.api.CalcResult)}.
+     *
+     * @param error why the calculation failed
+     */
+    default void onRejected(ErrorCode error) {
+    }
+}
@@ -0,0 +1,108 @@
+package org.usama.pocs.calc.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram in the style of HdrHistogram.
+ * <p>Values are counted in log-linear buckets: each power-of-two range is split into {@value #SUB_BUCKETS} linear
+ * sub-buckets, which bounds the relative error of reported percentiles to about 3% over the whole {@code long}
+ * range with a fixed footprint of {@value #BUCKETS} counters. Recording is one array increment.</p>
+ */
+public final class LatencyRecorder {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF = SUB_BUCKETS / 2;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * HALF;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records one value.
+     *
+     * @param nanos the latency; negative values are recorded as {@code 0}
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        total.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Returns a point-in-time summary. Concurrent recordings may or may not be included.
+     *
+     * @return the summary
+     */
+    public LatencySnapshot snapshot() {
+        long[] copy = new long[counts.length()];
+        long count = 0;
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        if (count == 0) {
+            return LatencySnapshot.EMPTY;
+        }
+        return new LatencySnapshot(
+            count,
+            (double) sum.sum() / Math.max(1, total.sum()),
+            percentile(copy, count, 0.50),
+            percentile(copy, count, 0.90),
+            percentile(copy, count, 0.99),
+            percentile(copy, count, 0.999),
+            max.get());
+    }
+
+    /**
+     * Clears all recorded values.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        total.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        // value >>> exponent keeps the top SUB_BUCKET_BITS bits, i.e. lands in [HALF, SUB_BUCKETS)
+        int exponent = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS + 1;
+        int subBucket = (int) (value >>> exponent) - HALF;
+        return exponent * HALF + HALF + subBucket;
+    }
+
+    /**
+     * @return the highest value that falls into {@code bucket}
+     */
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = (bucket - HALF) / HALF;
+        long subBucket = (bucket - HALF) % HALF + HALF;
+        return ((subBucket + 1) << exponent) - 1;
+    }
+
+    private static long percentile(long[] counts, long total, double quantile) {
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return upperBoundOf(i);
+            }
+        }
+        return upperBoundOf(counts.length - 1);
+    }
+}
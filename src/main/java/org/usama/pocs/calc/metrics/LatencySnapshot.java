@@ -0,0 +1,20 @@
+package org.usama.pocs.calc.metrics;
+
+/**
+ * Summary of a {@link LatencyRecorder}. All latencies are in nanoseconds; percentiles are bucket upper bounds.
+ *
+ * @param count number of recorded values
+ * @param mean  arithmetic mean
+ * @param p50   median
+ * @param p90   90th percentile
+ * @param p99   99th percentile
+ * @param p999  99.9th percentile
+ * @param max   largest recorded value
+ */
+public record LatencySnapshot(long count, double mean, long p50, long p90, long p99, long p999, long max) {
+
+    /**
+     * Summary of a recorder without values.
+     */
+    public static final LatencySnapshot EMPTY = new LatencySnapshot(0, 0.0, 0, 0, 0, 0, 0);
+}
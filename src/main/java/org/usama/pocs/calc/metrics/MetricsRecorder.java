@@ -0,0 +1,170 @@
+package org.usama.pocs.calc.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import org.usama.pocs.calc.exception.CalcException;
+import org.usama.pocs.calc.exception.ErrorCode;
+
+/**
+ * {@link Instrumentation} that keeps counters and per-stage {@link LatencyRecorder}s in memory.
+ * <p>All updates are lock-free. Results are read with {@link #snapshot()} or over JMX after
+ * {@link #registerMBean(String)}.</p>
+ */
+public final class MetricsRecorder implements Instrumentation, CalculatorMetricsMXBean {
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final Map<Class<? extends CalcException>, LongAdder> errors = new ConcurrentHashMap<>();
+
+    private final LatencyRecorder lex = new LatencyRecorder();
+    private final LatencyRecorder parse = new LatencyRecorder();
+    private final LatencyRecorder evaluate = new LatencyRecorder();
+
+    @Override
+    public void onCall() {
+        calls.increment();
+    }
+
+    @Override
+    public void recordLex(long nanos) {
+        lex.record(nanos);
+    }
+
+    @Override
+    public void recordParse(long nanos) {
+        parse.record(nanos);
+    }
+
+    @Override
+    public void recordEvaluate(long nanos) {
+        evaluate.record(nanos);
+    }
+
+    @Override
+    public void onCacheLookup(boolean hit) {
+        (hit ? cacheHits : cacheMisses).increment();
+    }
+
+    @Override
+    public void onError(CalcException e) {
+        errors.computeIfAbsent(e.getClass(), k -> new LongAdder()).increment();
+    }
+
+    /**
+     * Counts the rejection under the exception class {@link #onError(CalcException)} would have seen.
+     */
+    @Override
+    public void onRejected(ErrorCode error) {
+        errors.computeIfAbsent(error.exceptionType(), k -> new LongAdder()).increment();
+    }
+
+    /**
+     * @return a point-in-time view of all counters and latencies
+     */
+    public MetricsSnapshot snapshot() {
+        return new MetricsSnapshot(
+            calls.sum(),
+            getErrors(),
+            cacheHits.sum(),
+            cacheMisses.sum(),
+            lex.snapshot(),
+            parse.snapshot(),
+            evaluate.snapshot());
+    }
+
+    /**
+     * Registers this recorder with the platform MBean server.
+     *
+     * @param name the MBean name, e.g. {@code "org.usama.pocs.calc:type=Calculator,name=pricing"}
+     * @return the registered object name
+     * @throws IllegalStateException if the name is invalid or already registered
+     */
+    public ObjectName registerMBean(String name) {
+        try {
+            var objectName = new ObjectName(name);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register MBean " + name, e);
+        }
+    }
+
+    @Override
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errors.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    @Override
+    public Map<String, Long> getErrors() {
+        Map<String, Long> byType = new TreeMap<>();
+        errors.forEach((type, count) -> byType.put(type.getSimpleName(), count.sum()));
+        return byType;
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    @Override
+    public long getLexP50Nanos() {
+        return lex.snapshot().p50();
+    }
+
+    @Override
+    public long getLexP99Nanos() {
+        return lex.snapshot().p99();
+    }
+
+    @Override
+    public long getParseP50Nanos() {
+        return parse.snapshot().p50();
+    }
+
+    @Override
+    public long getParseP99Nanos() {
+        return parse.snapshot().p99();
+    }
+
+    @Override
+    public long getEvaluateP50Nanos() {
+        return evaluate.snapshot().p50();
+    }
+
+    @Override
+    public long getEvaluateP99Nanos() {
+        return evaluate.snapshot().p99();
+    }
+
+    @Override
+    public long getEvaluateMaxNanos() {
+        return evaluate.snapshot().max();
+    }
+
+    @Override
+    public void reset() {
+        calls.reset();
+        cacheHits.reset();
+        cacheMisses.reset();
+        errors.clear();
+        lex.reset();
+        parse.reset();
+        evaluate.reset();
+    }
+}
@@ -0,0 +1,32 @@
+package org.usama.pocs.calc.metrics;
+
+import java.util.Map;
+
+/**
+ * Point-in-time view of the counters and stage latencies collected by a {@link MetricsRecorder}.
+ *
+ * @param calls       number of calculations started
+ * @param errors      failed calculations per {@code CalcException} subtype (simple class name)
+ * @param cacheHits   compiled programs served from the cache
+ * @param cacheMisses compiled programs built by lexing and parsing
+ * @param lex         lexing latency
+ * @param parse       parsing and compilation latency
+ * @param evaluate    evaluation latency
+ */
+public record MetricsSnapshot(
+    long calls,
+    Map<String, Long> errors,
+    long cacheHits,
+    long cacheMisses,
+    LatencySnapshot lex,
+    LatencySnapshot parse,
+    LatencySnapshot evaluate
+) {
+
+    /**
+     * @return total number of failed calculations
+     */
+    public long errorCount() {
+        return errors.values().stream().mapToLong(Long::longValue).sum();
+    }
+}
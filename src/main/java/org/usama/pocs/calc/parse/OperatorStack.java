@@ -0,0 +1,234 @@
+package org.usama.pocs.calc.parse;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import org.usama.pocs.calc.eval.Opcode;
+import org.usama.pocs.calc.exception.UnexpectedTokenException;
+
+/**
+ * The operator stack of the Shunting Yard algorithm, working on {@link Opcode}s.
+ * <p>Operands go straight to the output, so callers only push operators, parentheses and function calls; every
+ * operator that leaves the stack is handed to the {@code output} consumer in RPN order. Memory use is bounded by the
+ * nesting depth of the expression, not its length, which lets the stack feed an evaluator while the input is still
+ * being read.</p>
+ * <p>Precedence and associativity are read from the {@link Opcode} tables. A variadic function called with
+ * {@code n} arguments is emitted {@code n - 1} times, folding its arguments pairwise from the left as soon as they are
+ * complete, so a long argument list needs no more memory than two arguments.</p>
+ * <p>Unbalanced parentheses and wrong argument counts are reported by the return value of the closing methods;
+ * {@link #error()} turns the last failure into an exception for callers that throw.</p>
+ */
+public final class OperatorStack {
+
+    /** Stack entry opening a plain parenthesized group; function calls are stored as {@code CALL - opcode}. */
+    private static final int GROUP = -1;
+    private static final int CALL = -2;
+    /** Returned by {@link #unwind(char)} when there is no group to close. */
+    private static final int NONE = Integer.MIN_VALUE;
+
+    private static final int UNMATCHED_CLOSE = 1;
+    private static final int SEPARATOR_OUTSIDE_CALL = 2;
+    private static final int ARGUMENT_COUNT = 3;
+    private static final int UNCLOSED_GROUP = 4;
+
+    private final IntConsumer output;
+    private int[] operators = new int[8];
+    private int size;
+    private int[] arguments = new int[4];
+    private int groups;
+    private int failure;
+    private char failedToken;
+    private int failedFunction;
+    private int failedArgumentCount;
+
+    /**
+     * @param output receives operators as they are emitted in postfix order
+     */
+    public OperatorStack(IntConsumer output) {
+        this.output = output;
+    }
+
+    /**
+     * Pushes a binary operator, first emitting stacked operators of the current group that bind more tightly, or
+     * as tightly if the new operator is left-associative.
+     *
+     * @param opcode the operator's opcode
+     */
+    public void push(int opcode) {
+        int precedence = Opcode.precedence(opcode);
+        boolean rightAssociative = Opcode.isRightAssociative(opcode);
+        while (size > 0 && operators[size - 1] >= 0) {
+            int top = Opcode.precedence(operators[size - 1]);
+            if (top < precedence || top == precedence && rightAssociative) {
+                break;
+            }
+            output.accept(operators[--size]);
+        }
+        add(opcode);
+    }
+
+    /**
+     * Pushes a prefix operator such as unary minus. It applies to the operand that follows, together with any
+     * operators binding more tightly than itself.
+     *
+     * @param opcode the operator's opcode
+     */
+    public void pushPrefix(int opcode) {
+        add(opcode);
+    }
+
+    /**
+     * Opens a parenthesized group.
+     */
+    public void openGroup() {
+        openGroup(GROUP);
+    }
+
+    /**
+     * Opens the argument list of a function call.
+     *
+     * @param function the function's opcode
+     */
+    public void openCall(int function) {
+        openGroup(CALL - function);
+    }
+
+    /**
+     * Ends an argument of the innermost function call.
+     *
+     * @return {@code false} if the innermost group is not a function call; see {@link #error()}
+     */
+    public boolean separate() {
+        int marker = unwind(',');
+        if (marker == NONE) {
+            return false;
+        }
+        if (marker == GROUP) {
+            return fail(SEPARATOR_OUTSIDE_CALL, ',', 0, 0);
+        }
+        int function = CALL - marker;
+        if (++arguments[groups - 1] > 2 && Opcode.isVariadic(function)) {
+            // fold the two completed arguments before the next one starts
+            output.accept(function);
+        }
+        return true;
+    }
+
+    /**
+     * Closes the innermost group, emitting a function call's opcode.
+     *
+     * @return {@code false} if no group is open, or a function gets the wrong number of arguments; see
+     *         {@link #error()}
+     */
+    public boolean closeGroup() {
+        int marker = unwind(')');
+        if (marker == NONE) {
+            return false;
+        }
+        size--;
+        int argumentCount = arguments[--groups];
+        if (marker == GROUP) {
+            return true;
+        }
+
+        int function = CALL - marker;
+        if (Opcode.isVariadic(function)) {
+            if (argumentCount > 1) {
+                output.accept(function);
+            }
+        } else if (argumentCount == Opcode.arity(function)) {
+            output.accept(function);
+        } else {
+            return fail(ARGUMENT_COUNT, ')', function, argumentCount);
+        }
+        return true;
+    }
+
+    /**
+     * Emits all remaining operators. The stack can be reused afterwards.
+     *
+     * @return {@code false} if a group is still open; see {@link #error()}
+     */
+    public boolean flush() {
+        while (size > 0) {
+            int op = operators[--size];
+            if (op < 0) {
+                clear();
+                return fail(UNCLOSED_GROUP, '(', 0, 0);
+            }
+            output.accept(op);
+        }
+        return true;
+    }
+
+    /**
+     * Describes why the last call to {@link #separate()}, {@link #closeGroup()} or {@link #flush()} returned
+     * {@code false}. Failures are reported by return value so that checking input does not create exceptions;
+     * callers that throw create one here.
+     *
+     * @return the exception for the last failure
+     * @throws IllegalStateException if nothing has failed
+     */
+    public UnexpectedTokenException error() {
+        return new UnexpectedTokenException(switch (failure) {
+            case UNMATCHED_CLOSE -> "Unbalanced '" + failedToken + "': no matching '('";
+            case SEPARATOR_OUTSIDE_CALL -> "Unexpected ',' outside of a function call";
+            case ARGUMENT_COUNT -> Opcode.symbol(failedFunction) + " takes " + Opcode.arity(failedFunction)
+                + " argument(s) but got " + failedArgumentCount;
+            case UNCLOSED_GROUP -> "Unbalanced '(': missing ')'";
+            default -> throw new IllegalStateException("No failure");
+        });
+    }
+
+    /**
+     * Discards all operators without emitting them.
+     */
+    public void clear() {
+        size = 0;
+        groups = 0;
+    }
+
+    /**
+     * @return the number of operators and open groups currently on the stack
+     */
+    public int depth() {
+        return size;
+    }
+
+    private void openGroup(int marker) {
+        add(marker);
+        if (groups == arguments.length) {
+            arguments = Arrays.copyOf(arguments, groups << 1);
+        }
+        arguments[groups++] = 1;
+    }
+
+    /**
+     * Emits the operators of the innermost group and returns its marker, which is left on the stack, or
+     * {@link #NONE} if no group is open.
+     */
+    private int unwind(char token) {
+        while (size > 0 && operators[size - 1] >= 0) {
+            output.accept(operators[--size]);
+        }
+        if (size == 0) {
+            fail(UNMATCHED_CLOSE, token, 0, 0);
+            return NONE;
+        }
+        return operators[size - 1];
+    }
+
+    private boolean fail(int failure, char token, int function, int argumentCount) {
+        this.failure = failure;
+        this.failedToken = token;
+        this.failedFunction = function;
+        this.failedArgumentCount = argumentCount;
+        return false;
+    }
+
+    private void add(int entry) {
+        if (size == operators.length) {
+            operators = Arrays.copyOf(operators, size << 1);
+        }
+        operators[size++] = entry;
+    }
+}
@@ -1,72 +1,174 @@
 package org.usama.pocs.calc.parse;
 
-import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Deque;
 import java.util.List;
 
+import org.usama.pocs.calc.eval.Opcode;
+import org.usama.pocs.calc.exception.ErrorCode;
 import org.usama.pocs.calc.exception.InvalidTokenException;
 import org.usama.pocs.calc.exception.UnexpectedTokenException;
+import org.usama.pocs.calc.exception.UnrecognizedTokenException;
+import org.usama.pocs.calc.lex.Lexer;
 import org.usama.pocs.calc.lex.Token;
+import org.usama.pocs.calc.lex.TokenBuffer;
 import org.usama.pocs.calc.lex.TokenType;
 
 /**
  * Implementation of the Shunting Yard algorithm to parse infix expressions into Reverse Polish Notation (RPN).
+ * <p>Operator precedence and associativity, parentheses and function calls are resolved by {@link OperatorStack},
+ * which is shared with the streaming evaluator. The parse is one pass over the tokens; operators are mapped to
+ * opcodes by character and back to prebuilt RPN tokens by opcode.</p>
+ * <p>Binary operators appear in the RPN as OPERATOR tokens, unary minus and functions as FUNCTION tokens named by
+ * {@link Opcode#symbol(int)}, e.g. {@code neg} and {@code max}. A call of a variadic function such as
+ * {@code max(a, b, c)} becomes {@code a b max c max}.</p>
+ * <p>Instances are stateless and may be shared between threads; each parse uses its own {@link OperatorStack}.</p>
  */
 public final class ShuntingYardParser implements ExpressionParser {
 
+    private static final Token[] RPN_TOKENS = new Token[Opcode.MAX + 1];
+
+    static {
+        for (int op = 0; op < RPN_TOKENS.length; op++) {
+            if (Opcode.isBinary(op) && Opcode.precedence(op) > 0) {
+                RPN_TOKENS[op] = new Token(TokenType.OPERATOR, Opcode.symbol(op));
+            } else if (Opcode.arity(op) > 0) {
+                RPN_TOKENS[op] = new Token(TokenType.FUNCTION, Opcode.symbol(op));
+            }
+        }
+    }
+
     @Override
     public List<Token> parse(List<Token> tokens) {
         List<Token> rpnTokens = new ArrayList<>(tokens.size());
 
-        Deque<Token> operators = new ArrayDeque<>();
+        var operators = new OperatorStack(op -> rpnTokens.add(RPN_TOKENS[op]));
+        boolean operand = true;
+        // the lexer emits a FUNCTION token right before the '(' of its call
+        int function = -1;
         for (Token token : tokens) {
             switch (token.type()) {
-                case NUMBER -> rpnTokens.add(token);
+                case NUMBER, VARIABLE -> {
+                    rpnTokens.add(token);
+                    operand = false;
+                }
                 case OPERATOR -> {
-                    while (!operators.isEmpty() && precedence(operators.peek()) >= precedence(token)
-                            && !isRightAssociativeOperator(token)
-                    ) {
-                        rpnTokens.add(operators.pop());
+                    if (operand) {
+                        operators.pushPrefix(prefixOpcode(token));
+                    } else {
+                        operators.push(opcode(token));
+                        operand = true;
+                    }
+                }
+                case FUNCTION -> function = function(token);
+                case LEFT_PAREN -> {
+                    if (function < 0) {
+                        operators.openGroup();
+                    } else {
+                        operators.openCall(function);
+                        function = -1;
                     }
-                    operators.push(token);
+                }
+                case COMMA -> {
+                    if (!operators.separate()) {
+                        throw operators.error();
+                    }
+                    operand = true;
+                }
+                case RIGHT_PAREN -> {
+                    if (!operators.closeGroup()) {
+                        throw operators.error();
+                    }
+                    operand = false;
                 }
                 default -> throw new InvalidTokenException(token.value(), token.type());
             }
         }
-
-        while (!operators.isEmpty()) {
-            rpnTokens.add(operators.pop());
+        if (!operators.flush()) {
+            throw operators.error();
         }
 
         return rpnTokens;
     }
 
     /**
-     * Get the precedence of an operator token.
+     * Checks scanned tokens against the rules {@link #parse(List)} enforces beyond the lexer's token order rule,
+     * without producing RPN or throwing: parentheses must balance, commas may only separate the arguments of a
+     * call, and functions must be known and get as many arguments as they take.
      *
-     * @param operator the operator token
-     * @return precedence level (higher means higher precedence)
-     * @throws UnexpectedTokenException if the token is not an operator
+     * @param input  the scanned input
+     * @param tokens tokens accepted by {@link Lexer#tryScan(CharSequence, TokenBuffer)} for {@code input}
+     * @return whether {@link #parse(List)} accepts the tokens; if not, the failure is recorded in {@code tokens}
      */
-    private static int precedence(Token operator) {
-        if (operator.type() != TokenType.OPERATOR) {
-            throw new UnexpectedTokenException("Token is not an operator: " + operator);
+    public boolean check(CharSequence input, TokenBuffer tokens) {
+        // operators cannot fail once the lexer accepted their order, only groups and calls are tracked
+        var operators = new OperatorStack(op -> { });
+        int function = -1;
+        for (int i = 0; i < tokens.size(); i++) {
+            int start = tokens.start(i);
+            boolean valid = switch (tokens.type(i)) {
+                case FUNCTION -> {
+                    function = Opcode.forFunction(input, start, tokens.end(i));
+                    if (function < 0 || function == Opcode.NEG) {
+                        tokens.fail(ErrorCode.UNRECOGNIZED_TOKEN, start, tokens.end(i));
+                        yield false;
+                    }
+                    yield true;
+                }
+                case LEFT_PAREN -> {
+                    if (function < 0) {
+                        operators.openGroup();
+                    } else {
+                        operators.openCall(function);
+                        function = -1;
+                    }
+                    yield true;
+                }
+                case COMMA -> operators.separate();
+                case RIGHT_PAREN -> operators.closeGroup();
+                default -> true;
+            };
+            if (!valid) {
+                if (tokens.error() == null) {
+                    tokens.fail(ErrorCode.UNEXPECTED_TOKEN, start, tokens.end(i));
+                }
+                return false;
+            }
+        }
+        if (!operators.flush()) {
+            int end = input.length();
+            tokens.fail(ErrorCode.UNEXPECTED_TOKEN, end, end);
+            return false;
         }
+        return true;
+    }
 
-        return switch (operator.value()) {
-            case "+", "-" -> 1;
-            case "*", "/" -> 2;
-            case "^" -> 3;
-            default -> throw new UnexpectedTokenException("Unknown operator: " + operator);
-        };
+    /**
+     * Get the opcode of an operator token.
+     *
+     * @param operator the operator token
+     * @return the opcode
+     * @throws UnexpectedTokenException if the token is not a known operator
+     */
+    private static int opcode(Token operator) {
+        int opcode = Opcode.forOperator(operator.value());
+        if (opcode < 0) {
+            throw new UnexpectedTokenException("Unknown operator: " + operator);
+        }
+        return opcode;
     }
 
-    private static boolean isRightAssociativeOperator(Token operator) {
-        if (operator.type() != TokenType.OPERATOR) {
-            throw new UnexpectedTokenException("Token is not an operator: " + operator);
+    private static int prefixOpcode(Token operator) {
+        if (Opcode.forOperator(operator.value()) != Opcode.SUB) {
+            throw new UnexpectedTokenException(operator.value(), TokenType.NUMBER);
         }
+        return Opcode.NEG;
+    }
 
-        return "^".equals(operator.value());
+    private static int function(Token name) {
+        int opcode = Opcode.forFunction(name.value());
+        if (opcode < 0 || opcode == Opcode.NEG) {
+            throw new UnrecognizedTokenException(name.value(), TokenType.FUNCTION);
+        }
+        return opcode;
     }
 }
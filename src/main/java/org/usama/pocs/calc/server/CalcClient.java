@@ -0,0 +1,136 @@
+package org.usama.pocs.calc.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import org.usama.pocs.calc.exception.ErrorCode;
+
+/**
+ * Blocking client for {@link CalcServer}.
+ * <p>{@link #call(String)} sends one expression and waits for its answer. To pipeline, {@link #send(String)} any
+ * number of expressions, {@link #flush()}, then {@link #receive()} the same number of responses; they arrive in
+ * request order. Instances are not thread-safe.</p>
+ */
+public final class CalcClient implements AutoCloseable {
+
+    private final SocketChannel channel;
+    private final BufferedReader in;
+    private final BufferedWriter out;
+
+    private CalcClient(SocketChannel channel) {
+        this.channel = channel;
+        this.in = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+        this.out = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel),
+            StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Connects to a server.
+     *
+     * @param address a TCP or Unix domain socket address, e.g. {@link CalcServer#address()}
+     * @return the connected client
+     * @throws IOException if the connection fails
+     */
+    public static CalcClient connect(SocketAddress address) throws IOException {
+        var channel = address instanceof UnixDomainSocketAddress
+            ? SocketChannel.open(StandardProtocolFamily.UNIX)
+            : SocketChannel.open();
+        try {
+            channel.connect(address);
+            return new CalcClient(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Evaluates one expression.
+     *
+     * @param expression the expression; must not contain line breaks
+     * @return the server's response
+     * @throws IOException if the connection fails
+     */
+    public Response call(String expression) throws IOException {
+        send(expression);
+        flush();
+        return receive();
+    }
+
+    /**
+     * Buffers one request without waiting for its response.
+     *
+     * @param expression the expression; must not contain line breaks
+     * @throws IOException if the connection fails
+     */
+    public void send(String expression) throws IOException {
+        out.write(expression);
+        out.write('\n');
+    }
+
+    /**
+     * Sends all buffered requests.
+     *
+     * @throws IOException if the connection fails
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Reads the response to the oldest unanswered request.
+     *
+     * @return the response
+     * @throws IOException if the connection fails or the server closed it
+     */
+    public Response receive() throws IOException {
+        String line = in.readLine();
+        if (line == null) {
+            throw new EOFException("Connection closed by server");
+        }
+        return Response.parse(line);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * One response line.
+     *
+     * @param value   the result; {@code 0} on error
+     * @param error   the failure code, or {@code null} on success
+     * @param message the failure message, or {@code null} on success
+     */
+    public record Response(long value, ErrorCode error, String message) {
+
+        /**
+         * @return whether the expression evaluated successfully
+         */
+        public boolean isOk() {
+            return error == null;
+        }
+
+        static Response parse(String line) throws IOException {
+            if (line.startsWith("ok ")) {
+                return new Response(Long.parseLong(line, 3, line.length(), 10), null, null);
+            }
+            if (line.startsWith("err ")) {
+                int space = line.indexOf(' ', 4);
+                String code = space < 0 ? line.substring(4) : line.substring(4, space);
+                return new Response(0, ErrorCode.valueOf(code), space < 0 ? "" : line.substring(space + 1));
+            }
+            throw new IOException("Malformed response: " + line);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package org.usama.pocs.calc.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.usama.pocs.calc.api.Calculator;
+import org.usama.pocs.calc.exception.CalcException;
+import org.usama.pocs.calc.exception.ErrorCode;
+
+/**
+ * Long-running calculator server speaking a newline-delimited text protocol over a local socket.
+ * <p>Each request line is one expression. Each response line is either {@code ok <result>} or
+ * {@code err <code> <message>}, where {@code <code>} is an {@link ErrorCode} name. Responses are sent in request
+ * order, so clients may pipeline: send many requests before reading any response. Output is flushed only once every
+ * request already received on the connection has been answered, which batches pipelined responses into few
+ * writes.</p>
+ * <p>The server listens on a TCP port of a loopback address or on a Unix domain socket, and handles every connection
+ * on its own virtual thread. All connections share one {@link Calculator}, and therefore its expression cache.</p>
+ */
+public final class CalcServer implements AutoCloseable {
+
+    private final ServerSocketChannel server;
+    private final Calculator calculator;
+    private final SocketAddress address;
+    private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+    private final Thread.Builder connectionThreads = Thread.ofVirtual().name("calc-conn-", 0);
+    private final Thread acceptor;
+
+    private CalcServer(ServerSocketChannel server, Calculator calculator) throws IOException {
+        this.server = server;
+        this.calculator = calculator;
+        this.address = server.getLocalAddress();
+        this.acceptor = Thread.ofVirtual().name("calc-accept").start(this::acceptLoop);
+    }
+
+    /**
+     * Listens on a TCP port of the loopback address.
+     *
+     * @param port       the port; {@code 0} picks a free one, see {@link #address()}
+     * @param calculator the calculator serving all connections
+     * @return the running server
+     * @throws IOException if the port cannot be bound
+     */
+    public static CalcServer tcp(int port, Calculator calculator) throws IOException {
+        return start(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), calculator);
+    }
+
+    /**
+     * Listens on a Unix domain socket. The socket file must not exist and is deleted by {@link #close()}.
+     *
+     * @param path       the socket file
+     * @param calculator the calculator serving all connections
+     * @return the running server
+     * @throws IOException if the socket cannot be bound
+     */
+    public static CalcServer unix(Path path, Calculator calculator) throws IOException {
+        return start(UnixDomainSocketAddress.of(path), calculator);
+    }
+
+    private static CalcServer start(SocketAddress address, Calculator calculator) throws IOException {
+        Objects.requireNonNull(calculator, "calculator");
+        var family = address instanceof UnixDomainSocketAddress ? StandardProtocolFamily.UNIX : null;
+        var server = family == null ? ServerSocketChannel.open() : ServerSocketChannel.open(family);
+        try {
+            server.bind(address);
+            return new CalcServer(server, calculator);
+        } catch (IOException | RuntimeException e) {
+            server.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the address the server is bound to, with the actual port if {@code 0} was requested
+     */
+    public SocketAddress address() {
+        return address;
+    }
+
+    /**
+     * Blocks until the server is closed.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void awaitTermination() throws InterruptedException {
+        acceptor.join();
+    }
+
+    /**
+     * Stops accepting connections and closes the open ones.
+     *
+     * @throws IOException if the listening socket cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        server.close();
+        for (var connection : connections) {
+            closeQuietly(connection);
+        }
+        if (address instanceof UnixDomainSocketAddress unix) {
+            Files.deleteIfExists(unix.getPath());
+        }
+    }
+
+    private void acceptLoop() {
+        try {
+            while (true) {
+                var connection = server.accept();
+                connections.add(connection);
+                connectionThreads.start(() -> serve(connection));
+            }
+        } catch (ClosedChannelException e) {
+            // closed by close()
+        } catch (IOException e) {
+            Log.LOG.error("accept on {} failed", address, e);
+        }
+    }
+
+    private void serve(SocketChannel connection) {
+        try (connection;
+             var in = new BufferedReader(new InputStreamReader(Channels.newInputStream(connection),
+                 StandardCharsets.UTF_8));
+             var out = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(connection),
+                 StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                respond(line, out);
+                if (!in.ready()) {
+                    out.flush();
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            if (connection.isOpen()) {
+                Log.LOG.debug("connection {} dropped: {}", connection, e.getMessage());
+            }
+        } finally {
+            connections.remove(connection);
+        }
+    }
+
+    private void respond(String expression, Writer out) throws IOException {
+        try {
+            long result = calculator.calculate(expression);
+            out.write("ok ");
+            out.write(Long.toString(result));
+        } catch (CalcException e) {
+            out.write("err ");
+            out.write(ErrorCode.of(e).name());
+            out.write(' ');
+            // keep the response on one line
+            out.write(String.valueOf(e.getMessage()).replace('\n', ' ').replace('\r', ' '));
+        }
+        out.write('\n');
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // the connection is going away regardless
+        }
+    }
+
+    /**
+     * Holder, so that log4j is only loaded if something goes wrong.
+     */
+    private static final class Log {
+        static final Logger LOG = LogManager.getLogger(CalcServer.class);
+    }
+}
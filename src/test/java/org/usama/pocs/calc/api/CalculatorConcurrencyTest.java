@@ -0,0 +1,136 @@
+package org.usama.pocs.calc.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.usama.pocs.calc.exception.CalcException;
+
+@DisplayName("Calculator (concurrent)")
+class CalculatorConcurrencyTest {
+
+    private static final String[] EXPRESSIONS = {
+        "1 + 2 * 3",
+        "(1 + 2) * 3 - 4 / 2",
+        "2 ^ 10 - max(3, abs(-7), 5)",
+        "- (10 - 2) * (3 + min(4, 1))",
+        "9223372036854775807 + 1",
+        "1 + 9 / 0",
+        "1 + ( 2",
+        "((((1 + 2) * 3 - 4) * 5 + 6) * 7 - 8) * 9"
+    };
+
+    @Test
+    @DisplayName("calculate: a shared instance gives single-threaded results on 32 platform threads")
+    void calculateOnPlatformThreads() throws Exception {
+        try (var executor = Executors.newFixedThreadPool(32)) {
+            stress(executor, 32, 2_000);
+        }
+    }
+
+    @Test
+    @DisplayName("calculate: a shared instance gives single-threaded results on 10k virtual threads")
+    void calculateOnVirtualThreads() throws Exception {
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            stress(executor, 10_000, 20);
+        }
+    }
+
+    @Test
+    @DisplayName("calculate(Reader): concurrent streaming evaluations do not share state")
+    void calculateStreamingConcurrently() throws Exception {
+        var calculator = new Calculator();
+        var expected = expectedOutcomes();
+        try (var executor = Executors.newFixedThreadPool(16)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 16; t++) {
+                int seed = t;
+                futures.add(executor.submit(() -> {
+                    var random = new SplittableRandom(seed);
+                    for (int i = 0; i < 500; i++) {
+                        int e = random.nextInt(EXPRESSIONS.length);
+                        var input = new StringReader(EXPRESSIONS[e]);
+                        assertEquals(expected.get(e), outcome(() -> calculator.calculate(input)), EXPRESSIONS[e]);
+                    }
+                    return null;
+                }));
+            }
+            for (var future : futures) {
+                future.get();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("StreamingEvaluatorPool: a released evaluator is reused, a nested acquire gets its own")
+    void poolReuse() {
+        var first = StreamingEvaluatorPool.acquire();
+        var nested = StreamingEvaluatorPool.acquire();
+        assertNotSame(first, nested);
+        StreamingEvaluatorPool.release(nested);
+        StreamingEvaluatorPool.release(first);
+
+        var again = StreamingEvaluatorPool.acquire();
+        StreamingEvaluatorPool.release(again);
+        assertSame(nested, again, "The first evaluator released into the empty slot is kept");
+    }
+
+    /**
+     * Runs {@code tasks} tasks that all start together and each calculate {@code iterations} random expressions on
+     * one shared calculator. The low JIT threshold makes expressions switch tier while other threads use them.
+     */
+    private static void stress(ExecutorService executor, int tasks, int iterations) throws Exception {
+        var calculator = Calculator.builder().jitThreshold(50).cacheCapacity(4).build();
+        var expected = expectedOutcomes();
+        var start = new CountDownLatch(1);
+
+        List<Future<?>> futures = new ArrayList<>(tasks);
+        for (int t = 0; t < tasks; t++) {
+            int seed = t;
+            futures.add(executor.submit((Callable<Void>) () -> {
+                var random = new SplittableRandom(seed);
+                start.await();
+                for (int i = 0; i < iterations; i++) {
+                    int e = random.nextInt(EXPRESSIONS.length);
+                    var expression = EXPRESSIONS[e];
+                    assertEquals(expected.get(e), outcome(() -> calculator.calculate(expression)), expression);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (var future : futures) {
+            future.get();
+        }
+    }
+
+    private static List<String> expectedOutcomes() {
+        var reference = new Calculator(0);
+        var outcomes = new ArrayList<String>(EXPRESSIONS.length);
+        for (var expression : EXPRESSIONS) {
+            outcomes.add(outcome(() -> reference.calculate(expression)));
+        }
+        return outcomes;
+    }
+
+    private static String outcome(Callable<Long> calculation) {
+        try {
+            return Long.toString(calculation.call());
+        } catch (CalcException e) {
+            return e.getClass().getSimpleName() + ": " + e.getMessage();
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+}
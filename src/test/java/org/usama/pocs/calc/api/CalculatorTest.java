@@ -1,13 +1,26 @@
 package org.usama.pocs.calc.api;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SplittableRandom;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
+import org.usama.pocs.calc.exception.CalcException;
+import org.usama.pocs.calc.exception.ErrorCode;
 import org.usama.pocs.calc.exception.EvaluationException;
 
 @DisplayName("Calculator")
@@ -32,7 +45,17 @@ class CalculatorTest {
             "2 * -2 + 1 = -3",
             "2 * 4 * 6 - 1 = 47",
             "10 + 2 * 6 = 22",
-            "100 * 2 - 12 / 3 = 196"
+            "100 * 2 - 12 / 3 = 196",
+            "(1 + 2) * 3 = 9",
+            "2 * (3 - (4 - 5)) = 8",
+            "- 2 ^ 2 = -4",
+            "(-2) ^ 2 = 4",
+            "2 ^ - 1 ^ 2 = 0",
+            "- - 3 * 2 = 6",
+            "10 - - 2 = 12",
+            "abs(3 - 10) = 7",
+            "max(1, 5, 3) - min(4, -2) = 7",
+            "max(abs(- 7)) * - (1 + 1) = -14"
         },
         delimiter = '='
     )
@@ -49,4 +72,188 @@ class CalculatorTest {
             () -> calculator.calculate("1 + 9 / 0")
             , "Expected ArithmeticException for division by zero");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("calculate: repeated expression is served from the cache")
+    void calculateRepeatedExpressionHitsCache() {
+        calculator.calculate("2 * 3 + 1");
+        calculator.calculate("2 * 3 + 1");
+        calculator.calculate("2 * 3 + 2");
+
+        var stats = calculator.cacheStats();
+        assertEquals(1, stats.hits(), "Repeated expression should hit the cache");
+        assertEquals(2, stats.misses(), "Distinct expressions should miss the cache");
+    }
+
+    @Test
+    @DisplayName("calculate: cache disabled with capacity 0")
+    void calculateWithoutCache() {
+        var uncached = new Calculator(0);
+        assertEquals(7, uncached.calculate("3 * 2 + 1"));
+        assertEquals(CacheStats.DISABLED, uncached.cacheStats());
+    }
+
+    @Test
+    @DisplayName("compile: optimizer folds constants unless disabled")
+    void compileOptimized() {
+        var folded = calculator.compile("2 * 3 + x * 1");
+        var plain = Calculator.builder().optimize(false).build().compile("2 * 3 + x * 1");
+        assertEquals("6 x +", folded.program().toString());
+        assertEquals("2 3 * x 1 * +", plain.program().toString());
+        assertEquals(plain.evaluate(5), folded.evaluate(5));
+    }
+
+    @Test
+    @DisplayName("calculate: hot expressions are compiled without changing results")
+    void calculateJitTier() {
+        var jit = Calculator.builder().jitThreshold(1).build();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(14, jit.calculate("2 + 3 * 4"));
+            assertThrows(EvaluationException.class, () -> jit.calculate("1 / 0"));
+        }
+        assertEquals(42, jit.compile("x * 6").evaluate(7));
+        assertThrows(IllegalArgumentException.class, () -> Calculator.builder().jitThreshold(-1));
+    }
+
+    @Test
+    @DisplayName("calculate: BIG_INTEGER mode promotes on overflow instead of failing")
+    void calculateBigInteger() {
+        assertThrows(EvaluationException.class, () -> calculator.calculate("2 ^ 70 + 1"));
+        assertEquals(BigInteger.TWO.pow(70).add(BigInteger.ONE),
+            calculator.calculate("2 ^ 70 + 1", NumericMode.BIG_INTEGER));
+        assertEquals(7L, calculator.calculate("3 * 2 + 1", NumericMode.LONG));
+        assertEquals(BigInteger.valueOf(Long.MAX_VALUE).pow(2),
+            calculator.compile("x * x").evaluate(NumericMode.BIG_INTEGER, Long.MAX_VALUE));
+        assertThrows(EvaluationException.class, () -> calculator.calculate("2 ^ 70 / 0", NumericMode.BIG_INTEGER));
+    }
+
+    @Test
+    @DisplayName("calculate: decimal literals in the fractional modes only")
+    void calculateFractionalModes() {
+        assertThrows(EvaluationException.class, () -> calculator.calculate("19.99 * 3"));
+        assertEquals(59.97, (Double) calculator.calculate("19.99 * 3", NumericMode.DOUBLE), 1e-9);
+        assertEquals(new BigDecimal("59.97"), calculator.calculate("19.99 * 3", NumericMode.DECIMAL));
+        assertEquals(3.5, calculator.calculate("7 / 2", NumericMode.DOUBLE));
+
+        var rounded = Calculator.builder().mathContext(new MathContext(3)).build();
+        assertEquals(new BigDecimal("0.333"), rounded.calculate("1 / 3", NumericMode.DECIMAL));
+    }
+
+    @Test
+    @DisplayName("compileDouble: batch and JIT tier agree")
+    void compileDouble() {
+        var jit = Calculator.builder().jitThreshold(2).build();
+        var expression = jit.compileDouble("price * 1.2 - discount");
+        double[][] columns = {{10, 2.5, 100}, {1, 0, 20}};
+        double[] out = new double[3];
+
+        for (int i = 0; i < 3; i++) {
+            expression.evaluateBatch(columns, out);
+            assertEquals(11.0, out[0], 1e-12);
+            assertEquals(3.0, out[1], 1e-12);
+            assertEquals(100.0, out[2], 1e-12);
+        }
+        assertEquals(List.of("price", "discount"), expression.variables());
+        assertEquals(new BigDecimal("11.0"),
+            jit.compileDecimal("price * 1.2 - discount").evaluate(BigDecimal.TEN, BigDecimal.ONE));
+        assertThrows(IllegalArgumentException.class,
+            () -> jit.compile("x").evaluate(NumericMode.DOUBLE, 1));
+    }
+
+    @ParameterizedTest(name = "tryCalculate(\"{0}\") -> {1} at offset {2}")
+    @CsvSource(delimiter = '|', value = {
+        "''                           | EMPTY_EXPRESSION   | 0",
+        "1 + $                        | UNRECOGNIZED_TOKEN | 4",
+        "1 + * 2                      | UNEXPECTED_TOKEN   | 4",
+        "'1 + 2 - '                   | UNEXPECTED_TOKEN   | 8",
+        "'1 + '                       | UNEXPECTED_TOKEN   | 4",
+        "(1 + 2                       | UNEXPECTED_TOKEN   | 6",
+        "'(1 + 2 '                    | UNEXPECTED_TOKEN   | 7",
+        "abs(1, 2)                    | UNEXPECTED_TOKEN   | 8",
+        "2 * sqrt(4)                  | UNRECOGNIZED_TOKEN | 4",
+        "1 + 9223372036854775808      | EVALUATION_ERROR   | 4",
+        "2.5 * 2                      | EVALUATION_ERROR   | 0",
+        "1 / 0                        | EVALUATION_ERROR   | -1",
+        "x + 1                        | EVALUATION_ERROR   | -1"
+    })
+    void tryCalculateRejects(String expression, ErrorCode error, int offset) {
+        var result = new CalcResult();
+        for (int i = 0; i < 2; i++) {
+            assertFalse(calculator.tryCalculate(expression, result));
+            assertEquals(error, result.error());
+            assertEquals(offset, result.offset());
+            assertThrows(IllegalStateException.class, result::value);
+        }
+        assertEquals(error, ErrorCode.of(assertThrows(CalcException.class, () -> calculator.calculate(expression))));
+    }
+
+    @Test
+    @DisplayName("tryCalculate: agrees with calculate on random, mostly invalid token sequences")
+    void tryCalculateAgreesWithCalculate() {
+        String[] fragments = {
+            "1", "-2", "7", "0", "x", "1.5", "9223372036854775807", "-9223372036854775809",
+            "+", "-", "*", "/", "^", "(", ")", ",", "max(", "abs(", "sqrt(", "neg(", "$", " "
+        };
+        var random = new SplittableRandom(21);
+        var cached = Calculator.builder().diagnostics(Diagnostics.off()).build();
+        var uncached = Calculator.builder().cacheCapacity(0).diagnostics(Diagnostics.off()).build();
+        var result = new CalcResult();
+        int accepted = 0;
+
+        for (int n = 0; n < 5_000; n++) {
+            var expression = new StringBuilder();
+            int length = 1 + random.nextInt(8);
+            for (int i = 0; i < length; i++) {
+                expression.append(fragments[random.nextInt(fragments.length)]).append(random.nextBoolean() ? " " : "");
+            }
+            String text = expression.toString();
+
+            String expected;
+            try {
+                expected = Long.toString(uncached.calculate(text));
+                accepted++;
+            } catch (CalcException e) {
+                expected = ErrorCode.of(e).name();
+            }
+            for (var calculator : List.of(cached, uncached, cached)) {
+                calculator.tryCalculate(text, result);
+                assertEquals(expected, result.isSuccess() ? Long.toString(result.value()) : result.error().name(), text);
+            }
+        }
+        assertTrue(accepted > 100, "Some random expressions should be valid, got " + accepted);
+    }
+
+    @Test
+    @DisplayName("tryCalculate: success fills and reuses the result")
+    void tryCalculateSucceeds() {
+        var result = new CalcResult();
+        assertFalse(calculator.tryCalculate("1 +", result));
+        assertTrue(calculator.tryCalculate("max(1, 2) * 3", result));
+        assertEquals(6, result.value());
+        assertNull(result.error());
+        assertEquals(CalcResult.NO_OFFSET, result.offset());
+        assertEquals("6", result.toString());
+    }
+
+    @Test
+    @DisplayName("loadSnapshot: a new calculator serves saved expressions from its cache")
+    void snapshotRoundTrip(@TempDir Path dir) throws IOException {
+        var file = dir.resolve("calculator.snapshot");
+        calculator.calculate("2 * 3 + 1");
+        calculator.calculate("max(4, 9) - 2 ^ 3");
+        calculator.compile("x * 2 + y");
+        assertEquals(3, calculator.saveSnapshot(file));
+
+        var restarted = new Calculator();
+        assertEquals(3, restarted.loadSnapshot(file));
+        assertEquals(7, restarted.calculate("2 * 3 + 1"));
+        assertEquals(1, restarted.calculate("max(4, 9) - 2 ^ 3"));
+        assertEquals(8, restarted.compile("x * 2 + y").evaluate(3, 2));
+        assertEquals(3, restarted.cacheStats().hits(), "Loaded expressions are not lexed or parsed");
+        assertEquals(0, restarted.cacheStats().misses());
+
+        var uncached = new Calculator(0);
+        assertThrows(IllegalStateException.class, () -> uncached.loadSnapshot(file));
+        assertThrows(IllegalStateException.class, () -> uncached.saveSnapshot(file));
+    }
+}
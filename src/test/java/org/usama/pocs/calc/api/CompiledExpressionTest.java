@@ -0,0 +1,136 @@
+package org.usama.pocs.calc.api;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.usama.pocs.calc.exception.BatchEvaluationException;
+import org.usama.pocs.calc.exception.EvaluationException;
+
+@DisplayName("CompiledExpression")
+class CompiledExpressionTest {
+
+    private Calculator calculator;
+
+    @BeforeEach
+    void setUp() {
+        calculator = new Calculator();
+    }
+
+    @Test
+    @DisplayName("compile: variables are bound in order of first appearance")
+    void compileVariables() {
+        var expression = calculator.compile("price * qty - price / 10");
+
+        assertEquals(List.of("price", "qty"), expression.variables());
+        assertEquals(290, expression.evaluate(100, 3));
+    }
+
+    @Test
+    @DisplayName("evaluate: missing variable value -> EvaluationException")
+    void evaluateUnboundVariable() {
+        var expression = calculator.compile("x + y");
+        assertThrows(EvaluationException.class, () -> expression.evaluate(1));
+        assertThrows(EvaluationException.class, () -> calculator.calculate("x + 1"));
+    }
+
+    @Test
+    @DisplayName("evaluateBatch: one result per row from columnar inputs")
+    void evaluateBatchColumns() {
+        var expression = calculator.compile("a * b + 1");
+        long[] out = new long[3];
+
+        expression.evaluateBatch(new long[][]{{1, 2, 3}, {10, 20, 30}}, out);
+        assertArrayEquals(new long[]{11, 41, 91}, out);
+
+        expression.evaluateBatch(Map.of("b", new long[]{2, 2, 2}, "a", new long[]{-1, 0, 1}), out);
+        assertArrayEquals(new long[]{-1, 1, 3}, out);
+    }
+
+    @Test
+    @DisplayName("evaluateBatch: arithmetic fault names the failing row")
+    void evaluateBatchReportsRow() {
+        var expression = calculator.compile("a / b");
+        var e = assertThrows(BatchEvaluationException.class,
+            () -> expression.evaluateBatch(new long[][]{{4, 4, 4}, {2, 1, 0}}, new long[3]));
+        assertEquals(2, e.row());
+        assertTrue(e.getMessage().startsWith("Row 2"), e.getMessage());
+    }
+
+    @Test
+    @DisplayName("evaluateBatchParallel: same results as the sequential batch")
+    void evaluateBatchParallelMatchesSequential() {
+        var expression = calculator.compile("a * 7 - b / 3 + a * b");
+        int rows = 100_000;
+        long[][] columns = new long[2][rows];
+        for (int r = 0; r < rows; r++) {
+            columns[0][r] = r;
+            columns[1][r] = rows - r;
+        }
+
+        long[] sequential = new long[rows];
+        long[] parallel = new long[rows];
+        expression.evaluateBatch(columns, sequential);
+        expression.evaluateBatchParallel(columns, parallel, 1_000);
+
+        assertArrayEquals(sequential, parallel);
+    }
+
+    @Test
+    @DisplayName("evaluateBatchParallel: reports the lowest failing row")
+    void evaluateBatchParallelReportsLowestRow() {
+        var expression = calculator.compile("a / b");
+        int rows = 50_000;
+        long[][] columns = new long[2][rows];
+        Arrays.fill(columns[1], 1);
+        columns[1][31_337] = 0;
+        columns[1][45_000] = 0;
+
+        var e = assertThrows(BatchEvaluationException.class,
+            () -> expression.evaluateBatchParallel(columns, new long[rows], 256));
+        assertEquals(31_337, e.row());
+    }
+
+    @Test
+    @DisplayName("evaluateBatch: short or missing column -> IllegalArgumentException")
+    void evaluateBatchRejectsBadColumns() {
+        var expression = calculator.compile("a + b");
+        assertThrows(IllegalArgumentException.class,
+            () -> expression.evaluateBatch(new long[][]{{1, 2}}, new long[2]));
+        assertThrows(IllegalArgumentException.class,
+            () -> expression.evaluateBatch(new long[][]{{1, 2}, {1}}, new long[2]));
+        assertThrows(IllegalArgumentException.class,
+            () -> expression.evaluateBatch(Map.of("a", new long[2]), new long[2]));
+    }
+
+    @Test
+    @DisplayName("evaluateColumnar: same results and failing row as evaluateBatch")
+    void evaluateColumnarMatchesBatch() {
+        var expression = calculator.compile("a * 7 - b / 3 + abs(a - b) * max(a, b)");
+        int rows = 10_000;
+        long[][] columns = new long[2][rows];
+        for (int r = 0; r < rows; r++) {
+            columns[0][r] = r - 5_000;
+            columns[1][r] = 3 * r + 1;
+        }
+
+        long[] batch = new long[rows];
+        long[] columnar = new long[rows];
+        expression.evaluateBatch(columns, batch);
+        expression.evaluateColumnar(columns, columnar);
+        assertArrayEquals(batch, columnar);
+
+        columns[0][6_789] = Long.MAX_VALUE;
+        var e = assertThrows(BatchEvaluationException.class, () -> expression.evaluateColumnar(columns, columnar));
+        assertEquals(6_789, e.row());
+        assertThrows(IllegalArgumentException.class,
+            () -> expression.evaluateColumnar(new long[][]{columns[0]}, columnar));
+    }
+}
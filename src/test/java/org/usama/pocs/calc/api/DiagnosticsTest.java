@@ -0,0 +1,52 @@
+package org.usama.pocs.calc.api;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Diagnostics")
+class DiagnosticsTest {
+
+    @Test
+    @DisplayName("tryAcquireErrorPermit: at most errorsPerSecond per one-second window")
+    void errorPermitsAreRateLimited() {
+        var diagnostics = new Diagnostics(0, 2);
+        long now = System.nanoTime();
+
+        assertTrue(diagnostics.tryAcquireErrorPermit(now));
+        assertTrue(diagnostics.tryAcquireErrorPermit(now));
+        assertFalse(diagnostics.tryAcquireErrorPermit(now), "Third failure in the window should be suppressed");
+
+        long nextWindow = now + TimeUnit.SECONDS.toNanos(1);
+        assertTrue(diagnostics.tryAcquireErrorPermit(nextWindow), "A new window should grant permits again");
+    }
+
+    @Test
+    @DisplayName("sampled: rate 1 logs every call")
+    void sampleRateOneAlwaysSamples() {
+        var diagnostics = new Diagnostics(1, 0);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(diagnostics.sampled());
+        }
+    }
+
+    @Test
+    @DisplayName("off: shared instance, calculator works with logging disabled")
+    void offIsShared() {
+        assertSame(Diagnostics.off(), Diagnostics.off());
+        var calculator = new Calculator(0, Diagnostics.off());
+        assertThrows(RuntimeException.class, () -> calculator.calculate("1 / 0"));
+    }
+
+    @Test
+    @DisplayName("constructor: negative rate -> IllegalArgumentException")
+    void rejectsNegativeRates() {
+        assertThrows(IllegalArgumentException.class, () -> new Diagnostics(-1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new Diagnostics(0, -1));
+    }
+}
@@ -0,0 +1,69 @@
+package org.usama.pocs.calc.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("ExpressionCache")
+class ExpressionCacheTest {
+
+    @Test
+    @DisplayName("get: repeated key compiles once and counts hits/misses")
+    void getCountsHitsAndMisses() {
+        var cache = new ExpressionCache<String>(4);
+        var compilations = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("1 + 2!", cache.get("1 + 2", e -> {
+                compilations.incrementAndGet();
+                return e + "!";
+            }));
+        }
+
+        assertEquals(1, compilations.get(), "Expression should be compiled only once");
+        assertEquals(new CacheStats(2, 1, 0, 1, 4), cache.stats());
+    }
+
+    @Test
+    @DisplayName("get: least-recently-used entry is evicted at capacity")
+    void getEvictsLeastRecentlyUsed() {
+        var cache = new ExpressionCache<String>(2);
+        cache.get("a", e -> e);
+        cache.get("b", e -> e);
+        cache.get("a", e -> e); // touch a, b becomes eldest
+        cache.get("c", e -> e); // evicts b
+
+        var compilations = new AtomicInteger();
+        cache.get("a", e -> {
+            compilations.incrementAndGet();
+            return e;
+        });
+        cache.get("b", e -> {
+            compilations.incrementAndGet();
+            return e;
+        });
+
+        assertEquals(1, compilations.get(), "Only the evicted entry should be recompiled");
+        assertEquals(2, cache.stats().evictions());
+        assertEquals(2, cache.stats().size());
+    }
+
+    @Test
+    @DisplayName("get: compiler failure is not cached")
+    void getDoesNotCacheFailures() {
+        var cache = new ExpressionCache<String>(2);
+        assertThrows(IllegalStateException.class, () -> cache.get("x", e -> {
+            throw new IllegalStateException();
+        }));
+        assertEquals(0, cache.stats().size());
+    }
+
+    @Test
+    @DisplayName("constructor: non-positive capacity -> IllegalArgumentException")
+    void rejectsNonPositiveCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new ExpressionCache<String>(0));
+    }
+}
@@ -0,0 +1,94 @@
+package org.usama.pocs.calc.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+@DisplayName("FileBatchEvaluator")
+class FileBatchEvaluatorTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("evaluate: one output line per input line, errors in place")
+    void evaluateLines() throws IOException {
+        var input = write("1 + 2\n2 * -2 + 1\r\n1 / 0\n\n  10 - 2 - 3\n8 / 3");
+
+        var out = new ByteArrayOutputStream();
+        var result = new FileBatchEvaluator().evaluate(input, Channels.newChannel(out));
+
+        assertEquals("""
+            3
+            -3
+            error: Arithmetic error: / by zero
+            error: Expression cannot be null or empty
+            5
+            2
+            """, out.toString(StandardCharsets.UTF_8));
+        assertEquals(new FileBatchResult(6, 2), result);
+    }
+
+    @Test
+    @DisplayName("evaluate: empty file -> no output")
+    void evaluateEmptyFile() throws IOException {
+        var out = new ByteArrayOutputStream();
+        var result = new FileBatchEvaluator().evaluate(write(""), Channels.newChannel(out));
+
+        assertEquals(0, out.size());
+        assertEquals(new FileBatchResult(0, 0), result);
+    }
+
+    @ParameterizedTest(name = "threads = {0}")
+    @ValueSource(ints = {1, 3})
+    @DisplayName("evaluate: small chunks give the same output as one pass, in input order")
+    void evaluateChunked(int threads) throws IOException {
+        var lines = IntStream.range(0, 5000)
+            .mapToObj(i -> i % 97 == 0 ? i + " / 0" : i + " * 3 - " + (i % 7) + " ^ 2")
+            .collect(Collectors.joining("\n", "", "\n"));
+        var expected = IntStream.range(0, 5000)
+            .mapToObj(i -> i % 97 == 0 ? "error: Arithmetic error: / by zero" : Long.toString(i * 3L - (i % 7) * (i % 7)))
+            .collect(Collectors.joining("\n", "", "\n"));
+
+        var out = new ByteArrayOutputStream();
+        var result = new FileBatchEvaluator(threads, 1000).evaluate(write(lines), Channels.newChannel(out));
+
+        assertEquals(expected, out.toString(StandardCharsets.UTF_8));
+        assertEquals(new FileBatchResult(5000, 52), result);
+    }
+
+    @Test
+    @DisplayName("putLong: matches Long.toString at the extremes")
+    void putLong() {
+        var buffer = ByteBuffer.allocate(64);
+        for (long value : new long[]{0, 7, -7, 10, Long.MAX_VALUE, Long.MIN_VALUE}) {
+            buffer.clear();
+            FileBatchEvaluator.putLong(buffer, value);
+            assertEquals(Long.toString(value), new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII));
+        }
+    }
+
+    @Test
+    @DisplayName("constructor: non-positive threads -> IllegalArgumentException")
+    void constructorRejectsThreads() {
+        assertThrows(IllegalArgumentException.class, () -> new FileBatchEvaluator(0));
+    }
+
+    private Path write(String content) throws IOException {
+        return Files.writeString(dir.resolve("input.txt"), content, StandardCharsets.US_ASCII);
+    }
+}
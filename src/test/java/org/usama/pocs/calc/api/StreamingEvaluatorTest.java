@@ -0,0 +1,140 @@
+package org.usama.pocs.calc.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.usama.pocs.calc.exception.EmptyExpressionException;
+import org.usama.pocs.calc.exception.EvaluationException;
+import org.usama.pocs.calc.exception.UnexpectedTokenException;
+import org.usama.pocs.calc.exception.UnrecognizedTokenException;
+import org.usama.pocs.calc.lex.AsciiSequence;
+
+@DisplayName("StreamingEvaluator")
+class StreamingEvaluatorTest {
+
+    private StreamingEvaluator evaluator;
+
+    @BeforeEach
+    void setUp() {
+        evaluator = new StreamingEvaluator();
+    }
+
+    @ParameterizedTest(name = "[{index}] evaluate(\"{0}\") -> {1}")
+    @CsvSource(
+        value = {
+            "1 + 2 = 3",
+            "2 * -2 + 1 = -3",
+            "100 * 2 - 12 / 3 = 196",
+            "2 ^ 3 ^ 2 = 512",
+            "  10 - 2 - 3  = 5",
+            "- (1 + 2) * max(3, abs(-4), 2) = -12",
+            "2 ^ - 1 ^ 2 + min(7) = 7",
+            "2*(3-1)-8/-2--max(1,-3) = 9"
+        },
+        delimiter = '='
+    )
+    void evaluateMatchesCalculator(String expression, long expected) throws IOException {
+        assertEquals(expected, evaluator.evaluate(new StringReader(expression)));
+        assertEquals(new Calculator().calculate(expression), expected);
+    }
+
+    @ParameterizedTest(name = "evaluate: invalid -> {1}")
+    @MethodSource("invalidExpressions")
+    void evaluateInvalidInputs(Class<? extends RuntimeException> expected, String expression) {
+        assertThrows(expected, () -> evaluator.evaluate(new StringReader(expression)));
+    }
+
+    static Stream<Object[]> invalidExpressions() {
+        return Stream.of(
+            new Object[]{EmptyExpressionException.class, "   "},
+            new Object[]{UnexpectedTokenException.class, "1 + 2 -"},
+            new Object[]{UnexpectedTokenException.class, "1 + * 2"},
+            new Object[]{UnrecognizedTokenException.class, "1 + 2 -+3"},
+            new Object[]{EvaluationException.class, "1 + 9 / 0"},
+            new Object[]{EvaluationException.class, "x + 1"},
+            new Object[]{UnexpectedTokenException.class, "(1 + 2"},
+            new Object[]{UnexpectedTokenException.class, "1 + 2)"},
+            new Object[]{UnexpectedTokenException.class, "abs(1, 2)"},
+            new Object[]{UnrecognizedTokenException.class, "sqrt(4)"}
+        );
+    }
+
+    @Test
+    @DisplayName("evaluate: lexes a window of a byte buffer in place")
+    void evaluateAsciiSequence() {
+        var bytes = ByteBuffer.wrap("7 * 6\n1 + 2 ^ 3".getBytes(StandardCharsets.US_ASCII));
+        var line = new AsciiSequence(bytes);
+
+        assertEquals(42, evaluator.evaluate(line.reset(0, 5)));
+        assertEquals(9, evaluator.evaluate(line.reset(6, 9)));
+        assertThrows(UnexpectedTokenException.class, () -> evaluator.evaluate(line.reset(0, 9)));
+    }
+
+    @Test
+    @DisplayName("evaluate: a failed evaluation does not affect the next one")
+    void evaluateAfterFailure() throws IOException {
+        assertThrows(EvaluationException.class, () -> evaluator.evaluate(new StringReader("1 + 2 * 3 / 0 - 4")));
+        assertEquals(7, evaluator.evaluate(new StringReader("1 + 2 * 3")));
+    }
+
+    @Test
+    @DisplayName("evaluate: memory stays bounded for a multi-megabyte expression")
+    void evaluateLongExpressionInBoundedMemory() throws IOException {
+        int terms = 2_000_000;
+        long result = evaluator.evaluate(new RepeatingReader(terms));
+
+        assertEquals(terms + 1, result);
+        assertTrue(evaluator.valueStackCapacity() <= 8, "Value stack grew with input length");
+    }
+
+    /**
+     * Generates {@code "1 + 1 * 1 + 1 * 1 ..."} on the fly, without ever holding the whole text.
+     */
+    private static final class RepeatingReader extends Reader {
+
+        private static final String HEAD = "1";
+        private static final String TERM = " + 1 * 1";
+
+        private long remaining;
+        private int pos;
+        private String current = HEAD;
+
+        RepeatingReader(long terms) {
+            this.remaining = terms;
+        }
+
+        @Override
+        public int read(char[] buf, int off, int len) {
+            int n = 0;
+            while (n < len) {
+                if (pos == current.length()) {
+                    if (remaining == 0) {
+                        return n == 0 ? -1 : n;
+                    }
+                    remaining--;
+                    current = TERM;
+                    pos = 0;
+                }
+                buf[off + n++] = current.charAt(pos++);
+            }
+            return n;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.usama.pocs.calc.eval;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.usama.pocs.calc.testutil.TestPrograms.compileDecimal;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.usama.pocs.calc.exception.EvaluationException;
+
+@DisplayName("BigDecimalEvaluator")
+class BigDecimalEvaluatorTest {
+
+    private final BigDecimalEvaluator evaluator = new BigDecimalEvaluator(MathContext.DECIMAL64);
+
+    @ParameterizedTest(name = "[{index}] execute(\"{0}\") -> {1}")
+    @CsvSource(
+        value = {
+            "0.1 + 0.2 | 0.3",
+            "19.99 * 3 | 59.97",
+            "7 / 2 | 3.5",
+            "1 / 3 | 0.3333333333333333",
+            "1.5 ^ 2 | 2.25",
+            "2 ^ -2 | 0.25",
+            "2 ^ 2.0 | 4",
+            "9223372036854775807 + 1 | 9223372036854775808",
+            "- 0.1 * abs(-3) | -0.3",
+            "max(0.1, 0.25, -1) / min(2, 0.5) | 0.5"
+        },
+        delimiter = '|'
+    )
+    void execute(String expression, String expected) {
+        assertEquals(0, new BigDecimal(expected).compareTo(evaluator.execute(compileDecimal(expression))),
+            () -> expression + " = " + evaluator.execute(compileDecimal(expression)));
+    }
+
+    @Test
+    @DisplayName("execute: variables bound by slot")
+    void executeWithVariables() {
+        var program = compileDecimal("price * qty - discount");
+        var result = evaluator.execute(program,
+            new BigDecimal[]{new BigDecimal("12.10"), new BigDecimal("3"), new BigDecimal("0.30")});
+
+        assertEquals(new BigDecimal("36.00"), result);
+        assertThrows(EvaluationException.class,
+            () -> evaluator.execute(program, new BigDecimal[]{BigDecimal.ONE, null, BigDecimal.ONE}));
+    }
+
+    @Test
+    @DisplayName("execute: division by zero and fractional exponents -> EvaluationException")
+    void executeFaults() {
+        assertThrows(EvaluationException.class, () -> evaluator.execute(compileDecimal("1.5 / 0")));
+        assertThrows(EvaluationException.class, () -> evaluator.execute(compileDecimal("0 ^ -1")));
+        assertThrows(EvaluationException.class, () -> evaluator.execute(compileDecimal("2 ^ 0.5")));
+    }
+}
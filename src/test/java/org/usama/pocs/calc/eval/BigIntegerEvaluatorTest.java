@@ -0,0 +1,144 @@
+package org.usama.pocs.calc.eval;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.usama.pocs.calc.testutil.TestPrograms.compile;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.usama.pocs.calc.exception.EvaluationException;
+
+@DisplayName("BigIntegerEvaluator")
+class BigIntegerEvaluatorTest {
+
+    private final BigIntegerEvaluator evaluator = new BigIntegerEvaluator();
+
+    @ParameterizedTest(name = "[{index}] execute(\"{0}\") -> {1}")
+    @CsvSource(
+        value = {
+            "1 + 2 * 3 | 7",
+            "9223372036854775807 + 1 | 9223372036854775808",
+            "-9223372036854775807 - 2 | -9223372036854775809",
+            "9223372036854775807 * 9223372036854775807 | 85070591730234615847396907784232501249",
+            "0 - 9223372036854775807 - 1 / -1 | -9223372036854775806",
+            "0 - 9223372036854775807 - 1 | -9223372036854775808",
+            "2 ^ 64 | 18446744073709551616",
+            "2 ^ 64 - 2 ^ 64 + 5 | 5",
+            "2 ^ 64 / 2 ^ 62 | 4",
+            "-2 ^ 63 | -9223372036854775808",
+            "3 ^ 40 | 12157665459056928801",
+            "2 ^ 128 | 340282366920938463463374607431768211456",
+            "2 ^ 64 ^ -1 | 1",
+            "2 ^ 64 * 3 ^ -1 | 0",
+            "-1 ^ 2 ^ 64 | 1",
+            "2 ^ 0 - 1 | 0",
+            "- -9223372036854775808 | 9223372036854775808",
+            "abs(-9223372036854775808) - 1 | 9223372036854775807",
+            "abs(- 2 ^ 64) - 1 | 18446744073709551615",
+            "max(2 ^ 64, 3) - min(-2 ^ 65, 0) | 55340232221128654848"
+        },
+        delimiter = '|'
+    )
+    void execute(String expression, String expected) {
+        assertEquals(new BigInteger(expected), evaluator.execute(compile(expression), new long[0]));
+    }
+
+    @Test
+    @DisplayName("execute: promoted temporaries and variables")
+    void executePromotedTemporaries() {
+        var program = new RpnOptimizer().optimize(compile("x * x + x * x"));
+        var max = BigInteger.valueOf(Long.MAX_VALUE);
+
+        assertEquals(max.multiply(max).shiftLeft(1), evaluator.execute(program, new long[]{Long.MAX_VALUE}));
+        assertEquals(BigInteger.valueOf(18), evaluator.execute(program, new long[]{3}));
+        assertEquals(max.add(BigInteger.ONE),
+            evaluator.execute(compile("x / -1"), new long[]{Long.MIN_VALUE}));
+    }
+
+    @Test
+    @DisplayName("execute: division by zero and oversized exponents -> EvaluationException")
+    void executeFaults() {
+        assertThrows(EvaluationException.class, () -> evaluator.execute(compile("2 ^ 64 / 0"), new long[0]));
+        assertThrows(EvaluationException.class, () -> evaluator.execute(compile("0 ^ -1"), new long[0]));
+        assertThrows(EvaluationException.class, () -> evaluator.execute(compile("2 ^ 2 ^ 64"), new long[0]));
+        assertThrows(EvaluationException.class, () -> evaluator.execute(compile("x + 1"), new long[0]));
+    }
+
+    @Test
+    @DisplayName("execute: powers beyond MAX_POWER_BITS -> rejected before computing them")
+    void executeHugePowers() {
+        var e = assertTimeoutPreemptively(Duration.ofSeconds(5),
+            () -> assertThrows(EvaluationException.class,
+                () -> evaluator.execute(compile("3 ^ 1000000000"), new long[0])));
+        assertEquals("Arithmetic error: Exponent too large: 1000000000", e.getMessage());
+        assertTimeoutPreemptively(Duration.ofSeconds(5),
+            () -> assertThrows(EvaluationException.class,
+                () -> evaluator.execute(compile("(2 ^ 2000000000) ^ 2000000000"), new long[0])));
+        assertThrows(EvaluationException.class,
+            () -> evaluator.execute(compile("2 ^ 4194304"), new long[0]), "2 bits per factor of 2");
+
+        assertEquals(BigIntegerEvaluator.MAX_POWER_BITS / 2 + 1,
+            evaluator.execute(compile("2 ^ 2097152"), new long[0]).bitLength());
+        assertEquals(BigInteger.valueOf(3).pow(2097152), evaluator.execute(compile("3 ^ 2097152"), new long[0]),
+            "2 bits * 2097152 is exactly the limit");
+        assertThrows(EvaluationException.class, () -> evaluator.execute(compile("3 ^ 2097153"), new long[0]));
+    }
+
+    @Test
+    @DisplayName("execute: random expressions match a BigInteger-only reference")
+    void executeRandomExpressions() {
+        var random = new SplittableRandom(17);
+        String[] operands = {"0", "1", "2", "-3", "1000", "9223372036854775807", "a", "b", "c"};
+        String[] operators = {"+", "-", "*", "/", "^"};
+
+        for (int i = 0; i < 500; i++) {
+            var sb = new StringBuilder(operands[random.nextInt(operands.length)]);
+            for (int n = random.nextInt(1, 10); n > 0; n--) {
+                String operator = operators[random.nextInt(operators.length)];
+                String operand = operator.equals("^")
+                    ? String.valueOf(random.nextInt(-2, 5)) : operands[random.nextInt(operands.length)];
+                sb.append(' ').append(operator).append(' ').append(operand);
+            }
+            var program = compile(sb.toString());
+            long[] values = {random.nextLong(-5, 5), random.nextLong(), random.nextLong(-3, 4)};
+
+            assertEquals(outcome(() -> reference(program, values)), outcome(() -> evaluator.execute(program, values)),
+                program.toString());
+        }
+    }
+
+    /**
+     * Evaluates every operation with {@code BigInteger}, without the {@code long} fast path.
+     */
+    private static BigInteger reference(RpnProgram program, long[] values) {
+        final int[] code = program.codeArray();
+        var stack = new BigInteger[program.maxStackDepth()];
+        int top = 0;
+        for (int pc = 0; pc < code.length; pc++) {
+            switch (code[pc]) {
+                case Opcode.PUSH -> stack[top++] = BigInteger.valueOf(program.constantArray()[code[++pc]]);
+                case Opcode.LOAD -> stack[top++] = BigInteger.valueOf(values[code[++pc]]);
+                default -> {
+                    top--;
+                    stack[top - 1] = BigIntegerEvaluator.apply(code[pc], stack[top - 1], stack[top]);
+                }
+            }
+        }
+        return stack[0];
+    }
+
+    private static String outcome(Supplier<BigInteger> evaluation) {
+        try {
+            return evaluation.get().toString();
+        } catch (EvaluationException | ArithmeticException e) {
+            return "error";
+        }
+    }
+}
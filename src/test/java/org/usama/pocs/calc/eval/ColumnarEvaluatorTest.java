@@ -0,0 +1,192 @@
+package org.usama.pocs.calc.eval;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.usama.pocs.calc.testutil.TestPrograms.compile;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.usama.pocs.calc.exception.BatchEvaluationException;
+import org.usama.pocs.calc.exception.EvaluationException;
+
+@DisplayName("ColumnarEvaluator")
+class ColumnarEvaluatorTest {
+
+    private static final RpnEvaluator INTERPRETER = new RpnEvaluator();
+
+    static Stream<Arguments> evaluators() {
+        return Stream.of(
+            Arguments.of("vector", new ColumnarEvaluator()),
+            Arguments.of("scalar", ColumnarEvaluator.scalar()));
+    }
+
+    @Test
+    @DisplayName("new ColumnarEvaluator: vectorized when jdk.incubator.vector is enabled, as in the test JVM")
+    void vectorizedWhenModulePresent() {
+        assertTrue(new ColumnarEvaluator().isVectorized());
+        assertFalse(ColumnarEvaluator.scalar().isVectorized());
+    }
+
+    @ParameterizedTest(name = "{0}: random expressions and columns -> same results and first failing row as RpnEvaluator")
+    @MethodSource("evaluators")
+    void matchesInterpreter(String kernels, ColumnarEvaluator evaluator) {
+        var random = new SplittableRandom(24);
+        String[] operands = {"0", "1", "7", "-3", "100000", "a", "b", "c", "- b", "abs(c)", "max(a, 5, c)",
+            "min(b, -2)", "(a * b)"};
+        String[] operators = {"+", "-", "*", "/", "^"};
+        // not a multiple of the chunk size or of any vector width
+        int rows = 2 * ColumnarEvaluator.CHUNK_SIZE + 37;
+
+        for (int i = 0; i < 300; i++) {
+            var sb = new StringBuilder(operands[random.nextInt(operands.length)]);
+            for (int n = random.nextInt(1, 8); n > 0; n--) {
+                String operator = operators[random.nextInt(operators.length)];
+                String operand = operator.equals("^")
+                    ? String.valueOf(random.nextInt(-1, 4)) : operands[random.nextInt(operands.length)];
+                sb.append(' ').append(operator).append(' ').append(operand);
+            }
+            var program = new RpnOptimizer().optimize(compile(sb.toString()));
+            long[][] columns = columns(random, rows, i % 3);
+
+            assertEquals(expected(program, columns, rows), actual(evaluator, program, columns, rows),
+                kernels + ": " + sb);
+        }
+    }
+
+    @ParameterizedTest(name = "{0}: overflow at every operator and lane position -> that row")
+    @MethodSource("evaluators")
+    void reportsOverflowRow(String kernels, ColumnarEvaluator evaluator) {
+        String[] expressions = {"a + b", "a - b", "a * b", "a / b", "a ^ 3", "- a", "abs(a)"};
+        long[][] faults = {
+            {Long.MAX_VALUE, 1}, {Long.MIN_VALUE, 1}, {3_037_000_500L, 3_037_000_500L}, {Long.MIN_VALUE, -1},
+            {2_097_152, 0}, {Long.MIN_VALUE, 0}, {Long.MIN_VALUE, 0}};
+        int rows = 100;
+
+        for (int e = 0; e < expressions.length; e++) {
+            var program = compile(expressions[e]);
+            for (int row = 0; row < 20; row++) {
+                long[][] columns = new long[2][rows];
+                Arrays.fill(columns[0], 2_097_151);
+                Arrays.fill(columns[1], 2);
+                columns[0][row] = faults[e][0];
+                columns[1][row] = faults[e][1];
+                columns[0][rows - 1] = faults[e][0];
+                columns[1][rows - 1] = faults[e][1];
+
+                var failure = assertThrows(BatchEvaluationException.class,
+                    () -> evaluator.execute(program, columns, new long[rows]), kernels + ": " + expressions[e]);
+                assertEquals(row, failure.row(), kernels + ": " + expressions[e]);
+            }
+        }
+    }
+
+    @ParameterizedTest(name = "{0}: products next to the overflow boundary are exact")
+    @MethodSource("evaluators")
+    void multiplicationBoundary(String kernels, ColumnarEvaluator evaluator) {
+        long[] factors = {0, 1, -1, Integer.MAX_VALUE, Integer.MIN_VALUE, 1L << 31, 3_037_000_499L, 3_037_000_500L,
+            -3_037_000_499L, 1L << 32, Long.MAX_VALUE, Long.MIN_VALUE};
+        var program = compile("a * b");
+        for (long a : factors) {
+            for (long b : factors) {
+                // the pair sits in every lane of a vector, followed by rows that cannot fail
+                long[][] columns = new long[2][16];
+                Arrays.fill(columns[0], a);
+                Arrays.fill(columns[1], b);
+                assertEquals(expected(program, columns, 16), actual(evaluator, program, columns, 16),
+                    kernels + ": " + a + " * " + b);
+            }
+        }
+    }
+
+    @ParameterizedTest(name = "{0}: row ranges on a small stack -> results only in the range")
+    @MethodSource("evaluators")
+    void executeRange(String kernels, ColumnarEvaluator evaluator) {
+        var program = new RpnOptimizer().optimize(compile("(a + 1) * (a + 1) - b"));
+        long[][] columns = new long[2][50];
+        for (int r = 0; r < 50; r++) {
+            columns[0][r] = r;
+            columns[1][r] = 3 * r;
+        }
+        long[] out = new long[50];
+        evaluator.execute(program, columns, out, 5, 45, new long[program.maxStackDepth()][7]);
+
+        for (int r = 0; r < 50; r++) {
+            assertEquals(r < 5 || r >= 45 ? 0 : (r + 1) * (r + 1) - 3 * r, out[r], kernels + " row " + r);
+        }
+    }
+
+    @ParameterizedTest(name = "{0}: constant programs fill every row")
+    @MethodSource("evaluators")
+    void constantProgram(String kernels, ColumnarEvaluator evaluator) {
+        long[] out = new long[10];
+        evaluator.execute(compile("6 * 7"), new long[0][], out);
+        assertArrayEquals(new long[]{42, 42, 42, 42, 42, 42, 42, 42, 42, 42}, out);
+    }
+
+    @Test
+    @DisplayName("execute: missing or short columns and small stacks -> rejected")
+    void executeRejectsBadInput() {
+        var evaluator = new ColumnarEvaluator();
+        var program = compile("a + b");
+        assertThrows(EvaluationException.class, () -> evaluator.execute(program, new long[][]{{1}}, new long[1]));
+        assertThrows(IllegalArgumentException.class,
+            () -> evaluator.execute(program, new long[][]{{1, 2}, {1}}, new long[2]));
+        assertThrows(IllegalArgumentException.class,
+            () -> evaluator.execute(program, new long[][]{{1}, {1}}, new long[1], 0, 1, new long[1][8]));
+    }
+
+    /**
+     * Columns of small values, values around the 32-bit boundary, or full-range values with some extremes.
+     */
+    private static long[][] columns(SplittableRandom random, int rows, int kind) {
+        long[][] columns = new long[3][rows];
+        for (long[] column : columns) {
+            for (int r = 0; r < rows; r++) {
+                column[r] = switch (kind) {
+                    case 0 -> random.nextLong(-50, 50);
+                    case 1 -> random.nextLong(-(1L << 33), 1L << 33);
+                    default -> random.nextInt(100) == 0
+                        ? (random.nextBoolean() ? Long.MIN_VALUE : Long.MAX_VALUE)
+                        : random.nextLong();
+                };
+            }
+        }
+        return columns;
+    }
+
+    private static String expected(RpnProgram program, long[][] columns, int rows) {
+        var out = new long[rows];
+        var row = new long[columns.length];
+        for (int r = 0; r < rows; r++) {
+            for (int v = 0; v < row.length; v++) {
+                row[v] = columns[v][r];
+            }
+            try {
+                out[r] = INTERPRETER.execute(program, row, new long[program.maxStackDepth()]);
+            } catch (EvaluationException e) {
+                return "row " + r + ": " + e.getMessage() + " after " + Arrays.toString(Arrays.copyOf(out, r));
+            }
+        }
+        return Arrays.toString(out);
+    }
+
+    private static String actual(ColumnarEvaluator evaluator, RpnProgram program, long[][] columns, int rows) {
+        var out = new long[rows];
+        try {
+            evaluator.execute(program, columns, out);
+        } catch (BatchEvaluationException e) {
+            return "row " + e.row() + ": " + e.getCause().getMessage() + " after "
+                + Arrays.toString(Arrays.copyOf(out, e.row()));
+        }
+        return Arrays.toString(out);
+    }
+}
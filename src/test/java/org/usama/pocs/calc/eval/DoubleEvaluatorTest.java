@@ -0,0 +1,78 @@
+package org.usama.pocs.calc.eval;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.usama.pocs.calc.testutil.TestPrograms.compileDecimal;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.usama.pocs.calc.exception.EvaluationException;
+
+@DisplayName("DoubleEvaluator")
+class DoubleEvaluatorTest {
+
+    private final DoubleEvaluator evaluator = new DoubleEvaluator();
+
+    @ParameterizedTest(name = "[{index}] execute(\"{0}\") -> {1}")
+    @CsvSource(
+        value = {
+            "1 + 2 * 3 | 7",
+            "19.99 * 3 | 59.97",
+            "7 / 2 | 3.5",
+            "-0.5 * 4 + 1.25 | -0.75",
+            "2 ^ 0.5 ^ 2 | 1.189207115002721",
+            "2 ^ -2 | 0.25",
+            "1 / 0 | Infinity",
+            "0 / 0 | NaN",
+            "- 2 ^ 2 | -4",
+            "abs(-2.5) * min(4, 0.5, 2) | 1.25",
+            "max(0 / 0, 1) | NaN"
+        },
+        delimiter = '|'
+    )
+    void execute(String expression, double expected) {
+        assertEquals(expected, evaluator.execute(compileDecimal(expression)), 1e-12);
+    }
+
+    @Test
+    @DisplayName("execute: variables on a reused stack")
+    void executeWithVariables() {
+        var program = compileDecimal("price * qty - discount");
+        var stack = new double[program.maxStackDepth()];
+
+        assertEquals(List.of("price", "qty", "discount"), program.variables());
+        assertEquals(27.5, evaluator.execute(program, new double[]{12.5, 3, 10}, stack));
+        assertEquals(0.75, evaluator.execute(program, new double[]{0.25, 4, 0.25}, stack));
+        assertThrows(EvaluationException.class, () -> evaluator.execute(program, new double[]{1}, stack));
+    }
+
+    @Test
+    @DisplayName("execute: random expressions give the same result in both tiers")
+    void executeRandomExpressions() {
+        var random = new SplittableRandom(11);
+        String[] operands = {"0", "1", "2.5", "-3.75", "1000", "0.1", "a", "b", "c", "- b", "abs(a)",
+            "max(a, c, 0.5)", "min(b, -3.75)"};
+        String[] operators = {"+", "-", "*", "/", "^"};
+
+        for (int i = 0; i < 300; i++) {
+            var sb = new StringBuilder(operands[random.nextInt(operands.length)]);
+            for (int n = random.nextInt(1, 12); n > 0; n--) {
+                sb.append(' ').append(operators[random.nextInt(operators.length)])
+                    .append(' ').append(operands[random.nextInt(operands.length)]);
+            }
+            var program = compileDecimal(sb.toString());
+            var tiered = new TieredDoubleProgram(program, 0);
+            double[] values = {random.nextDouble(-5, 5), random.nextDouble(), random.nextInt(-3, 4)};
+
+            double expected = evaluator.execute(program, values, new double[program.maxStackDepth()]);
+            assertEquals(Double.doubleToLongBits(expected), Double.doubleToLongBits(tiered.execute(values, null)),
+                program.toString());
+            assertTrue(tiered.isCompiled(), program.toString());
+        }
+    }
+}
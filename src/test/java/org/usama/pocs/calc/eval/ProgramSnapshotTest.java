@@ -0,0 +1,162 @@
+package org.usama.pocs.calc.eval;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.usama.pocs.calc.testutil.TestPrograms.compile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+@DisplayName("ProgramSnapshot")
+class ProgramSnapshotTest {
+
+    private static final List<String> EXPRESSIONS = List.of(
+        "1 + 2 * 3",
+        "-9223372036854775808 + 9223372036854775807 - 0",
+        "price * qty - discount",
+        "(x * y) + (x * y) ^ 2",
+        "max(qty, 1, abs(- x)) - min(price, -7)"
+    );
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("write/read: round trip preserves programs, variable names and order")
+    void roundTrip() throws IOException {
+        var programs = programs();
+        var file = dir.resolve("programs.snapshot");
+
+        assertEquals(programs.size(), ProgramSnapshot.write(file, programs));
+        Map<String, RpnProgram> read = new LinkedHashMap<>();
+        assertEquals(programs.size(), ProgramSnapshot.read(file, read::put));
+
+        assertEquals(programs, read);
+        assertEquals(List.copyOf(programs.keySet()), List.copyOf(read.keySet()));
+        assertTrue(read.get("(x * y) + (x * y) ^ 2").tempCount() > 0, "Optimized programs keep their temporaries");
+        assertEquals(List.of(file), Files.list(dir).toList(), "No temporary file is left behind");
+    }
+
+    @Test
+    @DisplayName("write/read: an empty snapshot reads back empty")
+    void emptySnapshot() throws IOException {
+        var file = dir.resolve("empty.snapshot");
+        ProgramSnapshot.write(file, Map.of());
+        assertEquals(0, ProgramSnapshot.read(file, (expression, program) -> {
+            throw new AssertionError(expression);
+        }));
+    }
+
+    @Test
+    @DisplayName("write: replaces an existing snapshot")
+    void writeReplaces() throws IOException {
+        var file = dir.resolve("programs.snapshot");
+        ProgramSnapshot.write(file, programs());
+        ProgramSnapshot.write(file, Map.of("1 + 2", optimized("1 + 2")));
+
+        Map<String, RpnProgram> read = new LinkedHashMap<>();
+        ProgramSnapshot.read(file, read::put);
+        assertEquals(Map.of("1 + 2", optimized("1 + 2")), read);
+    }
+
+    @ParameterizedTest(name = "read: byte {0} flipped -> IOException, nothing read")
+    @ValueSource(ints = {0, 5, 9, 20, 60, -5, -1})
+    void corruptSnapshot(int offset) throws IOException {
+        var file = dir.resolve("programs.snapshot");
+        ProgramSnapshot.write(file, programs());
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[Math.floorMod(offset, bytes.length)] ^= 0x40;
+        Files.write(file, bytes);
+
+        assertThrows(IOException.class, () -> ProgramSnapshot.read(file, (expression, program) -> {
+            throw new AssertionError("Read from a corrupt snapshot: " + expression);
+        }));
+    }
+
+    @Test
+    @DisplayName("read: truncated or foreign files -> IOException")
+    void truncatedSnapshot() throws IOException {
+        var file = dir.resolve("programs.snapshot");
+        ProgramSnapshot.write(file, programs());
+        byte[] bytes = Files.readAllBytes(file);
+
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 10));
+        assertThrows(IOException.class, () -> ProgramSnapshot.read(file, (e, p) -> { }));
+        Files.write(file, Arrays.copyOf(bytes, 12));
+        assertThrows(IOException.class, () -> ProgramSnapshot.read(file, (e, p) -> { }));
+        Files.writeString(file, "1 + 2\n3 * 4\n5 - 6\n");
+        assertThrows(IOException.class, () -> ProgramSnapshot.read(file, (e, p) -> { }));
+    }
+
+    @Test
+    @DisplayName("read: another version -> IOException naming both versions")
+    void otherVersion() throws IOException {
+        var file = dir.resolve("programs.snapshot");
+        ProgramSnapshot.write(file, programs());
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putInt(4, ProgramSnapshot.VERSION + 1);
+        Files.write(file, bytes);
+
+        var e = assertThrows(IOException.class, () -> ProgramSnapshot.read(file, (x, p) -> { }));
+        assertTrue(e.getMessage().contains("version " + (ProgramSnapshot.VERSION + 1)), e.getMessage());
+    }
+
+    @Test
+    @DisplayName("read: lengths beyond the file with a valid checksum -> IOException, not an OutOfMemoryError")
+    void oversizedLengths() throws IOException {
+        var file = dir.resolve("crafted.snapshot");
+        byte[] hugeVarint = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+
+        Files.write(file, crafted(Integer.MAX_VALUE, 0));
+        assertThrows(IOException.class, () -> ProgramSnapshot.read(file, (e, p) -> { }), "program count");
+        Files.write(file, crafted(0, Integer.MAX_VALUE));
+        assertThrows(IOException.class, () -> ProgramSnapshot.read(file, (e, p) -> { }), "name count");
+        Files.write(file, crafted(0, 1, hugeVarint));
+        assertThrows(IOException.class, () -> ProgramSnapshot.read(file, (e, p) -> { }), "string length");
+        for (int array = 0; array < 3; array++) {
+            // an empty expression, then code, constant and variable counts, the one at [array] huge
+            var body = ByteBuffer.allocate(32).put((byte) 0);
+            for (int i = 0; i < 3; i++) {
+                body.put(i == array ? hugeVarint : new byte[]{0});
+            }
+            Files.write(file, crafted(1, 0, Arrays.copyOf(body.array(), body.position())));
+            assertThrows(IOException.class, () -> ProgramSnapshot.read(file, (e, p) -> { }), "array " + array);
+        }
+    }
+
+    /**
+     * A snapshot header with the given counts, then {@code body}, then a matching checksum.
+     */
+    private static byte[] crafted(int programs, int names, byte... body) {
+        var bytes = ByteBuffer.allocate(16 + body.length + 4)
+            .putInt(0x52504E53).putInt(ProgramSnapshot.VERSION).putInt(programs).putInt(names).put(body);
+        var crc = new CRC32C();
+        crc.update(bytes.array(), 0, bytes.position());
+        return bytes.putInt((int) crc.getValue()).array();
+    }
+
+    private static Map<String, RpnProgram> programs() {
+        Map<String, RpnProgram> programs = new LinkedHashMap<>();
+        for (var expression : EXPRESSIONS) {
+            programs.put(expression, optimized(expression));
+        }
+        return programs;
+    }
+
+    private static RpnProgram optimized(String expression) {
+        return new RpnOptimizer().optimize(compile(expression));
+    }
+}
@@ -0,0 +1,109 @@
+package org.usama.pocs.calc.eval;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.usama.pocs.calc.testutil.TestTokens.NUM;
+import static org.usama.pocs.calc.testutil.TestTokens.OP;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.usama.pocs.calc.exception.EvaluationException;
+import org.usama.pocs.calc.exception.InvalidTokenException;
+
+@DisplayName("RpnCompiler")
+class RpnCompilerTest {
+
+    private RpnCompiler compiler;
+
+    @BeforeEach
+    void setUp() {
+        compiler = new RpnCompiler();
+    }
+
+    @Test
+    @DisplayName("compile: 1 2 3 * + -> opcodes and constant pool")
+    void compileSimpleInput() {
+        var program = compiler.compile(List.of(NUM("1"), NUM("2"), NUM("-3"), OP("*"), OP("+")));
+
+        assertArrayEquals(
+            new int[]{Opcode.PUSH, 0, Opcode.PUSH, 1, Opcode.PUSH, 2, Opcode.MUL, Opcode.ADD},
+            program.code());
+        assertArrayEquals(new long[]{1, 2, -3}, program.constants());
+        assertEquals(3, program.maxStackDepth());
+        assertEquals("1 2 -3 * +", program.toString());
+    }
+
+    @Test
+    @DisplayName("compile: too many operands -> EvaluationException")
+    void compileOperandSurplus() {
+        var rpn = List.of(NUM("1"), NUM("2"));
+        assertThrows(EvaluationException.class, () -> compiler.compile(rpn));
+    }
+
+    @Test
+    @DisplayName("compile: unknown operator -> InvalidTokenException")
+    void compileUnknownOperator() {
+        var rpn = List.of(NUM("1"), NUM("2"), OP("%"));
+        assertThrows(InvalidTokenException.class, () -> compiler.compile(rpn));
+    }
+
+    @ParameterizedTest(name = "isLongLiteral: {0} -> same as compile")
+    @ValueSource(strings = {
+        "0", "-0", "+7", "000123", "9223372036854775807", "9223372036854775808", "-9223372036854775808",
+        "-9223372036854775809", "+9223372036854775807", "00009223372036854775807", "19223372036854775807",
+        "9223372036854775799", "9999999999999999999", "1.5", "-0.0"
+    })
+    void isLongLiteralAgreesWithCompile(String literal) {
+        boolean compiles;
+        try {
+            compiler.compile(List.of(NUM(literal)));
+            compiles = true;
+        } catch (EvaluationException e) {
+            compiles = false;
+        }
+        String padded = "( " + literal + " )";
+        assertEquals(compiles, RpnCompiler.isLongLiteral(padded, 2, 2 + literal.length()));
+    }
+
+    @Test
+    @DisplayName("writeTo/readFrom: round trip preserves the program")
+    void serializationRoundTrip() throws IOException {
+        var program = compiler.compile(List.of(NUM("7"), NUM("2"), OP("^"), NUM("5"), OP("-")));
+
+        var bytes = new ByteArrayOutputStream();
+        program.writeTo(new DataOutputStream(bytes));
+        var copy = RpnProgram.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(program, copy);
+        assertEquals(44, new RpnEvaluator().execute(copy));
+    }
+
+    @Test
+    @DisplayName("readFrom: truncated data and oversized lengths -> EvaluationException, not OutOfMemoryError")
+    void readFromRejectsCorruptData() throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        compiler.compile(List.of(NUM("7"), NUM("2"), OP("^"))).writeTo(new DataOutputStream(bytes));
+        byte[] valid = bytes.toByteArray();
+
+        for (int length : new int[]{valid.length - 1, 10, 3}) {
+            var truncated = new DataInputStream(new ByteArrayInputStream(Arrays.copyOf(valid, length)));
+            assertThrows(EvaluationException.class, () -> RpnProgram.readFrom(truncated), length + " bytes");
+        }
+        byte[] hugeLength = {0x7f, (byte) 0xff, (byte) 0xff, (byte) 0xf0};
+        var oversized = new DataInputStream(new ByteArrayInputStream(hugeLength));
+        assertThrows(EvaluationException.class, () -> RpnProgram.readFrom(oversized));
+        var negative = new DataInputStream(new ByteArrayInputStream(new byte[]{(byte) 0xff, 0, 0, 0}));
+        assertThrows(EvaluationException.class, () -> RpnProgram.readFrom(negative));
+    }
+}
@@ -3,8 +3,10 @@ package org.usama.pocs.calc.eval;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.usama.pocs.calc.lex.TokenType.NUMBER;
+import static org.usama.pocs.calc.testutil.TestTokens.FUN;
 import static org.usama.pocs.calc.testutil.TestTokens.NUM;
 import static org.usama.pocs.calc.testutil.TestTokens.OP;
+import static org.usama.pocs.calc.testutil.TestTokens.VAR;
 
 import java.util.List;
 import java.util.stream.Stream;
@@ -12,6 +14,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.usama.pocs.calc.exception.EvaluationException;
 import org.usama.pocs.calc.lex.Token;
@@ -54,7 +57,10 @@ class RpnEvaluatorTest {
             new Object[]{List.of(NUM("3"), NUM("-2"), OP("*"), NUM("4"), OP("+")), -2},  // 3 * -2 + 4
             new Object[]{List.of(NUM("10"), NUM("2"), OP("-"), NUM("3"), OP("-")), 5},  // (10-2)-3
             new Object[]{List.of(NUM("8"), NUM("3"), OP("/")), 2},  // truncates toward zero
-            new Object[]{List.of(NUM("-8"), NUM("3"), OP("/")), -2}   // negative truncation
+            new Object[]{List.of(NUM("-8"), NUM("3"), OP("/")), -2},  // negative truncation
+            new Object[]{List.of(NUM(String.valueOf(Long.MAX_VALUE)), NUM("1"), OP("-")), Long.MAX_VALUE - 1}, // no double rounding
+            new Object[]{List.of(NUM("2"), NUM("2"), OP("^"), FUN("neg")), -4},  // - 2 ^ 2
+            new Object[]{List.of(NUM("3"), NUM("-7"), FUN("abs"), NUM("5"), FUN("max"), FUN("min")), 3}  // min(3, max(abs(-7), 5))
         );
     }
 
@@ -79,6 +85,48 @@ class RpnEvaluatorTest {
         assertThrows(EvaluationException.class, () -> evaluator.evaluate(rpn));
     }
 
+    @ParameterizedTest(name = "pow({0}, {1}) -> {2}")
+    @CsvSource({
+        "3, 39, 4052555153018976267",
+        "-2, 63, -9223372036854775808",
+        "2, 62, 4611686018427387904",
+        "-3, 3, -27",
+        "0, 0, 1",
+        "7, 0, 1",
+        "0, 5, 0",
+        "-1, 9223372036854775807, -1",
+        "-1, -4, 1",
+        "1, -9223372036854775808, 1",
+        "2, -1, 0",
+        "-9223372036854775808, 1, -9223372036854775808"
+    })
+    void powExact(long base, long exponent, long expected) {
+        assertEquals(expected, RpnEvaluator.pow(base, exponent));
+    }
+
+    @ParameterizedTest(name = "pow({0}, {1}) -> ArithmeticException")
+    @CsvSource({"2, 63", "3, 40", "-2, 64", "10, 9223372036854775807", "3037000500, 2", "0, -1"})
+    void powFaults(long base, long exponent) {
+        assertThrows(ArithmeticException.class, () -> RpnEvaluator.pow(base, exponent));
+    }
+
+    @Test
+    @DisplayName("evaluate: negating Long.MIN_VALUE overflows -> EvaluationException")
+    void evaluateOverflowNegation() {
+        var negate = List.of(NUM(String.valueOf(Long.MIN_VALUE)), FUN("neg"));
+        var abs = List.of(NUM(String.valueOf(Long.MIN_VALUE)), FUN("abs"));
+        assertThrows(EvaluationException.class, () -> evaluator.evaluate(negate));
+        assertThrows(EvaluationException.class, () -> evaluator.evaluate(abs));
+    }
+
+    @Test
+    @DisplayName("evaluate: Long.MIN_VALUE / -1 overflows -> EvaluationException")
+    void evaluateOverflowDivision() {
+        var program = new RpnCompiler().compile(List.of(VAR("x"), NUM("-1"), OP("/")));
+        assertThrows(EvaluationException.class,
+            () -> evaluator.execute(program, new long[]{Long.MIN_VALUE}, new long[program.maxStackDepth()]));
+    }
+
     @Test
     @DisplayName("evaluate: not enough operands -> EvaluationException")
     void evaluateOperandUnderflow() {
@@ -86,6 +134,16 @@ class RpnEvaluatorTest {
         assertThrows(EvaluationException.class, () -> evaluator.evaluate(rpn));
     }
 
+    @Test
+    @DisplayName("evaluate: program on a reused stack")
+    void evaluateProgramOnReusedStack() {
+        var program = new RpnCompiler().compile(List.of(NUM("2"), NUM("3"), NUM("4"), OP("*"), OP("+")));
+        var stack = new long[program.maxStackDepth()];
+
+        assertEquals(14, evaluator.execute(program, stack));
+        assertEquals(14, evaluator.execute(program, stack));
+    }
+
     @Test
     @DisplayName("evaluate: invalid number literal -> EvaluationException")
     void evaluateInvalidNumber() {
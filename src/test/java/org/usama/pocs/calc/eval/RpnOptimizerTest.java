@@ -0,0 +1,119 @@
+package org.usama.pocs.calc.eval;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.usama.pocs.calc.testutil.TestPrograms.compile;
+
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.usama.pocs.calc.exception.EvaluationException;
+
+@DisplayName("RpnOptimizer")
+class RpnOptimizerTest {
+
+    private RpnOptimizer optimizer;
+    private RpnEvaluator evaluator;
+
+    @BeforeEach
+    void setUp() {
+        optimizer = new RpnOptimizer();
+        evaluator = new RpnEvaluator();
+    }
+
+    @ParameterizedTest(name = "[{index}] optimize(\"{0}\") -> {1}")
+    @CsvSource(
+        value = {
+            "1 + 2 * 3 | 7",
+            "x * 2 * 3 | x 2 * 3 *",
+            "x + 2 * 3 | x 6 +",
+            "x * 1 + 0 | x",
+            "1 * x - 0 / 7 | x",
+            "0 + x / 1 | x",
+            "x ^ 1 | x",
+            "3 ^ 39 | 4052555153018976267",
+            "2 ^ 64 | 2 64 ^",
+            "- 3 * abs(-4) | -12",
+            "max(x, x) + min(y, 2, y) | x y 2 min y min +",
+            "abs(x * y) + abs(x * y) | x y * abs =t0 t0 +",
+            "- -9223372036854775808 | -9223372036854775808 neg",
+            "x * y + x * y | x y * =t0 t0 +",
+            "a * b - c + a * b - c | a b * =t0 c - t0 + c -",
+            "x / 0 + 1 | x 0 / 1 +",
+            "x + 4 / 0 | x 4 0 / +",
+            "9223372036854775807 + 1 | 9223372036854775807 1 +"
+        },
+        delimiter = '|'
+    )
+    void optimize(String expression, String expected) {
+        assertEquals(expected, optimizer.optimize(compile(expression)).toString());
+    }
+
+    @Test
+    @DisplayName("optimize: nothing to improve -> same program")
+    void optimizeUnchanged() {
+        var program = compile("x + y * z");
+        assertSame(program, optimizer.optimize(program));
+    }
+
+    @Test
+    @DisplayName("optimize: temporaries are part of maxStackDepth")
+    void optimizeStackDepth() {
+        var program = optimizer.optimize(compile("x * y + x * y"));
+
+        assertEquals(1, program.tempCount());
+        assertEquals(3, program.maxStackDepth());
+        assertEquals(24, evaluator.execute(program, new long[]{3, 4}, new long[program.maxStackDepth()]));
+    }
+
+    @Test
+    @DisplayName("optimize: faults keep their message")
+    void optimizeKeepsFaults() {
+        var original = compile("x / y + x / y");
+        var optimized = optimizer.optimize(original);
+        long[] values = {1, 0};
+
+        var expected = assertThrows(EvaluationException.class,
+            () -> evaluator.execute(original, values, new long[original.maxStackDepth()]));
+        var actual = assertThrows(EvaluationException.class,
+            () -> evaluator.execute(optimized, values, new long[optimized.maxStackDepth()]));
+        assertEquals(expected.getMessage(), actual.getMessage());
+    }
+
+    @Test
+    @DisplayName("optimize: random expressions evaluate exactly as before")
+    void optimizeRandomExpressions() {
+        var random = new SplittableRandom(42);
+        String[] operands = {"0", "1", "2", "-3", "7", "9223372036854775807", "a", "b", "c"};
+        String[] operators = {"+", "-", "*", "/", "^"};
+
+        for (int i = 0; i < 2000; i++) {
+            var sb = new StringBuilder(operands[random.nextInt(operands.length)]);
+            for (int n = random.nextInt(1, 12); n > 0; n--) {
+                sb.append(' ').append(operators[random.nextInt(operators.length)])
+                    .append(' ').append(operands[random.nextInt(operands.length)]);
+            }
+            var original = compile(sb.toString());
+            var optimized = optimizer.optimize(original);
+            long[] values = {random.nextLong(-5, 5), random.nextLong(), random.nextLong(-3, 4)};
+
+            assertEquals(outcome(original, values), outcome(optimized, values), sb + " with " + optimized);
+        }
+    }
+
+    private String outcome(RpnProgram program, long[] values) {
+        long[] bound = new long[program.variableCount()];
+        for (int i = 0; i < bound.length; i++) {
+            bound[i] = values[program.variables().get(i).charAt(0) - 'a'];
+        }
+        try {
+            return Long.toString(evaluator.execute(program, bound, new long[program.maxStackDepth()]));
+        } catch (EvaluationException e) {
+            return e.getMessage();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package org.usama.pocs.calc.eval;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.usama.pocs.calc.testutil.TestPrograms.compile;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.usama.pocs.calc.exception.EvaluationException;
+import org.usama.pocs.calc.exception.SegmentEvaluationException;
+
+@DisplayName("SegmentEvaluator")
+class SegmentEvaluatorTest {
+
+    private static final String FORMULA = "max(a, b) * 3 - abs(a - b) / 7 + (a + 1) * (a + 1)";
+    // not a multiple of the chunk size
+    private static final int ROWS = 3 * ColumnarEvaluator.CHUNK_SIZE + 11;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("execute: arena-allocated columns -> same results as ColumnarEvaluator on arrays")
+    void arenaColumns() {
+        var program = compile(FORMULA);
+        long[][] columns = columns(ROWS);
+        long[] expected = new long[ROWS];
+        new ColumnarEvaluator().execute(program, columns, expected);
+
+        try (var arena = Arena.ofConfined()) {
+            var a = segment(arena, columns[0]);
+            var b = segment(arena, columns[1]);
+            var out = segment(arena, new long[ROWS]);
+
+            new SegmentEvaluator().execute(program, new MemorySegment[]{a, b}, out);
+            assertArrayEquals(expected, out.toArray(ValueLayout.JAVA_LONG));
+        }
+    }
+
+    @Test
+    @DisplayName("execute: memory-mapped big-endian column files, unaligned, into a mapped output file")
+    void mappedFiles() throws IOException {
+        var program = compile(FORMULA);
+        long[][] columns = columns(ROWS);
+        long[] expected = new long[ROWS];
+        new ColumnarEvaluator().execute(program, columns, expected);
+        // a 3-byte header leaves the values unaligned
+        var a = write(dir.resolve("a.col"), columns[0], 3);
+        var b = write(dir.resolve("b.col"), columns[1], 3);
+        var results = dir.resolve("out.col");
+
+        try (var arena = Arena.ofConfined();
+             var aChannel = FileChannel.open(a, StandardOpenOption.READ);
+             var bChannel = FileChannel.open(b, StandardOpenOption.READ);
+             var outChannel = FileChannel.open(results, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                 StandardOpenOption.WRITE)) {
+            var aColumn = aChannel.map(FileChannel.MapMode.READ_ONLY, 3, aChannel.size() - 3, arena);
+            var bColumn = bChannel.map(FileChannel.MapMode.READ_ONLY, 3, bChannel.size() - 3, arena);
+            var out = outChannel.map(FileChannel.MapMode.READ_WRITE, 0, (long) ROWS * Long.BYTES, arena);
+
+            new SegmentEvaluator(ByteOrder.BIG_ENDIAN).execute(program, new MemorySegment[]{aColumn, bColumn}, out);
+            out.force();
+        }
+
+        var written = ByteBuffer.wrap(Files.readAllBytes(results)).asLongBuffer();
+        long[] actual = new long[ROWS];
+        written.get(actual);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    @DisplayName("execute: a fault in a later chunk -> its absolute row")
+    void reportsAbsoluteRow() {
+        var program = compile("a / b");
+        long[][] columns = {new long[ROWS], new long[ROWS]};
+        Arrays.fill(columns[1], 1);
+        int failing = 2 * ColumnarEvaluator.CHUNK_SIZE + 5;
+        columns[1][failing] = 0;
+
+        try (var arena = Arena.ofConfined()) {
+            var segments = new MemorySegment[]{segment(arena, columns[0]), segment(arena, columns[1])};
+            var out = segment(arena, new long[ROWS]);
+
+            var e = assertThrows(SegmentEvaluationException.class,
+                () -> new SegmentEvaluator().execute(program, segments, out));
+            assertEquals(failing, e.row());
+            assertEquals("Row " + failing + ": Arithmetic error: / by zero", e.getMessage());
+        }
+    }
+
+    @Test
+    @DisplayName("execute: missing or short columns, partial values and read-only output -> rejected")
+    void rejectsBadSegments() {
+        var program = compile("a + b");
+        var evaluator = new SegmentEvaluator();
+        try (var arena = Arena.ofConfined()) {
+            var column = segment(arena, new long[4]);
+            var out = segment(arena, new long[4]);
+
+            assertThrows(EvaluationException.class,
+                () -> evaluator.execute(program, new MemorySegment[]{column}, out));
+            assertThrows(IllegalArgumentException.class,
+                () -> evaluator.execute(program, new MemorySegment[]{column, column.asSlice(8)}, out));
+            assertThrows(IllegalArgumentException.class,
+                () -> evaluator.execute(program, new MemorySegment[]{column, column}, out.asSlice(1)));
+            assertThrows(UnsupportedOperationException.class,
+                () -> evaluator.execute(program, new MemorySegment[]{column, column}, out.asReadOnly()));
+        }
+    }
+
+    private static long[][] columns(int rows) {
+        var random = new SplittableRandom(25);
+        long[][] columns = new long[2][rows];
+        for (long[] column : columns) {
+            for (int r = 0; r < rows; r++) {
+                column[r] = random.nextLong(-1_000_000, 1_000_000);
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Copies values into a new native segment; the allocation methods taking a layout differ between Java 21 and 22.
+     */
+    private static MemorySegment segment(Arena arena, long[] values) {
+        var segment = arena.allocate((long) values.length * Long.BYTES, Long.BYTES);
+        MemorySegment.copy(values, 0, segment, ValueLayout.JAVA_LONG, 0, values.length);
+        return segment;
+    }
+
+    private static Path write(Path file, long[] values, int header) throws IOException {
+        var bytes = ByteBuffer.allocate(header + values.length * Long.BYTES);
+        bytes.position(header);
+        bytes.asLongBuffer().put(values);
+        Files.write(file, bytes.array());
+        return file;
+    }
+}
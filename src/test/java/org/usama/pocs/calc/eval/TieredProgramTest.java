@@ -0,0 +1,133 @@
+package org.usama.pocs.calc.eval;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.usama.pocs.calc.testutil.TestPrograms.compile;
+import static org.usama.pocs.calc.testutil.TestPrograms.compileDecimal;
+
+import java.util.SplittableRandom;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.usama.pocs.calc.exception.EvaluationException;
+
+@DisplayName("TieredProgram")
+class TieredProgramTest {
+
+    private final RpnEvaluator interpreter = new RpnEvaluator();
+
+    @Test
+    @DisplayName("execute: compiled once the threshold is reached")
+    void executePromotes() {
+        var tiered = new TieredProgram(compile("x * 2 + 1"), 2);
+
+        assertEquals(7, tiered.execute(new long[]{3}, null));
+        assertEquals(9, tiered.execute(new long[]{4}, null));
+        assertFalse(tiered.isCompiled());
+
+        assertEquals(11, tiered.execute(new long[]{5}, null));
+        assertTrue(tiered.isCompiled());
+        assertEquals(13, tiered.execute(new long[]{6}, null));
+    }
+
+    @Test
+    @DisplayName("execute: threshold 0 compiles on first use, NEVER stays interpreted")
+    void executeThresholdBounds() {
+        var eager = new TieredProgram(compile("2 ^ 10"), 0);
+        assertEquals(1024, eager.execute());
+        assertTrue(eager.isCompiled());
+
+        var never = new TieredProgram(compile("2 ^ 10"), TieredProgram.NEVER);
+        for (int i = 0; i < 100; i++) {
+            never.execute();
+        }
+        assertFalse(never.isCompiled());
+        assertThrows(IllegalArgumentException.class, () -> new TieredProgram(compile("1"), -1));
+    }
+
+    @Test
+    @DisplayName("execute: compiled faults match the interpreter")
+    void executeCompiledFaults() {
+        var program = compile("x / y + 9223372036854775807 * y");
+        var tiered = new TieredProgram(program, 0);
+
+        assertEquals(messageOf(() -> interpreter.execute(program, new long[]{1, 0}, new long[3])),
+            messageOf(() -> tiered.execute(new long[]{1, 0}, null)));
+        assertEquals(messageOf(() -> interpreter.execute(program, new long[]{1, 2}, new long[3])),
+            messageOf(() -> tiered.execute(new long[]{1, 2}, null)));
+        assertEquals("Unbound variables: [y]", messageOf(() -> tiered.execute(new long[]{1}, null)));
+        assertTrue(tiered.isCompiled());
+    }
+
+    @Test
+    @DisplayName("execute: many variables and temporaries")
+    void executeManyVariables() {
+        var expression = IntStream.range(0, 300).mapToObj(i -> "v" + i + " * 3")
+            .collect(Collectors.joining(" + ")) + " + v0 * 3";
+        var program = new RpnOptimizer().optimize(compile(expression));
+        var tiered = new TieredProgram(program, 0);
+        long[] values = IntStream.range(0, 300).mapToLong(i -> i).toArray();
+
+        assertEquals(interpreter.execute(program, values, new long[program.maxStackDepth()]),
+            tiered.execute(values, null));
+        assertTrue(tiered.isCompiled());
+    }
+
+    @Test
+    @DisplayName("execute: program too large for one method stays interpreted without retrying")
+    void executeTooLarge() {
+        var expression = "x" + " + x".repeat(20_000);
+        var tiered = new TieredProgram(compile(expression), 0);
+
+        assertEquals(20_001 * 3L, tiered.execute(new long[]{3}, null));
+        assertFalse(tiered.isCompiled());
+        assertFalse(tiered.isPromotable(), "A failed compilation is final");
+        assertEquals(20_001 * 4L, tiered.execute(new long[]{4}, null));
+        assertFalse(tiered.isCompiled());
+
+        var decimal = new TieredDoubleProgram(compileDecimal(expression), 0);
+        assertEquals(20_001 * 0.5, decimal.execute(new double[]{0.5}, null));
+        assertFalse(decimal.isCompiled());
+        assertFalse(decimal.isPromotable(), "A failed compilation is final");
+    }
+
+    @Test
+    @DisplayName("execute: random expressions give the same result in both tiers")
+    void executeRandomExpressions() {
+        var random = new SplittableRandom(7);
+        String[] operands = {"0", "1", "2", "-3", "1000", "9223372036854775807", "a", "b", "c", "- b",
+            "abs(a)", "max(a, c, 2)", "min(b, -3)", "abs(- 9223372036854775807 - 1)"};
+        String[] operators = {"+", "-", "*", "/", "^"};
+        var optimizer = new RpnOptimizer();
+
+        for (int i = 0; i < 500; i++) {
+            var sb = new StringBuilder(operands[random.nextInt(operands.length)]);
+            for (int n = random.nextInt(1, 12); n > 0; n--) {
+                sb.append(' ').append(operators[random.nextInt(operators.length)])
+                    .append(' ').append(operands[random.nextInt(operands.length)]);
+            }
+            var program = optimizer.optimize(compile(sb + " + " + sb));
+            var tiered = new TieredProgram(program, 0);
+            long[] values = {random.nextLong(-5, 5), random.nextLong(), random.nextLong(-3, 4)};
+
+            String expected = outcome(() -> interpreter.execute(program, values, new long[program.maxStackDepth()]));
+            assertEquals(expected, outcome(() -> tiered.execute(values, null)), program.toString());
+        }
+    }
+
+    private static String outcome(LongSupplier evaluation) {
+        try {
+            return Long.toString(evaluation.getAsLong());
+        } catch (EvaluationException e) {
+            return e.getMessage();
+        }
+    }
+
+    private static String messageOf(LongSupplier evaluation) {
+        return assertThrows(EvaluationException.class, evaluation::getAsLong).getMessage();
+    }
+}
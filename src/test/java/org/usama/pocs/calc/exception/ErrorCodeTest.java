@@ -0,0 +1,33 @@
+package org.usama.pocs.calc.exception;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.stream.Stream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.usama.pocs.calc.lex.TokenType;
+
+@DisplayName("ErrorCode")
+class ErrorCodeTest {
+
+    @ParameterizedTest(name = "[{index}] of({0}) -> {1}")
+    @MethodSource("failures")
+    void of(Throwable failure, ErrorCode expected) {
+        assertEquals(expected, ErrorCode.of(failure));
+    }
+
+    static Stream<Object[]> failures() {
+        return Stream.of(
+            new Object[]{new EmptyExpressionException(), ErrorCode.EMPTY_EXPRESSION},
+            new Object[]{new UnrecognizedTokenException("$", TokenType.NUMBER), ErrorCode.UNRECOGNIZED_TOKEN},
+            new Object[]{new InvalidTokenException("?", TokenType.OPERATOR), ErrorCode.INVALID_TOKEN},
+            new Object[]{new LexicalException("lexical"), ErrorCode.LEXICAL_ERROR},
+            new Object[]{new UnexpectedTokenException("+", TokenType.NUMBER), ErrorCode.UNEXPECTED_TOKEN},
+            new Object[]{new SyntaxException("syntax"), ErrorCode.SYNTAX_ERROR},
+            new Object[]{new EvaluationException("Arithmetic error: / by zero"), ErrorCode.EVALUATION_ERROR},
+            new Object[]{new BatchEvaluationException(3, new EvaluationException("x")), ErrorCode.EVALUATION_ERROR},
+            new Object[]{new IllegalStateException(), ErrorCode.INTERNAL_ERROR}
+        );
+    }
+}
@@ -0,0 +1,198 @@
+package org.usama.pocs.calc.graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.usama.pocs.calc.api.Calculator;
+import org.usama.pocs.calc.exception.CalcException;
+import org.usama.pocs.calc.exception.EvaluationException;
+
+@DisplayName("FormulaGraph")
+class FormulaGraphTest {
+
+    private FormulaGraph graph;
+
+    @BeforeEach
+    void setUp() {
+        graph = new FormulaGraph(new Calculator());
+    }
+
+    @Test
+    @DisplayName("value: formulas defined before what they reference -> evaluated in dependency order")
+    void definitionOrder() {
+        graph.define("total", "net + tax");
+        graph.define("tax", "net * rate / 100");
+        graph.define("net", "price * qty");
+        graph.set("price", 20);
+        graph.set("qty", 3);
+        graph.set("rate", 10);
+
+        assertEquals(66, graph.value("total"));
+        assertEquals(6, graph.value("tax"));
+        assertEquals(20, graph.value("price"));
+        assertTrue(graph.isFormula("net"));
+        assertFalse(graph.isFormula("qty"));
+        assertEquals(6, graph.size());
+    }
+
+    @Test
+    @DisplayName("recalculate: only formulas downstream of a changed input are evaluated")
+    void onlyDirtyFormulas() {
+        graph.define("a2", "a * 2");
+        graph.define("a4", "a2 * 2");
+        graph.define("b2", "b * 2");
+        graph.define("sum", "a4 + b2");
+        graph.set("a", 1);
+        graph.set("b", 1);
+        assertEquals(4, graph.recalculate());
+        assertEquals(0, graph.recalculate());
+
+        graph.set("b", 5);
+        assertEquals(2, graph.recalculate(), "b2 and sum");
+        assertEquals(14, graph.value("sum"));
+
+        graph.set("b", 5);
+        assertEquals(0, graph.recalculate(), "Setting the same value changes nothing");
+    }
+
+    @Test
+    @DisplayName("recalculate: a formula whose result is unchanged does not make its dependents stale")
+    void earlyCutoff() {
+        graph.define("clamped", "min(x, 10)");
+        graph.define("out", "clamped * 3");
+        graph.set("x", 50);
+        assertEquals(30, graph.value("out"));
+
+        graph.set("x", 60);
+        assertEquals(1, graph.recalculate(), "Only clamped, still 10");
+        graph.set("x", 4);
+        assertEquals(2, graph.recalculate());
+        assertEquals(12, graph.value("out"));
+    }
+
+    @Test
+    @DisplayName("define: redefining a formula rewires its references")
+    void redefine() {
+        graph.define("y", "a + 1");
+        graph.define("z", "y * 10");
+        graph.set("a", 1);
+        graph.set("b", 100);
+        assertEquals(20, graph.value("z"));
+
+        graph.define("y", "b + 1");
+        assertEquals(1010, graph.value("z"));
+        graph.set("a", 2);
+        assertEquals(0, graph.recalculate(), "y no longer reads a");
+        graph.set("b", 200);
+        assertEquals(2010, graph.value("z"));
+
+        graph.define("a", "7");
+        graph.define("y", "a + b");
+        assertEquals(2070, graph.value("z"), "An input can become a formula");
+    }
+
+    @ParameterizedTest(name = "define({0} = \"{1}\") -> rejected with \"{2}\"")
+    @CsvSource(
+        value = {
+            "a | a + 1 | a -> a",
+            "c | a * 2 | c -> a -> b -> c",
+            "b | c - a | b -> a -> b"
+        },
+        delimiter = '|'
+    )
+    void cyclesRejected(String name, String formula, String cycle) {
+        graph.define("a", "b + 1");
+        graph.define("b", "c + 1");
+        graph.set("c", 1);
+        assertEquals(3, graph.value("a"));
+
+        var e = assertThrows(IllegalArgumentException.class, () -> graph.define(name, formula));
+        assertEquals("Cyclic reference: " + cycle, e.getMessage());
+
+        graph.set("c", 2);
+        assertEquals(4, graph.value("a"), "A rejected definition leaves the graph unchanged");
+    }
+
+    @Test
+    @DisplayName("define/set: invalid formulas and setting a formula -> rejected")
+    void invalidUpdates() {
+        graph.define("f", "x + 1");
+        assertThrows(CalcException.class, () -> graph.define("g", "x +"));
+        assertThrows(IllegalArgumentException.class, () -> graph.set("f", 1));
+        assertThrows(IllegalArgumentException.class, () -> graph.value("unknown"));
+        assertFalse(graph.isFormula("g"));
+    }
+
+    @Test
+    @DisplayName("value: failures and missing inputs propagate downstream until fixed")
+    void errorsPropagate() {
+        graph.define("ratio", "num / den");
+        graph.define("pct", "ratio * 100");
+        graph.set("num", 1);
+
+        var missing = assertThrows(EvaluationException.class, () -> graph.value("pct"));
+        assertTrue(missing.getMessage().contains("den"), missing.getMessage());
+        assertThrows(EvaluationException.class, () -> graph.value("den"));
+
+        graph.set("den", 0);
+        var divide = assertThrows(EvaluationException.class, () -> graph.value("pct"));
+        assertSame(divide, assertThrows(EvaluationException.class, () -> graph.value("ratio")));
+
+        graph.set("num", 3);
+        graph.set("den", 1);
+        assertEquals(300, graph.value("pct"));
+    }
+
+    @Test
+    @DisplayName("recalculateParallel: wide and deep random graphs -> same values as recalculate")
+    void parallelMatchesSequential() {
+        var random = new SplittableRandom(23);
+        var sequential = new FormulaGraph(new Calculator());
+        var parallel = new FormulaGraph(new Calculator());
+        int inputs = 50;
+        int formulas = 3000;
+        for (int i = 0; i < formulas; i++) {
+            // references only earlier names, in three layers wide enough to be split across the pool
+            int layerStart = i < 1000 ? 0 : i < 2000 ? 1000 : 2000;
+            var formula = new StringBuilder();
+            for (int r = 0; r < 3; r++) {
+                formula.append(r == 0 ? "" : r == 1 ? " + " : " - ");
+                formula.append(layerStart == 0 || random.nextInt(4) == 0
+                    ? "in" + random.nextInt(inputs)
+                    : "f" + (layerStart - 1000 + random.nextInt(1000)));
+            }
+            sequential.define("f" + i, formula.toString());
+            parallel.define("f" + i, formula.toString());
+        }
+        for (int i = 0; i < inputs; i++) {
+            sequential.set("in" + i, i);
+            parallel.set("in" + i, i);
+        }
+
+        var pool = new ForkJoinPool(4);
+        try {
+            for (int round = 0; round < 5; round++) {
+                assertEquals(sequential.recalculate(), parallel.recalculateParallel(pool));
+                for (int i = 0; i < formulas; i++) {
+                    assertEquals(sequential.value("f" + i), parallel.value("f" + i), "f" + i);
+                }
+                int input = random.nextInt(inputs);
+                long value = random.nextLong(-1000, 1000);
+                sequential.set("in" + input, value);
+                parallel.set("in" + input, value);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -1,9 +1,15 @@
 package org.usama.pocs.calc.lex;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.usama.pocs.calc.testutil.TestTokens.COMMA;
+import static org.usama.pocs.calc.testutil.TestTokens.FUN;
+import static org.usama.pocs.calc.testutil.TestTokens.LPAREN;
 import static org.usama.pocs.calc.testutil.TestTokens.NUM;
 import static org.usama.pocs.calc.testutil.TestTokens.OP;
+import static org.usama.pocs.calc.testutil.TestTokens.RPAREN;
+import static org.usama.pocs.calc.testutil.TestTokens.VAR;
 
 import java.util.List;
 import java.util.stream.Stream;
@@ -11,8 +17,11 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.usama.pocs.calc.exception.CalcException;
 import org.usama.pocs.calc.exception.EmptyExpressionException;
+import org.usama.pocs.calc.exception.ErrorCode;
 import org.usama.pocs.calc.exception.UnexpectedTokenException;
 import org.usama.pocs.calc.exception.UnrecognizedTokenException;
 
@@ -79,6 +88,15 @@ class LexerTest {
         assertEquals(expectedTokens, tokens, "Tokens do not match expected tokens");
     }
 
+    @Test
+    @DisplayName("tokenize: decimal numbers")
+    void tokenizeDecimals() {
+        var tokens = lexer.tokenize("19.99 * -0.25 + x");
+        var expectedTokens = List.of(NUM("19.99"), OP("*"), NUM("-0.25"), OP("+"), VAR("x"));
+
+        assertEquals(expectedTokens, tokens, "Tokens do not match expected tokens");
+    }
+
     @Test
     @DisplayName("tokenize: handles extra whitespace")
     void tokenizeExtraSpaces() {
@@ -112,6 +130,112 @@ class LexerTest {
             "Null expression should fail");
     }
 
+    @Test
+    @DisplayName("tokenize: variable names are operands")
+    void tokenizeVariables() {
+        var tokens = lexer.tokenize("price * qty_2 + _fee");
+        var expectedTokens = List.of(
+            new Token(TokenType.VARIABLE, "price"),
+            OP("*"),
+            new Token(TokenType.VARIABLE, "qty_2"),
+            OP("+"),
+            new Token(TokenType.VARIABLE, "_fee")
+        );
+
+        assertEquals(expectedTokens, tokens, "Tokens do not match expected tokens");
+    }
+
+    @Test
+    @DisplayName("tokenize: parentheses, commas and function calls need no whitespace")
+    void tokenizeGroupsAndCalls() {
+        var tokens = lexer.tokenize("- max(x,-2) * (1 + y)");
+        var expectedTokens = List.of(
+            OP("-"), FUN("max"), LPAREN(), VAR("x"), COMMA(), NUM("-2"), RPAREN(),
+            OP("*"), LPAREN(), NUM("1"), OP("+"), VAR("y"), RPAREN()
+        );
+
+        assertEquals(expectedTokens, tokens, "Tokens do not match expected tokens");
+    }
+
+    @Test
+    @DisplayName("tokenize: operators need no whitespace")
+    void tokenizeWithoutWhitespace() {
+        assertEquals(List.of(NUM("1"), OP("+"), NUM("2")), lexer.tokenize("1+2"));
+        assertEquals(
+            List.of(NUM("2"), OP("*"), LPAREN(), NUM("3"), OP("-"), VAR("x_1"), RPAREN(), OP("^"), NUM("-2")),
+            lexer.tokenize("2*(3-x_1)^-2"));
+        assertEquals(List.of(OP("-"), FUN("max"), LPAREN(), NUM("-1.5"), COMMA(), OP("-"), VAR("y"), RPAREN()),
+            lexer.tokenize("-max(-1.5,-y)"));
+    }
+
+    @ParameterizedTest(name = "tokenize: ''{0}'' -> {1}")
+    @CsvSource(delimiter = '|', value = {
+        "2-3     | 2, -, 3",
+        "2 -3    | 2, -, 3",
+        "2 - -3  | 2, -, -3",
+        "2--3    | 2, -, -3",
+        "-3-x    | -3, -, x",
+        "- 3     | -, 3",
+        "--3     | -, -3",
+        "+3 * +4  | +3, *, +4",
+        "x+-y    | x, +, -, y"
+    })
+    void tokenizeSignOrMinus(String expr, String expected) {
+        var texts = lexer.tokenize(expr).stream().map(Token::value).toList();
+
+        assertEquals(List.of(expected.split(", ")), texts, "A sign where an operand is expected, else an operator");
+    }
+
+    @Test
+    @DisplayName("scan: records types and offsets and reuses the buffer")
+    void scanIntoReusableBuffer() {
+        var buffer = new TokenBuffer(1);
+
+        assertEquals(5, lexer.scan(" 12\t+ -3 * 4", buffer));
+        assertEquals(TokenType.NUMBER, buffer.type(2));
+        assertEquals(6, buffer.start(2));
+        assertEquals(8, buffer.end(2));
+        assertEquals("-3", buffer.text(" 12\t+ -3 * 4", 2));
+
+        assertEquals(1, lexer.scan("7", buffer));
+        assertEquals(NUM("7"), buffer.token("7", 0));
+    }
+
+    @ParameterizedTest(name = "tryScan: ''{0}'' -> {1} at [{2}, {3})")
+    @CsvSource(delimiter = '|', value = {
+        "''          | EMPTY_EXPRESSION   | 0  | 0",
+        "'  \t '     | EMPTY_EXPRESSION   | 0  | 0",
+        "1 + $x      | UNRECOGNIZED_TOKEN | 4  | 6",
+        "1 + 2.      | UNRECOGNIZED_TOKEN | 4  | 6",
+        "x y + 3     | UNEXPECTED_TOKEN   | 2  | 3",
+        "2 (3)       | UNEXPECTED_TOKEN   | 2  | 3",
+        "'1 + 2 -  ' | UNEXPECTED_TOKEN   | 9  | 9",
+        "max(1,)     | UNEXPECTED_TOKEN   | 6  | 7",
+        "1 + 2 -+3   | UNRECOGNIZED_TOKEN | 6  | 8"
+    })
+    void tryScanRecordsFailure(String expr, ErrorCode error, int start, int end) {
+        var buffer = new TokenBuffer();
+
+        assertEquals(-1, lexer.tryScan(expr, buffer));
+        assertEquals(error, buffer.error());
+        assertEquals(start, buffer.errorStart());
+        assertEquals(end, buffer.errorEnd());
+
+        assertEquals(3, lexer.tryScan("1 + 2", buffer));
+        assertNull(buffer.error(), "A new scan clears the failure");
+    }
+
+    @ParameterizedTest(name = "tryScan: invalid -> same code as the exception of scan, {2}")
+    @MethodSource("invalidExpressions")
+    void tryScanAgreesWithScan(Class<? extends RuntimeException> expected, String expr, String why) {
+        var buffer = new TokenBuffer();
+        var thrown = assertThrows(CalcException.class, () -> lexer.scan(expr, buffer));
+
+        assertEquals(-1, lexer.tryScan(expr, buffer));
+        assertEquals(ErrorCode.of(thrown), buffer.error(), why);
+        assertEquals(0, thrown.getStackTrace().length, "Input errors carry no stack trace");
+    }
+
     @ParameterizedTest(name = "tokenize: invalid -> {1}")
     @MethodSource("invalidExpressions")
     void tokenizeInvalidInputs(Class<? extends RuntimeException> expected, String expr, String why) {
@@ -120,12 +244,18 @@ class LexerTest {
 
     static Stream<Object[]> invalidExpressions() {
         return Stream.of(
-            // wrong numeric format (doubles not allowed)
-            new Object[]{UnrecognizedTokenException.class, "1 + 2 - 3.5", "Doubles are not accepted"},
+            // malformed decimals
+            new Object[]{UnrecognizedTokenException.class, "1 + 2 - 3.", "A decimal point needs a fraction"},
+            new Object[]{UnrecognizedTokenException.class, "1 + .5", "A decimal point needs an integer part"},
+            new Object[]{UnrecognizedTokenException.class, "1 + 2.5.1", "Only one decimal point"},
             // starts with operator
             new Object[]{UnexpectedTokenException.class, "+ 2 - 3", "Expression cannot start with an operator"},
             // non-integer token
-            new Object[]{UnrecognizedTokenException.class, "x + 2 - 3", "Non-integer token should fail"},
+            new Object[]{UnrecognizedTokenException.class, "$x + 2 - 3", "Non-integer, non-identifier token should fail"},
+            // identifier with an invalid character
+            new Object[]{UnrecognizedTokenException.class, "rate.x + 2", "Malformed identifier should fail"},
+            // consecutive variables (missing operator)
+            new Object[]{UnexpectedTokenException.class, "x y + 3", "Two operands in a row should fail"},
             // ends with operator
             new Object[]{UnexpectedTokenException.class, "1 + 2 -", "Expression cannot end with operator"},
             // consecutive numbers (missing operator)
@@ -134,10 +264,16 @@ class LexerTest {
             new Object[]{UnexpectedTokenException.class, "1 + * 2", "Two operators in a row should fail"},
             // unknown operator
             new Object[]{UnrecognizedTokenException.class, "1 % 2", "Unsupported operator should fail"},
-            // no whitespace between tokens
-            new Object[]{UnrecognizedTokenException.class, "1+2", "No whitespace between tokens should fail"},
             // malformed signed number
-            new Object[]{UnrecognizedTokenException.class, "1 + 2 -+3", "Bad sign sequence should fail"}
+            new Object[]{UnrecognizedTokenException.class, "1 + 2 -+3", "Bad sign sequence should fail"},
+            new Object[]{UnrecognizedTokenException.class, "1+*2", "Only minus may directly follow an operator"},
+            new Object[]{UnexpectedTokenException.class, "1 + + 2", "Unary plus does not exist"},
+            new Object[]{UnrecognizedTokenException.class, "2x+1", "A name cannot start with a digit"},
+            // misplaced punctuation
+            new Object[]{UnexpectedTokenException.class, "( )", "Empty group should fail"},
+            new Object[]{UnexpectedTokenException.class, "2 (3)", "Group right after an operand should fail"},
+            new Object[]{UnexpectedTokenException.class, "max(1,)", "Missing argument should fail"},
+            new Object[]{UnexpectedTokenException.class, "2 * ^ 3", "Only minus can be a prefix operator"}
         );
     }
 }
\ No newline at end of file
@@ -0,0 +1,111 @@
+package org.usama.pocs.calc.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.usama.pocs.calc.api.CalcResult;
+import org.usama.pocs.calc.api.Calculator;
+import org.usama.pocs.calc.exception.CalcException;
+
+@DisplayName("MetricsRecorder")
+class MetricsRecorderTest {
+
+    private MetricsRecorder metrics;
+    private Calculator calculator;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new MetricsRecorder();
+        calculator = Calculator.builder().instrumentation(metrics).build();
+    }
+
+    @Test
+    @DisplayName("snapshot: counts calls, cache lookups and stage latencies")
+    void snapshotCountsCallsAndStages() {
+        calculator.calculate("1 + 2");
+        calculator.calculate("1 + 2");
+        calculator.calculate("3 * 4");
+
+        var snapshot = metrics.snapshot();
+        assertEquals(3, snapshot.calls());
+        assertEquals(1, snapshot.cacheHits());
+        assertEquals(2, snapshot.cacheMisses());
+        assertEquals(2, snapshot.lex().count(), "Only cache misses are lexed");
+        assertEquals(2, snapshot.parse().count(), "Only cache misses are parsed");
+        assertEquals(3, snapshot.evaluate().count());
+    }
+
+    @Test
+    @DisplayName("snapshot: errors are counted per CalcException subtype")
+    void snapshotCountsErrorsByType() {
+        assertThrows(CalcException.class, () -> calculator.calculate("1 / 0"));
+        assertThrows(CalcException.class, () -> calculator.calculate("1 +"));
+        assertThrows(CalcException.class, () -> calculator.calculate("1 % 2"));
+        assertThrows(CalcException.class, () -> calculator.calculate("2 / 0"));
+
+        var snapshot = metrics.snapshot();
+        assertEquals(
+            Map.of("EvaluationException", 2L, "UnexpectedTokenException", 1L, "UnrecognizedTokenException", 1L),
+            snapshot.errors());
+        assertEquals(4, snapshot.errorCount());
+    }
+
+    @Test
+    @DisplayName("snapshot: tryCalculate counts rejections like the exceptions calculate would throw")
+    void snapshotCountsRejectionsByType() {
+        var result = new CalcResult();
+        calculator.tryCalculate("1 / 0", result);
+        calculator.tryCalculate("1 +", result);
+        calculator.tryCalculate("1 % 2", result);
+        calculator.tryCalculate("2 / 0", result);
+
+        assertEquals(
+            Map.of("EvaluationException", 2L, "UnexpectedTokenException", 1L, "UnrecognizedTokenException", 1L),
+            metrics.snapshot().errors());
+    }
+
+    @Test
+    @DisplayName("registerMBean: attributes are readable over JMX")
+    void registerMBeanExposesAttributes() throws Exception {
+        calculator.calculate("5 - 3");
+        var name = metrics.registerMBean("org.usama.pocs.calc:type=Calculator,name=test");
+        try {
+            var server = ManagementFactory.getPlatformMBeanServer();
+            assertEquals(1L, server.getAttribute(name, "Calls"));
+            assertTrue((Long) server.getAttribute(name, "EvaluateP99Nanos") >= 0);
+        } finally {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+    }
+
+    @Test
+    @DisplayName("LatencyRecorder: percentiles are within the bucket error")
+    void latencyRecorderPercentiles() {
+        var recorder = new LatencyRecorder();
+        for (long v = 1; v <= 10_000; v++) {
+            recorder.record(v * 1_000);
+        }
+
+        var snapshot = recorder.snapshot();
+        assertEquals(10_000, snapshot.count());
+        assertEquals(5_000_000, snapshot.p50(), 5_000_000 * 0.035);
+        assertEquals(9_900_000, snapshot.p99(), 9_900_000 * 0.035);
+        assertEquals(10_000_000, snapshot.max());
+    }
+
+    @Test
+    @DisplayName("LatencyRecorder: bucket bounds are contiguous")
+    void latencyRecorderBucketsAreContiguous() {
+        for (long v : new long[]{0, 1, 63, 64, 65, 127, 128, 1_000_003, Long.MAX_VALUE}) {
+            int bucket = LatencyRecorder.bucketOf(v);
+            assertTrue(LatencyRecorder.upperBoundOf(bucket) >= v, "upper bound below value " + v);
+            assertTrue(bucket == 0 || LatencyRecorder.upperBoundOf(bucket - 1) < v, "value in wrong bucket " + v);
+        }
+    }
+}
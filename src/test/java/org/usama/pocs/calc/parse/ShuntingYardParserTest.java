@@ -1,13 +1,32 @@
 package org.usama.pocs.calc.parse;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.usama.pocs.calc.testutil.TestTokens.COMMA;
+import static org.usama.pocs.calc.testutil.TestTokens.FUN;
+import static org.usama.pocs.calc.testutil.TestTokens.LPAREN;
 import static org.usama.pocs.calc.testutil.TestTokens.NUM;
 import static org.usama.pocs.calc.testutil.TestTokens.OP;
+import static org.usama.pocs.calc.testutil.TestTokens.RPAREN;
+import static org.usama.pocs.calc.testutil.TestTokens.VAR;
 
 import java.util.List;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.usama.pocs.calc.exception.CalcException;
+import org.usama.pocs.calc.exception.ErrorCode;
+import org.usama.pocs.calc.exception.UnexpectedTokenException;
+import org.usama.pocs.calc.exception.UnrecognizedTokenException;
+import org.usama.pocs.calc.lex.Lexer;
+import org.usama.pocs.calc.lex.Token;
+import org.usama.pocs.calc.lex.TokenBuffer;
 
 @DisplayName("ShuntingYardParser")
 class ShuntingYardParserTest {
@@ -66,4 +85,111 @@ class ShuntingYardParserTest {
 
         assertEquals(expectedTokens, tokens, "RPN Tokens do not match expected tokens");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("variables are operands like numbers")
+    void parseVariables() {
+        var tokens = parser.parse(
+            List.of(VAR("x"), OP("+"), NUM("2"), OP("*"), VAR("y"))
+        );
+
+        var expectedTokens = List.of(VAR("x"), NUM("2"), VAR("y"), OP("*"), OP("+"));
+
+        assertEquals(expectedTokens, tokens, "RPN Tokens do not match expected tokens");
+    }
+
+    @Test
+    @DisplayName("parentheses override precedence")
+    void parseGroups() {
+        var tokens = parser.parse(
+            List.of(LPAREN(), NUM("1"), OP("+"), NUM("2"), RPAREN(), OP("*"), NUM("3"))
+        );
+
+        var expectedTokens = List.of(NUM("1"), NUM("2"), OP("+"), NUM("3"), OP("*"));
+
+        assertEquals(expectedTokens, tokens, "RPN Tokens do not match expected tokens");
+    }
+
+    @Test
+    @DisplayName("unary minus binds looser than ^ and tighter than *")
+    void parseUnaryMinus() {
+        var tokens = parser.parse(
+            List.of(OP("-"), NUM("2"), OP("^"), NUM("2"), OP("*"), OP("-"), VAR("x"))
+        );
+
+        var expectedTokens = List.of(NUM("2"), NUM("2"), OP("^"), FUN("neg"), VAR("x"), FUN("neg"), OP("*"));
+
+        assertEquals(expectedTokens, tokens, "RPN Tokens do not match expected tokens");
+    }
+
+    @Test
+    @DisplayName("variadic functions fold their arguments pairwise")
+    void parseFunctions() {
+        var tokens = parser.parse(
+            List.of(FUN("max"), LPAREN(), NUM("1"), COMMA(), FUN("abs"), LPAREN(), VAR("x"), RPAREN(), COMMA(),
+                NUM("2"), OP("+"), NUM("3"), RPAREN())
+        );
+
+        var expectedTokens = List.of(
+            NUM("1"), VAR("x"), FUN("abs"), FUN("max"), NUM("2"), NUM("3"), OP("+"), FUN("max"));
+
+        assertEquals(expectedTokens, tokens, "RPN Tokens do not match expected tokens");
+    }
+
+    @ParameterizedTest(name = "parse: invalid -> {1}")
+    @MethodSource("invalidExpressions")
+    void parseInvalidInputs(Class<? extends CalcException> expected, String expression) {
+        List<Token> tokens = new Lexer().tokenize(expression);
+        assertThrows(expected, () -> parser.parse(tokens));
+    }
+
+    @ParameterizedTest(name = "check: invalid -> same code as the exception of parse, {1}")
+    @MethodSource("invalidExpressions")
+    void checkAgreesWithParse(Class<? extends CalcException> expected, String expression) {
+        var tokens = new TokenBuffer();
+        new Lexer().scan(expression, tokens);
+
+        assertFalse(new ShuntingYardParser().check(expression, tokens));
+        assertEquals(ErrorCode.of(assertThrows(expected, () -> parser.parse(new Lexer().tokenize(expression)))),
+            tokens.error());
+    }
+
+    @ParameterizedTest(name = "check: ''{0}'' -> {1} at offset {2}")
+    @CsvSource(delimiter = '|', value = {
+        "( 1 + 2            | UNEXPECTED_TOKEN   | 7",
+        "1 + 2 )            | UNEXPECTED_TOKEN   | 6",
+        "(1, 2)             | UNEXPECTED_TOKEN   | 2",
+        "max(abs(1, 2), 3)  | UNEXPECTED_TOKEN   | 12",
+        "1 + sqrt(4)        | UNRECOGNIZED_TOKEN | 4"
+    })
+    void checkRecordsOffset(String expression, ErrorCode error, int offset) {
+        var tokens = new TokenBuffer();
+        new Lexer().scan(expression, tokens);
+
+        assertFalse(new ShuntingYardParser().check(expression, tokens));
+        assertEquals(error, tokens.error());
+        assertEquals(offset, tokens.errorStart());
+    }
+
+    @Test
+    @DisplayName("check: valid groups and calls pass")
+    void checkAcceptsValidExpressions() {
+        var checker = new ShuntingYardParser();
+        var tokens = new TokenBuffer();
+        for (var expression : List.of("1", "-(1 + 2) * x", "max(1, abs(-2), min(3, 4), 5) ^ 2", "((1))")) {
+            new Lexer().scan(expression, tokens);
+            assertTrue(checker.check(expression, tokens), expression);
+        }
+    }
+
+    static Stream<Object[]> invalidExpressions() {
+        return Stream.of(
+            new Object[]{UnexpectedTokenException.class, "( 1 + 2"},
+            new Object[]{UnexpectedTokenException.class, "1 + 2 )"},
+            new Object[]{UnexpectedTokenException.class, "( 1 , 2 )"},
+            new Object[]{UnexpectedTokenException.class, "abs(1, 2)"},
+            new Object[]{UnrecognizedTokenException.class, "sqrt(4)"},
+            new Object[]{UnrecognizedTokenException.class, "neg(4)"}
+        );
+    }
+}
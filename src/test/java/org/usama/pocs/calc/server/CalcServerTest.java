@@ -0,0 +1,99 @@
+package org.usama.pocs.calc.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.usama.pocs.calc.api.Calculator;
+import org.usama.pocs.calc.exception.ErrorCode;
+
+@DisplayName("CalcServer")
+class CalcServerTest {
+
+    private CalcServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = CalcServer.tcp(0, new Calculator());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    @DisplayName("call: result or error code per expression")
+    void call() throws IOException {
+        try (var client = CalcClient.connect(server.address())) {
+            assertEquals(new CalcClient.Response(14, null, null), client.call("2 + 3 * 4"));
+
+            var error = client.call("1 / 0");
+            assertFalse(error.isOk());
+            assertEquals(ErrorCode.EVALUATION_ERROR, error.error());
+            assertEquals("Arithmetic error: / by zero", error.message());
+
+            assertEquals(ErrorCode.EMPTY_EXPRESSION, client.call("").error());
+            assertEquals(ErrorCode.UNEXPECTED_TOKEN, client.call("1 + + 2").error());
+            assertEquals(ErrorCode.UNRECOGNIZED_TOKEN, client.call("1 + 2$").error());
+        }
+    }
+
+    @Test
+    @DisplayName("send/receive: pipelined responses arrive in request order")
+    void pipeline() throws IOException {
+        try (var client = CalcClient.connect(server.address())) {
+            for (int i = 0; i < 1000; i++) {
+                client.send(i + " * 2");
+            }
+            client.flush();
+
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(i * 2L, client.receive().value());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("connections: served concurrently and independently")
+    void concurrentConnections() throws IOException {
+        List<CalcClient> clients = new ArrayList<>();
+        try {
+            for (int i = 0; i < 16; i++) {
+                clients.add(CalcClient.connect(server.address()));
+            }
+            for (int i = 0; i < clients.size(); i++) {
+                clients.get(i).send(i + " + 1");
+                clients.get(i).flush();
+            }
+            for (int i = clients.size() - 1; i >= 0; i--) {
+                assertEquals(i + 1L, clients.get(i).receive().value());
+            }
+        } finally {
+            for (var client : clients) {
+                client.close();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("unix: Unix domain socket, removed on close")
+    void unixDomainSocket(@TempDir Path dir) throws IOException {
+        var path = dir.resolve("calc.sock");
+        try (var unixServer = CalcServer.unix(path, new Calculator());
+             var client = CalcClient.connect(unixServer.address())) {
+            assertTrue(path.toFile().exists());
+            assertEquals(8, client.call("2 ^ 3").value());
+        }
+        assertFalse(path.toFile().exists());
+    }
+}
@@ -0,0 +1,22 @@
+package org.usama.pocs.calc.testutil;
+
+import org.usama.pocs.calc.eval.DecimalProgram;
+import org.usama.pocs.calc.eval.RpnCompiler;
+import org.usama.pocs.calc.eval.RpnProgram;
+import org.usama.pocs.calc.lex.Lexer;
+import org.usama.pocs.calc.parse.ShuntingYardParser;
+
+public class TestPrograms {
+
+    private TestPrograms() {
+    }
+
+    public static RpnProgram compile(String expression) {
+        return new RpnCompiler().compile(new ShuntingYardParser().parse(new Lexer().tokenize(expression)));
+    }
+
+    public static DecimalProgram compileDecimal(String expression) {
+        return new RpnCompiler().compileDecimal(new ShuntingYardParser().parse(new Lexer().tokenize(expression)));
+    }
+
+}
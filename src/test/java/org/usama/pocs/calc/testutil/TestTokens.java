@@ -14,8 +14,28 @@ public class TestTokens {
         return new Token(NUMBER, value);
     }
 
+    public static Token VAR(String value) {
+        return new Token(TokenType.VARIABLE, value);
+    }
+
     public static Token OP(String value) {
         return new Token(TokenType.OPERATOR, value);
     }
 
+    public static Token FUN(String value) {
+        return new Token(TokenType.FUNCTION, value);
+    }
+
+    public static Token LPAREN() {
+        return new Token(TokenType.LEFT_PAREN, "(");
+    }
+
+    public static Token RPAREN() {
+        return new Token(TokenType.RIGHT_PAREN, ")");
+    }
+
+    public static Token COMMA() {
+        return new Token(TokenType.COMMA, ",");
+    }
+
 }